@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Reads and writes the row filter of the columnar input steps. The filter is a {@link Condition} over the output
+ * fields, as in Filter Rows; rows that do not match are dropped by the input step as they are read.
+ */
+public class FormatInputFilter {
+
+  public static final String XML_TAG = "filter";
+  public static final String REP_ATTRIBUTE = "filter_condition";
+
+  private FormatInputFilter() {
+  }
+
+  /**
+   * @return the XML of the filter, or an empty string when there is no filter
+   */
+  public static String getXML( Condition filter ) {
+    if ( filter == null || filter.isEmpty() ) {
+      return "";
+    }
+    try {
+      return "    " + XMLHandler.openTag( XML_TAG ) + Const.CR + filter.getXML() + "    "
+        + XMLHandler.closeTag( XML_TAG ) + Const.CR;
+    } catch ( KettleException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * @return the filter stored under the step node, or an empty condition
+   */
+  public static Condition loadXML( Node stepnode ) throws KettleXMLException {
+    Node conditionNode = XMLHandler.getSubNode( XMLHandler.getSubNode( stepnode, XML_TAG ), "condition" );
+    return conditionNode == null ? new Condition() : new Condition( conditionNode );
+  }
+
+  /**
+   * @return the XML of the condition alone, as metadata injection takes it, or an empty string when there is no filter
+   */
+  public static String toConditionXML( Condition filter ) {
+    if ( filter == null || filter.isEmpty() ) {
+      return "";
+    }
+    try {
+      return filter.getXML();
+    } catch ( KettleException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * @return the filter described by the XML of a condition, or an empty condition for an empty string
+   * @throws IllegalArgumentException if the XML does not describe a condition
+   */
+  public static Condition fromConditionXML( String xml ) {
+    if ( Utils.isEmpty( xml ) ) {
+      return new Condition();
+    }
+    try {
+      return new Condition( xml );
+    } catch ( KettleXMLException e ) {
+      throw new IllegalArgumentException( e );
+    }
+  }
+
+  public static void saveRep( Repository rep, ObjectId idTransformation, ObjectId idStep, Condition filter )
+    throws KettleException {
+    if ( filter != null && !filter.isEmpty() ) {
+      rep.saveStepAttribute( idTransformation, idStep, REP_ATTRIBUTE, filter.getXML() );
+    }
+  }
+
+  public static Condition readRep( Repository rep, ObjectId idStep ) throws KettleException {
+    String xml = rep.getStepAttributeString( idStep, REP_ATTRIBUTE );
+    return Utils.isEmpty( xml ) ? new Condition() : new Condition( xml );
+  }
+}
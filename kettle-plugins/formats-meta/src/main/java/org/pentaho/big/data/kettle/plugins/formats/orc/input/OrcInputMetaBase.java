@@ -14,8 +14,10 @@ package org.pentaho.big.data.kettle.plugins.formats.orc.input;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.big.data.kettle.plugins.formats.FormatInputFile;
+import org.pentaho.big.data.kettle.plugins.formats.FormatInputFilter;
 import org.pentaho.big.data.kettle.plugins.formats.orc.OrcInputField;
 import org.pentaho.big.data.kettle.plugins.formats.orc.OrcTypeConverter;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
@@ -23,10 +25,12 @@ import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.vfs.AliasedFileObject;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -53,12 +57,59 @@ import java.util.List;
 public abstract class OrcInputMetaBase extends
     BaseFileInputMeta<BaseFileInputAdditionalField, FormatInputFile, OrcInputField> implements ResolvableResource {
 
+  /** How many files are read at the same time; may hold a variable. */
+  @Injection( name = "READER_THREADS" )
+  String readerThreads = "1";
+
+  /** When reading files in parallel, should rows still come out in file order? */
+  @Injection( name = "PRESERVE_ORDER" )
+  boolean preserveOrder = true;
+
+  /** Rows not matching this condition are dropped as they are read. */
+  Condition filter = new Condition();
+
   public OrcInputMetaBase() {
     additionalOutputFields = new BaseFileInputAdditionalField();
     inputFiles = new FormatInputFile();
     inputFields = new OrcInputField[ 0 ];
   }
 
+  public String getReaderThreads() {
+    return readerThreads;
+  }
+
+  public void setReaderThreads( String readerThreads ) {
+    this.readerThreads = readerThreads;
+  }
+
+  public boolean isPreserveOrder() {
+    return preserveOrder;
+  }
+
+  public void setPreserveOrder( boolean preserveOrder ) {
+    this.preserveOrder = preserveOrder;
+  }
+
+  public Condition getFilter() {
+    return filter;
+  }
+
+  public void setFilter( Condition filter ) {
+    this.filter = filter;
+  }
+
+  public String getFilterXML() {
+    return FormatInputFilter.toConditionXML( filter );
+  }
+
+  /**
+   * Sets the filter from the XML of a condition, as Filter Rows stores it.
+   */
+  @Injection( name = "FILTER" )
+  public void setFilterXML( String filterXML ) {
+    this.filter = FormatInputFilter.fromConditionXML( filterXML );
+  }
+
   public String getFilename() {
     if ( inputFiles != null && inputFiles.fileName != null
         && inputFiles.fileName.length > 0 ) {
@@ -90,6 +141,8 @@ public abstract class OrcInputMetaBase extends
     StringBuilder retval = new StringBuilder( 1500 );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "passing_through_fields", inputFiles.passingThruFields ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "reader_threads", readerThreads ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "preserve_order", preserveOrder ) );
     retval.append( "    <file>" ).append( Const.CR );
     //we need the equals by size arrays for inputFiles.fileName[i], inputFiles.fileMask[i], inputFiles.fileRequired[i], inputFiles.includeSubFolders[i]
     //to prevent the ArrayIndexOutOfBoundsException
@@ -130,6 +183,7 @@ public abstract class OrcInputMetaBase extends
       retval.append( "      </field>" ).append( Const.CR );
     }
     retval.append( "    </fields>" ).append( Const.CR );
+    retval.append( FormatInputFilter.getXML( filter ) );
 
     return retval.toString();
   }
@@ -139,6 +193,9 @@ public abstract class OrcInputMetaBase extends
     throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "passing_through_fields", inputFiles.passingThruFields );
+      rep.saveStepAttribute( id_transformation, id_step, "reader_threads", readerThreads );
+      rep.saveStepAttribute( id_transformation, id_step, "preserve_order", preserveOrder );
+      FormatInputFilter.saveRep( rep, id_transformation, id_step, filter );
       if ( !( inputFiles.fileName.length == 1 && inputFiles.fileName[0].equalsIgnoreCase( "" ) ) ) {
         for ( int i = 0; i < inputFiles.fileName.length; i++ ) {
           rep.saveStepAttribute( id_transformation, id_step, i, "environment", inputFiles.environment[i] );
@@ -183,6 +240,11 @@ public abstract class OrcInputMetaBase extends
             : XMLHandler.getTagValue( stepnode, "passing_through_fields" );
     allocateFiles( nrfiles );
     inputFiles.passingThruFields = ValueMetaBase.convertStringToBoolean( passThroughFields );
+    String threads = XMLHandler.getTagValue( stepnode, "reader_threads" );
+    readerThreads = Utils.isEmpty( threads ) ? "1" : threads;
+    String preserve = XMLHandler.getTagValue( stepnode, "preserve_order" );
+    preserveOrder = preserve == null || ValueMetaBase.convertStringToBoolean( preserve );
+    filter = FormatInputFilter.loadXML( stepnode );
     for ( int i = 0; i < nrfiles; i++ ) {
       Node envnode = XMLHandler.getSubNodeByNr( filenode, "environment", i );
       Node filenamenode = XMLHandler.getSubNodeByNr( filenode, "name", i );
@@ -227,6 +289,10 @@ public abstract class OrcInputMetaBase extends
       allocateFiles( nrfiles );
 
       inputFiles.passingThruFields = rep.getStepAttributeBoolean( id_step, "passing_through_fields" );
+      String threads = rep.getStepAttributeString( id_step, "reader_threads" );
+      readerThreads = Utils.isEmpty( threads ) ? "1" : threads;
+      preserveOrder = rep.getStepAttributeBoolean( id_step, 0, "preserve_order", true );
+      filter = FormatInputFilter.readRep( rep, id_step );
       for ( int i = 0; i < nrfiles; i++ ) {
         inputFiles.environment[i] = rep.getStepAttributeString( id_step, i, "environment" );
         inputFiles.fileName[i] = rep.getStepAttributeString( id_step, i, "file_name" );
@@ -282,6 +348,9 @@ public abstract class OrcInputMetaBase extends
   public void setDefault() {
     allocateFiles( 0 );
     inputFields = new OrcInputField[ 0 ];
+    readerThreads = "1";
+    preserveOrder = true;
+    filter = new Condition();
   }
 
   @Override
@@ -53,6 +53,7 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
   public static final int DEFAULT_ROWS_BETWEEN_ENTRIES = 10000;
   public static final int DEFAULT_STRIPE_SIZE = 64; // In megabytes
   public static final int DEFAULT_COMPRESS_SIZE = 256; // In kilobytes
+  public static final int DEFAULT_MAX_OPEN_FILES = 32;
 
   @Injection( name = "FILENAME" )
   private String filename;
@@ -84,6 +85,21 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
   @Injection( name = "OVERRIDE_OUTPUT" )
   protected boolean overrideOutput;
 
+  @Injection( name = "PARTITION_FIELDS" )
+  protected String partitionFields = "";
+
+  @Injection( name = "MAX_ROWS_PER_FILE" )
+  protected long maxRowsPerFile = 0;
+
+  @Injection( name = "MAX_FILE_SIZE" )
+  protected int maxFileSize = 0; // In megabytes
+
+  @Injection( name = "MAX_OPEN_FILES" )
+  protected int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
+  @Injection( name = "WRITER_THREADS" )
+  protected int writerThreads = 1;
+
   @Override
   public void setDefault() {
     // TODO Auto-generated method stub
@@ -165,6 +181,68 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
     this.dateTimeFormat = dateTimeFormat;
   }
 
+  public String getPartitionFields() {
+    return partitionFields;
+  }
+
+  public void setPartitionFields( String partitionFields ) {
+    this.partitionFields = partitionFields;
+  }
+
+  public long getMaxRowsPerFile() {
+    return maxRowsPerFile;
+  }
+
+  public void setMaxRowsPerFile( long maxRowsPerFile ) {
+    this.maxRowsPerFile = maxRowsPerFile;
+  }
+
+  public int getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  public void setMaxFileSize( int maxFileSize ) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  public int getMaxOpenFiles() {
+    return maxOpenFiles;
+  }
+
+  public void setMaxOpenFiles( int maxOpenFiles ) {
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  public int getWriterThreads() {
+    return writerThreads;
+  }
+
+  public void setWriterThreads( int writerThreads ) {
+    this.writerThreads = writerThreads;
+  }
+
+  /**
+   * @return the fields the output is partitioned on, none if it is not partitioned
+   */
+  public String[] getPartitionFields( VariableSpace vspace ) {
+    String replaced = vspace != null ? vspace.environmentSubstitute( partitionFields ) : partitionFields;
+    if ( Utils.isEmpty( replaced ) ) {
+      return new String[ 0 ];
+    }
+    String[] fields = replaced.split( "," );
+    for ( int i = 0; i < fields.length; i++ ) {
+      fields[ i ] = fields[ i ].trim();
+    }
+    return fields;
+  }
+
+  /**
+   * @return whether the rows go to several files, partitioned or rolled over, rather than to a single one
+   */
+  public boolean isMultiFileOutput( VariableSpace vspace ) {
+    return getPartitionFields( vspace ).length > 0 || maxRowsPerFile > 0 || maxFileSize > 0;
+  }
+
   @Override
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
     readData( stepnode, metaStore );
@@ -198,6 +276,12 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
       dateTimeFormat = XMLHandler.getTagValue( stepnode, FieldNames.DATE_FORMAT );
       dateInFileName = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, FieldNames.DATE_IN_FILE_NAME ) );
       timeInFileName = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, FieldNames.TIME_IN_FILE_NAME ) );
+      partitionFields = XMLHandler.getTagValue( stepnode, FieldNames.PARTITION_FIELDS );
+      maxRowsPerFile = Const.toLong( XMLHandler.getTagValue( stepnode, FieldNames.MAX_ROWS_PER_FILE ), 0 );
+      maxFileSize = Const.toInt( XMLHandler.getTagValue( stepnode, FieldNames.MAX_FILE_SIZE ), 0 );
+      maxOpenFiles =
+        Const.toInt( XMLHandler.getTagValue( stepnode, FieldNames.MAX_OPEN_FILES ), DEFAULT_MAX_OPEN_FILES );
+      writerThreads = Const.toInt( XMLHandler.getTagValue( stepnode, FieldNames.WRITER_THREADS ), 1 );
 
     } catch ( Exception e ) {
       throw new KettleXMLException( "Unable to load step info from XML", e );
@@ -219,6 +303,11 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
     retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.DATE_FORMAT, dateTimeFormat ) );
     retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.DATE_IN_FILE_NAME, dateInFileName ) );
     retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.TIME_IN_FILE_NAME, timeInFileName ) );
+    retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.PARTITION_FIELDS, partitionFields ) );
+    retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.MAX_ROWS_PER_FILE, maxRowsPerFile ) );
+    retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.MAX_FILE_SIZE, maxFileSize ) );
+    retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.MAX_OPEN_FILES, maxOpenFiles ) );
+    retval.append( INDENT ).append( XMLHandler.addTagValue( FieldNames.WRITER_THREADS, writerThreads ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
     for ( int i = 0; i < outputFields.size(); i++ ) {
@@ -254,6 +343,15 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
       dateTimeFormat = rep.getStepAttributeString( id_step, FieldNames.DATE_FORMAT );
       dateInFileName = rep.getStepAttributeBoolean( id_step, FieldNames.DATE_IN_FILE_NAME );
       timeInFileName = rep.getStepAttributeBoolean( id_step, FieldNames.TIME_IN_FILE_NAME );
+      partitionFields = rep.getStepAttributeString( id_step, FieldNames.PARTITION_FIELDS );
+      maxRowsPerFile = rep.getStepAttributeInteger( id_step, FieldNames.MAX_ROWS_PER_FILE );
+      maxFileSize = Math.toIntExact( rep.getStepAttributeInteger( id_step, FieldNames.MAX_FILE_SIZE ) );
+      maxOpenFiles = Math.toIntExact( rep.getStepAttributeInteger( id_step, FieldNames.MAX_OPEN_FILES ) );
+      if ( maxOpenFiles <= 0 ) {
+        maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+      }
+      writerThreads =
+        Math.max( 1, Math.toIntExact( rep.getStepAttributeInteger( id_step, FieldNames.WRITER_THREADS ) ) );
 
       // using the "type" column to get the number of field rows because "type" is guaranteed not to be null.
       int nrfields = rep.countNrStepAttributes( id_step, "type" );
@@ -292,6 +390,11 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
       rep.saveStepAttribute( id_transformation, id_step, FieldNames.DATE_FORMAT, dateTimeFormat );
       rep.saveStepAttribute( id_transformation, id_step, FieldNames.DATE_IN_FILE_NAME, dateInFileName );
       rep.saveStepAttribute( id_transformation, id_step, FieldNames.TIME_IN_FILE_NAME, timeInFileName );
+      rep.saveStepAttribute( id_transformation, id_step, FieldNames.PARTITION_FIELDS, partitionFields );
+      rep.saveStepAttribute( id_transformation, id_step, FieldNames.MAX_ROWS_PER_FILE, maxRowsPerFile );
+      rep.saveStepAttribute( id_transformation, id_step, FieldNames.MAX_FILE_SIZE, maxFileSize );
+      rep.saveStepAttribute( id_transformation, id_step, FieldNames.MAX_OPEN_FILES, maxOpenFiles );
+      rep.saveStepAttribute( id_transformation, id_step, FieldNames.WRITER_THREADS, writerThreads );
 
       for ( int i = 0; i < outputFields.size(); i++ ) {
         OrcOutputField field = outputFields.get( i );
@@ -429,5 +532,10 @@ public abstract class OrcOutputMetaBase extends BaseStepMeta implements StepMeta
     public static final String TIME_IN_FILE_NAME = "timeInFileName";
     public static final String DATE_FORMAT = "dateTimeFormat";
     public static final String STRIPE_SIZE = "stripeSize";
+    public static final String PARTITION_FIELDS = "partitionFields";
+    public static final String MAX_ROWS_PER_FILE = "maxRowsPerFile";
+    public static final String MAX_FILE_SIZE = "maxFileSize";
+    public static final String MAX_OPEN_FILES = "maxOpenFiles";
+    public static final String WRITER_THREADS = "writerThreads";
   }
 }
@@ -14,7 +14,9 @@ package org.pentaho.big.data.kettle.plugins.formats.parquet.input;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.big.data.kettle.plugins.formats.FormatInputFile;
+import org.pentaho.big.data.kettle.plugins.formats.FormatInputFilter;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.ParquetTypeConverter;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
@@ -27,6 +29,7 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.vfs.AliasedFileObject;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -57,6 +60,17 @@ public abstract class ParquetInputMetaBase extends
   @Injection( name = "IGNORE_EMPTY_FOLDER" )
   boolean ignoreEmptyFolder = false;
 
+  /** How many splits are read at the same time; may hold a variable. */
+  @Injection( name = "READER_THREADS" )
+  String readerThreads = "1";
+
+  /** When reading splits in parallel, should rows still come out in file order? */
+  @Injection( name = "PRESERVE_ORDER" )
+  boolean preserveOrder = true;
+
+  /** Rows not matching this condition are dropped as they are read. */
+  Condition filter = new Condition();
+
   public ParquetInputMetaBase() {
     additionalOutputFields = new BaseFileInputAdditionalField();
     inputFiles = new FormatInputFile();
@@ -71,6 +85,42 @@ public abstract class ParquetInputMetaBase extends
     this.ignoreEmptyFolder = ignoreEmptyFolder;
   }
 
+  public String getReaderThreads() {
+    return readerThreads;
+  }
+
+  public void setReaderThreads( String readerThreads ) {
+    this.readerThreads = readerThreads;
+  }
+
+  public boolean isPreserveOrder() {
+    return preserveOrder;
+  }
+
+  public void setPreserveOrder( boolean preserveOrder ) {
+    this.preserveOrder = preserveOrder;
+  }
+
+  public Condition getFilter() {
+    return filter;
+  }
+
+  public void setFilter( Condition filter ) {
+    this.filter = filter;
+  }
+
+  public String getFilterXML() {
+    return FormatInputFilter.toConditionXML( filter );
+  }
+
+  /**
+   * Sets the filter from the XML of a condition, as Filter Rows stores it.
+   */
+  @Injection( name = "FILTER" )
+  public void setFilterXML( String filterXML ) {
+    this.filter = FormatInputFilter.fromConditionXML( filterXML );
+  }
+
   public String getFilename() {
     if ( inputFiles != null && inputFiles.fileName != null && inputFiles.fileName.length > 0 ) {
       return inputFiles.fileName[0];
@@ -114,6 +164,8 @@ public abstract class ParquetInputMetaBase extends
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "passing_through_fields", inputFiles.passingThruFields ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "ignore_empty_folder", ignoreEmptyFolder ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "reader_threads", readerThreads ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "preserve_order", preserveOrder ) );
     retval.append( "    <file>" ).append( Const.CR );
     //we need the equals by size arrays for inputFiles.fileName[i], inputFiles.fileMask[i], inputFiles.fileRequired[i], inputFiles.includeSubFolders[i]
     //to prevent the ArrayIndexOutOfBoundsException
@@ -155,6 +207,7 @@ public abstract class ParquetInputMetaBase extends
       retval.append( "      </field>" ).append( Const.CR );
     }
     retval.append( "    </fields>" ).append( Const.CR );
+    retval.append( FormatInputFilter.getXML( filter ) );
 
     return retval.toString();
   }
@@ -164,6 +217,9 @@ public abstract class ParquetInputMetaBase extends
     throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "ignore_empty_folder", ignoreEmptyFolder );
+      rep.saveStepAttribute( id_transformation, id_step, "reader_threads", readerThreads );
+      rep.saveStepAttribute( id_transformation, id_step, "preserve_order", preserveOrder );
+      FormatInputFilter.saveRep( rep, id_transformation, id_step, filter );
       rep.saveStepAttribute( id_transformation, id_step, "passing_through_fields", inputFiles.passingThruFields );
       if ( !( inputFiles.fileName.length == 1 && inputFiles.fileName[0].equalsIgnoreCase( "" ) ) ) {
         for ( int i = 0; i < inputFiles.fileName.length; i++ ) {
@@ -211,6 +267,11 @@ public abstract class ParquetInputMetaBase extends
     allocateFiles( nrfiles );
     inputFiles.passingThruFields = ValueMetaBase.convertStringToBoolean( passThroughFields );
     ignoreEmptyFolder = ValueMetaBase.convertStringToBoolean( skipIfNoFile );
+    String threads = XMLHandler.getTagValue( stepnode, "reader_threads" );
+    readerThreads = Utils.isEmpty( threads ) ? "1" : threads;
+    String preserve = XMLHandler.getTagValue( stepnode, "preserve_order" );
+    preserveOrder = preserve == null || ValueMetaBase.convertStringToBoolean( preserve );
+    filter = FormatInputFilter.loadXML( stepnode );
     for ( int i = 0; i < nrfiles; i++ ) {
       Node envnode = XMLHandler.getSubNodeByNr( filenode, "environment", i );
       Node filenamenode = XMLHandler.getSubNodeByNr( filenode, "name", i );
@@ -257,6 +318,10 @@ public abstract class ParquetInputMetaBase extends
 
       inputFiles.passingThruFields = rep.getStepAttributeBoolean( id_step, "passing_through_fields" );
       ignoreEmptyFolder = rep.getStepAttributeBoolean( id_step, "ignore_empty_folder" );
+      String threads = rep.getStepAttributeString( id_step, "reader_threads" );
+      readerThreads = Utils.isEmpty( threads ) ? "1" : threads;
+      preserveOrder = rep.getStepAttributeBoolean( id_step, 0, "preserve_order", true );
+      filter = FormatInputFilter.readRep( rep, id_step );
       for ( int i = 0; i < nrfiles; i++ ) {
         inputFiles.environment[ i ] = rep.getStepAttributeString( id_step, i, "environment" );
         inputFiles.fileName[ i ] = rep.getStepAttributeString( id_step, i, "file_name" );
@@ -315,6 +380,9 @@ public abstract class ParquetInputMetaBase extends
   public void setDefault() {
     allocateFiles( 0 );
     inputFields = new ParquetInputField[ 0 ];
+    readerThreads = "1";
+    preserveOrder = true;
+    filter = new Condition();
   }
 
   @Override
@@ -86,6 +86,26 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
   @Injection( name = "FILENAME", group = "FILENAME_LINES" )
   public String filename;
 
+  /** Comma separated fields whose values make up Hive style partition folders */
+  @Injection( name = "PARTITION_FIELDS" )
+  private String partitionFields;
+
+  /** Rows after which a new file is started, empty for no limit */
+  @Injection( name = "MAX_ROWS_PER_FILE" )
+  private String maxRowsPerFile;
+
+  /** Size in MB after which a new file is started, empty for no limit */
+  @Injection( name = "MAX_FILE_SIZE" )
+  private String maxFileSize;
+
+  /** How many partition files can be open at the same time */
+  @Injection( name = "MAX_OPEN_FILES" )
+  private String maxOpenFiles = "32";
+
+  /** How many files are written at the same time */
+  @Injection( name = "WRITER_THREADS" )
+  private String writerThreads = "1";
+
   @InjectionDeep
   private List<ParquetOutputField> outputFields = new ArrayList<ParquetOutputField>();
 
@@ -94,6 +114,11 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
     outputFields = new ArrayList<ParquetOutputField>();
     dictPageSize = String.valueOf( 1024 );
     extension = "parquet";
+    partitionFields = null;
+    maxRowsPerFile = null;
+    maxFileSize = null;
+    maxOpenFiles = "32";
+    writerThreads = "1";
   }
 
   public String getFilename() {
@@ -152,6 +177,46 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
     this.extension = extension;
   }
 
+  public String getPartitionFields() {
+    return partitionFields;
+  }
+
+  public void setPartitionFields( String partitionFields ) {
+    this.partitionFields = partitionFields;
+  }
+
+  public String getMaxRowsPerFile() {
+    return maxRowsPerFile;
+  }
+
+  public void setMaxRowsPerFile( String maxRowsPerFile ) {
+    this.maxRowsPerFile = maxRowsPerFile;
+  }
+
+  public String getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  public void setMaxFileSize( String maxFileSize ) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  public String getMaxOpenFiles() {
+    return maxOpenFiles;
+  }
+
+  public void setMaxOpenFiles( String maxOpenFiles ) {
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  public String getWriterThreads() {
+    return writerThreads;
+  }
+
+  public void setWriterThreads( String writerThreads ) {
+    this.writerThreads = writerThreads;
+  }
+
   public List<ParquetOutputField> getOutputFields() {
     return outputFields;
   }
@@ -179,6 +244,11 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
       dateInFilename = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "dateInFilename" ) );
       timeInFilename = "Y".equalsIgnoreCase( ( XMLHandler.getTagValue( stepnode, "timeInFilename" ) ) );
       dateTimeFormat = XMLHandler.getTagValue( stepnode, "dateTimeFormat" );
+      partitionFields = XMLHandler.getTagValue( stepnode, "partitionFields" );
+      maxRowsPerFile = XMLHandler.getTagValue( stepnode, "maxRowsPerFile" );
+      maxFileSize = XMLHandler.getTagValue( stepnode, "maxFileSize" );
+      maxOpenFiles = Const.NVL( XMLHandler.getTagValue( stepnode, "maxOpenFiles" ), "32" );
+      writerThreads = Const.NVL( XMLHandler.getTagValue( stepnode, "writerThreads" ), "1" );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrfields = XMLHandler.countNodes( fields, "field" );
@@ -222,6 +292,11 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
     retval.append( "    " ).append( XMLHandler.addTagValue( "dateInFilename", dateInFilename ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "timeInFilename", timeInFilename ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "dateTimeFormat", dateTimeFormat ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "partitionFields", partitionFields ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "maxRowsPerFile", maxRowsPerFile ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "maxFileSize", maxFileSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "maxOpenFiles", maxOpenFiles ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "writerThreads", writerThreads ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
     for ( int i = 0; i < outputFields.size(); i++ ) {
@@ -276,6 +351,11 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
       dateInFilename = rep.getStepAttributeBoolean( id_step, "dateInFilename" );
       timeInFilename = rep.getStepAttributeBoolean( id_step, "timeInFilename" );
       dateTimeFormat = rep.getStepAttributeString( id_step, "dateTimeFormat" );
+      partitionFields = rep.getStepAttributeString( id_step, "partitionFields" );
+      maxRowsPerFile = rep.getStepAttributeString( id_step, "maxRowsPerFile" );
+      maxFileSize = rep.getStepAttributeString( id_step, "maxFileSize" );
+      maxOpenFiles = Const.NVL( rep.getStepAttributeString( id_step, "maxOpenFiles" ), "32" );
+      writerThreads = Const.NVL( rep.getStepAttributeString( id_step, "writerThreads" ), "1" );
 
       // using the "type" column to get the number of field rows because "type" is guaranteed not to be null.
       int nrfields = rep.countNrStepAttributes( id_step, "type" );
@@ -315,6 +395,11 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
       rep.saveStepAttribute( id_transformation, id_step, "dateInFilename", dateInFilename );
       rep.saveStepAttribute( id_transformation, id_step, "timeInFilename", timeInFilename );
       rep.saveStepAttribute( id_transformation, id_step, "dateTimeFormat", dateTimeFormat );
+      rep.saveStepAttribute( id_transformation, id_step, "partitionFields", partitionFields );
+      rep.saveStepAttribute( id_transformation, id_step, "maxRowsPerFile", maxRowsPerFile );
+      rep.saveStepAttribute( id_transformation, id_step, "maxFileSize", maxFileSize );
+      rep.saveStepAttribute( id_transformation, id_step, "maxOpenFiles", maxOpenFiles );
+      rep.saveStepAttribute( id_transformation, id_step, "writerThreads", writerThreads );
       for ( int i = 0; i < outputFields.size(); i++ ) {
         ParquetOutputField field = outputFields.get( i );
         rep.saveStepAttribute( id_transformation, id_step, i, "path", field.getFormatFieldName() );
@@ -380,6 +465,45 @@ public abstract class ParquetOutputMetaBase extends BaseStepMeta implements Step
     return defaultValue;
   }
 
+  /**
+   * @return the fields the output is partitioned on, none if it is not partitioned
+   */
+  public String[] getPartitionFields( VariableSpace vspace ) {
+    String replaced = vspace != null ? vspace.environmentSubstitute( partitionFields ) : partitionFields;
+    if ( Utils.isEmpty( replaced ) ) {
+      return new String[ 0 ];
+    }
+    String[] fields = replaced.split( "," );
+    for ( int i = 0; i < fields.length; i++ ) {
+      fields[ i ] = fields[ i ].trim();
+    }
+    return fields;
+  }
+
+  public long getMaxRowsPerFile( VariableSpace vspace ) {
+    return parseReplace( maxRowsPerFile, vspace, s -> Long.parseLong( s ), 0L );
+  }
+
+  public long getMaxFileSize( VariableSpace vspace ) {
+    return parseReplace( maxFileSize, vspace, s -> Long.parseLong( s ), 0L ) * 1024 * 1024;
+  }
+
+  public int getMaxOpenFiles( VariableSpace vspace ) {
+    return parseReplace( maxOpenFiles, vspace, s -> Integer.parseInt( s ), 32 );
+  }
+
+  public int getWriterThreads( VariableSpace vspace ) {
+    return parseReplace( writerThreads, vspace, s -> Integer.parseInt( s ), 1 );
+  }
+
+  /**
+   * @return whether the rows go to several files, partitioned or rolled over, rather than to a single one
+   */
+  public boolean isMultiFileOutput( VariableSpace vspace ) {
+    return getPartitionFields( vspace ).length > 0 || getMaxRowsPerFile( vspace ) > 0
+      || getMaxFileSize( vspace ) > 0;
+  }
+
   public String getRowGroupSize() {
     return rowGroupSize;
   }
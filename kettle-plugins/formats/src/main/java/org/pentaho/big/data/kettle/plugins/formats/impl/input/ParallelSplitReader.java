@@ -0,0 +1,268 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.input;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Reads several input splits at once on a pool of worker threads and hands their rows to the step thread one at a
+ * time. Rows are either delivered split after split, in the order of the splits, or as soon as any worker produces
+ * them.
+ * <p>
+ * A split is whatever unit the record readers are opened on: a split of the input format, or a whole file when the
+ * format cannot split its input.
+ * <p>
+ * Workers pass rows to the step thread in batches of {@link #BATCH_ROWS}, so the queues are synchronized once per
+ * batch rather than once per row, and the rows are handed over as bare {@code Object[]} without a wrapper.
+ */
+public class ParallelSplitReader<S> implements AutoCloseable {
+
+  /**
+   * Rows a worker collects before handing them to the step thread.
+   */
+  static final int BATCH_ROWS = 256;
+
+  /**
+   * Batches buffered per split before its worker waits for the step to catch up.
+   */
+  static final int BATCHES_PER_SPLIT = 4;
+
+  /**
+   * Opens the record reader of one split, called from the worker threads.
+   */
+  @FunctionalInterface
+  public interface RecordReaderFactory<S> {
+    IPentahoRecordReader createRecordReader( S split ) throws Exception;
+  }
+
+  private static final Object END_OF_SPLIT = new Object();
+
+  private final List<? extends S> splits;
+  private final RecordReaderFactory<S> readerFactory;
+  private final Supplier<Condition> filterFactory;
+  private final boolean preserveOrder;
+  private final List<BlockingQueue<Object>> queues;
+  private final ExecutorService executor;
+  private volatile boolean closed = false;
+  private int finishedSplits = 0;
+  private RowBatch batch;
+  private int batchIndex;
+
+  /**
+   * @param splits        the splits to read
+   * @param readerFactory opens the record reader of a split
+   * @param threads       how many splits are read at the same time
+   * @param preserveOrder true to deliver the rows in split order, false to deliver them as they are read
+   */
+  public ParallelSplitReader( List<? extends S> splits, RecordReaderFactory<S> readerFactory,
+                              int threads, boolean preserveOrder ) {
+    this( splits, readerFactory, threads, preserveOrder, null );
+  }
+
+  /**
+   * @param filterFactory gives every worker its own copy of the condition rows must match to be delivered, or null to
+   *                      deliver every row
+   */
+  public ParallelSplitReader( List<? extends S> splits, RecordReaderFactory<S> readerFactory,
+                              int threads, boolean preserveOrder, Supplier<Condition> filterFactory ) {
+    this.splits = splits;
+    this.readerFactory = readerFactory;
+    this.filterFactory = filterFactory;
+    this.preserveOrder = preserveOrder;
+    int poolSize = Math.max( 1, Math.min( threads, splits.size() ) );
+    if ( preserveOrder ) {
+      // the pool starts splits in order, so the split being delivered is always being read and cannot starve
+      queues = new ArrayList<>( splits.size() );
+      for ( int i = 0; i < splits.size(); i++ ) {
+        queues.add( new ArrayBlockingQueue<>( BATCHES_PER_SPLIT ) );
+      }
+    } else {
+      queues = Collections.nCopies( splits.size(), new ArrayBlockingQueue<>( BATCHES_PER_SPLIT * poolSize ) );
+    }
+    executor = Executors.newFixedThreadPool( poolSize, new SplitReaderThreadFactory() );
+    for ( int i = 0; i < splits.size(); i++ ) {
+      int split = i;
+      executor.execute( () -> readSplit( split ) );
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Assigns every step copy its own share of the splits, so that the copies read disjoint parts of the input.
+   *
+   * @param splits all the splits of the input
+   * @param copy   the number of this copy, from 0
+   * @param copies the number of copies reading the input
+   * @return the splits the copy should read
+   */
+  public static <T> List<T> splitsOfCopy( List<T> splits, int copy, int copies ) {
+    if ( copies <= 1 ) {
+      return splits;
+    }
+    List<T> claimed = new ArrayList<>();
+    for ( int i = copy; i < splits.size(); i += copies ) {
+      claimed.add( splits.get( i ) );
+    }
+    return claimed;
+  }
+
+  /**
+   * @return the data of the next row, described by {@link #getRowMeta()}, or null once every split has been read
+   * @throws Exception the exception a worker failed with while reading a split; an error a worker failed with is
+   *                   rethrown as it is
+   */
+  public Object[] nextRow() throws Exception {
+    while ( batch == null || batchIndex >= batch.size ) {
+      if ( finishedSplits >= splits.size() ) {
+        return null;
+      }
+      Object item = queues.get( preserveOrder ? finishedSplits : 0 ).take();
+      if ( item == END_OF_SPLIT ) {
+        finishedSplits++;
+      } else if ( item instanceof SplitFailure ) {
+        Throwable failure = ( (SplitFailure) item ).failure;
+        if ( failure instanceof Error ) {
+          throw (Error) failure;
+        }
+        throw failure instanceof Exception ? (Exception) failure : new Exception( failure );
+      } else {
+        batch = (RowBatch) item;
+        batchIndex = 0;
+      }
+    }
+    return batch.rows[ batchIndex++ ];
+  }
+
+  /**
+   * @return the metadata of the row last returned by {@link #nextRow()}
+   */
+  public RowMetaInterface getRowMeta() {
+    return batch == null ? null : batch.rowMeta;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+  }
+
+  private void readSplit( int split ) {
+    BlockingQueue<Object> queue = queues.get( split );
+    Object last = END_OF_SPLIT;
+    try {
+      IPentahoRecordReader reader = readerFactory.createRecordReader( splits.get( split ) );
+      try {
+        Iterator<RowMetaAndData> rows = reader.iterator();
+        // conditions cache field positions, so each worker evaluates its own
+        Condition filter = filterFactory == null ? null : filterFactory.get();
+        RowMetaInterface rowMeta = null;
+        RowBatch rowBatch = null;
+        while ( rows.hasNext() ) {
+          RowMetaAndData row = rows.next();
+          if ( rowMeta == null ) {
+            // every row of a split has the layout of the requested schema
+            rowMeta = row.getRowMeta();
+          }
+          if ( filter != null && !filter.evaluate( rowMeta, row.getData() ) ) {
+            continue;
+          }
+          if ( rowBatch == null ) {
+            rowBatch = new RowBatch( rowMeta );
+          }
+          rowBatch.rows[ rowBatch.size++ ] = row.getData();
+          if ( rowBatch.size == BATCH_ROWS ) {
+            if ( !put( queue, rowBatch ) ) {
+              return;
+            }
+            rowBatch = null;
+          }
+        }
+        if ( rowBatch != null && !put( queue, rowBatch ) ) {
+          return;
+        }
+      } finally {
+        reader.close();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch ( Throwable e ) {
+      // errors from the shims have to reach the step thread too, or it waits for the split forever
+      last = new SplitFailure( e );
+    }
+    try {
+      put( queue, last );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for room in the queue, giving up once the reader is closed.
+   *
+   * @return false if the reader was closed
+   */
+  private boolean put( BlockingQueue<Object> queue, Object item ) throws InterruptedException {
+    while ( !queue.offer( item, 100, TimeUnit.MILLISECONDS ) ) {
+      if ( closed ) {
+        return false;
+      }
+    }
+    return !closed;
+  }
+
+  private static class RowBatch {
+    private final RowMetaInterface rowMeta;
+    private final Object[][] rows = new Object[ BATCH_ROWS ][];
+    private int size = 0;
+
+    RowBatch( RowMetaInterface rowMeta ) {
+      this.rowMeta = rowMeta;
+    }
+  }
+
+  private static class SplitFailure {
+    private final Throwable failure;
+
+    SplitFailure( Throwable failure ) {
+      this.failure = failure;
+    }
+  }
+
+  private static class SplitReaderThreadFactory implements ThreadFactory {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "split-reader-" + threadCount.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+}
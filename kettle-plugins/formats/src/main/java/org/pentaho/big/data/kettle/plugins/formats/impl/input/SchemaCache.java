@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.input;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the schemas read from the footers of files, so that the steps and dialogs opening the same file again do not
+ * read and parse its footer again. A schema is kept for a path, a size and a modification time: a file that is
+ * replaced or rewritten is read again. Folders are not cached, as their content can change without them changing.
+ * <p>
+ * The cache is shared by every step in the JVM. It holds at most a given number of fields over all the schemas, the
+ * least recently used schemas being dropped first.
+ */
+public class SchemaCache<F> {
+
+  /**
+   * Fields kept over all the schemas, a few tens of MB.
+   */
+  static final int DEFAULT_MAX_FIELDS = 100000;
+
+  /**
+   * Reads the schema of a file when it is not in the cache.
+   */
+  @FunctionalInterface
+  public interface SchemaReader<F> {
+    List<? extends F> read() throws Exception;
+  }
+
+  private final int maxFields;
+  private final Map<Key, List<F>> schemas = new LinkedHashMap<>( 16, 0.75f, true );
+  private int fieldCount = 0;
+
+  public SchemaCache() {
+    this( DEFAULT_MAX_FIELDS );
+  }
+
+  SchemaCache( int maxFields ) {
+    this.maxFields = maxFields;
+  }
+
+  /**
+   * @param path   the file the schema is read from
+   * @param space  the variables to resolve the file with
+   * @param reader reads the schema if the file is not in the cache or has changed
+   * @return the schema of the file, not to be modified
+   */
+  public List<F> get( String path, VariableSpace space, SchemaReader<F> reader ) throws Exception {
+    Key key = keyOf( path, space );
+    if ( key == null ) {
+      return new ArrayList<>( reader.read() );
+    }
+    synchronized ( this ) {
+      List<F> schema = schemas.get( key );
+      if ( schema != null ) {
+        return schema;
+      }
+    }
+    // read outside of the lock, other files are not held up by a slow footer
+    List<F> schema = Collections.unmodifiableList( new ArrayList<>( reader.read() ) );
+    put( key, schema );
+    return schema;
+  }
+
+  /**
+   * Drops every schema.
+   */
+  public synchronized void clear() {
+    schemas.clear();
+    fieldCount = 0;
+  }
+
+  synchronized int size() {
+    return schemas.size();
+  }
+
+  private synchronized void put( Key key, List<F> schema ) {
+    if ( schema.size() > maxFields ) {
+      return;
+    }
+    List<F> replaced = schemas.put( key, schema );
+    fieldCount += schema.size() - ( replaced == null ? 0 : replaced.size() );
+    Iterator<List<F>> leastRecent = schemas.values().iterator();
+    while ( fieldCount > maxFields ) {
+      fieldCount -= leastRecent.next().size();
+      leastRecent.remove();
+    }
+  }
+
+  /**
+   * @return the key of a file, null if it is not a file or cannot be looked up
+   */
+  private static Key keyOf( String path, VariableSpace space ) {
+    try {
+      FileObject file = space != null ? KettleVFS.getFileObject( path, space ) : KettleVFS.getFileObject( path );
+      // the file objects are cached by VFS, their size and time are looked up again
+      file.refresh();
+      if ( file.getType() != FileType.FILE ) {
+        return null;
+      }
+      FileContent content = file.getContent();
+      return new Key( file.getName().getURI(), content.getSize(), content.getLastModifiedTime() );
+    } catch ( Exception e ) {
+      // the schema is read without the cache
+      return null;
+    }
+  }
+
+  private static final class Key {
+    private final String uri;
+    private final long size;
+    private final long lastModified;
+
+    Key( String uri, long size, long lastModified ) {
+      this.uri = uri;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key key = (Key) o;
+      return size == key.size && lastModified == key.lastModified && uri.equals( key.uri );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( uri, size, lastModified );
+    }
+  }
+}
@@ -14,13 +14,25 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.orc.input;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.ParallelSplitReader;
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.SchemaCache;
+import org.pentaho.big.data.kettle.plugins.formats.orc.OrcInputField;
 import org.pentaho.big.data.kettle.plugins.formats.orc.input.OrcInputMetaBase;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.fileinput.FileInputList;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.AliasedFileObject;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.trans.Trans;
@@ -34,12 +46,21 @@ import org.pentaho.hadoop.shim.api.format.FormatService;
 import org.pentaho.hadoop.shim.api.format.IOrcInputField;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
   public static final long SPLIT_SIZE = 128L * 1024L * 1024L;
 
+  private static final int[] SAME_LAYOUT = new int[ 0 ];
+
+  private static final SchemaCache<IOrcInputField> SCHEMAS = new SchemaCache<>();
+
   public OrcInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                    Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -50,32 +71,30 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
     meta = (OrcInputMeta) smi;
     data = (OrcInputData) sdi;
     try {
-      if ( data.input == null || data.reader == null || data.rowIterator == null ) {
-        FormatService formatService = getFormatService();
-        if ( meta.inputFiles == null || meta.getFilename() == null || meta.getFilename().length() == 0 ) {
-          throw new KettleException( "No input files defined" );
-        }
-        data.input = formatService.createInputFormat( IPentahoOrcInputFormat.class, getNamedCluster() );
-
-        String inputFileName = getKettleVFSFileName(
-          meta.getParentStepMeta().getParentTransMeta().environmentSubstitute( meta.getFilename() ) );
-
-        data.input.setInputFile( inputFileName );
-        data.input.setSchema( createSchemaFromMeta( meta ) );
-        data.reader = data.input.createRecordReader( null );
-        data.rowIterator = data.reader.iterator();
+      if ( data.files == null ) {
+        initFiles();
       }
-      if ( data.rowIterator.hasNext() ) {
-        RowMetaAndData row = data.rowIterator.next();
-        putRow( row.getRowMeta(), row.getData() );
-        return true;
-      } else {
+      if ( data.files.size() > 1 || data.readerThreads > 1 ) {
+        return processParallelRow();
+      }
+      while ( data.currentFile < data.files.size() ) {
+        if ( data.reader == null ) {
+          data.input = createInputFormat( data.files.get( data.currentFile ) );
+          data.reader = data.input.createRecordReader( null );
+          data.rowIterator = data.reader.iterator();
+        }
+        if ( data.rowIterator.hasNext() ) {
+          RowMetaAndData row = data.rowIterator.next();
+          putOutputRow( row.getRowMeta(), row.getData(), false );
+          return true;
+        }
         data.reader.close();
         data.reader = null;
         data.input = null;
-        setOutputDone();
-        return false;
+        data.currentFile++;
       }
+      setOutputDone();
+      return false;
     } catch ( KettleException ex ) {
       throw ex;
     } catch ( Exception ex ) {
@@ -83,6 +102,174 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
     }
   }
 
+  private boolean processParallelRow() throws Exception {
+    if ( data.parallelReader == null ) {
+      logDebug( "Reading {0} files on {1} threads", data.files.size(), data.readerThreads );
+      // when files differ in schema, rows only get the layout the filter expects on the step thread
+      boolean filterOnReaders = data.filter != null && !data.reconcileSchema;
+      data.parallelReader = new ParallelSplitReader<>( data.files,
+        file -> createInputFormat( file ).createRecordReader( null ), data.readerThreads,
+        meta.isPreserveOrder(), filterOnReaders ? () -> (Condition) data.filter.clone() : null );
+    }
+    Object[] row = data.parallelReader.nextRow();
+    if ( row == null ) {
+      data.parallelReader.close();
+      data.currentFile = data.files.size();
+      setOutputDone();
+      return false;
+    }
+    putOutputRow( data.parallelReader.getRowMeta(), row, !data.reconcileSchema );
+    return true;
+  }
+
+  void initFiles() throws KettleException {
+    if ( meta.inputFiles == null || meta.getFilename() == null || meta.getFilename().length() == 0 ) {
+      throw new KettleException( "No input files defined" );
+    }
+    data.namedCluster = getNamedCluster();
+    data.formatService = getFormatService();
+
+    List<String> files = new ArrayList<>();
+    for ( int i = 0; i < meta.inputFiles.fileName.length; i++ ) {
+      files.addAll( resolveInputFiles( i ) );
+    }
+    if ( files.isEmpty() ) {
+      throw new KettleException( "No ORC input files found" );
+    }
+    // every copy of the step reads its own share of the files
+    data.files = ParallelSplitReader.splitsOfCopy( files, getUniqueStepNrAcrossSlaves(),
+      getUniqueStepCountAcrossSlaves() );
+    logDebug( "Input file count: {0}", data.files.size() );
+    data.currentFile = 0;
+    data.readerThreads = Const.toInt( environmentSubstitute( meta.getReaderThreads() ), 1 );
+    // copies of the step share the meta, and a condition caches field positions while it is evaluated
+    data.filter = meta.getFilter() == null || meta.getFilter().isEmpty() ? null
+      : (Condition) meta.getFilter().clone();
+
+    data.reconcileSchema = files.size() > 1;
+    if ( data.reconcileSchema ) {
+      // files of a folder may have been written with different schemas, so all rows get the layout of the step
+      data.outputRowMeta = new RowMeta();
+      meta.getFields( data.outputRowMeta, getStepname(), null, null, this, getRepository(), getMetaStore() );
+      data.fieldPositions = new IdentityHashMap<>();
+    }
+  }
+
+  /**
+   * Lists the files of one line of the file tab: the file itself, or the files of a folder matching the mask.
+   */
+  private List<String> resolveInputFiles( int line ) throws KettleException {
+    TransMeta transMeta = meta.getParentStepMeta().getParentTransMeta();
+    String fileName = transMeta.environmentSubstitute( meta.inputFiles.fileName[ line ] );
+    String fileMask = transMeta.environmentSubstitute( valueAt( meta.inputFiles.fileMask, line ) );
+    try {
+      FileObject fileObject = KettleVFS.getFileObject( fileName );
+      boolean folder = fileObject.getType() == FileType.FOLDER;
+      if ( !folder && Utils.isEmpty( fileMask ) ) {
+        return Collections.singletonList( getKettleVFSFileName( fileName ) );
+      }
+      FileInputList fileList = FileInputList.createFileList( transMeta, new String[] { fileName },
+        new String[] { Utils.isEmpty( fileMask ) ? ".*" : fileMask },
+        new String[] { transMeta.environmentSubstitute( valueAt( meta.inputFiles.excludeFileMask, line ) ) },
+        new String[] { valueAt( meta.inputFiles.fileRequired, line ) },
+        new boolean[] { OrcInputMeta.YES.equalsIgnoreCase( valueAt( meta.inputFiles.includeSubFolders, line ) ) } );
+      List<String> files = new ArrayList<>();
+      for ( FileObject file : fileList.getFiles() ) {
+        String baseName = file.getName().getBaseName();
+        // like Hadoop, skip the markers and checksums writers leave next to the data files
+        if ( !baseName.startsWith( "_" ) && !baseName.startsWith( "." ) ) {
+          files.add( AliasedFileObject.isAliasedFile( file ) ? ( (AliasedFileObject) file ).getOriginalURIString()
+            : file.getName().getURI() );
+        }
+      }
+      return files;
+    } catch ( FileSystemException e ) {
+      throw new KettleException( "Unable to list ORC input files in " + fileName, e );
+    }
+  }
+
+  private static String valueAt( String[] values, int index ) {
+    return values != null && index < values.length ? values[ index ] : null;
+  }
+
+  /**
+   * Prepares the reading of one file, called from the reader threads when files are read in parallel.
+   */
+  IPentahoOrcInputFormat createInputFormat( String fileName ) throws Exception {
+    logDebug( "Open file {0}", fileName );
+    IPentahoOrcInputFormat input =
+      data.formatService.createInputFormat( IPentahoOrcInputFormat.class, data.namedCluster );
+    input.setInputFile( fileName );
+    input.setSchema( data.reconcileSchema ? schemaOfFile( input, fileName ) : createSchemaFromMeta( meta ) );
+    return input;
+  }
+
+  /**
+   * @return the fields of the step found in the file; the others are read as null
+   */
+  private List<IOrcInputField> schemaOfFile( IPentahoOrcInputFormat input, String fileName ) throws Exception {
+    Set<String> fileFields = new HashSet<>();
+    for ( IOrcInputField field : SCHEMAS.get( fileName, this, input::readSchema ) ) {
+      fileFields.add( field.getFormatFieldName() );
+    }
+    List<IOrcInputField> fields = new ArrayList<>();
+    for ( OrcInputField field : meta.getInputFields() ) {
+      if ( fileFields.contains( field.getFormatFieldName() ) ) {
+        fields.add( field );
+      } else {
+        logDetailed( "Field {0} is not in {1}, it is read as null", field.getFormatFieldName(), fileName );
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Passes a row on in the output layout, unless the filter drops it.
+   *
+   * @param filtered true if the reader threads already evaluated the filter
+   */
+  private void putOutputRow( RowMetaInterface rowMeta, Object[] row, boolean filtered ) throws KettleException {
+    if ( data.reconcileSchema ) {
+      row = conform( rowMeta, row );
+    } else if ( data.outputRowMeta == null ) {
+      // all rows of the file share the layout of the requested schema
+      data.outputRowMeta = rowMeta;
+    }
+    if ( filtered || data.filter == null || data.filter.evaluate( data.outputRowMeta, row ) ) {
+      putRow( data.outputRowMeta, row );
+    }
+  }
+
+  /**
+   * Moves the values of a row read with the schema of its file to their place in the output layout.
+   */
+  private Object[] conform( RowMetaInterface rowMeta, Object[] row ) {
+    int[] positions = data.fieldPositions.get( rowMeta );
+    if ( positions == null ) {
+      positions = new int[ data.outputRowMeta.size() ];
+      boolean sameLayout = rowMeta.size() == positions.length;
+      for ( int i = 0; i < positions.length; i++ ) {
+        positions[ i ] = rowMeta.indexOfValue( data.outputRowMeta.getValueMeta( i ).getName() );
+        sameLayout &= positions[ i ] == i;
+      }
+      if ( sameLayout ) {
+        positions = SAME_LAYOUT;
+      }
+      // the reader shares one row meta between the rows of a file, so this runs once per file
+      data.fieldPositions.put( rowMeta, positions );
+    }
+    if ( positions == SAME_LAYOUT ) {
+      return row;
+    }
+    Object[] outputRow = RowDataUtil.allocateRowData( positions.length );
+    for ( int i = 0; i < positions.length; i++ ) {
+      if ( positions[ i ] >= 0 ) {
+        outputRow[ i ] = row[ positions[ i ] ];
+      }
+    }
+    return outputRow;
+  }
+
   private NamedCluster getNamedCluster() {
     return meta.getNamedClusterResolver().resolveNamedCluster( environmentSubstitute( meta.getFilename() ) );
   }
@@ -104,6 +291,16 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
     return true;
   }
 
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    OrcInputData orcData = (OrcInputData) sdi;
+    if ( orcData.parallelReader != null ) {
+      orcData.parallelReader.close();
+      orcData.parallelReader = null;
+    }
+    super.dispose( smi, sdi );
+  }
+
   @Override
   protected IBaseFileInputReader createReader( OrcInputMeta meta, OrcInputData data, FileObject file )
     throws Exception {
@@ -112,11 +309,13 @@ public class OrcInput extends BaseFileInputStep<OrcInputMeta, OrcInputData> {
 
   public static List<IOrcInputField> retrieveSchema( NamedClusterServiceLocator namedClusterServiceLocator,
                                                      NamedCluster namedCluster, String dataPath ) throws Exception {
-    FormatService formatService = namedClusterServiceLocator.getService( namedCluster, FormatService.class );
-    IPentahoOrcInputFormat in = formatService.createInputFormat( IPentahoOrcInputFormat.class, namedCluster );
+    return SCHEMAS.get( dataPath, null, () -> {
+      FormatService formatService = namedClusterServiceLocator.getService( namedCluster, FormatService.class );
+      IPentahoOrcInputFormat in = formatService.createInputFormat( IPentahoOrcInputFormat.class, namedCluster );
 
-    in.setInputFile( getKettleVFSFileName( dataPath ) );
-    return in.readSchema();
+      in.setInputFile( getKettleVFSFileName( dataPath ) );
+      return in.readSchema();
+    } );
   }
 
   public static List<IOrcInputField> createSchemaFromMeta( OrcInputMetaBase meta ) {
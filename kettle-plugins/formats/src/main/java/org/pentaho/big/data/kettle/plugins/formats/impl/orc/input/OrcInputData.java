@@ -14,16 +14,40 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.orc.input;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.ParallelSplitReader;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.steps.file.BaseFileInputStepData;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.FormatService;
 import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
 
 public class OrcInputData extends BaseFileInputStepData {
+  FormatService formatService;
+  NamedCluster namedCluster;
+  List<String> files;
+  int currentFile;
   IPentahoOrcInputFormat input;
   IPentahoRecordReader reader;
   Iterator<RowMetaAndData> rowIterator;
   RowMetaInterface outputRowMeta;
+  int readerThreads;
+  ParallelSplitReader<String> parallelReader;
+  /**
+   * True when several files are read, whose rows are moved to the layout of {@link #outputRowMeta}.
+   */
+  boolean reconcileSchema;
+  /**
+   * Positions in the rows of each file of the output fields, by the row meta of the file.
+   */
+  Map<RowMetaInterface, int[]> fieldPositions;
+  /**
+   * Condition rows must match to be passed on, null when every row is.
+   */
+  Condition filter;
 }
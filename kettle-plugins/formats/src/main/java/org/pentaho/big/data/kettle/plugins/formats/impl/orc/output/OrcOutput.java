@@ -14,15 +14,13 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
 
 
+import org.pentaho.big.data.kettle.plugins.formats.BaseFormatOutputField;
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PartitionedFileWriter;
 import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
-import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
-import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
@@ -32,6 +30,7 @@ import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.hadoop.shim.api.format.FormatService;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
 
 import java.io.IOException;
 
@@ -55,32 +54,19 @@ public class OrcOutput extends BaseStep implements StepInterface {
       meta = (OrcOutputMeta) smi;
       data = (OrcOutputData) sdi;
 
+      if ( data.partitionedWriter != null || ( data.output == null && meta.isMultiFileOutput( this ) ) ) {
+        return processPartitionedRow( getRow() );
+      }
       if ( data.output == null ) {
         init();
       }
 
       Object[] currentRow = getRow();
       if ( currentRow != null ) {
-        //create new outputMeta
-        RowMetaInterface outputRMI = new RowMeta();
-        //create data equals with output fileds
-        Object[] outputData = new Object[ meta.getOutputFields().size() ];
-        for ( int i = 0; i < meta.getOutputFields().size(); i++ ) {
-          int inputRowIndex = getInputRowMeta().indexOfValue( meta.getOutputFields().get( i ).getPentahoFieldName() );
-          if ( inputRowIndex == -1 ) {
-            throw new KettleException( "Field name [" + meta.getOutputFields().get( i ).getPentahoFieldName()
-              + " ] couldn't be found in the input stream!" );
-          } else {
-            ValueMetaInterface vmi = ValueMetaFactory.cloneValueMeta( getInputRowMeta().getValueMeta( inputRowIndex ) );
-            //add output value meta according output fields
-            outputRMI.addValueMeta( i, vmi );
-            //add output data according output fields
-            outputData[ i ] = currentRow[ inputRowIndex ];
-          }
+        if ( data.rowWriter == null ) {
+          data.rowWriter = new OrcRowWriter( data.writer, getInputRowMeta(), meta.getOutputFields() );
         }
-        RowMetaAndData row = new RowMetaAndData( outputRMI, outputData );
-        data.writer.write( row );
-        putRow( row.getRowMeta(), row.getData() );
+        putRow( data.rowWriter.getOutputRowMeta(), data.rowWriter.write( currentRow ) );
         return true;
       } else {
         // no more input to be expected...
@@ -93,7 +79,9 @@ public class OrcOutput extends BaseStep implements StepInterface {
     } catch ( IllegalStateException e ) {
       getLogChannel().logError( e.getMessage() );
       setErrors( 1 );
-      pvfsFileAliaser.deleteTempFileAndFolder();
+      if ( pvfsFileAliaser != null ) {
+        pvfsFileAliaser.deleteTempFileAndFolder();
+      }
       setOutputDone();
       return false;
     } catch ( KettleException ex ) {
@@ -103,14 +91,87 @@ public class OrcOutput extends BaseStep implements StepInterface {
     }
   }
 
-  public void init() throws Exception {
-    FormatService formatService;
+  /**
+   * Hands a row to the files of its partition, or closes them all at the end of the input.
+   */
+  private boolean processPartitionedRow( Object[] currentRow ) throws KettleException {
     try {
-      formatService = meta.getNamedClusterResolver().getNamedClusterServiceLocator()
-        .getService( getNamedCluster(), FormatService.class );
-    } catch ( ClusterInitializationException e ) {
-      throw new KettleException( "can't get service format shim ", e );
+      if ( currentRow != null ) {
+        if ( data.partitionedWriter == null ) {
+          data.partitionedProjection = new OrcRowProjection( getInputRowMeta(), meta.getOutputFields() );
+          data.partitionedWriter = createPartitionedWriter( getInputRowMeta() );
+        }
+        // the writer threads take the whole row, which still holds the partition fields
+        data.partitionedWriter.add( currentRow );
+        putRow( data.partitionedProjection.getRowMeta(), data.partitionedProjection.project( currentRow ) );
+        return true;
+      }
+      if ( data.partitionedWriter != null ) {
+        data.partitionedWriter.close();
+        data.partitionedWriter = null;
+      }
+      setOutputDone();
+      return false;
+    } catch ( KettleException | RuntimeException ex ) {
+      if ( data.partitionedWriter != null ) {
+        data.partitionedWriter.abort();
+        data.partitionedWriter = null;
+      }
+      throw ex;
     }
+  }
+
+  private PartitionedFileWriter createPartitionedWriter( RowMetaInterface rowMeta ) throws KettleException {
+    FormatService formatService = getFormatService();
+    if ( meta.getFilename() == null ) {
+      throw new KettleException( "No output files defined" );
+    }
+    String outputFileName = environmentSubstitute( meta.constructOutputFilename() );
+    return new PartitionedFileWriter( outputFileName, rowMeta, meta.getPartitionFields( this ),
+      meta.getOutputFields().stream().map( BaseFormatOutputField::getPentahoFieldName ).toArray( String[]::new ),
+      meta.getMaxRowsPerFile(), meta.getMaxFileSize() * 1024L * 1024L, meta.getMaxOpenFiles(),
+      meta.getWriterThreads(), fileName -> openFile( formatService, rowMeta, fileName ) );
+  }
+
+  /**
+   * Opens one of the files of a partitioned or rolled over output.
+   */
+  private PartitionedFileWriter.FileWriter openFile( FormatService formatService, RowMetaInterface rowMeta,
+                                                     String fileName ) throws Exception {
+    IPentahoOrcOutputFormat output = formatService.createOutputFormat( IPentahoOrcOutputFormat.class,
+      getNamedCluster() );
+    PvfsFileAliaser aliaser = new PvfsFileAliaser( fileName, getTransMeta(), output, meta.isOverrideOutput(),
+      getLogChannel() );
+    output.setOutputFile( aliaser.generateAlias(), meta.isOverrideOutput() );
+    configure( output );
+    IPentahoRecordWriter writer = output.createRecordWriter();
+    OrcRowWriter rowWriter = new OrcRowWriter( writer, rowMeta, meta.getOutputFields() );
+    return new PartitionedFileWriter.FileWriter() {
+      @Override
+      public void write( Object[] row ) throws Exception {
+        rowWriter.write( row );
+      }
+
+      @Override
+      public void close() throws Exception {
+        writer.close();
+        aliaser.copyFileToFinalDestination();
+        aliaser.deleteTempFileAndFolder();
+      }
+
+      @Override
+      public void abort() throws Exception {
+        try {
+          writer.close();
+        } finally {
+          aliaser.deleteTempFileAndFolder();
+        }
+      }
+    };
+  }
+
+  public void init() throws Exception {
+    FormatService formatService = getFormatService();
 
     if ( meta.getFilename() == null ) {
       throw new KettleException( "No output files defined" );
@@ -123,7 +184,12 @@ public class OrcOutput extends BaseStep implements StepInterface {
       getLogChannel() );
 
     data.output.setOutputFile( pvfsFileAliaser.generateAlias(), meta.isOverrideOutput() );
-    data.output.setFields( meta.getOutputFields() );
+    configure( data.output );
+    data.writer = data.output.createRecordWriter();
+  }
+
+  private void configure( IPentahoOrcOutputFormat output ) throws Exception {
+    output.setFields( meta.getOutputFields() );
 
     IPentahoOrcOutputFormat.COMPRESSION compression;
     try {
@@ -131,13 +197,21 @@ public class OrcOutput extends BaseStep implements StepInterface {
     } catch ( Exception ex ) {
       compression = IPentahoOrcOutputFormat.COMPRESSION.NONE;
     }
-    data.output.setCompression( compression );
+    output.setCompression( compression );
     if ( compression != IPentahoOrcOutputFormat.COMPRESSION.NONE ) {
-      data.output.setCompressSize( meta.getCompressSize() );
+      output.setCompressSize( meta.getCompressSize() );
+    }
+    output.setRowIndexStride( meta.getRowsBetweenEntries() );
+    output.setStripeSize( meta.getStripeSize() );
+  }
+
+  private FormatService getFormatService() throws KettleException {
+    try {
+      return meta.getNamedClusterResolver().getNamedClusterServiceLocator()
+        .getService( getNamedCluster(), FormatService.class );
+    } catch ( ClusterInitializationException e ) {
+      throw new KettleException( "can't get service format shim ", e );
     }
-    data.output.setRowIndexStride( meta.getRowsBetweenEntries() );
-    data.output.setStripeSize( meta.getStripeSize() );
-    data.writer = data.output.createRecordWriter();
   }
 
   private NamedCluster getNamedCluster() {
@@ -145,6 +219,7 @@ public class OrcOutput extends BaseStep implements StepInterface {
   }
 
   public void closeWriter() throws KettleException {
+    data.rowWriter = null;
     try {
       data.writer.close();
     } catch ( IOException e ) {
@@ -153,6 +228,19 @@ public class OrcOutput extends BaseStep implements StepInterface {
     data.output = null;
   }
 
+  /**
+   * Drops the partitioned output of a transformation that was stopped or failed before the end of the input.
+   */
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    OrcOutputData orcData = (OrcOutputData) sdi;
+    if ( orcData.partitionedWriter != null ) {
+      orcData.partitionedWriter.abort();
+      orcData.partitionedWriter = null;
+    }
+    super.dispose( smi, sdi );
+  }
+
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (OrcOutputMeta) smi;
     data = (OrcOutputData) sdi;
@@ -12,6 +12,7 @@
 
 package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
 
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PartitionedFileWriter;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
@@ -21,4 +22,7 @@ public class OrcOutputData extends BaseStepData implements StepDataInterface {
 
   public IPentahoOrcOutputFormat output;
   public IPentahoRecordWriter writer;
+  public OrcRowWriter rowWriter;
+  public OrcRowProjection partitionedProjection;
+  public PartitionedFileWriter partitionedWriter;
 }
@@ -0,0 +1,67 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
+
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputField;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.List;
+
+/**
+ * Keeps only the output fields of the rows of the input stream. The positions of the output fields in the input rows
+ * and the row meta of the projected rows are worked out once.
+ */
+public class OrcRowProjection {
+
+  private final int[] fieldIndexes;
+  private final RowMetaInterface rowMeta;
+
+  /**
+   * @param inputRowMeta the layout of the projected rows
+   * @param outputFields the fields kept
+   * @throws KettleException if an output field is not in the input rows
+   */
+  public OrcRowProjection( RowMetaInterface inputRowMeta, List<OrcOutputField> outputFields )
+    throws KettleException {
+    fieldIndexes = new int[ outputFields.size() ];
+    rowMeta = new RowMeta();
+    for ( int i = 0; i < fieldIndexes.length; i++ ) {
+      String fieldName = outputFields.get( i ).getPentahoFieldName();
+      fieldIndexes[ i ] = inputRowMeta.indexOfValue( fieldName );
+      if ( fieldIndexes[ i ] == -1 ) {
+        throw new KettleException( "Field name [" + fieldName + " ] couldn't be found in the input stream!" );
+      }
+      rowMeta.addValueMeta( i, inputRowMeta.getValueMeta( fieldIndexes[ i ] ).clone() );
+    }
+  }
+
+  /**
+   * @return the layout of the projected rows
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return a new row holding the output fields of an input row
+   */
+  public Object[] project( Object[] row ) {
+    Object[] values = new Object[ fieldIndexes.length ];
+    for ( int field = 0; field < fieldIndexes.length; field++ ) {
+      values[ field ] = row[ fieldIndexes[ field ] ];
+    }
+    return values;
+  }
+}
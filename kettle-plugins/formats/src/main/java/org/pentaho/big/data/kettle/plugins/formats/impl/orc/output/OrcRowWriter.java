@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
+
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputField;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.util.List;
+
+/**
+ * Writes rows of the input stream to an ORC record writer, keeping only the output fields. The projection of the
+ * output fields is worked out once, and every row is written through the same row meta.
+ */
+public class OrcRowWriter {
+
+  private final IPentahoRecordWriter writer;
+  private final OrcRowProjection projection;
+  private final RowMetaAndData buffer;
+
+  /**
+   * @param writer       the record writer of the output file
+   * @param inputRowMeta the layout of the rows given to the writer
+   * @param outputFields the fields written to the file
+   * @throws KettleException if an output field is not in the input rows
+   */
+  public OrcRowWriter( IPentahoRecordWriter writer, RowMetaInterface inputRowMeta, List<OrcOutputField> outputFields )
+    throws KettleException {
+    this.writer = writer;
+    projection = new OrcRowProjection( inputRowMeta, outputFields );
+    buffer = new RowMetaAndData( projection.getRowMeta() );
+  }
+
+  /**
+   * @return the layout of the rows returned by {@link #write(Object[])}
+   */
+  public RowMetaInterface getOutputRowMeta() {
+    return projection.getRowMeta();
+  }
+
+  /**
+   * Writes an input row straight away, so that the row can be passed on and changed by the following steps.
+   *
+   * @return the written output fields of the row, in a new row that can be passed on
+   */
+  public Object[] write( Object[] row ) throws Exception {
+    Object[] values = projection.project( row );
+    // the writer copies the values into its own column vectors, so the buffer can take the next row
+    buffer.setData( values );
+    writer.write( buffer );
+    return values;
+  }
+}
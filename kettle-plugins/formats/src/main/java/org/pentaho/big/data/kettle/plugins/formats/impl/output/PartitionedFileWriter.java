@@ -0,0 +1,389 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.output;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes rows to a set of files rather than to a single one:
+ * <ul>
+ * <li>one file per value of the partition fields, in Hive style {@code field=value} folders;</li>
+ * <li>rolled over to a new file once a file holds the maximum number of rows or bytes.</li>
+ * </ul>
+ * The bytes of a file are counted from the values handed to it, not read from the file system: a file being written
+ * may not show its size until it is closed, and the record writers keep a whole row group or stripe in memory. The
+ * encoding and compression of the formats usually make the file smaller than the values written to it.
+ * At most a given number of files are open at the same time; the least recently written one is closed to make room,
+ * and its partition continues in a new file if more of its rows come. Files are written on a pool of threads, the rows
+ * of a partition always on the same thread and in the order they came in. The values written are copied when a row is
+ * added, so that the row can be passed on and changed by the following steps while it waits for its writer thread.
+ */
+public class PartitionedFileWriter implements AutoCloseable {
+
+  /**
+   * Rows collected for a partition before they are handed to its writer thread.
+   */
+  static final int BATCH_ROWS = 1000;
+
+  /**
+   * Folder name Hive uses for the null value of a partition field.
+   */
+  public static final String NULL_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+  /**
+   * Writes the rows of one file.
+   */
+  public interface FileWriter {
+    void write( Object[] row ) throws Exception;
+
+    void close() throws Exception;
+
+    /**
+     * Closes the file after a failure, dropping what was written.
+     */
+    void abort() throws Exception;
+  }
+
+  /**
+   * Opens a file, called from the writer threads.
+   */
+  @FunctionalInterface
+  public interface FileWriterFactory {
+    FileWriter open( String fileName ) throws Exception;
+  }
+
+  private final String folder;
+  private final String baseName;
+  private final String extension;
+  private final RowMetaInterface rowMeta;
+  private final int[] partitionIndexes;
+  private final int[] writtenIndexes;
+  private final long maxRows;
+  private final long maxBytes;
+  private final int maxOpenFiles;
+  private final FileWriterFactory writerFactory;
+  private final ExecutorService[] threads;
+  private final Semaphore pendingBatches;
+  private final Map<String, Partition> partitions = new LinkedHashMap<>( 16, 0.75f, true );
+  private final AtomicInteger fileCount = new AtomicInteger();
+  private volatile Exception failure;
+
+  /**
+   * @param fileName         the name the files are derived from: the partition folders go next to it, and the files
+   *                         take its name with a sequence number before the extension
+   * @param rowMeta          the layout of the rows
+   * @param partitionFields  the fields whose values make up the partition folders, possibly none
+   * @param writtenFields    the fields the files are written from; the rows handed to the files keep their layout,
+   *                         with only these fields set
+   * @param maxRows          the rows after which a file is rolled over, 0 for no limit
+   * @param maxBytes         the bytes of written values after which a file is rolled over, 0 for no limit
+   * @param maxOpenFiles     how many files can be open at the same time
+   * @param threadCount      how many files are written at the same time
+   * @param writerFactory    opens the files
+   * @throws KettleException if a partition field or a written field is not in the rows
+   */
+  public PartitionedFileWriter( String fileName, RowMetaInterface rowMeta, String[] partitionFields,
+                                String[] writtenFields, long maxRows, long maxBytes, int maxOpenFiles,
+                                int threadCount, FileWriterFactory writerFactory )
+    throws KettleException {
+    int nameStart = Math.max( fileName.lastIndexOf( '/' ), fileName.lastIndexOf( '\\' ) ) + 1;
+    int extensionStart = fileName.lastIndexOf( '.' );
+    if ( extensionStart <= nameStart ) {
+      extensionStart = fileName.length();
+    }
+    folder = fileName.substring( 0, nameStart );
+    baseName = fileName.substring( nameStart, extensionStart );
+    extension = fileName.substring( extensionStart );
+    this.rowMeta = rowMeta;
+    partitionIndexes = new int[ partitionFields.length ];
+    for ( int i = 0; i < partitionFields.length; i++ ) {
+      partitionIndexes[ i ] = rowMeta.indexOfValue( partitionFields[ i ] );
+      if ( partitionIndexes[ i ] < 0 ) {
+        throw new KettleException(
+          "Partition field [" + partitionFields[ i ] + "] couldn't be found in the input stream!" );
+      }
+    }
+    writtenIndexes = new int[ writtenFields.length ];
+    for ( int i = 0; i < writtenFields.length; i++ ) {
+      writtenIndexes[ i ] = rowMeta.indexOfValue( writtenFields[ i ] );
+      if ( writtenIndexes[ i ] < 0 ) {
+        throw new KettleException( "Field name [" + writtenFields[ i ] + " ] couldn't be found in the input stream!" );
+      }
+    }
+    this.maxRows = maxRows;
+    this.maxBytes = maxBytes;
+    this.maxOpenFiles = Math.max( 1, maxOpenFiles );
+    this.writerFactory = writerFactory;
+    threads = new ExecutorService[ Math.max( 1, threadCount ) ];
+    for ( int i = 0; i < threads.length; i++ ) {
+      threads[ i ] = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "partitioned-file-writer" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+    // bounds the rows waiting for the writer threads
+    pendingBatches = new Semaphore( threads.length * 4 );
+  }
+
+  /**
+   * Adds a row to the file of its partition.
+   */
+  public void add( Object[] row ) throws KettleException {
+    checkFailure();
+    String partitionPath = partitionPath( row );
+    Partition partition = partitions.get( partitionPath );
+    if ( partition == null ) {
+      if ( partitions.size() >= maxOpenFiles ) {
+        Iterator<Partition> leastRecent = partitions.values().iterator();
+        leastRecent.next().close();
+        leastRecent.remove();
+      }
+      partition = new Partition( partitionPath, threads[ Math.floorMod( partitionPath.hashCode(), threads.length ) ] );
+      partitions.put( partitionPath, partition );
+    }
+    partition.add( row );
+  }
+
+  /**
+   * Writes the remaining rows and closes every file.
+   */
+  @Override
+  public void close() throws KettleException {
+    try {
+      for ( Partition partition : partitions.values() ) {
+        partition.close();
+      }
+      partitions.clear();
+    } finally {
+      for ( ExecutorService thread : threads ) {
+        thread.shutdown();
+      }
+      try {
+        for ( ExecutorService thread : threads ) {
+          thread.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      }
+    }
+    checkFailure();
+  }
+
+  /**
+   * Stops writing after a failure of the step: the rows not written yet are dropped, and so are the open files.
+   */
+  public void abort() {
+    if ( failure == null ) {
+      failure = new KettleException( "The output was aborted" );
+    }
+    try {
+      close();
+    } catch ( KettleException e ) {
+      // the failure of the step is the one reported
+    }
+  }
+
+  /**
+   * @return the number of files opened so far
+   */
+  public int getFileCount() {
+    return fileCount.get();
+  }
+
+  String partitionPath( Object[] row ) throws KettleValueException {
+    if ( partitionIndexes.length == 0 ) {
+      return "";
+    }
+    StringBuilder path = new StringBuilder();
+    for ( int index : partitionIndexes ) {
+      String value = rowMeta.getValueMeta( index ).getString( row[ index ] );
+      path.append( escapePathName( rowMeta.getValueMeta( index ).getName() ) ).append( '=' )
+        .append( value == null || value.isEmpty() ? NULL_PARTITION : escapePathName( value ) ).append( '/' );
+    }
+    return path.toString();
+  }
+
+  /**
+   * Escapes the characters that cannot appear in a partition folder name the way Hive does, as %XX.
+   */
+  static String escapePathName( String name ) {
+    StringBuilder escaped = null;
+    for ( int i = 0; i < name.length(); i++ ) {
+      char c = name.charAt( i );
+      if ( c < ' ' || c == 0x7F || "\"#%'*/:=?\\{[]^".indexOf( c ) >= 0 ) {
+        if ( escaped == null ) {
+          escaped = new StringBuilder( name.length() + 8 ).append( name, 0, i );
+        }
+        escaped.append( '%' ).append( String.format( "%02X", (int) c ) );
+      } else if ( escaped != null ) {
+        escaped.append( c );
+      }
+    }
+    return escaped == null ? name : escaped.toString();
+  }
+
+  /**
+   * @return a rough size of the written values of a row: its strings and binaries plus a few bytes for every other
+   * value that is not null
+   */
+  long sizeOf( Object[] row ) {
+    long size = 0;
+    for ( int index : writtenIndexes ) {
+      Object value = row[ index ];
+      if ( value instanceof String ) {
+        size += ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += ( (byte[]) value ).length;
+      } else if ( value != null ) {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  private void checkFailure() throws KettleException {
+    if ( failure != null ) {
+      throw failure instanceof KettleException ? (KettleException) failure : new KettleException( failure );
+    }
+  }
+
+  /**
+   * The file of one partition. The batch is filled on the step thread; the writer and its counters are only used on
+   * the writer thread of the partition.
+   */
+  private class Partition {
+    private final String path;
+    private final ExecutorService thread;
+    private Object[][] batch = new Object[ BATCH_ROWS ][];
+    private int batchSize = 0;
+    private FileWriter writer;
+    private long fileRows;
+    private long fileBytes;
+
+    Partition( String path, ExecutorService thread ) {
+      this.path = path;
+      this.thread = thread;
+    }
+
+    void add( Object[] row ) throws KettleException {
+      Object[] values = new Object[ rowMeta.size() ];
+      for ( int index : writtenIndexes ) {
+        values[ index ] = row[ index ];
+      }
+      batch[ batchSize++ ] = values;
+      if ( batchSize == BATCH_ROWS ) {
+        flush();
+      }
+    }
+
+    void flush() throws KettleException {
+      if ( batchSize == 0 ) {
+        return;
+      }
+      Object[][] rows = batch;
+      int count = batchSize;
+      batch = new Object[ BATCH_ROWS ][];
+      batchSize = 0;
+      submit( () -> {
+        for ( int i = 0; i < count; i++ ) {
+          write( rows[ i ] );
+        }
+      } );
+    }
+
+    void close() throws KettleException {
+      flush();
+      submit( this::closeFile );
+    }
+
+    private void submit( WriterTask task ) throws KettleException {
+      try {
+        pendingBatches.acquire();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      }
+      thread.execute( () -> {
+        try {
+          if ( failure == null ) {
+            task.run();
+          } else {
+            abortFile();
+          }
+        } catch ( Exception e ) {
+          if ( failure == null ) {
+            failure = e;
+          }
+          abortFile();
+        } finally {
+          pendingBatches.release();
+        }
+      } );
+    }
+
+    private void write( Object[] row ) throws Exception {
+      if ( writer == null ) {
+        writer = writerFactory.open( folder + path + baseName + "_" + fileCount.getAndIncrement() + extension );
+        fileRows = 0;
+        fileBytes = 0;
+      }
+      writer.write( row );
+      fileRows++;
+      if ( maxBytes > 0 ) {
+        fileBytes += sizeOf( row );
+      }
+      if ( ( maxRows > 0 && fileRows >= maxRows ) || ( maxBytes > 0 && fileBytes >= maxBytes ) ) {
+        closeFile();
+      }
+    }
+
+    private void closeFile() throws Exception {
+      if ( writer != null ) {
+        FileWriter closing = writer;
+        writer = null;
+        closing.close();
+      }
+    }
+
+    private void abortFile() {
+      if ( writer != null ) {
+        FileWriter aborting = writer;
+        writer = null;
+        try {
+          aborting.abort();
+        } catch ( Exception e ) {
+          // the first failure is the one reported
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface WriterTask {
+    void run() throws Exception;
+  }
+}
@@ -32,6 +32,12 @@ import java.nio.file.FileAlreadyExistsException;
  * supoorted for the output content.
  */
 public class PvfsFileAliaser {
+  /**
+   * Bytes copied at a time from the temporary file to the destination, large enough to fill the parts of a multipart
+   * upload without extra round trips.
+   */
+  static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
   private String finalFilePath;
 
   private String temporaryFilePath;
@@ -81,7 +87,7 @@ public class PvfsFileAliaser {
       FileObject destFile = KettleVFS.getFileObject( finalFilePath, variableSpace );
       try ( InputStream in = KettleVFS.getInputStream( srcFile );
             OutputStream out = KettleVFS.getOutputStream( destFile, false ) ) {
-        IOUtils.copy( in, out );
+        IOUtils.copyLarge( in, out, new byte[ COPY_BUFFER_SIZE ] );
       }
     }
   }
@@ -14,8 +14,12 @@
 package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.input;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.ParallelSplitReader;
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.SchemaCache;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputField;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputMetaBase;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.util.StringUtil;
@@ -45,6 +49,8 @@ import java.util.stream.Collectors;
 public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInputData> {
   public static final long SPLIT_SIZE = 128 * 1024 * 1024L;
 
+  private static final SchemaCache<IParquetInputField> SCHEMAS = new SchemaCache<>();
+
   public ParquetInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                        Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -52,13 +58,17 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
 
   public static List<? extends IParquetInputField> retrieveSchema(
     NamedClusterServiceLocator namedClusterServiceLocator, NamedCluster namedCluster, String path ) throws Exception {
-    FormatService formatService = namedClusterServiceLocator.getService( namedCluster, FormatService.class );
-    IPentahoParquetInputFormat in = formatService.createInputFormat( IPentahoParquetInputFormat.class, namedCluster );
-    FileObject inputFileObject = KettleVFS.getFileObject( path );
-    if ( AliasedFileObject.isAliasedFile( inputFileObject ) ) {
-      path = ( (AliasedFileObject) inputFileObject ).getOriginalURIString();
-    }
-    return in.readSchema( path );
+    return SCHEMAS.get( path, null, () -> {
+      FormatService formatService = namedClusterServiceLocator.getService( namedCluster, FormatService.class );
+      IPentahoParquetInputFormat in =
+        formatService.createInputFormat( IPentahoParquetInputFormat.class, namedCluster );
+      FileObject inputFileObject = KettleVFS.getFileObject( path );
+      String schemaPath = path;
+      if ( AliasedFileObject.isAliasedFile( inputFileObject ) ) {
+        schemaPath = ( (AliasedFileObject) inputFileObject ).getOriginalURIString();
+      }
+      return in.readSchema( schemaPath );
+    } );
   }
 
   public static List<IParquetInputField> createSchemaFromMeta( ParquetInputMetaBase meta ) {
@@ -78,6 +88,9 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
         initSplits();
       }
 
+      if ( data.readerThreads > 1 ) {
+        return processParallelRow();
+      }
       if ( data.currentSplit >= data.splits.size() ) {
         setOutputDone();
         return false;
@@ -89,7 +102,13 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
 
       if ( data.rowIterator.hasNext() ) {
         RowMetaAndData row = data.rowIterator.next();
-        putRow( row.getRowMeta(), row.getData() );
+        if ( data.outputRowMeta == null ) {
+          // all rows of the input share the layout of the requested schema
+          data.outputRowMeta = row.getRowMeta();
+        }
+        if ( data.filter == null || data.filter.evaluate( data.outputRowMeta, row.getData() ) ) {
+          putRow( data.outputRowMeta, row.getData() );
+        }
         return true;
       } else {
         data.reader.close();
@@ -107,6 +126,23 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
     }
   }
 
+  private boolean processParallelRow() throws Exception {
+    if ( data.parallelReader == null ) {
+      logDebug( "Reading {0} splits on {1} threads", data.splits.size(), data.readerThreads );
+      data.parallelReader = new ParallelSplitReader<>( data.splits, data.input::createRecordReader, data.readerThreads,
+        meta.isPreserveOrder(), data.filter == null ? null : () -> (Condition) data.filter.clone() );
+    }
+    Object[] row = data.parallelReader.nextRow();
+    if ( row == null ) {
+      data.parallelReader.close();
+      data.currentSplit = data.splits.size();
+      setOutputDone();
+      return false;
+    }
+    putRow( data.parallelReader.getRowMeta(), row );
+    return true;
+  }
+
   void initSplits() throws Exception {
     FormatService
       formatService =
@@ -160,10 +196,16 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
       }
       data.input.setSplitSize( SPLIT_SIZE );
 
-      data.splits = data.input.getSplits();
+      // every copy of the step reads its own share of the splits
+      data.splits = ParallelSplitReader.splitsOfCopy( data.input.getSplits(), getUniqueStepNrAcrossSlaves(),
+        getUniqueStepCountAcrossSlaves() );
       logDebug( "Input split count: {0}", data.splits.size() );
     }
     data.currentSplit = 0;
+    data.readerThreads = Const.toInt( environmentSubstitute( meta.getReaderThreads() ), 1 );
+    // copies of the step share the meta, and a condition caches field positions while it is evaluated
+    data.filter = meta.getFilter() == null || meta.getFilter().isEmpty() ? null
+      : (Condition) meta.getFilter().clone();
   }
 
   private NamedCluster getNamedCluster() {
@@ -181,6 +223,15 @@ public class ParquetInput extends BaseFileInputStep<ParquetInputMeta, ParquetInp
     return true;
   }
 
+  @Override public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    ParquetInputData parquetData = (ParquetInputData) sdi;
+    if ( parquetData.parallelReader != null ) {
+      parquetData.parallelReader.close();
+      parquetData.parallelReader = null;
+    }
+    super.dispose( smi, sdi );
+  }
+
   @Override protected IBaseFileInputReader createReader( ParquetInputMeta meta, ParquetInputData data, FileObject file )
     throws Exception {
     return null;
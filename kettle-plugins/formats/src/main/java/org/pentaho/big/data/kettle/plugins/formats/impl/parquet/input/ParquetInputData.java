@@ -16,6 +16,8 @@ package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.input;
 import java.util.Iterator;
 import java.util.List;
 
+import org.pentaho.big.data.kettle.plugins.formats.impl.input.ParallelSplitReader;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.steps.file.BaseFileInputStepData;
@@ -30,4 +32,10 @@ public class ParquetInputData extends BaseFileInputStepData {
   IPentahoRecordReader reader;
   Iterator<RowMetaAndData> rowIterator;
   RowMetaInterface outputRowMeta;
+  int readerThreads;
+  ParallelSplitReader<IPentahoInputSplit> parallelReader;
+  /**
+   * Condition rows must match to be passed on, null when every row is.
+   */
+  Condition filter;
 }
@@ -13,6 +13,8 @@
 
 package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.output;
 
+import org.pentaho.big.data.kettle.plugins.formats.BaseFormatOutputField;
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PartitionedFileWriter;
 import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
@@ -28,6 +30,7 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
 
 import java.io.IOException;
@@ -48,6 +51,9 @@ public class ParquetOutput extends BaseStep implements StepInterface {
   @Override
   public synchronized boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     try {
+      if ( data.partitionedWriter != null || ( data.output == null && meta.isMultiFileOutput( this ) ) ) {
+        return processPartitionedRow( getRow() );
+      }
       if ( data.output == null ) {
         init( getInputRowMeta() );
       }
@@ -78,7 +84,9 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     } catch ( IllegalStateException e ) {
       getLogChannel().logError( e.getMessage() );
       setErrors( 1 );
-      pvfsFileAliaser.deleteTempFileAndFolder();
+      if ( pvfsFileAliaser != null ) {
+        pvfsFileAliaser.deleteTempFileAndFolder();
+      }
       setOutputDone();
       return false;
     } catch ( Exception ex ) {
@@ -92,14 +100,49 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     }
   }
 
-  public void init( RowMetaInterface rowMeta ) throws Exception {
-    FormatService formatService;
+  /**
+   * Hands a row to the files of its partition, or closes them all at the end of the input.
+   */
+  private boolean processPartitionedRow( Object[] currentRow ) throws KettleException {
     try {
-      formatService = meta.getNamedClusterResolver().getNamedClusterServiceLocator()
-        .getService( getNamedCluster(), FormatService.class );
-    } catch ( ClusterInitializationException e ) {
-      throw new KettleException( "can't get service format shim ", e );
+      if ( currentRow != null ) {
+        if ( data.partitionedWriter == null ) {
+          data.partitionedWriter = createPartitionedWriter( getInputRowMeta() );
+        }
+        data.partitionedWriter.add( currentRow );
+        incrementLinesOutput();
+        putRow( getInputRowMeta(), currentRow );
+        return true;
+      }
+      if ( data.partitionedWriter != null ) {
+        data.partitionedWriter.close();
+        data.partitionedWriter = null;
+      }
+      setOutputDone();
+      return false;
+    } catch ( KettleException | RuntimeException ex ) {
+      if ( data.partitionedWriter != null ) {
+        data.partitionedWriter.abort();
+        data.partitionedWriter = null;
+      }
+      throw ex;
+    }
+  }
+
+  private PartitionedFileWriter createPartitionedWriter( RowMetaInterface rowMeta ) throws KettleException {
+    FormatService formatService = getFormatService();
+    if ( meta.getFilename() == null ) {
+      throw new KettleException( "No output files defined" );
     }
+    String outputFileName = environmentSubstitute( meta.constructOutputFilename() );
+    return new PartitionedFileWriter( outputFileName, rowMeta, meta.getPartitionFields( this ),
+      meta.getOutputFields().stream().map( BaseFormatOutputField::getPentahoFieldName ).toArray( String[]::new ),
+      meta.getMaxRowsPerFile( this ), meta.getMaxFileSize( this ), meta.getMaxOpenFiles( this ),
+      meta.getWriterThreads( this ), fileName -> openFile( formatService, rowMeta, fileName ) );
+  }
+
+  public void init( RowMetaInterface rowMeta ) throws Exception {
+    FormatService formatService = getFormatService();
     if ( meta.getFilename() == null ) {
       throw new KettleException( "No output files defined" );
     }
@@ -110,7 +153,49 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     pvfsFileAliaser = new PvfsFileAliaser( outputFileName, getTransMeta(), data.output, meta.overrideOutput,
       getLogChannel() );
     data.output.setOutputFile( pvfsFileAliaser.generateAlias(), meta.overrideOutput );
-    data.output.setFields( meta.getOutputFields() );
+    configure( data.output );
+
+    data.writer = data.output.createRecordWriter();
+  }
+
+  /**
+   * Opens one of the files of a partitioned or rolled over output.
+   */
+  private PartitionedFileWriter.FileWriter openFile( FormatService formatService, RowMetaInterface rowMeta,
+                                                     String fileName ) throws Exception {
+    IPentahoParquetOutputFormat output =
+      formatService.createOutputFormat( IPentahoParquetOutputFormat.class, getNamedCluster() );
+    PvfsFileAliaser aliaser = new PvfsFileAliaser( fileName, getTransMeta(), output, meta.overrideOutput,
+      getLogChannel() );
+    output.setOutputFile( aliaser.generateAlias(), meta.overrideOutput );
+    configure( output );
+    IPentahoRecordWriter writer = output.createRecordWriter();
+    return new PartitionedFileWriter.FileWriter() {
+      @Override
+      public void write( Object[] row ) throws Exception {
+        writer.write( new RowMetaAndData( rowMeta, row ) );
+      }
+
+      @Override
+      public void close() throws Exception {
+        writer.close();
+        aliaser.copyFileToFinalDestination();
+        aliaser.deleteTempFileAndFolder();
+      }
+
+      @Override
+      public void abort() throws Exception {
+        try {
+          writer.close();
+        } finally {
+          aliaser.deleteTempFileAndFolder();
+        }
+      }
+    };
+  }
+
+  private void configure( IPentahoParquetOutputFormat output ) throws Exception {
+    output.setFields( meta.getOutputFields() );
 
     IPentahoParquetOutputFormat.COMPRESSION compression;
     try {
@@ -119,23 +204,30 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     } catch ( Exception ex ) {
       compression = IPentahoParquetOutputFormat.COMPRESSION.UNCOMPRESSED;
     }
-    data.output.setCompression( compression );
-    data.output
+    output.setCompression( compression );
+    output
       .setVersion(
         ParquetOutputMetaBase.ParquetVersion.PARQUET_1.equals( meta.getParquetVersion( variables ) )
           ? IPentahoParquetOutputFormat.VERSION.VERSION_1_0 : IPentahoParquetOutputFormat.VERSION.VERSION_2_0 );
     if ( meta.getRowGroupSize( variables ) > 0 ) {
-      data.output.setRowGroupSize( meta.getRowGroupSize( variables ) * 1024 * 1024 );
+      output.setRowGroupSize( meta.getRowGroupSize( variables ) * 1024 * 1024 );
     }
     if ( meta.getDataPageSize( variables ) > 0 ) {
-      data.output.setDataPageSize( meta.getDataPageSize( variables ) * 1024 );
+      output.setDataPageSize( meta.getDataPageSize( variables ) * 1024 );
     }
-    data.output.enableDictionary( meta.enableDictionary );
+    output.enableDictionary( meta.enableDictionary );
     if ( meta.getDictPageSize( variables ) > 0 ) {
-      data.output.setDictionaryPageSize( meta.getDictPageSize( variables ) * 1024 );
+      output.setDictionaryPageSize( meta.getDictPageSize( variables ) * 1024 );
     }
+  }
 
-    data.writer = data.output.createRecordWriter();
+  private FormatService getFormatService() throws KettleException {
+    try {
+      return meta.getNamedClusterResolver().getNamedClusterServiceLocator()
+        .getService( getNamedCluster(), FormatService.class );
+    } catch ( ClusterInitializationException e ) {
+      throw new KettleException( "can't get service format shim ", e );
+    }
   }
 
   private NamedCluster getNamedCluster() {
@@ -151,6 +243,19 @@ public class ParquetOutput extends BaseStep implements StepInterface {
     data.output = null;
   }
 
+  /**
+   * Drops the partitioned output of a transformation that was stopped or failed before the end of the input.
+   */
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    ParquetOutputData parquetData = (ParquetOutputData) sdi;
+    if ( parquetData.partitionedWriter != null ) {
+      parquetData.partitionedWriter.abort();
+      parquetData.partitionedWriter = null;
+    }
+    super.dispose( smi, sdi );
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (ParquetOutputMeta) smi;
@@ -12,6 +12,7 @@
 
 package org.pentaho.big.data.kettle.plugins.formats.impl.parquet.output;
 
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PartitionedFileWriter;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
@@ -21,4 +22,5 @@ public class ParquetOutputData extends BaseStepData implements StepDataInterface
 
   public IPentahoParquetOutputFormat output;
   public IPentahoRecordWriter writer;
+  public PartitionedFileWriter partitionedWriter;
 }
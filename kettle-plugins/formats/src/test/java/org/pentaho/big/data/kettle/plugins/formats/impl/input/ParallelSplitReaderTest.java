@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.input;
+
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ParallelSplitReaderTest {
+
+  private final RowMeta rowMeta = new RowMeta();
+
+  public ParallelSplitReaderTest() {
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+  }
+
+  @Test
+  public void testRowsKeepSplitOrder() throws Exception {
+    List<IPentahoInputSplit> splits = splits( 3 );
+    // more rows than one batch, so that every split hands over several batches
+    int rowsPerSplit = ParallelSplitReader.BATCH_ROWS * 2 + 7;
+    List<IPentahoRecordReader> readers = recordReaders( 3, 10000L, rowsPerSplit );
+    try ( ParallelSplitReader<IPentahoInputSplit> reader = new ParallelSplitReader<>( splits,
+      split -> readers.get( splits.indexOf( split ) ), 3, true ) ) {
+      for ( int split = 0; split < 3; split++ ) {
+        for ( int row = 0; row < rowsPerSplit; row++ ) {
+          assertEquals( split * 10000L + row, reader.nextRow()[ 0 ] );
+          assertSame( rowMeta, reader.getRowMeta() );
+        }
+      }
+      assertNull( reader.nextRow() );
+    }
+  }
+
+  @Test
+  public void testUnorderedReadDeliversEveryRow() throws Exception {
+    List<IPentahoInputSplit> splits = splits( 4 );
+    List<IPentahoRecordReader> readers = recordReaders( 4, 1000L, 300 );
+    List<Long> values = new ArrayList<>();
+    try ( ParallelSplitReader<IPentahoInputSplit> reader = new ParallelSplitReader<>( splits,
+      split -> readers.get( splits.indexOf( split ) ), 2, false ) ) {
+      Object[] row;
+      while ( ( row = reader.nextRow() ) != null ) {
+        values.add( (Long) row[ 0 ] );
+      }
+    }
+    assertEquals( 1200, values.size() );
+    for ( IPentahoRecordReader recordReader : readers ) {
+      verify( recordReader ).close();
+    }
+    Collections.sort( values );
+    for ( int split = 0; split < 4; split++ ) {
+      assertEquals( split * 1000L, (long) values.get( split * 300 ) );
+    }
+  }
+
+  @Test
+  public void testFilteredRowsAreDropped() throws Exception {
+    List<IPentahoInputSplit> splits = splits( 2 );
+    List<IPentahoRecordReader> readers = recordReaders( 2, 1000L, 500 );
+    Condition filter = new Condition( "value", Condition.FUNC_LARGER_EQUAL, null,
+      new ValueMetaAndData( "constant", 1400L ) );
+    List<Long> values = new ArrayList<>();
+    try ( ParallelSplitReader<IPentahoInputSplit> reader = new ParallelSplitReader<>( splits,
+      split -> readers.get( splits.indexOf( split ) ), 2, true, () -> (Condition) filter.clone() ) ) {
+      Object[] row;
+      while ( ( row = reader.nextRow() ) != null ) {
+        values.add( (Long) row[ 0 ] );
+      }
+    }
+    assertEquals( 100, values.size() );
+    assertEquals( 1400L, (long) values.get( 0 ) );
+    assertEquals( 1499L, (long) values.get( 99 ) );
+  }
+
+  @Test
+  public void testSplitFailureIsRethrown() throws Exception {
+    IPentahoRecordReader failing = mock( IPentahoRecordReader.class );
+    when( failing.iterator() ).thenThrow( new IllegalStateException( "corrupt footer" ) );
+    try ( ParallelSplitReader<IPentahoInputSplit> reader =
+            new ParallelSplitReader<>( splits( 1 ), split -> failing, 2, true ) ) {
+      reader.nextRow();
+      fail( "The failure of the split should be rethrown" );
+    } catch ( IllegalStateException e ) {
+      assertEquals( "corrupt footer", e.getMessage() );
+    }
+    verify( failing ).close();
+  }
+
+  @Test
+  public void testSplitErrorIsRethrown() throws Exception {
+    IPentahoRecordReader failing = mock( IPentahoRecordReader.class );
+    when( failing.iterator() ).thenThrow( new NoClassDefFoundError( "org/apache/orc/Reader" ) );
+    try ( ParallelSplitReader<IPentahoInputSplit> reader =
+            new ParallelSplitReader<>( splits( 2 ), split -> failing, 2, false ) ) {
+      reader.nextRow();
+      fail( "The error of the split should be rethrown" );
+    } catch ( NoClassDefFoundError e ) {
+      assertEquals( "org/apache/orc/Reader", e.getMessage() );
+    }
+  }
+
+  @Test
+  public void testCopiesClaimDisjointSplits() {
+    List<Integer> splits = Arrays.asList( 0, 1, 2, 3, 4 );
+    assertEquals( Arrays.asList( 0, 2, 4 ), ParallelSplitReader.splitsOfCopy( splits, 0, 2 ) );
+    assertEquals( Arrays.asList( 1, 3 ), ParallelSplitReader.splitsOfCopy( splits, 1, 2 ) );
+    assertEquals( splits, ParallelSplitReader.splitsOfCopy( splits, 0, 1 ) );
+  }
+
+  private List<IPentahoInputSplit> splits( int count ) {
+    List<IPentahoInputSplit> splits = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      splits.add( mock( IPentahoInputSplit.class ) );
+    }
+    return splits;
+  }
+
+  /**
+   * @return readers of consecutive values, starting at {@code split * stride} for every split
+   */
+  private List<IPentahoRecordReader> recordReaders( int splits, long stride, int rowsPerSplit ) {
+    List<IPentahoRecordReader> readers = new ArrayList<>();
+    for ( int split = 0; split < splits; split++ ) {
+      List<RowMetaAndData> rows = new ArrayList<>();
+      for ( int i = 0; i < rowsPerSplit; i++ ) {
+        rows.add( new RowMetaAndData( rowMeta, split * stride + i ) );
+      }
+      IPentahoRecordReader reader = mock( IPentahoRecordReader.class );
+      when( reader.iterator() ).thenReturn( rows.iterator() );
+      readers.add( reader );
+    }
+    return readers;
+  }
+}
@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.input;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SchemaCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicInteger reads = new AtomicInteger();
+
+  @Test
+  public void testSchemaIsReadOncePerFile() throws Exception {
+    SchemaCache<String> cache = new SchemaCache<>();
+    String path = file( "data.parquet", "footer" );
+    List<String> schema = cache.get( path, null, () -> read( "a", "b" ) );
+    assertSame( schema, cache.get( path, null, () -> read( "a", "b" ) ) );
+    assertEquals( Arrays.asList( "a", "b" ), schema );
+    assertEquals( 1, reads.get() );
+  }
+
+  @Test
+  public void testChangedFileIsReadAgain() throws Exception {
+    SchemaCache<String> cache = new SchemaCache<>();
+    String path = file( "data.parquet", "footer" );
+    cache.get( path, null, () -> read( "a" ) );
+    Files.write( new File( folder.getRoot(), "data.parquet" ).toPath(), "longer footer".getBytes() );
+    assertEquals( Arrays.asList( "a", "b" ), cache.get( path, null, () -> read( "a", "b" ) ) );
+    assertEquals( 2, reads.get() );
+  }
+
+  @Test
+  public void testFoldersAreNotCached() throws Exception {
+    SchemaCache<String> cache = new SchemaCache<>();
+    String path = folder.newFolder( "parts" ).getAbsolutePath();
+    cache.get( path, null, () -> read( "a" ) );
+    cache.get( path, null, () -> read( "a" ) );
+    assertEquals( 2, reads.get() );
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testLeastRecentSchemasAreDroppedOverMaxFields() throws Exception {
+    SchemaCache<String> cache = new SchemaCache<>( 4 );
+    String first = file( "first.orc", "1" );
+    String second = file( "second.orc", "2" );
+    String third = file( "third.orc", "3" );
+    cache.get( first, null, () -> read( "a", "b" ) );
+    cache.get( second, null, () -> read( "a", "b" ) );
+    cache.get( first, null, () -> read( "a", "b" ) );
+    cache.get( third, null, () -> read( "a", "b" ) );
+    assertEquals( 2, cache.size() );
+    assertEquals( 3, reads.get() );
+    // the second file was the least recently used one
+    cache.get( first, null, () -> read( "a", "b" ) );
+    assertEquals( 3, reads.get() );
+    cache.get( second, null, () -> read( "a", "b" ) );
+    assertEquals( 4, reads.get() );
+  }
+
+  private List<String> read( String... fields ) {
+    reads.incrementAndGet();
+    return Arrays.asList( fields );
+  }
+
+  private String file( String name, String content ) throws Exception {
+    File file = new File( folder.getRoot(), name );
+    Files.write( file.toPath(), content.getBytes() );
+    return file.getAbsolutePath();
+  }
+}
@@ -18,6 +18,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
 import org.pentaho.big.data.kettle.plugins.formats.orc.OrcInputField;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.injection.BaseMetadataInjectionTest;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.hadoop.shim.api.format.OrcSpec;
@@ -44,6 +45,16 @@ public class OrcInputMetaInjectionTest extends BaseMetadataInjectionTest<OrcInpu
     check( "FIELD_PATH", () -> meta.getInputFields()[ 0 ].getFormatFieldName() );
     check( "FIELD_NAME", () -> meta.getInputFields()[ 0 ].getName() );
     checkPdiTypes( "FIELD_TYPE", () -> meta.getInputFields()[ 0 ].getType() );
+    check( "READER_THREADS", () -> meta.getReaderThreads() );
+    check( "PRESERVE_ORDER", () -> meta.isPreserveOrder() );
+    check( "FILTER", () -> meta.getFilterXML(), notNull( "id" ), notNull( "name" ) );
+  }
+
+  private static String notNull( String field ) throws Exception {
+    Condition condition = new Condition();
+    condition.setLeftValuename( field );
+    condition.setFunction( Condition.FUNC_NOT_NULL );
+    return condition.getXML();
   }
 
 }
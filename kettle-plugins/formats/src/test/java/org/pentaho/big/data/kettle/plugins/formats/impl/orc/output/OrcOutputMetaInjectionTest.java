@@ -51,6 +51,11 @@ public class OrcOutputMetaInjectionTest  extends BaseMetadataInjectionTest<OrcOu
     check( "OPTIONS_STRIPE_SIZE", () -> meta.getStripeSize() );
     check( "OPTIONS_TIME_IN_FILE_NAME", () -> meta.isTimeInFileName() );
     check( "OVERRIDE_OUTPUT", () -> meta.isOverrideOutput() );
+    check( "PARTITION_FIELDS", () -> meta.getPartitionFields() );
+    check( "MAX_ROWS_PER_FILE", () -> meta.getMaxRowsPerFile() );
+    check( "MAX_FILE_SIZE", () -> meta.getMaxFileSize() );
+    check( "MAX_OPEN_FILES", () -> meta.getMaxOpenFiles() );
+    check( "WRITER_THREADS", () -> meta.getWriterThreads() );
 
     check( "FIELD_DECIMAL_PRECISION", () -> meta.getOutputFields().get( 0 ).getPrecision() );
     check( "FIELD_DECIMAL_SCALE", () -> meta.getOutputFields().get( 0 ).getScale() );
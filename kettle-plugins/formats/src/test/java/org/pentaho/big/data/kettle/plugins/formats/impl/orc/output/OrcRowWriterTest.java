@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.orc.output;
+
+import org.junit.Test;
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputField;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrcRowWriterTest {
+
+  private final RowMeta inputRowMeta = new RowMeta();
+  private final List<Object[]> written = new ArrayList<>();
+  private final List<RowMetaAndData> writtenRows = new ArrayList<>();
+  private final IPentahoRecordWriter recordWriter = mock( IPentahoRecordWriter.class );
+
+  public OrcRowWriterTest() throws Exception {
+    inputRowMeta.addValueMeta( new ValueMetaString( "skipped" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "number" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    doAnswer( invocation -> {
+      RowMetaAndData row = invocation.getArgument( 0 );
+      writtenRows.add( row );
+      written.add( row.getData().clone() );
+      return null;
+    } ).when( recordWriter ).write( any( RowMetaAndData.class ) );
+  }
+
+  @Test
+  public void testWritesOutputFieldsOfEachRowStraightAway() throws Exception {
+    OrcRowWriter rowWriter = new OrcRowWriter( recordWriter, inputRowMeta, fields( "text", "number" ) );
+    Object[] row = new Object[] { "skip", 0L, "first" };
+    Object[] passedOn = rowWriter.write( row );
+    // a following step changing the row does not change what was written
+    row[ 2 ] = "changed";
+    passedOn[ 1 ] = -1L;
+    Object[] secondPassedOn = rowWriter.write( new Object[] { "skip", 1L, "second" } );
+
+    assertEquals( 2, written.size() );
+    assertArrayEquals( new Object[] { "first", 0L }, written.get( 0 ) );
+    assertArrayEquals( new Object[] { "second", 1L }, written.get( 1 ) );
+    assertArrayEquals( new String[] { "text", "number" }, writtenRows.get( 0 ).getRowMeta().getFieldNames() );
+    // the rows passed on hold the output fields only, each in its own array
+    assertArrayEquals( new String[] { "text", "number" }, rowWriter.getOutputRowMeta().getFieldNames() );
+    assertArrayEquals( new Object[] { "first", -1L }, passedOn );
+    assertArrayEquals( new Object[] { "second", 1L }, secondPassedOn );
+    // every row goes through the same row meta and wrapper
+    assertTrue( writtenRows.stream().allMatch( rowData -> rowData == writtenRows.get( 0 ) ) );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testMissingFieldIsRejected() throws Exception {
+    new OrcRowWriter( recordWriter, inputRowMeta, fields( "missing" ) );
+  }
+
+  private List<OrcOutputField> fields( String... names ) {
+    List<OrcOutputField> fields = new ArrayList<>();
+    for ( String name : names ) {
+      OrcOutputField field = mock( OrcOutputField.class );
+      when( field.getPentahoFieldName() ).thenReturn( name );
+      fields.add( field );
+    }
+    return fields;
+  }
+}
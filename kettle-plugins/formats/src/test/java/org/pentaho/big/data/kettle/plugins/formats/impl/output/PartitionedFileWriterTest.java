@@ -0,0 +1,203 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.output;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PartitionedFileWriterTest {
+
+  private final RowMeta rowMeta = new RowMeta();
+  private final Map<String, List<Object[]>> files = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> closed = new ConcurrentHashMap<>();
+  private final AtomicInteger open = new AtomicInteger();
+  private final AtomicInteger maxOpen = new AtomicInteger();
+
+  public PartitionedFileWriterTest() {
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+  }
+
+  @Test
+  public void testRowsGoToTheFolderOfTheirPartition() throws Exception {
+    try ( PartitionedFileWriter writer = writer( new String[] { "country" }, 0, 32, 2 ) ) {
+      for ( long i = 0; i < 5000; i++ ) {
+        writer.add( new Object[] { i % 2 == 0 ? "us" : null, i } );
+      }
+    }
+    Map<String, List<Object[]>> sorted = new TreeMap<>( files );
+    assertEquals( 2, sorted.size() );
+    List<String> names = new ArrayList<>( sorted.keySet() );
+    assertTrue( names.get( 0 ), names.get( 0 ).startsWith( "/out/country=" + PartitionedFileWriter.NULL_PARTITION
+      + "/data_" ) );
+    assertTrue( names.get( 1 ), names.get( 1 ).startsWith( "/out/country=us/data_" ) );
+    assertTrue( names.get( 1 ), names.get( 1 ).endsWith( ".parquet" ) );
+    // the rows of a partition keep their order
+    List<Object[]> us = sorted.get( names.get( 1 ) );
+    assertEquals( 2500, us.size() );
+    for ( int i = 0; i < us.size(); i++ ) {
+      assertEquals( i * 2L, us.get( i )[ 1 ] );
+    }
+    assertTrue( closed.values().stream().allMatch( Boolean::booleanValue ) );
+  }
+
+  @Test
+  public void testFilesAreRolledOverAfterMaxRows() throws Exception {
+    PartitionedFileWriter writer = writer( new String[ 0 ], 1000, 32, 1 );
+    for ( long i = 0; i < 2500; i++ ) {
+      writer.add( new Object[] { "us", i } );
+    }
+    writer.close();
+    assertEquals( 3, writer.getFileCount() );
+    List<Integer> sizes = new ArrayList<>();
+    files.values().forEach( rows -> sizes.add( rows.size() ) );
+    Collections.sort( sizes );
+    assertEquals( 3, sizes.size() );
+    assertEquals( Integer.valueOf( 500 ), sizes.get( 0 ) );
+    assertEquals( Integer.valueOf( 1000 ), sizes.get( 2 ) );
+  }
+
+  @Test
+  public void testFilesAreRolledOverAfterMaxBytes() throws Exception {
+    // every row hands 2 bytes of country and 8 of value to its file
+    PartitionedFileWriter writer = writer( new String[ 0 ], 0, 1000, 32, 1 );
+    for ( long i = 0; i < 250; i++ ) {
+      writer.add( new Object[] { "us", i } );
+    }
+    writer.close();
+    assertEquals( 3, writer.getFileCount() );
+    List<Integer> sizes = new ArrayList<>();
+    files.values().forEach( rows -> sizes.add( rows.size() ) );
+    Collections.sort( sizes );
+    assertEquals( Integer.valueOf( 50 ), sizes.get( 0 ) );
+    assertEquals( Integer.valueOf( 100 ), sizes.get( 2 ) );
+  }
+
+  @Test
+  public void testLeastRecentFileIsClosedOverMaxOpenFiles() throws Exception {
+    try ( PartitionedFileWriter writer = writer( new String[] { "value" }, 0, 2, 1 ) ) {
+      for ( long i = 0; i < 6; i++ ) {
+        writer.add( new Object[] { "us", i % 3 } );
+      }
+    }
+    assertTrue( maxOpen.get() <= 2 );
+    // the partitions closed to make room continue in new files
+    assertEquals( 6, files.size() );
+  }
+
+  @Test
+  public void testWriteFailureIsRethrown() throws Exception {
+    PartitionedFileWriter writer = new PartitionedFileWriter( "/out/data.parquet", rowMeta, new String[ 0 ],
+      new String[] { "value" }, 0, 0, 32, 1, fileName -> {
+        throw new IllegalStateException( "no space left" );
+      } );
+    try {
+      writer.add( new Object[] { "us", 1L } );
+      writer.close();
+      fail( "The failure of the writer thread should be rethrown" );
+    } catch ( KettleException e ) {
+      assertTrue( e.getCause() instanceof IllegalStateException );
+    }
+  }
+
+  @Test
+  public void testWrittenValuesAreCopiedWhenTheRowIsAdded() throws Exception {
+    Object[] row = new Object[] { "us", 1L, "not written" };
+    try ( PartitionedFileWriter writer = new PartitionedFileWriter( "/out/data.parquet", rowMeta, new String[ 0 ],
+      new String[] { "value" }, 0, 0, 32, 1, fileName -> {
+        List<Object[]> rows = Collections.synchronizedList( new ArrayList<>() );
+        files.put( fileName, rows );
+        return new PartitionedFileWriter.FileWriter() {
+          @Override
+          public void write( Object[] written ) {
+            rows.add( written );
+          }
+
+          @Override
+          public void close() {
+          }
+
+          @Override
+          public void abort() {
+          }
+        };
+      } ) ) {
+      writer.add( row );
+      // a following step changes the row while it waits for the writer thread
+      row[ 1 ] = 2L;
+    }
+    Object[] written = files.values().iterator().next().get( 0 );
+    assertArrayEquals( new Object[] { null, 1L }, written );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testMissingPartitionFieldIsRejected() throws Exception {
+    writer( new String[] { "missing" }, 0, 32, 1 );
+  }
+
+  @Test
+  public void testPartitionValuesAreEscaped() {
+    assertEquals( "a%2Fb%3Dc", PartitionedFileWriter.escapePathName( "a/b=c" ) );
+    assertEquals( "plain", PartitionedFileWriter.escapePathName( "plain" ) );
+  }
+
+  private PartitionedFileWriter writer( String[] partitionFields, long maxRows, int maxOpenFiles, int threads )
+    throws KettleException {
+    return writer( partitionFields, maxRows, 0, maxOpenFiles, threads );
+  }
+
+  private PartitionedFileWriter writer( String[] partitionFields, long maxRows, long maxBytes, int maxOpenFiles,
+                                        int threads ) throws KettleException {
+    return new PartitionedFileWriter( "/out/data.parquet", rowMeta, partitionFields,
+      new String[] { "country", "value" }, maxRows, maxBytes, maxOpenFiles, threads, fileName -> {
+        List<Object[]> rows = Collections.synchronizedList( new ArrayList<>() );
+        files.put( fileName, rows );
+        closed.put( fileName, false );
+        maxOpen.accumulateAndGet( open.incrementAndGet(), Math::max );
+        return new PartitionedFileWriter.FileWriter() {
+          @Override
+          public void write( Object[] row ) {
+            rows.add( row );
+          }
+
+          @Override
+          public void close() {
+            open.decrementAndGet();
+            closed.put( fileName, true );
+          }
+
+          @Override
+          public void abort() {
+            close();
+          }
+        };
+      } );
+  }
+}
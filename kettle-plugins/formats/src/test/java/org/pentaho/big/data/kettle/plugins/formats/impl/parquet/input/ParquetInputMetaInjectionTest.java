@@ -18,6 +18,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.input.ParquetInputField;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.injection.BaseMetadataInjectionTest;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.hadoop.shim.api.format.ParquetSpec;
@@ -52,6 +53,24 @@ public class ParquetInputMetaInjectionTest extends BaseMetadataInjectionTest<Par
       }
     } );
 
+    check( "READER_THREADS", new StringGetter() {
+      public String get() {
+        return meta.getReaderThreads();
+      }
+    } );
+
+    check( "PRESERVE_ORDER", new BooleanGetter() {
+      public boolean get() {
+        return meta.isPreserveOrder();
+      }
+    } );
+
+    check( "FILTER", new StringGetter() {
+      public String get() {
+        return meta.getFilterXML();
+      }
+    }, notNull( "id" ), notNull( "name" ) );
+
 
     String[] typeNames = ValueMetaBase.getAllTypes();
     checkStringToInt( "FIELD_TYPE", new IntGetter() {
@@ -74,6 +93,13 @@ public class ParquetInputMetaInjectionTest extends BaseMetadataInjectionTest<Par
     }, parquetTypeNames, getParquetTypeCodes( parquetTypeNames ) );
   }
 
+  private static String notNull( String field ) throws Exception {
+    Condition condition = new Condition();
+    condition.setLeftValuename( field );
+    condition.setFunction( Condition.FUNC_NOT_NULL );
+    return condition.getXML();
+  }
+
   public static int[] getParquetTypeCodes( String[] parquetTypeNames ) {
     int[] parquetTypeCodes = new int[ parquetTypeNames.length ];
 
@@ -58,6 +58,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -182,6 +183,35 @@ public class ParquetInputTest {
     }
   }
 
+  @Test
+  public void testProcessRowReadsSplitsInParallel() throws Exception {
+    IPentahoParquetInputFormat.IPentahoInputSplit otherSplit = mock( IPentahoParquetInputFormat.IPentahoInputSplit.class );
+    IPentahoParquetInputFormat.IPentahoRecordReader otherReader =
+      mock( IPentahoParquetInputFormat.IPentahoRecordReader.class );
+    when( mockPentahoParquetInputFormat.createRecordReader( otherSplit ) ).thenReturn( otherReader );
+    when( otherReader.iterator() ).thenReturn( new ParquetInputTest.ParquetRecordIterator() );
+    List<IPentahoInputFormat.IPentahoInputSplit> splits = Arrays.asList( mockPentahoInputSplit, otherSplit );
+    when( parquetInputData.input.getSplits() ).thenReturn( splits );
+    parquetInputMeta.setReaderThreads( "2" );
+
+    int rowsProcessed = 0;
+    while ( parquetInput.processRow( parquetInputMeta, parquetInputData ) ) {
+      rowsProcessed++;
+    }
+
+    // 2 splits of 2 rows, each row delivered by one call
+    assertEquals( 4, rowsProcessed );
+    ArgumentCaptor<Object[]> dataCaptor = ArgumentCaptor.forClass( Object[].class );
+    verify( mockRowHandler, times( 4 ) ).putRow( any( RowMeta.class ), dataCaptor.capture() );
+    List<Object[]> dataCaptured = dataCaptor.getAllValues();
+    for ( int rowNum = 0; rowNum < 4; rowNum++ ) {
+      // split order is preserved by default
+      assertEquals( "string" + ( rowNum % 2 + 1 ), dataCaptured.get( rowNum )[ 0 ] );
+    }
+    verify( mockPentahoParquetRecordReader ).close();
+    verify( otherReader ).close();
+  }
+
   @Test
   public void testInit() {
     assertEquals( true, parquetInput.init() );
@@ -87,6 +87,36 @@ public class ParquetOutputMetaInjectionTest extends BaseMetadataInjectionTest<Pa
       }
     } );
 
+    check( "PARTITION_FIELDS", new StringGetter() {
+      public String get() {
+        return meta.getPartitionFields();
+      }
+    } );
+
+    check( "MAX_ROWS_PER_FILE", new StringGetter() {
+      public String get() {
+        return meta.getMaxRowsPerFile();
+      }
+    } );
+
+    check( "MAX_FILE_SIZE", new StringGetter() {
+      public String get() {
+        return meta.getMaxFileSize();
+      }
+    } );
+
+    check( "MAX_OPEN_FILES", new StringGetter() {
+      public String get() {
+        return meta.getMaxOpenFiles();
+      }
+    } );
+
+    check( "WRITER_THREADS", new StringGetter() {
+      public String get() {
+        return meta.getWriterThreads();
+      }
+    } );
+
     check( "FIELD_NAME", new StringGetter() {
       public String get() {
         return meta.getOutputFields().get( 0 ).getPentahoFieldName();
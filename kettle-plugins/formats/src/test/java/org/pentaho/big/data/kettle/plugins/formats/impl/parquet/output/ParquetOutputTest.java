@@ -23,6 +23,7 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PartitionedFileWriter;
 import org.pentaho.big.data.kettle.plugins.formats.parquet.output.ParquetOutputField;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
@@ -55,6 +56,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -185,6 +187,17 @@ public class ParquetOutputTest {
     }
   }
 
+  @Test
+  public void testDisposeAbortsUnfinishedPartitionedOutput() {
+    PartitionedFileWriter partitionedWriter = mock( PartitionedFileWriter.class );
+    parquetOutputData.partitionedWriter = partitionedWriter;
+
+    parquetOutput.dispose( parquetOutputMeta, parquetOutputData );
+
+    verify( partitionedWriter ).abort();
+    assertNull( parquetOutputData.partitionedWriter );
+  }
+
   @Test
   public void initShouldPassEmbeddedMetastoreKey() {
     ParquetOutputMeta stepMetaInterface = mock( ParquetOutputMeta.class );
@@ -15,6 +15,7 @@ package org.pentaho.big.data.kettle.plugins.hbase.input;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +54,9 @@ import org.pentaho.di.trans.step.StepMetaInterface;
  * @author Mark Hall (mhall{[at]}pentaho{[dot]}com)
  */
 public class HBaseInput extends BaseStep implements StepInterface {
+  /** Rows handed over at a time by the scanning threads when no scanner cache size is set */
+  private static final int DEFAULT_SCAN_BATCH_SIZE = 1000;
+
   private final NamedClusterServiceLocator namedClusterServiceLocator;
 
   protected HBaseInputMeta m_meta;
@@ -60,6 +64,7 @@ public class HBaseInput extends BaseStep implements StepInterface {
   private HBaseService hBaseService;
   private HBaseTable m_hbAdminTable;
   private ResultScanner resultScanner;
+  private ParallelScanner parallelScanner;
   private HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory;
 
   public HBaseInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
@@ -118,7 +123,7 @@ public class HBaseInput extends BaseStep implements StepInterface {
             "HBaseInput.Error.UnableToObtainConnection" ), ex );
       }
       try {
-        m_mappingAdmin = new MappingAdmin( m_hbAdmin );
+        m_mappingAdmin = new MappingAdmin( m_hbAdmin, m_meta.getNamedCluster().getName() );
       } catch ( Exception ex ) {
         throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
             "HBaseInput.Error.UnableToCreateAMappingAdminConnection" ), ex );
@@ -213,25 +218,20 @@ public class HBaseInput extends BaseStep implements StepInterface {
             "HBaseInput.Error.UnableToSetSourceTableForScan" ), ex );
       }
 
-      ResultScannerBuilder scannerBuilder = m_hbAdminTable
-        .createScannerBuilder( m_tableMapping, dateOrNumberConversionMaskForKey, m_meta.getKeyStartValue(),
-          m_meta.getKeyStopValue(), m_meta.getScannerCacheSize(), log, this );
-
-      // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
-      // User-selected output columns?
-      if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
-        HBaseInputData.setScanColumns( scannerBuilder, m_userOutputColumns, m_tableMapping );
-      }
-
-      // set any filters
-      if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
-        HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
-          m_columnsMappedByAlias, this );
+      int scanThreads = Const.toInt( environmentSubstitute( m_meta.getScanThreads() ), 0 );
+      ResultScannerBuilder scannerBuilder = null;
+      if ( scanThreads <= 0 ) {
+        scannerBuilder = createScannerBuilder( dateOrNumberConversionMaskForKey, m_meta.getKeyStartValue(),
+          m_meta.getKeyStopValue() );
       }
 
       if ( !isStopped() ) {
         try {
-          resultScanner = scannerBuilder.build();
+          if ( scannerBuilder != null ) {
+            resultScanner = scannerBuilder.build();
+          } else {
+            parallelScanner = createParallelScanner( dateOrNumberConversionMaskForKey, scanThreads );
+          }
         } catch ( Exception e ) {
           throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
               "HBaseInput.Error.UnableToExecuteSourceTableScan" ), e );
@@ -246,13 +246,18 @@ public class HBaseInput extends BaseStep implements StepInterface {
     Result next = null;
     if ( !isStopped() ) {
       try {
-        next = resultScanner.next();
+        next = parallelScanner != null ? parallelScanner.next() : resultScanner.next();
+      } catch ( KettleException e ) {
+        throw e;
       } catch ( Exception e ) {
         throw new KettleException( e.getMessage(), e );
       }
     }
 
     if ( next == null ) {
+      if ( parallelScanner != null ) {
+        parallelScanner.close();
+      }
       try {
         m_hbAdminTable.close();
         m_hbAdmin.close();
@@ -274,14 +279,100 @@ public class HBaseInput extends BaseStep implements StepInterface {
       }
       return true;
     } else {
-      Object[] outRowData =
-          HBaseInputData.getOutputRow( next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping, m_data
-              .getOutputRowMeta() );
+      if ( m_data.getOutputRowPlan() == null ) {
+        m_data.setOutputRowPlan( HBaseInputData.planOutputRow( m_userOutputColumns, m_columnsMappedByAlias,
+            m_tableMapping, m_data.getOutputRowMeta() ) );
+      }
+      Object[] outRowData = m_data.getOutputRowPlan().getOutputRow( next );
       putRow( m_data.getOutputRowMeta(), outRowData );
       return true;
     }
   }
 
+  private ResultScannerBuilder createScannerBuilder( String keyConversionMask, String keyStart, String keyStop )
+    throws KettleException {
+    ResultScannerBuilder scannerBuilder = m_hbAdminTable
+      .createScannerBuilder( m_tableMapping, keyConversionMask, keyStart, keyStop, m_meta.getScannerCacheSize(), log,
+        this );
+
+    // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
+    // User-selected output columns?
+    if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
+      HBaseInputData.setScanColumns( scannerBuilder, m_userOutputColumns, m_tableMapping );
+    }
+
+    // set any filters
+    if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
+      HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
+        m_columnsMappedByAlias, this );
+    }
+    return scannerBuilder;
+  }
+
+  /**
+   * Scans the slices of the key range falling to this copy of the step on a pool of threads. The shim does not expose
+   * the region boundaries of the table, so the slices are even splits of a numeric key range. A range that cannot be
+   * split is scanned in full by the first copy, on a thread of its own.
+   */
+  private ParallelScanner createParallelScanner( String keyConversionMask, int scanThreads ) {
+    int copies = Math.max( 1, getUniqueStepCountAcrossSlaves() );
+    int copyNr = Math.max( 0, getUniqueStepNrAcrossSlaves() );
+
+    List<String[]> slices = new ArrayList<>();
+    List<String[]> keyRange = splitKeyRange( keyConversionMask, copies * scanThreads );
+    if ( keyRange != null ) {
+      for ( int i = copyNr; i < keyRange.size(); i += copies ) {
+        slices.add( keyRange.get( i ) );
+      }
+    } else {
+      if ( copies > 1 ) {
+        logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.KeyRangeNotSplit" ) );
+      }
+      if ( copyNr == 0 ) {
+        slices.add( new String[] { m_meta.getKeyStartValue(), m_meta.getKeyStopValue() } );
+      }
+    }
+
+    int batchSize = Const.toInt( environmentSubstitute( m_meta.getScannerCacheSize() ), DEFAULT_SCAN_BATCH_SIZE );
+    return new ParallelScanner( slices, ( keyStart, keyStop ) -> {
+      // the scanners are set up one at a time on the shared table, and read in parallel
+      synchronized ( m_hbAdminTable ) {
+        return createScannerBuilder( keyConversionMask, keyStart, keyStop ).build();
+      }
+    }, batchSize, scanThreads );
+  }
+
+  /**
+   * @return the slices of the key range, null if the keys are not plain numbers with a start and a stop value
+   */
+  private List<String[]> splitKeyRange( String keyConversionMask, int count ) {
+    Mapping.KeyType keyType = m_tableMapping.getKeyType();
+    if ( !Const.isEmpty( keyConversionMask ) || keyType == null ) {
+      return null;
+    }
+    switch ( keyType ) {
+      case LONG:
+      case INTEGER:
+      case UNSIGNED_LONG:
+      case UNSIGNED_INTEGER:
+        break;
+      default:
+        return null;
+    }
+    String keyStart = environmentSubstitute( m_meta.getKeyStartValue() );
+    String keyStop = environmentSubstitute( m_meta.getKeyStopValue() );
+    if ( Const.isEmpty( keyStart ) || Const.isEmpty( keyStop ) ) {
+      return null;
+    }
+    try {
+      long start = Long.parseLong( keyStart.trim() );
+      long stop = Long.parseLong( keyStop.trim() );
+      return stop > start ? ParallelScanner.split( start, stop, count ) : Collections.<String[]>emptyList();
+    } catch ( NumberFormatException e ) {
+      return null;
+    }
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -336,6 +427,10 @@ public class HBaseInput extends BaseStep implements StepInterface {
     }
     super.setStopped( stopped );
 
+    if ( stopped && parallelScanner != null ) {
+      parallelScanner.close();
+    }
+
     if ( stopped && m_hbAdmin != null ) {
       logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ClosingConnection" ) );
       try {
@@ -31,10 +31,10 @@ import org.pentaho.di.trans.step.StepDataInterface;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Class providing an input step for reading data from an HBase table according to meta data mapping info stored in a
@@ -50,6 +50,9 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   /** The output data format */
   protected RowMetaInterface m_outputRowMeta;
 
+  /** The conversion of hbase rows into output rows, made on the first row */
+  protected OutputRowPlan m_outputRowPlan;
+
   /**
    * Get the output row format
    * 
@@ -69,6 +72,25 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
     m_outputRowMeta = rmi;
   }
 
+  /**
+   * Get the plan converting hbase rows into output rows
+   * 
+   * @return the plan, null until it is set
+   */
+  public OutputRowPlan getOutputRowPlan() {
+    return m_outputRowPlan;
+  }
+
+  /**
+   * Set the plan converting hbase rows into output rows
+   * 
+   * @param plan
+   *          the plan
+   */
+  public void setOutputRowPlan( OutputRowPlan plan ) {
+    m_outputRowPlan = plan;
+  }
+
   /**
    * Utility method to covert a string to a URL object.
    * 
@@ -227,104 +249,145 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   public static Object[] getOutputRow( Result result, List<HBaseValueMetaInterface> userOutputColumns,
       Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
 
-    int size = ( userOutputColumns != null && userOutputColumns.size() > 0 ) ? userOutputColumns.size()
-      : tableMapping.numMappedColumns() + 1; // + 1 for the key
+    return planOutputRow( userOutputColumns, columnsMappedByAlias, tableMapping, outputRowMeta ).getOutputRow( result );
+  }
+
+  /**
+   * Works out, once for all the rows, where every column of the mapping goes in the kettle row and how it is read
+   * from the hbase row
+   * 
+   * @param userOutputColumns
+   *          user-specified subset of columns (if any) from the mapping
+   * @param columnsMappedByAlias
+   *          columns in the mapping keyed by alias
+   * @param tableMapping
+   *          the mapping to use
+   * @param outputRowMeta
+   *          the outgoing row meta
+   * @return the plan to convert the hbase rows with
+   * @throws KettleException
+   *           if a column is not in the outgoing row meta
+   */
+  public static OutputRowPlan planOutputRow( List<HBaseValueMetaInterface> userOutputColumns,
+      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta )
+    throws KettleException {
 
-    Object[] outputRowData = RowDataUtil.allocateRowData( size );
+    List<HBaseValueMetaInterface> columns = new ArrayList<HBaseValueMetaInterface>();
+    List<String> aliases = new ArrayList<String>();
+    int keyIndex = -1;
+    int size;
 
     // User-selected output columns?
     if ( userOutputColumns != null && userOutputColumns.size() > 0 ) {
+      size = userOutputColumns.size();
       for ( HBaseValueMetaInterface currentCol : userOutputColumns ) {
         if ( currentCol.isKey() ) {
-          byte[] rawKey = null;
-          try {
-            rawKey = result.getRow();
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-          Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-          int keyIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          outputRowData[keyIndex] = decodedKey;
+          keyIndex = outputIndexOf( outputRowMeta, currentCol.getAlias() );
         } else {
-          String colFamilyName = currentCol.getColumnFamily();
-          String qualifier = currentCol.getColumnName();
-
-          boolean binaryColName = false;
-          if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-            qualifier = qualifier.replace( "@@@binary@@@", "" );
-            // assume hex encoded
-            binaryColName = true;
-          }
-
-          byte[] kv = null;
-          try {
-            kv = result.getValue( colFamilyName, qualifier, binaryColName );
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-
-          int outputIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          if ( outputIndex < 0 ) {
-            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-                "HBaseInput.Error.ColumnNotDefinedInOutput", currentCol.getAlias() ) );
-          }
-
-          Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-          outputRowData[outputIndex] = decodedVal;
+          columns.add( currentCol );
+          aliases.add( currentCol.getAlias() );
         }
       }
     } else {
-      // do the key first
-      byte[] rawKey = null;
-      try {
-        rawKey = result.getRow();
-      } catch ( Exception e ) {
-        throw new KettleException( e );
+      size = tableMapping.numMappedColumns() + 1; // + 1 for the key
+      keyIndex = outputIndexOf( outputRowMeta, tableMapping.getKeyName() );
+      for ( Map.Entry<String, HBaseValueMetaInterface> entry : columnsMappedByAlias.entrySet() ) {
+        // skip key as it is decoded from the row
+        // and is not in the scan's columns
+        if ( !entry.getValue().isKey() ) {
+          columns.add( entry.getValue() );
+          aliases.add( entry.getKey() );
+        }
       }
+    }
 
-      Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-      int keyIndex = outputRowMeta.indexOfValue( tableMapping.getKeyName() );
-      outputRowData[keyIndex] = decodedKey;
-
-      Set<String> aliasSet = columnsMappedByAlias.keySet();
+    int[] outputIndexes = new int[columns.size()];
+    for ( int i = 0; i < outputIndexes.length; i++ ) {
+      outputIndexes[i] = outputIndexOf( outputRowMeta, aliases.get( i ) );
+    }
+    return new OutputRowPlan( tableMapping, size, keyIndex, columns.toArray( new HBaseValueMetaInterface[0] ),
+        outputIndexes );
+  }
 
-      for ( String name : aliasSet ) {
-        HBaseValueMetaInterface currentCol = columnsMappedByAlias.get( name );
-        String colFamilyName = currentCol.getColumnFamily();
-        String qualifier = currentCol.getColumnName();
-        if ( currentCol.isKey() ) {
-          // skip key as it has already been processed 
-          // and is not in the scan's columns 
-          continue;
-        }
+  private static int outputIndexOf( RowMetaInterface outputRowMeta, String name ) throws KettleException {
+    int outputIndex = outputRowMeta.indexOfValue( name );
+    if ( outputIndex < 0 ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+          "HBaseInput.Error.ColumnNotDefinedInOutput", name ) );
+    }
+    return outputIndex;
+  }
 
-        boolean binaryColName = false;
+  /**
+   * Converts hbase rows into kettle rows. The output index, family and qualifier of every column are resolved when
+   * the plan is made, so that a row only takes a walk over the columns.
+   */
+  public static final class OutputRowPlan {
+
+    private final Mapping tableMapping;
+    private final int size;
+    private final int keyIndex;
+    private final HBaseValueMetaInterface[] columns;
+    private final String[] families;
+    private final String[] qualifiers;
+    private final boolean[] binaryQualifiers;
+    private final int[] outputIndexes;
+
+    OutputRowPlan( Mapping tableMapping, int size, int keyIndex, HBaseValueMetaInterface[] columns,
+        int[] outputIndexes ) {
+      this.tableMapping = tableMapping;
+      this.size = size;
+      this.keyIndex = keyIndex;
+      this.columns = columns;
+      this.outputIndexes = outputIndexes;
+      families = new String[columns.length];
+      qualifiers = new String[columns.length];
+      binaryQualifiers = new boolean[columns.length];
+      for ( int i = 0; i < columns.length; i++ ) {
+        families[i] = columns[i].getColumnFamily();
+        String qualifier = columns[i].getColumnName();
         if ( qualifier.startsWith( "@@@binary@@@" ) ) {
           qualifier = qualifier.replace( "@@@binary@@@", "" );
           // assume hex encoded
-          binaryColName = true;
+          binaryQualifiers[i] = true;
         }
+        qualifiers[i] = qualifier;
+      }
+    }
 
-        byte[] kv = null;
+    /**
+     * Convert/decode the current hbase row into a kettle row
+     * 
+     * @param result
+     *          the result to use
+     * @return a kettle row
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    public Object[] getOutputRow( Result result ) throws KettleException {
+      Object[] outputRowData = RowDataUtil.allocateRowData( size );
+
+      if ( keyIndex >= 0 ) {
+        byte[] rawKey = null;
         try {
-          kv = result.getValue( colFamilyName, qualifier, binaryColName );
+          rawKey = result.getRow();
         } catch ( Exception e ) {
           throw new KettleException( e );
         }
+        outputRowData[keyIndex] = tableMapping.decodeKeyValue( rawKey );
+      }
 
-        int outputIndex = outputRowMeta.indexOfValue( name );
-        if ( outputIndex < 0 ) {
-          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.ColumnNotDefinedInOutput", name ) );
+      for ( int i = 0; i < columns.length; i++ ) {
+        byte[] kv = null;
+        try {
+          kv = result.getValue( families[i], qualifiers[i], binaryQualifiers[i] );
+        } catch ( Exception e ) {
+          throw new KettleException( e );
         }
-
-        Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-        outputRowData[outputIndex] = decodedVal;
+        outputRowData[outputIndexes[i]] = columns[i].decodeColumnValue( kv );
       }
-    }
 
-    return outputRowData;
+      return outputRowData;
+    }
   }
 }
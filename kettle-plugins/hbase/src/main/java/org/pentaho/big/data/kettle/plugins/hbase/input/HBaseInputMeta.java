@@ -142,6 +142,12 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "SCANNER_ROW_CACHE_SIZE" )
   protected String m_scannerCacheSize;
 
+  /**
+   * Number of threads scanning slices of the key range (empty for a single scanner on the step thread)
+   */
+  @Injection( name = "SCAN_THREADS" )
+  protected String m_scanThreads;
+
   protected transient Mapping m_cachedMapping;
 
   /**
@@ -376,6 +382,25 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_scannerCacheSize;
   }
 
+  /**
+   * Set the number of threads scanning the table. When set, the key range is split into slices scanned in parallel,
+   * and the copies of the step scan disjoint slices.
+   *
+   * @param s the number of threads scanning the table.
+   */
+  public void setScanThreads( String s ) {
+    m_scanThreads = s;
+  }
+
+  /**
+   * The number of threads scanning the table.
+   *
+   * @return the number of threads scanning the table.
+   */
+  public String getScanThreads() {
+    return m_scanThreads;
+  }
+
   /**
    * Set a list of fields to emit from this steo. If not specified, then all fields defined in the mapping for the
    * source table will be emitted.
@@ -599,6 +624,9 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "scanner_cache_size", m_scannerCacheSize ) );
     }
+    if ( !Const.isEmpty( m_scanThreads ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "scan_threads", m_scanThreads ) );
+    }
 
     if ( m_outputFields != null && m_outputFields.size() > 0 ) {
       retval.append( "\n    " ).append( XMLHandler.openTag( "output_fields" ) );
@@ -654,6 +682,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_keyStart = XMLHandler.getTagValue( stepnode, "key_start" );
     m_keyStop = XMLHandler.getTagValue( stepnode, "key_stop" );
     m_scannerCacheSize = XMLHandler.getTagValue( stepnode, "scanner_cache_size" );
+    m_scanThreads = XMLHandler.getTagValue( stepnode, "scan_threads" );
     String m = XMLHandler.getTagValue( stepnode, "match_any_filter" );
     if ( !Const.isEmpty( m ) ) {
       m_matchAnyFilter = m.equalsIgnoreCase( "Y" );
@@ -758,6 +787,9 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "scanner_cache_size", m_scannerCacheSize );
     }
+    if ( !Const.isEmpty( m_scanThreads ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "scan_threads", m_scanThreads );
+    }
 
     if ( m_outputFields != null && m_outputFields.size() > 0 ) {
 
@@ -805,6 +837,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_keyStop = rep.getStepAttributeString( id_step, 0, "key_stop" );
     m_matchAnyFilter = rep.getStepAttributeBoolean( id_step, 0, "match_any_filter" );
     m_scannerCacheSize = rep.getStepAttributeString( id_step, 0, "scanner_cache_size" );
+    m_scanThreads = rep.getStepAttributeString( id_step, 0, "scan_threads" );
 
     if ( hBaseService != null ) {
       HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseService.getHBaseValueMetaInterfaceFactory();
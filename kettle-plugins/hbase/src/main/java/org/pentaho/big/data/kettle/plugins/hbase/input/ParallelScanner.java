@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+
+/**
+ * Scans slices of a key range on a pool of threads. Every thread opens its own scanner and hands the rows over in
+ * batches through a bounded queue, so that the step thread only decodes and passes on rows while the next batches are
+ * being fetched. The rows of the different slices come out interleaved.
+ */
+class ParallelScanner implements AutoCloseable {
+
+  /**
+   * Opens a scanner over a slice of the key range.
+   */
+  @FunctionalInterface
+  interface ScannerFactory {
+    ResultScanner open( String keyStart, String keyStop ) throws Exception;
+  }
+
+  /**
+   * Batches waiting in the queue per thread.
+   */
+  static final int BATCHES_PER_THREAD = 2;
+
+  private static final List<Result> END_OF_SLICE = Collections.emptyList();
+
+  private final ExecutorService executor;
+  private final BlockingQueue<List<Result>> batches = new LinkedBlockingQueue<>();
+  private final Semaphore room;
+  private final int sliceCount;
+  private final AtomicInteger threadNr = new AtomicInteger();
+
+  private volatile Throwable failure;
+  private volatile boolean closed;
+  private int finishedSlices = 0;
+  private Iterator<Result> current = Collections.emptyIterator();
+
+  /**
+   * @param slices    the key ranges to scan, as start (inclusive) and stop (exclusive) pairs
+   * @param factory   opens the scanner of a slice
+   * @param batchSize the rows handed over at a time
+   * @param threads   the number of slices scanned at the same time
+   */
+  ParallelScanner( List<String[]> slices, ScannerFactory factory, int batchSize, int threads ) {
+    int poolSize = Math.max( 1, Math.min( threads, slices.size() ) );
+    sliceCount = slices.size();
+    room = new Semaphore( poolSize * BATCHES_PER_THREAD );
+    executor = Executors.newFixedThreadPool( poolSize, runnable -> {
+      Thread thread = new Thread( runnable, "HBaseInput-scanner-" + threadNr.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    for ( String[] slice : slices ) {
+      executor.execute( () -> scan( slice, factory, Math.max( 1, batchSize ) ) );
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * @return the next row of any slice, null once every slice has been scanned or the scanner is closed
+   */
+  Result next() throws KettleException {
+    while ( !current.hasNext() ) {
+      if ( closed || finishedSlices == sliceCount ) {
+        return null;
+      }
+      List<Result> batch;
+      try {
+        batch = batches.take();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      }
+      if ( failure != null ) {
+        close();
+        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+          "HBaseInput.Error.UnableToExecuteSourceTableScan" ), failure );
+      }
+      if ( batch == END_OF_SLICE ) {
+        finishedSlices++;
+      } else {
+        room.release();
+      }
+      current = batch.iterator();
+    }
+    return current.next();
+  }
+
+  /**
+   * Stops the threads, the rows not yet read are dropped.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    batches.clear();
+    // wakes up the step thread if it is waiting for a batch
+    batches.add( END_OF_SLICE );
+    try {
+      executor.awaitTermination( 10, TimeUnit.SECONDS );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void scan( String[] slice, ScannerFactory factory, int batchSize ) {
+    try ( ResultScanner scanner = factory.open( slice[ 0 ], slice[ 1 ] ) ) {
+      List<Result> batch = new ArrayList<>( batchSize );
+      Result next;
+      while ( !closed && ( next = scanner.next() ) != null ) {
+        batch.add( next );
+        if ( batch.size() == batchSize ) {
+          room.acquire();
+          batches.put( batch );
+          batch = new ArrayList<>( batchSize );
+        }
+      }
+      if ( !batch.isEmpty() ) {
+        room.acquire();
+        batches.put( batch );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch ( Throwable e ) {
+      if ( failure == null ) {
+        failure = e;
+      }
+    }
+    batches.add( END_OF_SLICE );
+  }
+
+  /**
+   * Splits a range of numeric keys into slices of about the same width.
+   *
+   * @param start the first key
+   * @param stop  the key after the last one
+   * @param count the number of slices
+   * @return the start (inclusive) and stop (exclusive) keys of the slices, fewer than asked for narrow ranges
+   */
+  static List<String[]> split( long start, long stop, int count ) {
+    List<String[]> slices = new ArrayList<>( count );
+    BigInteger first = BigInteger.valueOf( start );
+    BigInteger width = BigInteger.valueOf( stop ).subtract( first );
+    long previous = start;
+    for ( int i = 1; i <= count; i++ ) {
+      long bound = i == count ? stop
+        : first.add( width.multiply( BigInteger.valueOf( i ) ).divide( BigInteger.valueOf( count ) ) ).longValue();
+      if ( bound > previous ) {
+        slices.add( new String[] { String.valueOf( previous ), String.valueOf( bound ) } );
+        previous = bound;
+      }
+    }
+    return slices;
+  }
+}
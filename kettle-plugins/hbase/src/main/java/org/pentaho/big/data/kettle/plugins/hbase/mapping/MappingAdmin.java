@@ -14,6 +14,7 @@
 package org.pentaho.big.data.kettle.plugins.hbase.mapping;
 
 import org.pentaho.big.data.kettle.plugins.hbase.HbaseUtil;
+import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingCache.StoredMapping;
 import org.pentaho.hadoop.shim.api.hbase.ByteConversionUtil;
 import org.pentaho.hadoop.shim.api.hbase.HBaseConnection;
 import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
@@ -61,6 +62,9 @@ public class MappingAdmin implements Closeable {
 
   private final HBaseConnection hBaseConnection;
 
+  /** Name of the cluster the mappings read are cached under, null not to cache them */
+  private final String clusterName;
+
   /** Name of the mapping table (might make this configurable at some stage) */
   protected String m_mappingTableName = "pentaho_mappings";
 
@@ -90,7 +94,20 @@ public class MappingAdmin implements Closeable {
 
 
   public MappingAdmin( HBaseConnection hBaseConnection ) {
+    this( hBaseConnection, null );
+  }
+
+  /**
+   * Constructor. The mappings read are kept in a cache shared by the JVM, under the name of the cluster.
+   *
+   * @param hBaseConnection
+   *          the connection to the cluster
+   * @param clusterName
+   *          the name of the cluster, null not to cache the mappings
+   */
+  public MappingAdmin( HBaseConnection hBaseConnection, String clusterName ) {
     this.hBaseConnection = hBaseConnection;
+    this.clusterName = clusterName;
   }
 
   /**
@@ -591,6 +608,7 @@ public class MappingAdmin implements Closeable {
         hBaseTableWriteOperationManager.createDelete(
           byteConversionUtil.compoundKey( HbaseUtil.parseQualifierFromTableName( tableName ), mappingName ) )
           .execute();
+        invalidateCachedMapping( tableName, mappingName );
         return true;
       }
     }
@@ -713,6 +731,7 @@ public class MappingAdmin implements Closeable {
       // add the row
       hBasePut.execute();
       writeOperationManager.flushCommits();
+      invalidateCachedMapping( tableName, mappingName );
     }
   }
 
@@ -758,9 +777,29 @@ public class MappingAdmin implements Closeable {
    *           if a mapping by the given name does not exist for the given table
    */
   public Mapping getMapping( String tableName, String mappingName ) throws Exception {
+    StoredMapping storedMapping;
+    if ( clusterName != null && MappingCache.INSTANCE.isEnabled() ) {
+      storedMapping =
+        MappingCache.INSTANCE.get( cacheKey( tableName, mappingName ), () -> readMapping( tableName, mappingName ) );
+    } else {
+      storedMapping = readMapping( tableName, mappingName );
+    }
+    return createMapping( tableName, mappingName, storedMapping );
+  }
+
+  private List<String> cacheKey( String tableName, String mappingName ) {
+    return MappingCache.keyOf( clusterName, getMappingTableName( tableName ),
+      HbaseUtil.parseQualifierFromTableName( tableName ), mappingName );
+  }
+
+  private void invalidateCachedMapping( String tableName, String mappingName ) {
+    // the mapping may have been cached for the cluster under another name
+    MappingCache.INSTANCE.invalidate( null, getMappingTableName( tableName ),
+      HbaseUtil.parseQualifierFromTableName( tableName ), mappingName );
+  }
+
+  private StoredMapping readMapping( String tableName, String mappingName ) throws Exception {
     ByteConversionUtil byteConversionUtil = hBaseConnection.getByteConversionUtil();
-    MappingFactory mappingFactory = hBaseConnection.getMappingFactory();
-    HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseConnection.getHBaseValueMetaInterfaceFactory();
     try ( HBaseTable hBaseTable = hBaseConnection.getTable( getMappingTableName( tableName ) ) ) {
       if ( !hBaseTable.exists() ) {
 
@@ -780,138 +819,156 @@ public class MappingAdmin implements Closeable {
       if ( result == null ) {
         throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" does not exist!" );
       }
+      return storedMappingOf( result, tableName, mappingName );
+    }
+  }
 
-      NavigableMap<byte[], byte[]> colsInKeyFamily = result.getFamilyMap( KEY_FAMILY_NAME );
+  private StoredMapping storedMappingOf( Result result, String tableName, String mappingName ) throws Exception {
+    ByteConversionUtil byteConversionUtil = hBaseConnection.getByteConversionUtil();
+    NavigableMap<byte[], byte[]> colsInKeyFamily = result.getFamilyMap( KEY_FAMILY_NAME );
+
+    Set<byte[]> keyCols = colsInKeyFamily.keySet();
+    // should only be one key defined!!
+    if ( keyCols.size() != 1 ) {
+      throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" has more than one key defined!" );
+    }
 
-      Set<byte[]> keyCols = colsInKeyFamily.keySet();
-      // should only be one key defined!!
-      if ( keyCols.size() != 1 ) {
-        throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" has more than one key defined!" );
+    byte[] keyNameB = keyCols.iterator().next();
+    String decodedKeyName = byteConversionUtil.toString( keyNameB );
+    byte[] keyTypeB = colsInKeyFamily.get( keyNameB );
+    String decodedKeyType = byteConversionUtil.toString( keyTypeB );
+
+    List<String[]> columns = new ArrayList<>();
+    NavigableMap<byte[], byte[]> colsInMapping = result.getFamilyMap( COLUMNS_FAMILY_NAME );
+    for ( byte[] b : colsInMapping.keySet() ) {
+      String decodedName = byteConversionUtil.toString( b );
+      byte[] c = colsInMapping.get( b );
+      if ( c == null ) {
+        throw new IOException( "No type declaration for column \"" + decodedName + "\"" );
       }
+      columns.add( new String[] { decodedName, byteConversionUtil.toString( c ) } );
+    }
+    return new StoredMapping( decodedKeyName, decodedKeyType, Collections.unmodifiableList( columns ) );
+  }
 
-      byte[] keyNameB = keyCols.iterator().next();
-      String decodedKeyName = byteConversionUtil.toString( keyNameB );
-      byte[] keyTypeB = colsInKeyFamily.get( keyNameB );
-      String decodedKeyType = byteConversionUtil.toString( keyTypeB );
-      Mapping.KeyType keyType = null;
+  private Mapping createMapping( String tableName, String mappingName, StoredMapping storedMapping )
+    throws Exception {
+    ByteConversionUtil byteConversionUtil = hBaseConnection.getByteConversionUtil();
+    MappingFactory mappingFactory = hBaseConnection.getMappingFactory();
+    HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseConnection.getHBaseValueMetaInterfaceFactory();
 
-      for ( Mapping.KeyType t : Mapping.KeyType.values() ) {
-        if ( decodedKeyType.equalsIgnoreCase( t.toString() ) ) {
-          keyType = t;
-          break;
-        }
-      }
+    String decodedKeyName = storedMapping.keyName;
+    String decodedKeyType = storedMapping.keyType;
+    Mapping.KeyType keyType = null;
 
-      if ( keyType == null ) {
-        throw new IOException( "Unrecognized type for the key column in \"" + compoundKey + "\"" );
+    for ( Mapping.KeyType t : Mapping.KeyType.values() ) {
+      if ( decodedKeyType.equalsIgnoreCase( t.toString() ) ) {
+        keyType = t;
+        break;
       }
+    }
 
-      String tupleFamilies = "";
-      boolean isTupleMapping = false;
-      if ( decodedKeyName.indexOf( ',' ) > 0 ) {
+    if ( keyType == null ) {
+      throw new IOException(
+        "Unrecognized type for the key column in \"" + tableName + "," + mappingName + "\"" );
+    }
 
-        isTupleMapping = true;
+    String tupleFamilies = "";
+    boolean isTupleMapping = false;
+    if ( decodedKeyName.indexOf( ',' ) > 0 ) {
 
-        if ( decodedKeyName.indexOf( ',' ) != decodedKeyName.length() - 1 ) {
-          tupleFamilies = decodedKeyName.substring( decodedKeyName.indexOf( ',' ) + 1, decodedKeyName.length() );
-        }
-        decodedKeyName = decodedKeyName.substring( 0, decodedKeyName.indexOf( ',' ) );
-      }
+      isTupleMapping = true;
 
-      Mapping resultMapping = mappingFactory.createMapping( tableName, mappingName, decodedKeyName, keyType );
-      resultMapping.setTupleMapping( isTupleMapping );
-      if ( !Const.isEmpty( tupleFamilies ) ) {
-        resultMapping.setTupleFamilies( tupleFamilies );
+      if ( decodedKeyName.indexOf( ',' ) != decodedKeyName.length() - 1 ) {
+        tupleFamilies = decodedKeyName.substring( decodedKeyName.indexOf( ',' ) + 1, decodedKeyName.length() );
       }
+      decodedKeyName = decodedKeyName.substring( 0, decodedKeyName.indexOf( ',' ) );
+    }
 
-      Map<String, HBaseValueMetaInterface> resultCols = new TreeMap<String, HBaseValueMetaInterface>();
-
-      // now process the mapping
-      NavigableMap<byte[], byte[]> colsInMapping = result.getFamilyMap( COLUMNS_FAMILY_NAME );
-
-      Set<byte[]> colNames = colsInMapping.keySet();
+    Mapping resultMapping = mappingFactory.createMapping( tableName, mappingName, decodedKeyName, keyType );
+    resultMapping.setTupleMapping( isTupleMapping );
+    if ( !Const.isEmpty( tupleFamilies ) ) {
+      resultMapping.setTupleFamilies( tupleFamilies );
+    }
 
-      for ( byte[] b : colNames ) {
-        String decodedName = byteConversionUtil.toString( b );
-        byte[] c = colsInMapping.get( b );
-        if ( c == null ) {
-          throw new IOException( "No type declaration for column \"" + decodedName + "\"" );
+    Map<String, HBaseValueMetaInterface> resultCols = new TreeMap<String, HBaseValueMetaInterface>();
+
+    // now process the mapping
+    for ( String[] column : storedMapping.columns ) {
+      String decodedName = column[ 0 ];
+      String decodedType = column[ 1 ];
+
+      HBaseValueMetaInterface newMeta = null;
+      if ( decodedType.equalsIgnoreCase( "Float" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
+
+        // While passing through Kettle this will be represented
+        // as a double
+        newMeta.setIsLongOrDouble( false );
+      } else if ( decodedType.equalsIgnoreCase( "Double" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "String" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
+      } else if ( decodedType.toLowerCase().startsWith( "date" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_DATE, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Boolean" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BOOLEAN, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Integer" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
+
+        // Integer in the mapping is really an integer (not a long
+        // as Kettle uses internally)
+        newMeta.setIsLongOrDouble( false );
+      } else if ( decodedType.equalsIgnoreCase( "Long" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "BigNumber" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BIGNUMBER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Serializable" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_SERIALIZABLE, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Binary" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BINARY, -1, -1 );
+      } else if ( decodedType.startsWith( "{" ) && decodedType.endsWith( "}" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
+
+        Object[] labels = null;
+        try {
+          labels = byteConversionUtil.stringIndexListToObjects( decodedType );
+        } catch ( IllegalArgumentException ex ) {
+          throw new IOException( "Indexed/nominal type must have at least one " + "label declared" );
         }
+        newMeta.setIndex( labels );
+        newMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+      } else {
+        throw new IOException( "Unknown column type : \"" + decodedType + "\"" );
+      }
 
-        String decodedType = byteConversionUtil.toString( c );
-
-        HBaseValueMetaInterface newMeta = null;
-        if ( decodedType.equalsIgnoreCase( "Float" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
-
-          // While passing through Kettle this will be represented
-          // as a double
-          newMeta.setIsLongOrDouble( false );
-        } else if ( decodedType.equalsIgnoreCase( "Double" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "String" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
-        } else if ( decodedType.toLowerCase().startsWith( "date" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_DATE, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Boolean" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BOOLEAN, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Integer" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
-
-          // Integer in the mapping is really an integer (not a long
-          // as Kettle uses internally)
-          newMeta.setIsLongOrDouble( false );
-        } else if ( decodedType.equalsIgnoreCase( "Long" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "BigNumber" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BIGNUMBER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Serializable" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_SERIALIZABLE, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Binary" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BINARY, -1, -1 );
-        } else if ( decodedType.startsWith( "{" ) && decodedType.endsWith( "}" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
-
-          Object[] labels = null;
-          try {
-            labels = byteConversionUtil.stringIndexListToObjects( decodedType );
-          } catch ( IllegalArgumentException ex ) {
-            throw new IOException( "Indexed/nominal type must have at least one " + "label declared" );
-          }
-          newMeta.setIndex( labels );
-          newMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+      newMeta.setTableName( tableName );
+      newMeta.setMappingName( mappingName );
+      // check that this one doesn't have the same name as the key!
+      String alias = newMeta.getAlias();
+      if ( !Mapping.TupleMapping.KEY.toString().equalsIgnoreCase( alias ) ) {
+        if ( resultMapping.getKeyName().equals( alias ) ) {
+          throw new IOException( "Error in mapping. Column \"" + newMeta.getAlias()
+            + "\" has the same name as the table key (" + resultMapping.getKeyName() + ")" );
         } else {
-          throw new IOException( "Unknown column type : \"" + decodedType + "\"" );
-        }
-
-        newMeta.setTableName( tableName );
-        newMeta.setMappingName( mappingName );
-        // check that this one doesn't have the same name as the key!
-        String alias = newMeta.getAlias();
-        if ( !Mapping.TupleMapping.KEY.toString().equalsIgnoreCase( alias ) ) {
-          if ( resultMapping.getKeyName().equals( alias ) ) {
-            throw new IOException( "Error in mapping. Column \"" + newMeta.getAlias()
-              + "\" has the same name as the table key (" + resultMapping.getKeyName() + ")" );
-          } else {
-            resultCols.put( newMeta.getAlias(), newMeta );
-          }
+          resultCols.put( newMeta.getAlias(), newMeta );
         }
       }
-
-      resultMapping.setMappedColumns( resultCols );
-      return resultMapping;
     }
+
+    resultMapping.setMappedColumns( resultCols );
+    return resultMapping;
   }
 
   @Override public void close() throws IOException {
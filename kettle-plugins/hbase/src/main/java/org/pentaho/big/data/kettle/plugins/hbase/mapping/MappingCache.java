@@ -0,0 +1,183 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.pentaho.di.core.Const;
+
+/**
+ * Keeps the mappings read from the mapping tables, so that the step copies, and the tasks running in the same JVM, do
+ * not each scan the mapping table for the same mapping. The mappings are kept by cluster, mapping table, table and
+ * mapping name, as they were stored: every caller builds a mapping of its own from them.
+ * <p>
+ * The cache holds at most a given number of mappings, the least recently used ones being dropped first, and can drop
+ * the mappings after some time so that the changes made from other JVMs are seen.
+ */
+class MappingCache {
+
+  /**
+   * The number of mappings kept, 0 to disable the cache.
+   */
+  static final String CACHE_SIZE_PROPERTY = "KETTLE_HBASE_MAPPING_CACHE_SIZE";
+
+  /**
+   * The seconds a mapping is kept for, 0 to keep it until it is changed from this JVM or dropped for room.
+   */
+  static final String CACHE_TTL_PROPERTY = "KETTLE_HBASE_MAPPING_CACHE_TTL";
+
+  static final int DEFAULT_CACHE_SIZE = 1000;
+  static final int DEFAULT_CACHE_TTL = 60;
+
+  /**
+   * The mappings of the JVM.
+   */
+  static final MappingCache INSTANCE = new MappingCache(
+    Const.toInt( System.getProperty( CACHE_SIZE_PROPERTY ), DEFAULT_CACHE_SIZE ),
+    Const.toLong( System.getProperty( CACHE_TTL_PROPERTY ), DEFAULT_CACHE_TTL ) * 1000L, System::currentTimeMillis );
+
+  /**
+   * Reads a mapping that is not in the cache.
+   */
+  @FunctionalInterface
+  interface Loader {
+    StoredMapping load() throws Exception;
+  }
+
+  private final int maxSize;
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final Map<List<String>, Entry> mappings = new LinkedHashMap<>( 16, 0.75f, true );
+  private final Map<List<String>, Object> loading = new ConcurrentHashMap<>();
+
+  MappingCache( int maxSize, long ttlMillis, LongSupplier clock ) {
+    this.maxSize = maxSize;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the key of a mapping
+   */
+  static List<String> keyOf( String cluster, String mappingTable, String table, String mappingName ) {
+    return Arrays.asList( cluster, mappingTable, table, mappingName );
+  }
+
+  boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * @param key    the key of the mapping
+   * @param loader reads the mapping if it is not in the cache
+   * @return the mapping, read once for all the callers asking for it at the same time
+   */
+  StoredMapping get( List<String> key, Loader loader ) throws Exception {
+    StoredMapping mapping = get( key );
+    if ( mapping != null ) {
+      return mapping;
+    }
+    Object lock = loading.computeIfAbsent( key, k -> new Object() );
+    try {
+      synchronized ( lock ) {
+        mapping = get( key );
+        if ( mapping == null ) {
+          mapping = loader.load();
+          put( key, mapping );
+        }
+        return mapping;
+      }
+    } finally {
+      loading.remove( key, lock );
+    }
+  }
+
+  synchronized StoredMapping get( List<String> key ) {
+    Entry entry = mappings.get( key );
+    if ( entry == null ) {
+      return null;
+    }
+    if ( ttlMillis > 0 && clock.getAsLong() - entry.loaded > ttlMillis ) {
+      mappings.remove( key );
+      return null;
+    }
+    return entry.mapping;
+  }
+
+  synchronized void put( List<String> key, StoredMapping mapping ) {
+    if ( !isEnabled() ) {
+      return;
+    }
+    mappings.put( key, new Entry( mapping, clock.getAsLong() ) );
+    Iterator<Entry> leastRecent = mappings.values().iterator();
+    while ( mappings.size() > maxSize ) {
+      leastRecent.next();
+      leastRecent.remove();
+    }
+  }
+
+  /**
+   * Drops a mapping from every cluster, or from one.
+   *
+   * @param cluster      the cluster of the mapping, null for any
+   * @param mappingTable the mapping table
+   * @param table        the table of the mapping
+   * @param mappingName  the name of the mapping
+   */
+  synchronized void invalidate( String cluster, String mappingTable, String table, String mappingName ) {
+    List<String> mapping = Arrays.asList( mappingTable, table, mappingName );
+    mappings.keySet().removeIf( key -> ( cluster == null || cluster.equals( key.get( 0 ) ) )
+      && mapping.equals( key.subList( 1, key.size() ) ) );
+  }
+
+  synchronized void clear() {
+    mappings.clear();
+  }
+
+  synchronized int size() {
+    return mappings.size();
+  }
+
+  private static final class Entry {
+    private final StoredMapping mapping;
+    private final long loaded;
+
+    Entry( StoredMapping mapping, long loaded ) {
+      this.mapping = mapping;
+      this.loaded = loaded;
+    }
+  }
+
+  /**
+   * A mapping as it is stored in the mapping table: the key name and type, and the type of every column by column
+   * name.
+   */
+  static final class StoredMapping {
+    final String keyName;
+    final String keyType;
+    final List<String[]> columns;
+
+    StoredMapping( String keyName, String keyType, List<String[]> columns ) {
+      this.keyName = keyName;
+      this.keyType = keyType;
+      this.columns = columns;
+    }
+  }
+}
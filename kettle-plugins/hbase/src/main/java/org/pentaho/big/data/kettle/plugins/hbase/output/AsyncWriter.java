@@ -0,0 +1,305 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.output;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseDelete;
+import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
+
+/**
+ * Writes puts and deletes to HBase on a small pool of threads. Every thread has a write buffer of its own and takes
+ * the operations queued for it in batches, flushing the buffer after each batch, so that the step thread goes on with
+ * the next rows while earlier ones are being sent. The rows are given to the threads by key: the operations on a row
+ * are carried out in the order they were made, the buffered puts being flushed before a delete goes out.
+ * <p>
+ * The size of the rows queued or being written is bounded, the step thread waits when the bound is reached. Failed
+ * rows are kept, along with the cause, until the step takes them to report them; so are the rows whose delete was
+ * carried out, for the step to pass them on.
+ */
+class AsyncWriter {
+
+  /**
+   * Creates the write buffer of a thread.
+   */
+  @FunctionalInterface
+  interface WriteManagerFactory {
+    HBaseTableWriteOperationManager create() throws Exception;
+  }
+
+  /**
+   * A row that could not be written.
+   */
+  static final class Failure {
+    final Object[] row;
+    final Exception cause;
+    final boolean delete;
+
+    Failure( Object[] row, Exception cause, boolean delete ) {
+      this.row = row;
+      this.cause = cause;
+      this.delete = delete;
+    }
+  }
+
+  /**
+   * Operations taken by a thread before its buffer is flushed, when none is given.
+   */
+  static final int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * Size of the rows in flight when none is given, 64 MB.
+   */
+  static final long DEFAULT_MAX_IN_FLIGHT_SIZE = 64L * 1024 * 1024;
+
+  private static final Pending END = new Pending( null, null, null, 0 );
+
+  private final HBaseTableWriteOperationManager[] managers;
+  private final List<BlockingQueue<Pending>> queues = new ArrayList<>();
+  private final ExecutorService executor;
+  private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+  private final Queue<Object[]> deleted = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger threadNr = new AtomicInteger();
+  private final int batchSize;
+  private final long maxInFlightSize;
+  private long inFlightSize = 0;
+
+  /**
+   * @param threads         the number of writing threads
+   * @param batchSize       the operations taken by a thread before its buffer is flushed, 0 for the default
+   * @param maxInFlightSize the size of the rows queued or being written above which the step waits, 0 for the default
+   * @param factory         creates the write buffer of every thread
+   */
+  AsyncWriter( int threads, int batchSize, long maxInFlightSize, WriteManagerFactory factory ) throws Exception {
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.maxInFlightSize = maxInFlightSize > 0 ? maxInFlightSize : DEFAULT_MAX_IN_FLIGHT_SIZE;
+    managers = new HBaseTableWriteOperationManager[ Math.max( 1, threads ) ];
+    for ( int i = 0; i < managers.length; i++ ) {
+      managers[ i ] = factory.create();
+    }
+    executor = Executors.newFixedThreadPool( managers.length, runnable -> {
+      Thread thread = new Thread( runnable, "HBaseOutput-writer-" + threadNr.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    for ( HBaseTableWriteOperationManager manager : managers ) {
+      BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+      queues.add( queue );
+      executor.execute( () -> write( manager, queue ) );
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * @param key the key value of a row
+   * @return the write buffer the puts and deletes of the row are to be made with
+   */
+  HBaseTableWriteOperationManager managerFor( Object key ) {
+    return managers[ slotOf( key ) ];
+  }
+
+  /**
+   * Queues a put, waiting first if too many rows are in flight.
+   *
+   * @param key the key value the put was made for with {@link #managerFor(Object)}
+   * @param put the put
+   * @param row the row of the put, reported if it cannot be written
+   */
+  void write( Object key, HBasePut put, Object[] row ) throws InterruptedException {
+    queue( key, new Pending( put, null, row, sizeOf( row ) ) );
+  }
+
+  /**
+   * Queues a delete, waiting first if too many rows are in flight.
+   *
+   * @param key    the key value the delete was made for with {@link #managerFor(Object)}
+   * @param delete the delete
+   * @param row    the row of the delete, reported if it cannot be carried out
+   */
+  void delete( Object key, HBaseDelete delete, Object[] row ) throws InterruptedException {
+    queue( key, new Pending( null, delete, row, sizeOf( row ) ) );
+  }
+
+  private void queue( Object key, Pending pending ) throws InterruptedException {
+    long size = pending.size;
+    synchronized ( this ) {
+      // a row larger than the bound still goes through on its own
+      while ( inFlightSize > 0 && inFlightSize + size > maxInFlightSize ) {
+        wait();
+      }
+      inFlightSize += size;
+    }
+    queues.get( slotOf( key ) ).put( pending );
+  }
+
+  /**
+   * @return the rows that failed since the last call
+   */
+  List<Failure> takeFailures() {
+    List<Failure> taken = new ArrayList<>();
+    Failure failure;
+    while ( ( failure = failures.poll() ) != null ) {
+      taken.add( failure );
+    }
+    return taken;
+  }
+
+  /**
+   * @return the rows whose delete was carried out since the last call
+   */
+  List<Object[]> takeDeleted() {
+    List<Object[]> taken = new ArrayList<>();
+    Object[] row;
+    while ( ( row = deleted.poll() ) != null ) {
+      taken.add( row );
+    }
+    return taken;
+  }
+
+  /**
+   * Writes the queued operations and waits for the threads to be done.
+   */
+  void close() throws InterruptedException {
+    for ( BlockingQueue<Pending> queue : queues ) {
+      queue.put( END );
+    }
+    executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Stops the threads, the queued operations are dropped.
+   */
+  void abort() {
+    executor.shutdownNow();
+    queues.forEach( BlockingQueue::clear );
+    synchronized ( this ) {
+      inFlightSize = 0;
+      notifyAll();
+    }
+  }
+
+  private void write( HBaseTableWriteOperationManager manager, BlockingQueue<Pending> queue ) {
+    List<Pending> batch = new ArrayList<>( batchSize );
+    boolean done = false;
+    try {
+      while ( !done ) {
+        batch.add( queue.take() );
+        queue.drainTo( batch, batchSize - 1 );
+        if ( batch.get( batch.size() - 1 ) == END ) {
+          batch.remove( batch.size() - 1 );
+          done = true;
+        }
+        writeBatch( manager, batch );
+        batch.clear();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        manager.close();
+      } catch ( Exception e ) {
+        // Ignore
+      }
+    }
+  }
+
+  private void writeBatch( HBaseTableWriteOperationManager manager, List<Pending> batch ) {
+    List<Pending> buffered = new ArrayList<>( batch.size() );
+    for ( Pending pending : batch ) {
+      try {
+        if ( pending.delete != null ) {
+          // the deletes are not buffered, the puts made before go out first
+          flush( manager, buffered );
+          pending.delete.execute();
+          deleted.add( pending.row );
+        } else {
+          pending.put.execute();
+          buffered.add( pending );
+        }
+      } catch ( Exception e ) {
+        failures.add( new Failure( pending.row, e, pending.delete != null ) );
+      }
+    }
+    flush( manager, buffered );
+    long size = 0;
+    for ( Pending pending : batch ) {
+      size += pending.size;
+    }
+    synchronized ( this ) {
+      inFlightSize -= size;
+      notifyAll();
+    }
+  }
+
+  private void flush( HBaseTableWriteOperationManager manager, List<Pending> buffered ) {
+    try {
+      if ( !buffered.isEmpty() && !manager.isAutoFlush() ) {
+        manager.flushCommits();
+      }
+    } catch ( Exception e ) {
+      // the buffer does not tell which rows made it, all of the buffered ones are reported
+      for ( Pending pending : buffered ) {
+        failures.add( new Failure( pending.row, e, false ) );
+      }
+    }
+    buffered.clear();
+  }
+
+  private int slotOf( Object key ) {
+    int hash = key instanceof byte[] ? Arrays.hashCode( (byte[]) key ) : key == null ? 0 : key.hashCode();
+    return Math.floorMod( hash, managers.length );
+  }
+
+  /**
+   * @return a rough size of a row, its strings and binaries plus a few bytes for every other value
+   */
+  static long sizeOf( Object[] row ) {
+    long size = 16;
+    for ( Object value : row ) {
+      if ( value instanceof String ) {
+        size += ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += ( (byte[]) value ).length;
+      } else {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  private static final class Pending {
+    final HBasePut put;
+    final HBaseDelete delete;
+    final Object[] row;
+    final long size;
+
+    Pending( HBasePut put, HBaseDelete delete, Object[] row, long size ) {
+      this.put = put;
+      this.delete = delete;
+      this.row = row;
+      this.size = size;
+    }
+  }
+}
@@ -30,6 +30,7 @@ import org.pentaho.hadoop.shim.api.hbase.table.HBaseDelete;
 import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTable;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -57,6 +58,8 @@ public class HBaseOutput extends BaseStep implements StepInterface {
   private final NamedClusterServiceLocator namedClusterServiceLocator;
   private HBaseService hBaseService;
   private HBaseTableWriteOperationManager targetTableWriteOperationManager;
+  private AsyncWriter asyncWriter;
+  private int writerKeyIndex;
 
   public HBaseOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans, NamedClusterServiceLocator namedClusterServiceLocator ) {
@@ -100,6 +103,17 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     if ( r == null ) {
       // no more input
 
+      if ( asyncWriter != null ) {
+        try {
+          asyncWriter.close();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new KettleException( e );
+        }
+        reportWriteFailures();
+        passOnDeletedRows();
+      }
+
       // clean up/close connections etc.
       // target table will be null if we haven't seen any input
       if ( targetTable != null ) {
@@ -166,7 +180,7 @@ public class HBaseOutput extends BaseStep implements StepInterface {
             "HBaseOutput.Error.UnableToObtainConnection", ex.getMessage() ), ex );
       }
       try {
-        m_mappingAdmin = new MappingAdmin( m_hbAdmin );
+        m_mappingAdmin = new MappingAdmin( m_hbAdmin, m_meta.getNamedCluster().getName() );
       } catch ( Exception ex ) {
         throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
             "HBaseOutput.Error.UnableToObtainConnection", ex.getMessage() ), ex );
@@ -274,6 +288,19 @@ public class HBaseOutput extends BaseStep implements StepInterface {
           }
         }
         targetTableWriteOperationManager = targetTable.createWriteOperationManager( writeBufferSize );
+
+        // deletes are sent by the writer threads when they are batched
+        int writerThreads = Const.toInt( environmentSubstitute( m_meta.getWriterThreads() ), 0 );
+        int deleteBatchSize = Const.toInt( environmentSubstitute( m_meta.getDeleteBatchSize() ), 0 );
+        if ( m_meta.getDeleteRowKey() ? deleteBatchSize > 0 : writerThreads > 0 ) {
+          writerThreads = Math.max( 1, writerThreads );
+          logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.WritingOnThreads", writerThreads ) );
+          final Long threadWriteBufferSize = writeBufferSize;
+          asyncWriter = new AsyncWriter( writerThreads, m_meta.getDeleteRowKey() ? deleteBatchSize : 0,
+            Const.toLong( environmentSubstitute( m_meta.getMaxInFlightSize() ), 0L ),
+            () -> targetTable.createWriteOperationManager( threadWriteBufferSize ) );
+          writerKeyIndex = getInputRowMeta().indexOfValue( m_tableMapping.getKeyName() );
+        }
       } catch ( Exception e ) {
         throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
             "HBaseOutput.Error.ProblemConnectingToTargetTable", e.getMessage() ), e );
@@ -286,6 +313,7 @@ public class HBaseOutput extends BaseStep implements StepInterface {
 
     if ( m_meta.getDeleteRowKey() ) {
 
+      HBaseDelete hBaseDelete;
       try {
 
         if ( m_incomingKeyValueMeta.isNull( r[m_incomingKeyIndex] ) ) {
@@ -293,8 +321,12 @@ public class HBaseOutput extends BaseStep implements StepInterface {
         }
 
         byte[] encodedKeyBytes = m_bytesUtil.encodeKeyValue( r[m_incomingKeyIndex], m_incomingKeyValueMeta, m_tableMapping.getKeyType() );
-        HBaseDelete hBaseDelete = targetTableWriteOperationManager.createDelete( encodedKeyBytes );
-        hBaseDelete.execute();
+        HBaseTableWriteOperationManager writeManager = asyncWriter != null
+          ? asyncWriter.managerFor( r[m_incomingKeyIndex] ) : targetTableWriteOperationManager;
+        hBaseDelete = writeManager.createDelete( encodedKeyBytes );
+        if ( asyncWriter == null ) {
+          hBaseDelete.execute();
+        }
 
       } catch ( Exception ex ) {
 
@@ -313,16 +345,29 @@ public class HBaseOutput extends BaseStep implements StepInterface {
         }
       }
 
+      if ( asyncWriter != null ) {
+        try {
+          asyncWriter.delete( r[m_incomingKeyIndex], hBaseDelete, r );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new KettleException( e );
+        }
+        reportWriteFailures();
+        passOnDeletedRows();
+      }
+
     } else {
       // Put the data
       HBasePut hBasePut;
+      HBaseTableWriteOperationManager writeManager = asyncWriter != null
+        ? asyncWriter.managerFor( r[writerKeyIndex] ) : targetTableWriteOperationManager;
 
       if ( tupleRowConverter != null ) {
 
         try {
 
           hBasePut =
-              tupleRowConverter.createTuplePut( targetTableWriteOperationManager, m_bytesUtil, r, !m_meta
+              tupleRowConverter.createTuplePut( writeManager, m_bytesUtil, r, !m_meta
                   .getDisableWriteToWAL() );
         } catch ( Exception ex ) {
 
@@ -352,7 +397,7 @@ public class HBaseOutput extends BaseStep implements StepInterface {
           // key must not be null
           hBasePut =
               HBaseOutputData.initializeNewPut( getInputRowMeta(), m_incomingKeyIndex, r, m_tableMapping, m_bytesUtil,
-                  targetTableWriteOperationManager, !m_meta.getDisableWriteToWAL() );
+                  writeManager, !m_meta.getDisableWriteToWAL() );
           if ( hBasePut == null ) {
             String errorDescriptions =
                 BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.IncomingRowHasNullKeyValue" );
@@ -371,27 +416,42 @@ public class HBaseOutput extends BaseStep implements StepInterface {
         }
 
         // now encode the rest of the fields. Nulls do not get inserted of course
-        HBaseOutputData.addColumnsToPut( getInputRowMeta(), r, m_incomingKeyIndex, m_columnsMappedByAlias, hBasePut,
-            m_bytesUtil );
+        if ( m_data.getPutColumnPlan() == null ) {
+          m_data.setPutColumnPlan( HBaseOutputData.planColumnsToPut( getInputRowMeta(), m_incomingKeyIndex,
+              m_columnsMappedByAlias ) );
+        }
+        m_data.getPutColumnPlan().addColumnsToPut( r, hBasePut );
       }
 
-      try {
-        hBasePut.execute();
-      } catch ( Exception e ) {
-        String errorDescriptions =
-            BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e
-                .getMessage() );
-        if ( getStepMeta().isDoingErrorHandling() ) {
-          String errorFields = "Unknown";
-          putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
-        } else {
-          throw new KettleException( errorDescriptions, e );
+      if ( asyncWriter != null ) {
+        try {
+          asyncWriter.write( r[writerKeyIndex], hBasePut, r );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new KettleException( e );
+        }
+        reportWriteFailures();
+      } else {
+        try {
+          hBasePut.execute();
+        } catch ( Exception e ) {
+          String errorDescriptions =
+              BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e
+                  .getMessage() );
+          if ( getStepMeta().isDoingErrorHandling() ) {
+            String errorFields = "Unknown";
+            putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
+          } else {
+            throw new KettleException( errorDescriptions, e );
+          }
         }
       }
     }
 
-    // pass on the data to any downstream steps
-    putRow( m_data.getOutputRowMeta(), r );
+    // pass on the data to any downstream steps, batched deletes once they are done
+    if ( !m_meta.getDeleteRowKey() || asyncWriter == null ) {
+      putRow( m_data.getOutputRowMeta(), r );
+    }
 
     if ( log.isRowLevel() ) {
       log.logRowlevel( toString(), "Read row #" + getLinesRead() + " : " + r );
@@ -404,6 +464,34 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Sends the rows the writing threads failed to write to the error hop, or fails the step if there is none. The rows
+   * of failed puts have already been passed on to the next steps, those of failed deletes are not passed on.
+   */
+  private void reportWriteFailures() throws KettleException {
+    for ( AsyncWriter.Failure failure : asyncWriter.takeFailures() ) {
+      String errorDescriptions =
+          BaseMessages.getString( HBaseOutputMeta.PKG, failure.delete ? "HBaseOutput.Error.ProblemDeletingRowFromHBase"
+              : "HBaseOutput.Error.ProblemInsertingRowIntoHBase", failure.cause.getMessage() );
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( getInputRowMeta(), failure.row, 1, errorDescriptions, failure.delete ? m_tableMapping.getKeyName()
+            : "Unknown", failure.delete ? "HBaseOutput004" : "HBaseOutput002" );
+      } else {
+        throw new KettleException( errorDescriptions, failure.cause );
+      }
+    }
+  }
+
+  /**
+   * Passes on the rows whose delete the writing threads carried out. Like a delete made on the step thread, a row
+   * whose delete fails only goes to the error hop.
+   */
+  private void passOnDeletedRows() throws KettleException {
+    for ( Object[] row : asyncWriter.takeDeleted() ) {
+      putRow( m_data.getOutputRowMeta(), row );
+    }
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -431,6 +519,9 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     super.setStopped( stopped );
 
     if ( stopped ) {
+      if ( asyncWriter != null ) {
+        asyncWriter.abort();
+      }
       if ( targetTable != null ) {
         try {
           if ( !targetTableWriteOperationManager.isAutoFlush() ) {
@@ -28,6 +28,8 @@ import org.pentaho.di.trans.step.StepDataInterface;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -50,6 +52,17 @@ public class HBaseOutputData extends BaseStepData implements StepDataInterface {
     m_outputRowMeta = rmi;
   }
 
+  /** The columns the incoming fields are put in, made on the first row */
+  protected PutColumnPlan m_putColumnPlan;
+
+  public PutColumnPlan getPutColumnPlan() {
+    return m_putColumnPlan;
+  }
+
+  public void setPutColumnPlan( PutColumnPlan plan ) {
+    m_putColumnPlan = plan;
+  }
+
   /**
    * Sets up a new target table put operation using the connection shim
    *
@@ -110,26 +123,94 @@ public class HBaseOutputData extends BaseStepData implements StepDataInterface {
       Map<String, HBaseValueMetaInterface> columnsMappedByAlias, HBasePut hBasePut, ByteConversionUtil bu )
     throws KettleException {
 
+    planColumnsToPut( inRowMeta, keyIndex, columnsMappedByAlias ).addColumnsToPut( kettleRow, hBasePut );
+  }
+
+  /**
+   * Works out, once for all the rows, which incoming kettle fields go into the target table put operation and in
+   * which column
+   *
+   * @param inRowMeta
+   *          the incoming kettle row meta data
+   * @param keyIndex
+   *          the index of the key in the incoming row structure
+   * @param columnsMappedByAlias
+   *          the columns in the table mapping
+   * @return the plan to fill the put operations with
+   */
+  public static PutColumnPlan planColumnsToPut( RowMetaInterface inRowMeta, int keyIndex,
+      Map<String, HBaseValueMetaInterface> columnsMappedByAlias ) {
+
+    List<Integer> inputIndexes = new ArrayList<Integer>();
+    List<HBaseValueMetaInterface> columns = new ArrayList<HBaseValueMetaInterface>();
     for ( int i = 0; i < inRowMeta.size(); i++ ) {
-      ValueMetaInterface current = inRowMeta.getValueMeta( i );
-      if ( i != keyIndex && !current.isNull( kettleRow[i] ) ) {
-        HBaseValueMetaInterface hbaseColMeta = columnsMappedByAlias.get( current.getName() );
-        String columnFamily = hbaseColMeta.getColumnFamily();
-        String columnName = hbaseColMeta.getColumnName();
+      HBaseValueMetaInterface hbaseColMeta = columnsMappedByAlias.get( inRowMeta.getValueMeta( i ).getName() );
+      if ( i != keyIndex && hbaseColMeta != null ) {
+        inputIndexes.add( i );
+        columns.add( hbaseColMeta );
+      }
+    }
+    return new PutColumnPlan( inRowMeta, inputIndexes, columns );
+  }
 
-        boolean binaryColName = false;
+  /**
+   * Adds the incoming kettle field values that are defined in the table mapping to put operations. The incoming
+   * index, family and qualifier of every column are resolved when the plan is made, so that a row only takes a walk
+   * over the columns.
+   */
+  public static final class PutColumnPlan {
+
+    private final int[] inputIndexes;
+    private final ValueMetaInterface[] inputMetas;
+    private final HBaseValueMetaInterface[] columns;
+    private final String[] families;
+    private final String[] qualifiers;
+    private final boolean[] binaryQualifiers;
+
+    PutColumnPlan( RowMetaInterface inRowMeta, List<Integer> inputIndexes, List<HBaseValueMetaInterface> columns ) {
+      int size = inputIndexes.size();
+      this.inputIndexes = new int[size];
+      inputMetas = new ValueMetaInterface[size];
+      this.columns = columns.toArray( new HBaseValueMetaInterface[0] );
+      families = new String[size];
+      qualifiers = new String[size];
+      binaryQualifiers = new boolean[size];
+      for ( int i = 0; i < size; i++ ) {
+        this.inputIndexes[i] = inputIndexes.get( i );
+        inputMetas[i] = inRowMeta.getValueMeta( this.inputIndexes[i] );
+        families[i] = this.columns[i].getColumnFamily();
+        String columnName = this.columns[i].getColumnName();
         if ( columnName.startsWith( "@@@binary@@@" ) ) {
           // assume hex encoded column name
           columnName = columnName.replace( "@@@binary@@@", "" );
-          binaryColName = true;
+          binaryQualifiers[i] = true;
         }
-        byte[] encoded = hbaseColMeta.encodeColumnValue( kettleRow[i], current );
+        qualifiers[i] = columnName;
+      }
+    }
 
-        try {
-          hBasePut.addColumn( columnFamily, columnName, binaryColName, encoded );
-        } catch ( Exception ex ) {
-          throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
-              "HBaseOutput.Error.UnableToAddColumnToTargetTablePut" ), ex );
+    /**
+     * Adds the values of a row to a put operation. Nulls do not get inserted.
+     *
+     * @param kettleRow
+     *          the current incoming kettle row
+     * @param hBasePut
+     *          the put operation of the row
+     * @throws KettleException
+     *           if a problem occurs when adding a column to the put operation
+     */
+    public void addColumnsToPut( Object[] kettleRow, HBasePut hBasePut ) throws KettleException {
+      for ( int i = 0; i < inputIndexes.length; i++ ) {
+        Object value = kettleRow[inputIndexes[i]];
+        if ( !inputMetas[i].isNull( value ) ) {
+          byte[] encoded = columns[i].encodeColumnValue( value, inputMetas[i] );
+
+          try {
+            hBasePut.addColumn( families[i], qualifiers[i], binaryQualifiers[i], encoded );
+          } catch ( Exception ex ) {
+            throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
+                "HBaseOutput.Error.UnableToAddColumnToTargetTablePut" ), ex );
+          }
         }
       }
     }
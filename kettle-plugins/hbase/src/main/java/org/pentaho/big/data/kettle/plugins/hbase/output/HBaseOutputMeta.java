@@ -118,6 +118,25 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "WRITE_BUFFER_SIZE" )
   protected String m_writeBufferSize;
 
+  /**
+   * The number of threads writing to HBase (empty - the puts are written on the step thread)
+   */
+  @Injection( name = "WRITER_THREADS" )
+  protected String m_writerThreads;
+
+  /**
+   * The size in bytes of the rows queued or being written above which the step waits (empty - 64 MB)
+   */
+  @Injection( name = "MAX_IN_FLIGHT_SIZE" )
+  protected String m_maxInFlightSize;
+
+  /**
+   * The number of deletes sent by a writer thread at a time (empty - the deletes are sent one at a time on the step
+   * thread)
+   */
+  @Injection( name = "DELETE_BATCH_SIZE" )
+  protected String m_deleteBatchSize;
+
   /**
    * The mapping to use if we are not loading one dynamically at runtime from HBase itself
    */
@@ -259,6 +278,30 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_writeBufferSize;
   }
 
+  public void setWriterThreads( String threads ) {
+    m_writerThreads = threads;
+  }
+
+  public String getWriterThreads() {
+    return m_writerThreads;
+  }
+
+  public void setMaxInFlightSize( String size ) {
+    m_maxInFlightSize = size;
+  }
+
+  public String getMaxInFlightSize() {
+    return m_maxInFlightSize;
+  }
+
+  public void setDeleteBatchSize( String size ) {
+    m_deleteBatchSize = size;
+  }
+
+  public String getDeleteBatchSize() {
+    return m_deleteBatchSize;
+  }
+
   void applyInjection( VariableSpace space ) throws KettleException {
     if ( namedCluster == null ) {
       throw new KettleException( "Named cluster was not initialized!" );
@@ -356,6 +399,15 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Utils.isEmpty( m_writeBufferSize ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "write_buffer_size", m_writeBufferSize ) );
     }
+    if ( !Utils.isEmpty( m_writerThreads ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "writer_threads", m_writerThreads ) );
+    }
+    if ( !Utils.isEmpty( m_maxInFlightSize ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "max_in_flight_size", m_maxInFlightSize ) );
+    }
+    if ( !Utils.isEmpty( m_deleteBatchSize ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "delete_batch_size", m_deleteBatchSize ) );
+    }
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "disable_wal", m_disableWriteToWAL ) );
 
 
@@ -395,6 +447,9 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
       m_deleteRowKey = deleteKeys.equalsIgnoreCase( "Y" );
     }
     m_writeBufferSize = XMLHandler.getTagValue( stepnode, "write_buffer_size" );
+    m_writerThreads = XMLHandler.getTagValue( stepnode, "writer_threads" );
+    m_maxInFlightSize = XMLHandler.getTagValue( stepnode, "max_in_flight_size" );
+    m_deleteBatchSize = XMLHandler.getTagValue( stepnode, "delete_batch_size" );
     String disableWAL = XMLHandler.getTagValue( stepnode, "disable_wal" );
     m_disableWriteToWAL = disableWAL.equalsIgnoreCase( "Y" );
 
@@ -438,6 +493,9 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     m_targetMappingName = rep.getStepAttributeString( id_step, 0, "target_mapping_name" );
     m_deleteRowKey = rep.getStepAttributeBoolean( id_step, 0, "delete_rows_by_key" );
     m_writeBufferSize = rep.getStepAttributeString( id_step, 0, "write_buffer_size" );
+    m_writerThreads = rep.getStepAttributeString( id_step, 0, "writer_threads" );
+    m_maxInFlightSize = rep.getStepAttributeString( id_step, 0, "max_in_flight_size" );
+    m_deleteBatchSize = rep.getStepAttributeString( id_step, 0, "delete_batch_size" );
     m_disableWriteToWAL = rep.getStepAttributeBoolean( id_step, 0, "disable_wal" );
 
     Mapping tempMapping = null;
@@ -482,6 +540,15 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Utils.isEmpty( m_writeBufferSize ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "write_buffer_size", m_writeBufferSize );
     }
+    if ( !Utils.isEmpty( m_writerThreads ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "writer_threads", m_writerThreads );
+    }
+    if ( !Utils.isEmpty( m_maxInFlightSize ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "max_in_flight_size", m_maxInFlightSize );
+    }
+    if ( !Utils.isEmpty( m_deleteBatchSize ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "delete_batch_size", m_deleteBatchSize );
+    }
     rep.saveStepAttribute( id_transformation, id_step, 0, "disable_wal", m_disableWriteToWAL );
 
     if ( m_mapping != null ) {
@@ -497,6 +564,9 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     m_deleteRowKey = false;
     m_disableWriteToWAL = false;
     m_writeBufferSize = null;
+    m_writerThreads = null;
+    m_maxInFlightSize = null;
+    m_deleteBatchSize = null;
     namedCluster = namedClusterService.getClusterTemplate();
   }
 
@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+
+/**
+ * Decodes HBase row objects (Result) into Kettle rows following a mapping. Everything that does not depend on the
+ * row is worked out once: the family and qualifier bytes of every column, and the methods of the Result class, which
+ * the shim hands over as a plain object. The methods are looked up again only if a row of another class comes in.
+ */
+class HBaseResultDecoder {
+
+  private static final Class<?> PKG = HBaseRowDecoderMeta.class;
+
+  private static final MethodType GET_ROW = MethodType.methodType( byte[].class );
+  private static final MethodType GET_VALUE = MethodType.methodType( byte[].class, byte[].class, byte[].class );
+
+  private final Mapping mapping;
+  private final HBaseValueMetaInterface[] columns;
+  private final byte[][] families;
+  private final byte[][] qualifiers;
+
+  private Class<?> resultClass;
+  private MethodHandle getRow;
+  private MethodHandle getValue;
+
+  /**
+   * @param mapping the mapping the key is decoded with
+   * @param columns the mapped columns, in the order of the output fields after the key
+   */
+  HBaseResultDecoder( Mapping mapping, HBaseValueMetaInterface[] columns ) {
+    this.mapping = mapping;
+    this.columns = columns;
+    families = new byte[ columns.length ][];
+    qualifiers = new byte[ columns.length ][];
+    for ( int i = 0; i < columns.length; i++ ) {
+      families[ i ] = columns[ i ].getColumnFamily().getBytes();
+      qualifiers[ i ] = columns[ i ].getColumnName().getBytes();
+    }
+  }
+
+  /**
+   * Fills an output row with the decoded key, followed by the decoded values of the mapped columns.
+   *
+   * @param result     the HBase row
+   * @param outputRow  the row to fill, with room for the key and every column
+   */
+  void decode( Object result, Object[] outputRow ) throws KettleException {
+    bind( result.getClass() );
+
+    byte[] rowKey;
+    try {
+      rowKey = (byte[]) getRow.invokeExact( result );
+    } catch ( Throwable ex ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetRowKey" ), ex );
+    }
+    outputRow[ 0 ] = mapping.decodeKeyValue( rowKey );
+
+    for ( int i = 0; i < columns.length; i++ ) {
+      byte[] kv;
+      try {
+        kv = (byte[]) getValue.invokeExact( result, families[ i ], qualifiers[ i ] );
+      } catch ( Throwable ex ) {
+        throw new KettleException( BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetColumnValue" ),
+          ex );
+      }
+      outputRow[ i + 1 ] = columns[ i ].decodeColumnValue( kv );
+    }
+  }
+
+  private void bind( Class<?> rowClass ) throws KettleException {
+    if ( rowClass == resultClass ) {
+      return;
+    }
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      getRow = lookup.findVirtual( rowClass, "getRow", GET_ROW )
+        .asType( MethodType.methodType( byte[].class, Object.class ) );
+      getValue = lookup.findVirtual( rowClass, "getValue", GET_VALUE )
+        .asType( MethodType.methodType( byte[].class, Object.class, byte[].class, byte[].class ) );
+      resultClass = rowClass;
+    } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, HBaseRowDecoder.HBASE_ROW_DECODER_ERROR_NOT_RESULT, rowClass.getName() ), ex );
+    }
+  }
+}
@@ -90,6 +90,11 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
    */
   protected ByteConversionUtil mBytesUtil;
 
+  /**
+   * Decodes the HBase rows when the mapping is not a tuple mapping
+   */
+  private HBaseResultDecoder mResultDecoder;
+
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
@@ -133,6 +138,9 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
       for ( String alias : mTableMapping.getMappedColumns().keySet() ) {
         mOutputColumns[ k++ ] = mTableMapping.getMappedColumns().get( alias );
       }
+      if ( !mTableMapping.isTupleMapping() ) {
+        mResultDecoder = new HBaseResultDecoder( mTableMapping, mOutputColumns );
+      }
 
       hBaseRowDecoderData.setOutputRowMeta( getInputRowMeta().clone() );
       hBaseRowDecoderMeta.getFields( hBaseRowDecoderData.getOutputRowMeta(), getStepname(), null, null, this );
@@ -190,36 +198,7 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
         }
       } else {
         Object[] outputRowData = RowDataUtil.allocateRowData( mOutputColumns.length + 1 ); // + 1 for key
-
-        byte[] rowKey = null;
-        try {
-          rowKey = (byte[]) hRow.getClass().getMethod( "getRow" ).invoke( hRow );
-        } catch ( Exception ex ) {
-          throw new KettleException(
-            BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToGetRowKey" ), ex );
-        }
-        Object decodedKey = mTableMapping.decodeKeyValue( rowKey );
-        outputRowData[ 0 ] = decodedKey;
-
-        for ( int i = 0; i < mOutputColumns.length; i++ ) {
-          HBaseValueMetaInterface current = mOutputColumns[ i ];
-
-          byte[] colFamilyName = current.getColumnFamily().getBytes();
-          byte[] qualifier = current.getColumnName().getBytes();
-
-          byte[] kv = null;
-          try {
-            kv = (byte[]) hRow.getClass().getMethod( "getValue", byte[].class, byte[].class )
-              .invoke( hRow, colFamilyName, qualifier );
-          } catch ( Exception ex ) {
-            throw new KettleException(
-              BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToGetColumnValue" ),
-              ex );
-          }
-
-          Object decodedVal = current.decodeColumnValue( ( kv == null ) ? null : kv );
-          outputRowData[ i + 1 ] = decodedVal;
-        }
+        mResultDecoder.decode( hRow, outputRowData );
 
         // output the row
         putRow( hBaseRowDecoderData.getOutputRowMeta(), outputRowData );
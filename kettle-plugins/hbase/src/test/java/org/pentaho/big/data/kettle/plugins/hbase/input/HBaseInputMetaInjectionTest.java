@@ -74,6 +74,11 @@ public class HBaseInputMetaInjectionTest extends BaseMetadataInjectionTest<HBase
         return meta.getScannerCacheSize();
       }
     } );
+    check( "SCAN_THREADS", new StringGetter() {
+      public String get() {
+        return meta.getScanThreads();
+      }
+    } );
     check( "MATCH_ANY_FILTER", new BooleanGetter() {
       public boolean get() {
         return meta.getMatchAnyFilter();
@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelScannerTest {
+
+  @Test
+  public void testKeyRangeIsSplitEvenly() {
+    List<String[]> slices = ParallelScanner.split( 0, 100, 4 );
+    assertEquals( 4, slices.size() );
+    assertArrayEquals( new String[] { "0", "25" }, slices.get( 0 ) );
+    assertArrayEquals( new String[] { "75", "100" }, slices.get( 3 ) );
+  }
+
+  @Test
+  public void testNarrowKeyRangeGivesFewerSlices() {
+    List<String[]> slices = ParallelScanner.split( 10, 12, 8 );
+    assertEquals( 2, slices.size() );
+    assertArrayEquals( new String[] { "10", "11" }, slices.get( 0 ) );
+    assertArrayEquals( new String[] { "11", "12" }, slices.get( 1 ) );
+  }
+
+  @Test
+  public void testWholeLongRangeIsSplitWithoutOverflow() {
+    List<String[]> slices = ParallelScanner.split( Long.MIN_VALUE, Long.MAX_VALUE, 2 );
+    assertEquals( 2, slices.size() );
+    assertEquals( String.valueOf( Long.MIN_VALUE ), slices.get( 0 )[ 0 ] );
+    assertEquals( slices.get( 0 )[ 1 ], slices.get( 1 )[ 0 ] );
+    assertEquals( String.valueOf( Long.MAX_VALUE ), slices.get( 1 )[ 1 ] );
+  }
+
+  @Test
+  public void testRowsOfEverySliceAreReturned() throws Exception {
+    List<String[]> slices = ParallelScanner.split( 0, 1000, 5 );
+    Set<Result> expected = new HashSet<>();
+    List<ResultScanner> scanners = new ArrayList<>();
+    for ( int i = 0; i < slices.size(); i++ ) {
+      scanners.add( scanner( 200, expected ) );
+    }
+
+    Set<Result> returned = new HashSet<>();
+    try ( ParallelScanner scanner = new ParallelScanner( slices,
+      ( keyStart, keyStop ) -> scanners.get( Integer.parseInt( keyStart ) / 200 ), 7, 3 ) ) {
+      Result next;
+      while ( ( next = scanner.next() ) != null ) {
+        returned.add( next );
+      }
+    }
+    assertEquals( 1000, returned.size() );
+    assertEquals( expected, returned );
+  }
+
+  @Test
+  public void testNoSlicesGiveNoRows() throws Exception {
+    try ( ParallelScanner scanner = new ParallelScanner( Collections.emptyList(), ( keyStart, keyStop ) -> {
+      throw new IllegalStateException( "no slice to scan" );
+    }, 10, 2 ) ) {
+      assertNull( scanner.next() );
+    }
+  }
+
+  @Test( expected = KettleException.class )
+  public void testScanFailureIsRethrown() throws Exception {
+    try ( ParallelScanner scanner = new ParallelScanner( Arrays.asList( new String[] { "0", "1" } ),
+      ( keyStart, keyStop ) -> {
+        throw new IOException( "region server gone" );
+      }, 10, 1 ) ) {
+      scanner.next();
+    }
+  }
+
+  private ResultScanner scanner( int rows, Set<Result> expected ) throws Exception {
+    Result[] results = new Result[ rows ];
+    for ( int i = 0; i < rows; i++ ) {
+      results[ i ] = mock( Result.class );
+      expected.add( results[ i ] );
+    }
+    ResultScanner scanner = mock( ResultScanner.class );
+    when( scanner.next() ).thenReturn( results[ 0 ], Arrays.copyOfRange( results, 1, rows + 1 ) );
+    return scanner;
+  }
+}
@@ -54,6 +54,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -241,6 +242,24 @@ public class MappingAdminTest {
     assertEquals( "colName1", mappedColumns.get( "aliascol1" ).getColumnName() );
   }
 
+  @Test
+  public void getMappingIsReadOnceWhenCached() throws Exception {
+    MappingCache.INSTANCE.clear();
+    setupMappingStructure();
+    MappingAdmin cachingAdmin = new MappingAdmin( mockHbaseConnection, "cluster" );
+
+    Mapping first = cachingAdmin.getMapping( "populated:table1", "map1" );
+    Mapping second = cachingAdmin.getMapping( "populated:table1", "map1" );
+    assertNotSame( first, second );
+    assertEquals( first.getMappedColumns().keySet(), second.getMappedColumns().keySet() );
+    verify( mockPopulatedMappingTable, times( 1 ) ).createScannerBuilder( any(), any() );
+    assertEquals( 1, MappingCache.INSTANCE.size() );
+
+    // writing the mapping drops it from the cache
+    cachingAdmin.putMapping( first, true );
+    assertEquals( 0, MappingCache.INSTANCE.size() );
+  }
+
   @Test
   public void deleteMapping() throws Exception {
     setupMappingStructure();
@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import org.junit.Test;
+import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingCache.StoredMapping;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MappingCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger reads = new AtomicInteger();
+
+  @Test
+  public void testMappingIsReadOnce() throws Exception {
+    MappingCache cache = new MappingCache( 10, 0, now::get );
+    List<String> key = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "mapping" );
+    StoredMapping mapping = cache.get( key, this::read );
+    assertSame( mapping, cache.get( key, this::read ) );
+    assertEquals( 1, reads.get() );
+  }
+
+  @Test
+  public void testMappingIsReadAgainAfterTheTtl() throws Exception {
+    MappingCache cache = new MappingCache( 10, 1000, now::get );
+    List<String> key = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "mapping" );
+    cache.get( key, this::read );
+    now.set( 1000 );
+    cache.get( key, this::read );
+    assertEquals( 1, reads.get() );
+    now.set( 1001 );
+    cache.get( key, this::read );
+    assertEquals( 2, reads.get() );
+  }
+
+  @Test
+  public void testLeastRecentMappingIsDropped() throws Exception {
+    MappingCache cache = new MappingCache( 2, 0, now::get );
+    List<String> first = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "first" );
+    List<String> second = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "second" );
+    List<String> third = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "third" );
+    cache.get( first, this::read );
+    cache.get( second, this::read );
+    cache.get( first, this::read );
+    cache.get( third, this::read );
+    assertEquals( 2, cache.size() );
+    assertNotNull( cache.get( first ) );
+    assertNull( cache.get( second ) );
+  }
+
+  @Test
+  public void testInvalidationDropsTheMappingOfEveryCluster() throws Exception {
+    MappingCache cache = new MappingCache( 10, 0, now::get );
+    cache.get( MappingCache.keyOf( "one", "pentaho_mappings", "table", "mapping" ), this::read );
+    cache.get( MappingCache.keyOf( "two", "pentaho_mappings", "table", "mapping" ), this::read );
+    cache.get( MappingCache.keyOf( "one", "pentaho_mappings", "table", "other" ), this::read );
+    cache.invalidate( null, "pentaho_mappings", "table", "mapping" );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testDisabledCacheKeepsNothing() throws Exception {
+    MappingCache cache = new MappingCache( 0, 0, now::get );
+    List<String> key = MappingCache.keyOf( "cluster", "pentaho_mappings", "table", "mapping" );
+    cache.get( key, this::read );
+    cache.get( key, this::read );
+    assertEquals( 2, reads.get() );
+    assertEquals( 0, cache.size() );
+  }
+
+  private StoredMapping read() {
+    reads.incrementAndGet();
+    return new StoredMapping( "key", "String", Collections.emptyList() );
+  }
+}
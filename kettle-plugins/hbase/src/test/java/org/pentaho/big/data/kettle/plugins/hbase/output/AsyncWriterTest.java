@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.output;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseDelete;
+import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class AsyncWriterTest {
+
+  private final List<HBaseTableWriteOperationManager> managers = new ArrayList<>();
+  private final List<Object> written = Collections.synchronizedList( new ArrayList<>() );
+
+  @Test
+  public void testPutsOfAKeyAreWrittenInOrderAndFlushed() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 3, 0, 0, this::manager );
+    for ( int i = 0; i < 3000; i++ ) {
+      writer.write( "key", put( i ), new Object[] { "key", (long) i } );
+    }
+    writer.close();
+
+    assertEquals( 3000, written.size() );
+    for ( int i = 0; i < written.size(); i++ ) {
+      assertEquals( i, written.get( i ) );
+    }
+    assertTrue( writer.takeFailures().isEmpty() );
+    HBaseTableWriteOperationManager keyManager = writer.managerFor( "key" );
+    verify( keyManager, atLeastOnce() ).flushCommits();
+    for ( HBaseTableWriteOperationManager manager : managers ) {
+      verify( manager ).close();
+    }
+  }
+
+  @Test
+  public void testEqualKeysGoToTheSameBuffer() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 4, 0, 0, this::manager );
+    assertSame( writer.managerFor( new byte[] { 1, 2 } ), writer.managerFor( new byte[] { 1, 2 } ) );
+    assertSame( writer.managerFor( null ), writer.managerFor( null ) );
+    writer.close();
+  }
+
+  @Test
+  public void testRowsOfAFailedFlushAreReported() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 1, 0, 0, () -> {
+      HBaseTableWriteOperationManager manager = manager();
+      doThrow( new IllegalStateException( "region server gone" ) ).when( manager ).flushCommits();
+      return manager;
+    } );
+    Object[] row = new Object[] { "key", 1L };
+    writer.write( "key", put( 1 ), row );
+    writer.close();
+
+    List<AsyncWriter.Failure> failures = writer.takeFailures();
+    assertEquals( 1, failures.size() );
+    assertSame( row, failures.get( 0 ).row );
+    assertTrue( failures.get( 0 ).cause instanceof IllegalStateException );
+    assertFalse( failures.get( 0 ).delete );
+  }
+
+  @Test
+  public void testPutsAreFlushedBeforeADeleteOfTheSameKey() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 2, 10, 0, this::manager );
+    HBaseTableWriteOperationManager manager = writer.managerFor( "key" );
+    HBaseDelete delete = mock( HBaseDelete.class );
+    doAnswer( invocation -> written.add( "delete" ) ).when( delete ).execute();
+    writer.write( "key", put( 1 ), new Object[] { "key", 1L } );
+    writer.delete( "key", delete, new Object[] { "key" } );
+    writer.write( "key", put( 2 ), new Object[] { "key", 2L } );
+    writer.close();
+
+    assertEquals( Arrays.asList( 1, "delete", 2 ), written );
+    InOrder inOrder = inOrder( manager, delete );
+    inOrder.verify( manager ).flushCommits();
+    inOrder.verify( delete ).execute();
+    inOrder.verify( manager ).flushCommits();
+  }
+
+  @Test
+  public void testFailedDeletesAreReportedAsDeletes() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 1, 10, 0, this::manager );
+    HBaseDelete delete = mock( HBaseDelete.class );
+    doThrow( new IllegalStateException( "region server gone" ) ).when( delete ).execute();
+    writer.delete( "key", delete, new Object[] { "key" } );
+    writer.close();
+
+    List<AsyncWriter.Failure> failures = writer.takeFailures();
+    assertEquals( 1, failures.size() );
+    assertTrue( failures.get( 0 ).delete );
+    assertTrue( writer.takeDeleted().isEmpty() );
+  }
+
+  @Test
+  public void testDeletedRowsAreKeptToBePassedOn() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 1, 10, 0, this::manager );
+    Object[] row = new Object[] { "key" };
+    writer.delete( "key", mock( HBaseDelete.class ), row );
+    writer.close();
+
+    assertEquals( Collections.singletonList( row ), writer.takeDeleted() );
+    assertTrue( writer.takeDeleted().isEmpty() );
+    assertTrue( writer.takeFailures().isEmpty() );
+  }
+
+  @Test
+  public void testRowLargerThanTheBoundIsWritten() throws Exception {
+    AsyncWriter writer = new AsyncWriter( 1, 0, 10, this::manager );
+    writer.write( "key", put( 1 ), new Object[] { "a value longer than the bound" } );
+    writer.write( "key", put( 2 ), new Object[] { "another value longer than the bound" } );
+    writer.close();
+    assertEquals( 2, written.size() );
+  }
+
+  @Test
+  public void testRowSizeIsEstimated() {
+    assertEquals( 16 + 3 + 2 + 8, AsyncWriter.sizeOf( new Object[] { "abc", new byte[ 2 ], 1L } ) );
+  }
+
+  private HBaseTableWriteOperationManager manager() {
+    HBaseTableWriteOperationManager manager = mock( HBaseTableWriteOperationManager.class );
+    managers.add( manager );
+    return manager;
+  }
+
+  private HBasePut put( int nr ) throws Exception {
+    HBasePut put = mock( HBasePut.class );
+    doAnswer( invocation -> written.add( nr ) ).when( put ).execute();
+    return put;
+  }
+}
@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.output;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HBaseOutputDataTest {
+
+  @Test
+  public void testMappedNonNullValuesArePutInTheirColumns() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "hex" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "empty" ) );
+
+    Map<String, HBaseValueMetaInterface> columns = new HashMap<>();
+    columns.put( "name", column( "f", "name" ) );
+    columns.put( "hex", column( "f", "@@@binary@@@0a0b" ) );
+    columns.put( "empty", column( "f", "empty" ) );
+
+    HBaseOutputData.PutColumnPlan plan = HBaseOutputData.planColumnsToPut( rowMeta, 0, columns );
+    HBasePut put = mock( HBasePut.class );
+    plan.addColumnsToPut( new Object[] { "k1", "alice", "x", null }, put );
+
+    verify( put ).addColumn( "f", "name", false, "alice".getBytes() );
+    verify( put ).addColumn( "f", "0a0b", true, "x".getBytes() );
+    verify( put, times( 2 ) ).addColumn( anyString(), any(), anyBoolean(), any() );
+  }
+
+  private HBaseValueMetaInterface column( String family, String qualifier ) throws Exception {
+    HBaseValueMetaInterface column = mock( HBaseValueMetaInterface.class );
+    when( column.getColumnFamily() ).thenReturn( family );
+    when( column.getColumnName() ).thenReturn( qualifier );
+    when( column.encodeColumnValue( any(), any() ) )
+      .thenAnswer( invocation -> ( (String) invocation.getArgument( 0 ) ).getBytes() );
+    return column;
+  }
+}
@@ -76,6 +76,21 @@ public class HBaseOutputMetaInjectionTest extends BaseMetadataInjectionTest<HBas
         return meta.getWriteBufferSize();
       }
     } );
+    check( "WRITER_THREADS", new StringGetter() {
+      public String get() {
+        return meta.getWriterThreads();
+      }
+    } );
+    check( "MAX_IN_FLIGHT_SIZE", new StringGetter() {
+      public String get() {
+        return meta.getMaxInFlightSize();
+      }
+    } );
+    check( "DELETE_BATCH_SIZE", new StringGetter() {
+      public String get() {
+        return meta.getDeleteBatchSize();
+      }
+    } );
 
     check( "TABLE_NAME", new StringGetter() {
       public String get() {
@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HBaseResultDecoderTest {
+
+  /**
+   * Stands in for the HBase Result class of the shim.
+   */
+  public static class Result {
+    private final byte[] row;
+    private final Map<String, byte[]> values = new HashMap<>();
+
+    public Result( String row ) {
+      this.row = row.getBytes();
+    }
+
+    Result with( String family, String qualifier, String value ) {
+      values.put( family + ":" + qualifier, value.getBytes() );
+      return this;
+    }
+
+    public byte[] getRow() {
+      return row;
+    }
+
+    public byte[] getValue( byte[] family, byte[] qualifier ) {
+      return values.get( new String( family ) + ":" + new String( qualifier ) );
+    }
+  }
+
+  @Test
+  public void testRowsAreDecodedIntoTheOutputRow() throws Exception {
+    Mapping mapping = mock( Mapping.class );
+    when( mapping.decodeKeyValue( any() ) )
+      .thenAnswer( invocation -> new String( (byte[]) invocation.getArgument( 0 ) ) );
+    HBaseResultDecoder decoder =
+      new HBaseResultDecoder( mapping, new HBaseValueMetaInterface[] { column( "f", "a" ), column( "f", "b" ) } );
+
+    Object[] row = new Object[ 3 ];
+    decoder.decode( new Result( "key1" ).with( "f", "a", "x" ), row );
+    assertArrayEquals( new Object[] { "key1", "x", null }, row );
+
+    decoder.decode( new Result( "key2" ).with( "f", "a", "y" ).with( "f", "b", "z" ), row );
+    assertArrayEquals( new Object[] { "key2", "y", "z" }, row );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testOtherObjectsAreRejected() throws Exception {
+    HBaseResultDecoder decoder = new HBaseResultDecoder( mock( Mapping.class ), new HBaseValueMetaInterface[ 0 ] );
+    decoder.decode( Arrays.asList( "not", "a", "result" ), new Object[ 1 ] );
+  }
+
+  private HBaseValueMetaInterface column( String family, String qualifier ) throws Exception {
+    HBaseValueMetaInterface column = mock( HBaseValueMetaInterface.class );
+    when( column.getColumnFamily() ).thenReturn( family );
+    when( column.getColumnName() ).thenReturn( qualifier );
+    when( column.decodeColumnValue( any() ) ).thenAnswer( invocation -> {
+      byte[] value = invocation.getArgument( 0 );
+      return value == null ? null : new String( value );
+    } );
+    return column;
+  }
+}
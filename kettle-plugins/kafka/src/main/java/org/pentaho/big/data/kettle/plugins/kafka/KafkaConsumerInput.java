@@ -14,6 +14,7 @@ package org.pentaho.big.data.kettle.plugins.kafka;
 
 
 import org.apache.kafka.clients.consumer.Consumer;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.i18n.BaseMessages;
@@ -25,6 +26,7 @@ import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.streaming.common.BaseStreamStep;
 import org.pentaho.di.trans.streaming.common.FixedTimeStreamWindow;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -88,15 +90,22 @@ public class KafkaConsumerInput extends BaseStreamStep implements StepInterface
 
   protected void prepareConsumer( KafkaConsumerInputMeta kafkaConsumerInputMeta,
                                   KafkaConsumerInputData kafkaConsumerInputData ) {
-    Consumer consumer = kafkaConsumerInputMeta.getKafkaFactory().consumer( kafkaConsumerInputMeta,
-            this::environmentSubstitute, kafkaConsumerInputMeta.getKeyField().getOutputType(),
-            kafkaConsumerInputMeta.getMessageField().getOutputType() );
-
     Set<String> topics =
             kafkaConsumerInputMeta.getTopics().stream().map( this::environmentSubstitute ).collect( Collectors.toSet() );
-    consumer.subscribe( topics );
 
-    source = new KafkaStreamSource( consumer, kafkaConsumerInputMeta, kafkaConsumerInputData, variables, this );
+    // every consumer joins the same group, which spreads the partitions over them
+    int consumerThreads = Math.max( 1, Const.toInt( environmentSubstitute(
+            kafkaConsumerInputMeta.getConsumerThreads() ), 1 ) );
+    List<Consumer> consumers = new ArrayList<>( consumerThreads );
+    for ( int i = 0; i < consumerThreads; i++ ) {
+      Consumer consumer = kafkaConsumerInputMeta.getKafkaFactory().consumer( kafkaConsumerInputMeta,
+              this::environmentSubstitute, kafkaConsumerInputMeta.getKeyField().getOutputType(),
+              kafkaConsumerInputMeta.getMessageField().getOutputType() );
+      consumer.subscribe( topics );
+      consumers.add( consumer );
+    }
+
+    source = new KafkaStreamSource( consumers, kafkaConsumerInputMeta, kafkaConsumerInputData, variables, this );
     window = new FixedTimeStreamWindow<>( getSubtransExecutor(), kafkaConsumerInputData.outputRowMeta, getDuration(),
             getBatchSize(), getParallelism(), kafkaConsumerInputMeta.isAutoCommit() ? p -> {
     } : this::commitOffsets );
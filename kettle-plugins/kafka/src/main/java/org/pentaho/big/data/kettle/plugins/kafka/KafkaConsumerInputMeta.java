@@ -115,6 +115,8 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
   public static final String KAFKA_NAME_ATTRIBUTE = "kafkaName";
   public static final String TYPE_ATTRIBUTE = "type";
   public static final String AUTO_COMMIT = "AUTO_COMMIT";
+  public static final String CONSUMER_THREADS = "consumerThreads";
+  public static final String CONSUMER_THREADS_DEFAULT = "1";
 
   private static final Class<?> PKG = KafkaConsumerInput.class; // for i18n purposes, needed by Translator2!!   $NON-NLS-1$
 
@@ -148,6 +150,9 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
   @Injection( name = AUTO_COMMIT )
   private boolean autoCommit = true;
 
+  @Injection( name = "CONSUMER_THREADS" )
+  private String consumerThreads = CONSUMER_THREADS_DEFAULT;
+
   private Map<String, String> config = new LinkedHashMap<>();
 
   private KafkaConsumerField topicField;
@@ -244,6 +249,8 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     setDirectBootstrapServers( XMLHandler.getTagValue( stepnode, DIRECT_BOOTSTRAP_SERVERS ) );
     String autoCommitValue = XMLHandler.getTagValue( stepnode, AUTO_COMMIT );
     setAutoCommit( "Y".equals( autoCommitValue ) || isNullOrEmpty( autoCommitValue ) );
+    String consumerThreadsValue = XMLHandler.getTagValue( stepnode, CONSUMER_THREADS );
+    setConsumerThreads( isNullOrEmpty( consumerThreadsValue ) ? CONSUMER_THREADS_DEFAULT : consumerThreadsValue );
     List<Node> ofNode = XMLHandler.getNodes( stepnode, OUTPUT_FIELD_TAG_NAME );
 
     ofNode.forEach( node -> {
@@ -282,6 +289,7 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     batchDuration = "1000";
     parallelism = "1";
     prefetchCount = PREFETCH_DEFAULT;
+    consumerThreads = CONSUMER_THREADS_DEFAULT;
   }
 
   @Override public void readRep( Repository rep, IMetaStore metaStore, ObjectId objectId, List<DatabaseMeta>
@@ -307,6 +315,8 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     setConnectionType( ConnectionType.valueOf( rep.getStepAttributeString( objectId, CONNECTION_TYPE ) ) );
     setDirectBootstrapServers( rep.getStepAttributeString( objectId, DIRECT_BOOTSTRAP_SERVERS ) );
     setAutoCommit( rep.getStepAttributeBoolean( objectId, 0, AUTO_COMMIT, true ) );
+    String consumerThreadsValue = rep.getStepAttributeString( objectId, CONSUMER_THREADS );
+    setConsumerThreads( isNullOrEmpty( consumerThreadsValue ) ? CONSUMER_THREADS_DEFAULT : consumerThreadsValue );
 
     for ( KafkaConsumerField.Name name : KafkaConsumerField.Name.values() ) {
       String prefix = OUTPUT_FIELD_TAG_NAME + "_" + name;
@@ -344,6 +354,7 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     rep.saveStepAttribute( transId, stepId, CONNECTION_TYPE, connectionType.name() );
     rep.saveStepAttribute( transId, stepId, DIRECT_BOOTSTRAP_SERVERS, directBootstrapServers );
     rep.saveStepAttribute( transId, stepId, AUTO_COMMIT, autoCommit );
+    rep.saveStepAttribute( transId, stepId, CONSUMER_THREADS, consumerThreads );
 
     List<KafkaConsumerField> fields = getFieldDefinitions();
     for ( KafkaConsumerField field : fields ) {
@@ -517,6 +528,7 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     retval.append( "    " ).append( XMLHandler.addTagValue( CONNECTION_TYPE, connectionType.name() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( DIRECT_BOOTSTRAP_SERVERS, directBootstrapServers ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( AUTO_COMMIT, autoCommit ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( CONSUMER_THREADS, consumerThreads ) );
 
     getFieldDefinitions().forEach( field ->
             retval.append( "    " ).append(
@@ -579,6 +591,18 @@ public class KafkaConsumerInputMeta extends BaseStreamStepMeta implements StepMe
     return autoCommit;
   }
 
+  /**
+   * @return the number of consumers, each polling on its own thread, the step runs in the consumer group; may hold a
+   * variable
+   */
+  public String getConsumerThreads() {
+    return consumerThreads;
+  }
+
+  public void setConsumerThreads( String consumerThreads ) {
+    this.consumerThreads = consumerThreads;
+  }
+
   /*
      Per https://jira.pentaho.com/browse/PDI-19585 this capability was never reproduced when the multishim
      capability was added.  It has been missing since Pentaho 9.0.
@@ -91,7 +91,15 @@ public class KafkaFactory {
     kafkaConfig.put( ProducerConfig.CLIENT_ID_CONFIG, variableNonNull.apply( meta.getClientId() ) );
     kafkaConfig.put( ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, msgSerializerType.getKafkaSerializerClass() );
     kafkaConfig.put( ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, keySerializerType.getKafkaSerializerClass() );
+    putIfNotEmpty( kafkaConfig, ProducerConfig.LINGER_MS_CONFIG, variableNonNull.apply( meta.getLingerMs() ) );
+    putIfNotEmpty( kafkaConfig, ProducerConfig.BATCH_SIZE_CONFIG, variableNonNull.apply( meta.getBatchSize() ) );
+    putIfNotEmpty( kafkaConfig, ProducerConfig.COMPRESSION_TYPE_CONFIG,
+      variableNonNull.apply( meta.getCompressionType() ) );
+    putIfNotEmpty( kafkaConfig, ProducerConfig.ACKS_CONFIG, variableNonNull.apply( meta.getAcks() ) );
+    putIfNotEmpty( kafkaConfig, ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION,
+      variableNonNull.apply( meta.getMaxInFlight() ) );
     //meta.getJaasConfigService().ifPresent( jaasConfigService -> putKerberosConfig( kafkaConfig, jaasConfigService ) );
+    // advanced options are applied last, so they win over the tuning fields
     setProducerConfigValue( meta, variableNonNull, kafkaConfig );
 
     return producerFunction.apply( kafkaConfig );
@@ -101,6 +109,13 @@ public class KafkaFactory {
     return value == null ? "" : value;
   }
 
+  private static void putIfNotEmpty( Map<String, Object> kafkaConfig, String key, String value ) {
+    // an empty tuning field keeps the Kafka default
+    if ( !value.trim().isEmpty() ) {
+      kafkaConfig.put( key, value.trim() );
+    }
+  }
+
   protected void setProducerConfigValue( KafkaProducerOutputMeta meta, Function<String, String> variableNonNull,
                                          HashMap<String, Object> kafkaConfig ) {
     meta.getConfig().entrySet()
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the offset to commit for every partition, that is one past the highest offset seen. Offsets are held in a
+ * {@code long} array per topic indexed by partition, so tracking a row does not allocate.
+ * <p>
+ * Not thread safe.
+ */
+class KafkaOffsetTracker {
+
+  private static final long NONE = -1L;
+
+  private final Map<String, long[]> nextOffsets = new HashMap<>();
+  private boolean empty = true;
+
+  /**
+   * Records that the message at {@code offset} of the given partition was processed.
+   */
+  void track( String topic, int partition, long offset ) {
+    long[] offsets = offsetsOf( topic, partition );
+    if ( offset + 1 > offsets[ partition ] ) {
+      offsets[ partition ] = offset + 1;
+      empty = false;
+    }
+  }
+
+  /**
+   * Takes over every offset of the other tracker that is ahead of the ones tracked here.
+   */
+  void trackAll( KafkaOffsetTracker other ) {
+    other.nextOffsets.forEach( ( topic, otherOffsets ) -> {
+      for ( int partition = 0; partition < otherOffsets.length; partition++ ) {
+        if ( otherOffsets[ partition ] != NONE ) {
+          track( topic, partition, otherOffsets[ partition ] - 1 );
+        }
+      }
+    } );
+  }
+
+  boolean isEmpty() {
+    return empty;
+  }
+
+  void clear() {
+    nextOffsets.clear();
+    empty = true;
+  }
+
+  /**
+   * @param assignment the partitions to keep, or null to keep every partition
+   * @return the offsets to commit for the tracked partitions
+   */
+  Map<TopicPartition, OffsetAndMetadata> toCommit( Set<TopicPartition> assignment ) {
+    Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+    nextOffsets.forEach( ( topic, offsets ) -> {
+      for ( int partition = 0; partition < offsets.length; partition++ ) {
+        if ( offsets[ partition ] != NONE ) {
+          TopicPartition topicPartition = new TopicPartition( topic, partition );
+          if ( assignment == null || assignment.contains( topicPartition ) ) {
+            toCommit.put( topicPartition, new OffsetAndMetadata( offsets[ partition ] ) );
+          }
+        }
+      }
+    } );
+    return toCommit;
+  }
+
+  private long[] offsetsOf( String topic, int partition ) {
+    long[] offsets = nextOffsets.get( topic );
+    if ( offsets == null || offsets.length <= partition ) {
+      int length = offsets == null ? Math.max( 16, partition + 1 ) : Math.max( offsets.length * 2, partition + 1 );
+      long[] grown = new long[ length ];
+      Arrays.fill( grown, NONE );
+      if ( offsets != null ) {
+        System.arraycopy( offsets, 0, grown, 0, offsets.length );
+      }
+      offsets = grown;
+      nextOffsets.put( topic, offsets );
+    }
+    return offsets;
+  }
+}
@@ -16,6 +16,7 @@ package org.pentaho.big.data.kettle.plugins.kafka;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.StringUtil;
@@ -28,10 +29,15 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
-public class KafkaProducerOutput extends BaseStep implements StepInterface, Callback {
+
+public class KafkaProducerOutput extends BaseStep implements StepInterface {
 
   private static final Class<?> PKG = KafkaConsumerInputMeta.class;
+  private static final String SEND_ERROR_CODE = "KafkaProducer001";
   private KafkaProducerOutputMeta meta;
   private KafkaProducerOutputData data;
   protected KafkaFactory kafkaFactory;
@@ -58,6 +64,7 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
     super.init( stepMetaInterface, stepDataInterface );
     meta = ( (KafkaProducerOutputMeta) stepMetaInterface );
     data = ( (KafkaProducerOutputData) stepDataInterface );
+    data.completedSends = new ConcurrentLinkedQueue<>();
 
     return true;
   }
@@ -66,10 +73,14 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
     Object[] r = getRow(); // get row, set busy!
     if ( r == null ) {
       // no more input to be expected...
-      setOutputDone();
-      if ( data.kafkaProducer != null ) {
+      if ( data.kafkaProducer != null && data.isOpen ) {
+        data.isOpen = false;
+        // the callbacks of every pending send have run once flush returns
+        data.kafkaProducer.flush();
         data.kafkaProducer.close();
+        handleCompletedSends();
       }
+      setOutputDone();
       return false;
     }
     if ( first ) {
@@ -77,6 +88,10 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
       data.messageFieldIndex = getInputRowMeta().indexOfValue( environmentSubstitute( meta.getMessageField() ) );
       ValueMetaInterface keyValueMeta = getInputRowMeta().getValueMeta( data.keyFieldIndex );
       ValueMetaInterface msgValueMeta = getInputRowMeta().getValueMeta( data.messageFieldIndex );
+      data.topic = environmentSubstitute( meta.getTopic() );
+      int maxPendingSends = Const.toInt( environmentSubstitute( meta.getMaxPendingSends() ),
+        Integer.parseInt( KafkaProducerOutputMeta.MAX_PENDING_SENDS_DEFAULT ) );
+      data.pendingSends = maxPendingSends > 0 ? new Semaphore( maxPendingSends ) : null;
 
       data.kafkaProducer = kafkaFactory.producer( meta, this::environmentSubstitute,
         KafkaConsumerField.Type.fromValueMetaInterface( keyValueMeta ),
@@ -94,16 +109,18 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
     // allow for null keys
     if ( data.keyFieldIndex < 0 || r[ data.keyFieldIndex ] == null || StringUtil
        .isEmpty( r[ data.keyFieldIndex ].toString() ) ) {
-      producerRecord = new ProducerRecord<>( environmentSubstitute( meta.getTopic() ), r[ data.messageFieldIndex ] );
+      producerRecord = new ProducerRecord<>( data.topic, r[ data.messageFieldIndex ] );
     } else {
-      producerRecord = new ProducerRecord<>( environmentSubstitute( meta.getTopic() ), r[ data.keyFieldIndex ],
-        r[ data.messageFieldIndex ] );
+      producerRecord = new ProducerRecord<>( data.topic, r[ data.keyFieldIndex ], r[ data.messageFieldIndex ] );
     }
 
-    data.kafkaProducer.send( producerRecord, this );
+    if ( !awaitSendPermit() ) {
+      return false;
+    }
+    data.kafkaProducer.send( producerRecord, new RowCallback( r ) );
     incrementLinesOutput();
 
-    putRow( getInputRowMeta(), r ); // copy row to possible alternate rowset(s).
+    handleCompletedSends();
 
     if ( checkFeedback( getLinesRead() ) && log.isBasic() ) {
       logBasic( BaseMessages.getString( PKG, "KafkaConsumerInput.Log.LineNumber" ) + getLinesRead() );
@@ -112,6 +129,52 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
     return true;
   }
 
+  /**
+   * Waits until fewer than the maximum number of sends are unacknowledged, so that a slow cluster holds back the
+   * step instead of piling rows up in the producer.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  private boolean awaitSendPermit() {
+    if ( data.pendingSends == null ) {
+      return true;
+    }
+    try {
+      while ( !data.pendingSends.tryAcquire( 100, TimeUnit.MILLISECONDS ) ) {
+        if ( isStopped() || !data.isOpen ) {
+          return false;
+        }
+      }
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Passes the rows whose send was acknowledged to the main output, and routes the rows whose send failed to the error
+   * hop, or stops the transformation when the step does not handle errors. A row is only passed on once its send has
+   * completed, so that it ends up on either hop but never on both. Runs on the step thread, the producer only queues
+   * the completed sends.
+   */
+  private void handleCompletedSends() throws KettleException {
+    CompletedSend completed;
+    while ( ( completed = data.completedSends.poll() ) != null ) {
+      if ( completed.exception == null ) {
+        putRow( getInputRowMeta(), completed.row ); // copy row to possible alternate rowset(s).
+      } else if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( getInputRowMeta(), completed.row, 1, completed.exception.toString(), null, SEND_ERROR_CODE );
+      } else {
+        logError( BaseMessages.getString( PKG, "KafkaProducer.Error.CallbackException" ), completed.exception );
+        setErrors( 1 );
+        stopAll();
+        data.completedSends.clear();
+        return;
+      }
+    }
+  }
+
   @Override
   public void stopRunning( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) {
     if ( data.kafkaProducer != null && data.isOpen ) {
@@ -122,18 +185,38 @@ public class KafkaProducerOutput extends BaseStep implements StepInterface, Call
   }
 
   /**
-   * Callback for the Kafka producer, not to be called externally.  Used to log debug messages from successful sends
-   * and catch any exceptions from errors.
-   * @param metadata
-   * @param exception
+   * Completes the send of one row on the producer I/O thread: frees its place in the in-flight window and queues the
+   * row for the step thread.
    */
-  @Override
-  public void onCompletion( RecordMetadata metadata, Exception exception ) {
-    if ( null != metadata && log.isDebug() ) {
-      logDebug( metadata.toString() );
-    } else if ( null != exception ) {
-      logError( BaseMessages.getString( PKG, "KafkaProducer.Error.CallbackException" ), exception );
-      stopAll();
+  private class RowCallback implements Callback {
+    private final Object[] row;
+
+    RowCallback( Object[] row ) {
+      this.row = row;
+    }
+
+    @Override
+    public void onCompletion( RecordMetadata metadata, Exception exception ) {
+      if ( data.pendingSends != null ) {
+        data.pendingSends.release();
+      }
+      data.completedSends.add( new CompletedSend( row, exception ) );
+      if ( null != metadata && log.isDebug() ) {
+        logDebug( metadata.toString() );
+      }
+    }
+  }
+
+  static class CompletedSend {
+    final Object[] row;
+    /**
+     * Why the send failed, null when it was acknowledged.
+     */
+    final Exception exception;
+
+    CompletedSend( Object[] row, Exception exception ) {
+      this.row = row;
+      this.exception = exception;
     }
   }
 
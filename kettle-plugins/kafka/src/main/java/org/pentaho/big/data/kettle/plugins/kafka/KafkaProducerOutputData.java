@@ -17,11 +17,20 @@ import org.apache.kafka.clients.producer.Producer;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
+import java.util.Queue;
+import java.util.concurrent.Semaphore;
+
 public class KafkaProducerOutputData extends BaseStepData implements StepDataInterface {
   Producer<Object, Object> kafkaProducer;
   int keyFieldIndex;
   int messageFieldIndex;
   boolean isOpen;
+  String topic;
+  /**
+   * Places in the window of sends not yet acknowledged, null when the window is unbounded.
+   */
+  Semaphore pendingSends;
+  Queue<KafkaProducerOutput.CompletedSend> completedSends;
 
   public KafkaProducerOutputData() {
     super();
@@ -49,6 +49,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaLineageConstants.KAFKA_SERVER_METAVERSE;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaLineageConstants.KAFKA_TOPIC_METAVERSE;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaLineageConstants.KEY;
@@ -93,6 +94,13 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
   public static final String TOPIC = "topic";
   public static final String KEY_FIELD = "keyField";
   public static final String MESSAGE_FIELD = "messageField";
+  public static final String LINGER_MS = "lingerMs";
+  public static final String BATCH_SIZE = "batchSize";
+  public static final String COMPRESSION_TYPE = "compressionType";
+  public static final String ACKS = "acks";
+  public static final String MAX_IN_FLIGHT = "maxInFlight";
+  public static final String MAX_PENDING_SENDS = "maxPendingSends";
+  public static final String MAX_PENDING_SENDS_DEFAULT = "10000";
   public static final String ADVANCED_CONFIG = "advancedConfig";
   public static final String CONFIG_OPTION = "option";
   public static final String OPTION_PROPERTY = "property";
@@ -119,6 +127,24 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
   @Injection( name = "MESSAGE_FIELD" )
   private String messageField;
 
+  @Injection( name = "LINGER_MS" )
+  private String lingerMs;
+
+  @Injection( name = "BATCH_SIZE" )
+  private String batchSize;
+
+  @Injection( name = "COMPRESSION_TYPE" )
+  private String compressionType;
+
+  @Injection( name = "ACKS" )
+  private String acks;
+
+  @Injection( name = "MAX_IN_FLIGHT" )
+  private String maxInFlight;
+
+  @Injection( name = "MAX_PENDING_SENDS" )
+  private String maxPendingSends = MAX_PENDING_SENDS_DEFAULT;
+
   @Injection( name = "NAMES", group = "CONFIGURATION_PROPERTIES" )
   protected List<String> injectedConfigNames;
 
@@ -156,6 +182,13 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     setTopic( XMLHandler.getTagValue( stepnode, TOPIC ) );
     setKeyField( XMLHandler.getTagValue( stepnode, KEY_FIELD ) );
     setMessageField( XMLHandler.getTagValue( stepnode, MESSAGE_FIELD ) );
+    setLingerMs( XMLHandler.getTagValue( stepnode, LINGER_MS ) );
+    setBatchSize( XMLHandler.getTagValue( stepnode, BATCH_SIZE ) );
+    setCompressionType( XMLHandler.getTagValue( stepnode, COMPRESSION_TYPE ) );
+    setAcks( XMLHandler.getTagValue( stepnode, ACKS ) );
+    setMaxInFlight( XMLHandler.getTagValue( stepnode, MAX_IN_FLIGHT ) );
+    String maxPendingSendsValue = XMLHandler.getTagValue( stepnode, MAX_PENDING_SENDS );
+    setMaxPendingSends( isNullOrEmpty( maxPendingSendsValue ) ? MAX_PENDING_SENDS_DEFAULT : maxPendingSendsValue );
 
     config = new LinkedHashMap<>();
 
@@ -173,7 +206,8 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
   }
 
   @Override public void setDefault() {
-    // no defaults
+    // producer tuning left empty uses the Kafka defaults
+    maxPendingSends = MAX_PENDING_SENDS_DEFAULT;
   }
 
   @Override public void readRep( Repository rep, IMetaStore metaStore, ObjectId stepId, List<DatabaseMeta>
@@ -186,6 +220,13 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     setTopic( rep.getStepAttributeString( stepId, TOPIC ) );
     setKeyField( rep.getStepAttributeString( stepId, KEY_FIELD ) );
     setMessageField( rep.getStepAttributeString( stepId, MESSAGE_FIELD ) );
+    setLingerMs( rep.getStepAttributeString( stepId, LINGER_MS ) );
+    setBatchSize( rep.getStepAttributeString( stepId, BATCH_SIZE ) );
+    setCompressionType( rep.getStepAttributeString( stepId, COMPRESSION_TYPE ) );
+    setAcks( rep.getStepAttributeString( stepId, ACKS ) );
+    setMaxInFlight( rep.getStepAttributeString( stepId, MAX_IN_FLIGHT ) );
+    String maxPendingSendsValue = rep.getStepAttributeString( stepId, MAX_PENDING_SENDS );
+    setMaxPendingSends( isNullOrEmpty( maxPendingSendsValue ) ? MAX_PENDING_SENDS_DEFAULT : maxPendingSendsValue );
 
     config = new LinkedHashMap<>();
 
@@ -204,6 +245,12 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     rep.saveStepAttribute( transformationId, stepId, TOPIC, topicVal );
     rep.saveStepAttribute( transformationId, stepId, KEY_FIELD, keyField );
     rep.saveStepAttribute( transformationId, stepId, MESSAGE_FIELD, messageField );
+    rep.saveStepAttribute( transformationId, stepId, LINGER_MS, lingerMs );
+    rep.saveStepAttribute( transformationId, stepId, BATCH_SIZE, batchSize );
+    rep.saveStepAttribute( transformationId, stepId, COMPRESSION_TYPE, compressionType );
+    rep.saveStepAttribute( transformationId, stepId, ACKS, acks );
+    rep.saveStepAttribute( transformationId, stepId, MAX_IN_FLIGHT, maxInFlight );
+    rep.saveStepAttribute( transformationId, stepId, MAX_PENDING_SENDS, maxPendingSends );
 
     rep.saveStepAttribute( transformationId, stepId, ADVANCED_CONFIG + "_COUNT", getConfig().size() );
 
@@ -230,6 +277,13 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     return new KafkaProducerOutputData();
   }
 
+  /**
+   * Rows whose send fails can be routed to an error hop.
+   */
+  @Override public boolean supportsErrorHandling() {
+    return true;
+  }
+
   @SuppressWarnings( "deprecation" )
   public String getDialogClassName() {
     return "org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputDialog";
@@ -301,6 +355,74 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     this.messageField = messageField;
   }
 
+  /**
+   * @return the {@code linger.ms} of the producer, or empty for the Kafka default; may hold a variable
+   */
+  public String getLingerMs() {
+    return lingerMs;
+  }
+
+  public void setLingerMs( String lingerMs ) {
+    this.lingerMs = lingerMs;
+  }
+
+  /**
+   * @return the {@code batch.size} of the producer, or empty for the Kafka default; may hold a variable
+   */
+  public String getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize( String batchSize ) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return the {@code compression.type} of the producer, or empty for the Kafka default; may hold a variable
+   */
+  public String getCompressionType() {
+    return compressionType;
+  }
+
+  public void setCompressionType( String compressionType ) {
+    this.compressionType = compressionType;
+  }
+
+  /**
+   * @return the {@code acks} of the producer, or empty for the Kafka default; may hold a variable
+   */
+  public String getAcks() {
+    return acks;
+  }
+
+  public void setAcks( String acks ) {
+    this.acks = acks;
+  }
+
+  /**
+   * @return the {@code max.in.flight.requests.per.connection} of the producer, or empty for the Kafka default; may
+   * hold a variable
+   */
+  public String getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight( String maxInFlight ) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * @return how many rows may be sent and not yet acknowledged before the step waits for the producer; may hold a
+   * variable
+   */
+  public String getMaxPendingSends() {
+    return maxPendingSends;
+  }
+
+  public void setMaxPendingSends( String maxPendingSends ) {
+    this.maxPendingSends = maxPendingSends;
+  }
+
   public ConnectionType getConnectionType() {
     return connectionType;
   }
@@ -318,6 +440,12 @@ public class KafkaProducerOutputMeta extends BaseStepMeta implements StepMetaInt
     retval.append( "    " ).append( XMLHandler.addTagValue( CLIENT_ID, clientId ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( KEY_FIELD, keyField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( MESSAGE_FIELD, messageField ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( LINGER_MS, lingerMs ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( BATCH_SIZE, batchSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( COMPRESSION_TYPE, compressionType ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( ACKS, acks ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( MAX_IN_FLIGHT, maxInFlight ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( MAX_PENDING_SENDS, maxPendingSends ) );
     retval.append( "    " ).append( XMLHandler.openTag( ADVANCED_CONFIG ) ).append( Const.CR );
     getConfig().forEach( ( key, value ) -> retval.append( "        " )
        .append( XMLHandler.addTagValue( CONFIG_OPTION, "", true,
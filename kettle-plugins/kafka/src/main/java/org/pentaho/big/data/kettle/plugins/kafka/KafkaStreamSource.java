@@ -28,22 +28,20 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
-import static java.util.Comparator.comparingLong;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.maxBy;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaConsumerField.Name.OFFSET;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaConsumerField.Name.PARTITION;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaConsumerField.Name.TOPIC;
@@ -57,28 +55,39 @@ public class KafkaStreamSource extends BlockingQueueStreamSource<List<Object>> {
   private KafkaConsumerInputData kafkaConsumerInputData;
   private EnumMap<KafkaConsumerField.Name, Integer> positions;
 
-  private Consumer consumer;
+  private final List<Consumer> consumers;
   private final ExecutorService executorService = Executors.newCachedThreadPool();
-  private KafkaConsumerCallable callable;
-  private Future<Void> future;
+  private final List<KafkaConsumerCallable> callables = new ArrayList<>();
+  private final AtomicInteger runningCallables = new AtomicInteger();
+  private final List<Future<Void>> futures = new ArrayList<>();
 
   public KafkaStreamSource( Consumer consumer, KafkaConsumerInputMeta inputMeta,
                             KafkaConsumerInputData kafkaConsumerInputData, VariableSpace variables,
                             KafkaConsumerInput kafkaStep ) {
+    this( Collections.singletonList( consumer ), inputMeta, kafkaConsumerInputData, variables, kafkaStep );
+  }
+
+  /**
+   * Polls with several consumers of the same group, each on its own thread. The group spreads the partitions of the
+   * subscribed topics over the consumers, so records are deserialized and turned into rows in parallel.
+   */
+  public KafkaStreamSource( List<Consumer> consumers, KafkaConsumerInputMeta inputMeta,
+                            KafkaConsumerInputData kafkaConsumerInputData, VariableSpace variables,
+                            KafkaConsumerInput kafkaStep ) {
     super( kafkaStep );
     positions = new EnumMap<>( KafkaConsumerField.Name.class );
-    this.consumer = consumer;
+    this.consumers = consumers;
     this.variables = variables;
     this.kafkaConsumerInputData = kafkaConsumerInputData;
     this.kafkaConsumerInputMeta = inputMeta;
   }
 
   @Override public void close() {
-    callable.shutdown();
+    callables.forEach( KafkaConsumerCallable::shutdown );
   }
 
   @Override public void open()  {
-    if ( future != null ) {
+    if ( !futures.isEmpty() ) {
       logger.warn( "open() called more than once" );
       return;
     }
@@ -99,23 +108,51 @@ public class KafkaStreamSource extends BlockingQueueStreamSource<List<Object>> {
         match.ifPresent( name -> positions.put( name, idx ) );
       } );
 
-    callable = new KafkaConsumerCallable( consumer, super::close );
-    future = executorService.submit( callable );
+    // the stream ends once every consumer has stopped; when one of them stops, the others follow
+    runningCallables.set( consumers.size() );
+    boolean ownsAllPartitions = consumers.size() == 1;
+    consumers.forEach( consumer -> callables.add( new KafkaConsumerCallable( consumer, ownsAllPartitions, () -> {
+      close();
+      if ( runningCallables.decrementAndGet() == 0 ) {
+        super.close();
+      }
+    } ) ) );
+    callables.forEach( callable -> futures.add( executorService.submit( callable ) ) );
   }
 
   class KafkaConsumerCallable implements Callable<Void> {
     private final AtomicBoolean closed = new AtomicBoolean( false );
     private final Consumer consumer;
+    private final boolean ownsAllPartitions;
     private Runnable onClose;
-    private ConcurrentLinkedQueue<Map<TopicPartition, OffsetAndMetadata>> toCommit = new ConcurrentLinkedQueue<>();
+    /**
+     * Offsets of the windows finished since the last commit, guarded by its own lock.
+     */
+    private final KafkaOffsetTracker toCommit = new KafkaOffsetTracker();
+    /**
+     * Every offset handed to this consumer, committed synchronously on shutdown. Only used by the polling thread.
+     */
+    private final KafkaOffsetTracker latest = new KafkaOffsetTracker();
+    private final KafkaOffsetTracker committing = new KafkaOffsetTracker();
 
     public KafkaConsumerCallable( Consumer consumer, Runnable onClose ) {
+      this( consumer, true, onClose );
+    }
+
+    /**
+     * @param ownsAllPartitions false when other consumers of the group share the partitions; offsets are then only
+     *                          committed for the partitions currently assigned to this consumer
+     */
+    public KafkaConsumerCallable( Consumer consumer, boolean ownsAllPartitions, Runnable onClose ) {
       this.consumer = consumer;
+      this.ownsAllPartitions = ownsAllPartitions;
       this.onClose = onClose;
     }
 
-    public void queueCommit( Map<TopicPartition, OffsetAndMetadata> offsets ) {
-      toCommit.add( offsets );
+    public void queueCommit( KafkaOffsetTracker offsets ) {
+      synchronized ( toCommit ) {
+        toCommit.trackAll( offsets );
+      }
     }
 
     @Override public Void call() {
@@ -143,41 +180,89 @@ public class KafkaStreamSource extends BlockingQueueStreamSource<List<Object>> {
         KafkaStreamSource.this.streamStep.logError( "Exception consuming messages.", ef );
         return null;
       } finally {
-        commitOffsets();
+        commitFinalOffsets();
+        closed.set( true );
         consumer.close();
         onClose.run();
       }
     }
 
+    /**
+     * Commits the offsets of every window finished since the last poll in one asynchronous request, so that the
+     * commit does not hold up the next poll.
+     */
+    @SuppressWarnings( "unchecked" )
     private void commitOffsets() {
-      while ( !toCommit.isEmpty() ) {
-        consumer.commitSync( toCommit.poll() );
+      synchronized ( toCommit ) {
+        if ( toCommit.isEmpty() ) {
+          return;
+        }
+        committing.trackAll( toCommit );
+        toCommit.clear();
+      }
+      latest.trackAll( committing );
+      Map<TopicPartition, OffsetAndMetadata> offsets = committing.toCommit( ownedPartitions() );
+      committing.clear();
+      if ( !offsets.isEmpty() ) {
+        // a failed commit is covered by the next one, which carries the same or higher offsets
+        consumer.commitAsync( offsets, ( committed, e ) -> {
+          if ( e != null ) {
+            KafkaStreamSource.this.streamStep.logError( "Exception committing offsets " + committed, e );
+          }
+        } );
       }
     }
 
+    /**
+     * Waits for the offsets handed to this consumer to be committed before it is closed.
+     */
+    private void commitFinalOffsets() {
+      try {
+        commitOffsets();
+        Map<TopicPartition, OffsetAndMetadata> offsets = latest.toCommit( ownedPartitions() );
+        if ( !offsets.isEmpty() ) {
+          try {
+            consumer.commitSync( offsets );
+          } catch ( WakeupException e ) {
+            // the wakeup from shutdown() was still pending when the consumer left poll(), and the throw consumed it
+            consumer.commitSync( offsets );
+          }
+        }
+      } catch ( Exception e ) {
+        KafkaStreamSource.this.streamStep.logError( "Exception committing offsets.", e );
+      }
+    }
+
+    /**
+     * @return the partitions this consumer may commit, or null when it is the only consumer of the step; a partition
+     * moved to another consumer by a rebalance is committed by its new owner
+     */
+    @SuppressWarnings( "unchecked" )
+    private Set<TopicPartition> ownedPartitions() {
+      return ownsAllPartitions ? null : consumer.assignment();
+    }
+
     // Shutdown hook which can be called from a separate thread
     public void shutdown() {
-      closed.set( true );
-      consumer.wakeup();
+      if ( closed.compareAndSet( false, true ) ) {
+        consumer.wakeup();
+      }
     }
 
   }
 
   public void commitOffsets( List<List<Object>> rows ) {
-    Map<Object, Map<Object, Optional<List<Object>>>> maxRows = rows.stream().collect(
-      groupingBy(
-        row -> row.get( positions.get( TOPIC ) ),
-        groupingBy(
-          row -> row.get( positions.get( PARTITION ) ),
-          maxBy( comparingLong( row -> (long) row.get( positions.get( OFFSET ) ) ) ) ) ) );
-
-    Map<TopicPartition, OffsetAndMetadata> offsets =
-      maxRows.values().stream().flatMap( m -> m.values().stream() ).map( Optional::get ).collect(
-        Collectors.toMap( row -> new TopicPartition( (String) row.get( positions.get( TOPIC ) ),
-            ( (Long) row.get( positions.get( PARTITION ) ) ).intValue() ),
-          row -> new OffsetAndMetadata( (long) row.get( positions.get( OFFSET ) ) + 1 ) )
-      );
-    callable.queueCommit( offsets );
+    int topicIdx = positions.get( TOPIC );
+    int partitionIdx = positions.get( PARTITION );
+    int offsetIdx = positions.get( OFFSET );
+
+    KafkaOffsetTracker offsets = new KafkaOffsetTracker();
+    for ( List<Object> row : rows ) {
+      offsets.track( (String) row.get( topicIdx ), ( (Long) row.get( partitionIdx ) ).intValue(),
+        (Long) row.get( offsetIdx ) );
+    }
+    // every consumer gets the offsets and commits those of the partitions it owns
+    callables.forEach( callable -> callable.queueCommit( offsets ) );
   }
 
   List<Object> processMessageAsRow( ConsumerRecord<String, String> record ) {
@@ -295,6 +295,7 @@ public class KafkaConsumerInputMetaTest {
         + "    <connectionType>DIRECT</connectionType>" + Const.CR
         + "    <directBootstrapServers>localhost:888</directBootstrapServers>" + Const.CR
         + "    <AUTO_COMMIT>Y</AUTO_COMMIT>" + Const.CR
+        + "    <consumerThreads>1</consumerThreads>" + Const.CR
         + "    <OutputField kafkaName=\"key\"  type=\"String\" >kafkaKey</OutputField>" + Const.CR
         + "    <OutputField kafkaName=\"message\"  type=\"String\" >kafkaMessage</OutputField>" + Const.CR
         + "    <OutputField kafkaName=\"topic\"  type=\"String\" >topic</OutputField>" + Const.CR
@@ -22,6 +22,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -53,9 +54,9 @@ import org.pentaho.di.trans.steps.abort.AbortMeta;
 import org.pentaho.metastore.locator.api.MetastoreLocator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -69,11 +70,14 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaConsumerField.Type.String;
@@ -181,6 +185,76 @@ public class KafkaConsumerInputTest {
     verify( consumer ).subscribe( topics );
   }
 
+  @Test
+  public void testConsumerThreadsCommitTheirOwnPartitions() {
+    meta.setConsumerGroup( "testGroup" );
+    meta.setKafkaFactory( factory );
+    meta.setBatchDuration( "0" );
+    meta.setAutoCommit( false );
+    meta.setConsumerThreads( "2" );
+    TopicPartition otherPartition = new TopicPartition( topic.topic(), 1 );
+    Consumer otherConsumer = mock( Consumer.class );
+
+    step = new KafkaConsumerInput( stepMeta, data, 1, transMeta, trans );
+    when( factory.consumer( eq( meta ), any(), eq( meta.getKeyField().getOutputType() ),
+            eq( meta.getMessageField().getOutputType() ) ) ).thenReturn( consumer ).thenReturn( otherConsumer );
+    when( factory.checkKafkaConnectionStatus( any( KafkaConsumerInputMeta.class ), any( Variables.class )
+            ,any( LogChannelInterface.class ) ) ).thenReturn( true );
+    when( consumer.poll( 1000 ) ).thenReturn( new ConsumerRecords<>( Collections.emptyMap() ) );
+    when( otherConsumer.poll( 1000 ) ).thenReturn( new ConsumerRecords<>( Collections.emptyMap() ) );
+    when( consumer.assignment() ).thenReturn( Collections.singleton( topic ) );
+    when( otherConsumer.assignment() ).thenReturn( Collections.singleton( otherPartition ) );
+
+    step.init( meta, data );
+    verify( consumer ).subscribe( Collections.singleton( topic.topic() ) );
+    verify( otherConsumer ).subscribe( Collections.singleton( topic.topic() ) );
+
+    KafkaStreamSource source = (KafkaStreamSource) step.getSource();
+    source.open();
+    source.commitOffsets( Arrays.asList( row( topic, 3 ), row( otherPartition, 7 ) ) );
+    source.close();
+
+    // each partition is committed by the consumer it is assigned to
+    verify( consumer, timeout( 5000 ) ).close();
+    verify( otherConsumer, timeout( 5000 ) ).close();
+    verify( consumer ).commitSync( Collections.singletonMap( topic, new OffsetAndMetadata( 4 ) ) );
+    verify( otherConsumer ).commitSync( Collections.singletonMap( otherPartition, new OffsetAndMetadata( 8 ) ) );
+  }
+
+  @Test
+  public void testFinalCommitIsRetriedAfterAPendingWakeup() {
+    meta.setConsumerGroup( "testGroup" );
+    meta.setKafkaFactory( factory );
+    meta.setBatchDuration( "0" );
+    meta.setAutoCommit( false );
+
+    step = new KafkaConsumerInput( stepMeta, data, 1, transMeta, trans );
+    when( factory.consumer( eq( meta ), any(), eq( meta.getKeyField().getOutputType() ),
+            eq( meta.getMessageField().getOutputType() ) ) ).thenReturn( consumer );
+    when( factory.checkKafkaConnectionStatus( any( KafkaConsumerInputMeta.class ), any( Variables.class )
+            ,any( LogChannelInterface.class ) ) ).thenReturn( true );
+    when( consumer.poll( 1000 ) ).thenReturn( new ConsumerRecords<>( Collections.emptyMap() ) );
+    Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap( topic, new OffsetAndMetadata( 4 ) );
+    doThrow( new WakeupException() ).doNothing().when( consumer ).commitSync( offsets );
+
+    step.init( meta, data );
+    KafkaStreamSource source = (KafkaStreamSource) step.getSource();
+    source.open();
+    source.commitOffsets( Collections.singletonList( row( topic, 3 ) ) );
+    source.close();
+
+    verify( consumer, timeout( 5000 ) ).close();
+    verify( consumer, times( 2 ) ).commitSync( offsets );
+  }
+
+  private List<Object> row( TopicPartition partition, long offset ) {
+    Object[] row = new Object[ data.outputRowMeta.size() ];
+    row[ data.outputRowMeta.indexOfValue( meta.getTopicField().getOutputName() ) ] = partition.topic();
+    row[ data.outputRowMeta.indexOfValue( meta.getPartitionField().getOutputName() ) ] = (long) partition.partition();
+    row[ data.outputRowMeta.indexOfValue( meta.getOffsetField().getOutputName() ) ] = offset;
+    return Arrays.asList( row );
+  }
+
   @Test
   public void testInitWithRepository() throws Exception {
     final Repository repository = mock( Repository.class );
@@ -375,11 +449,9 @@ public class KafkaConsumerInputTest {
     verifyRow( "key_2", "value_2", "2", "1", times( 1 ) );
     verifyRow( "key_3", "value_3", "3", "2", times( 1 ) );
     assertEquals( 4, trans.getSteps().get( 0 ).step.getLinesWritten() );
-    Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>();
-    map.put( topic, new OffsetAndMetadata( 2 ) );
-    verify( consumer ).commitSync( map );
-    map.put( topic, new OffsetAndMetadata( 4 ) );
-    verify( consumer ).commitSync( map );
+    // windows are committed asynchronously as they finish, the last offsets once more on shutdown
+    verify( consumer, atLeastOnce() ).commitAsync( any(), any() );
+    verify( consumer ).commitSync( Collections.singletonMap( topic, new OffsetAndMetadata( 4 ) ) );
   }
 
   @Test
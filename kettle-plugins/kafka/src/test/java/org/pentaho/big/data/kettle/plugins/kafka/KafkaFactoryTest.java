@@ -203,6 +203,34 @@ public class KafkaFactoryTest {
     Mockito.verify( producerFun ).apply( expectedMap  );
   }
 
+  @Test
+  public void testMapsProducerTuning() {
+    outputMeta.setClientId( "client" );
+    outputMeta.setLingerMs( "20" );
+    outputMeta.setBatchSize( "" );
+    outputMeta.setCompressionType( "lz4" );
+    outputMeta.setAcks( "1" );
+    outputMeta.setMaxInFlight( "5" );
+
+    Map<String, String> advancedConfig = new LinkedHashMap<>();
+    advancedConfig.put( ProducerConfig.ACKS_CONFIG, "all" );
+    outputMeta.setConfig( advancedConfig );
+
+    new KafkaFactory( consumerFun, producerFun ).producer( outputMeta, Function.identity() );
+    Map<String, Object> expectedMap = new HashMap<>();
+    expectedMap.put( ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "server:1234" );
+    expectedMap.put( ProducerConfig.CLIENT_ID_CONFIG, "client" );
+    expectedMap.put( ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class );
+    expectedMap.put( ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class );
+    expectedMap.put( ProducerConfig.LINGER_MS_CONFIG, "20" );
+    expectedMap.put( ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4" );
+    expectedMap.put( ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, "5" );
+    // the advanced options win over the tuning fields
+    expectedMap.put( ProducerConfig.ACKS_CONFIG, "all" );
+
+    Mockito.verify( producerFun ).apply( expectedMap  );
+  }
+
   @Test
   public void testMapsProducersWithSerializer() {
     outputMeta.setTopic( "topic" );
@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KafkaOffsetTrackerTest {
+
+  @Test
+  public void testCommitsOnePastHighestOffsetPerPartition() {
+    KafkaOffsetTracker tracker = new KafkaOffsetTracker();
+    assertTrue( tracker.isEmpty() );
+    tracker.track( "one", 0, 5 );
+    tracker.track( "one", 0, 3 );
+    tracker.track( "one", 40, 7 );
+    tracker.track( "two", 1, 0 );
+    assertFalse( tracker.isEmpty() );
+
+    Map<TopicPartition, OffsetAndMetadata> expected = new HashMap<>();
+    expected.put( new TopicPartition( "one", 0 ), new OffsetAndMetadata( 6 ) );
+    expected.put( new TopicPartition( "one", 40 ), new OffsetAndMetadata( 8 ) );
+    expected.put( new TopicPartition( "two", 1 ), new OffsetAndMetadata( 1 ) );
+    assertEquals( expected, tracker.toCommit( null ) );
+
+    tracker.clear();
+    assertTrue( tracker.isEmpty() );
+    assertTrue( tracker.toCommit( null ).isEmpty() );
+  }
+
+  @Test
+  public void testTrackAllKeepsHighestOffsets() {
+    KafkaOffsetTracker tracker = new KafkaOffsetTracker();
+    tracker.track( "topic", 0, 10 );
+    tracker.track( "topic", 1, 2 );
+    KafkaOffsetTracker other = new KafkaOffsetTracker();
+    other.track( "topic", 0, 4 );
+    other.track( "topic", 1, 9 );
+
+    tracker.trackAll( other );
+
+    Map<TopicPartition, OffsetAndMetadata> expected = new HashMap<>();
+    expected.put( new TopicPartition( "topic", 0 ), new OffsetAndMetadata( 11 ) );
+    expected.put( new TopicPartition( "topic", 1 ), new OffsetAndMetadata( 10 ) );
+    assertEquals( expected, tracker.toCommit( null ) );
+  }
+
+  @Test
+  public void testToCommitKeepsAssignedPartitionsOnly() {
+    KafkaOffsetTracker tracker = new KafkaOffsetTracker();
+    tracker.track( "topic", 0, 1 );
+    tracker.track( "topic", 1, 1 );
+    TopicPartition assigned = new TopicPartition( "topic", 1 );
+    assertEquals( Collections.singletonMap( assigned, new OffsetAndMetadata( 2 ) ),
+      tracker.toCommit( Collections.singleton( assigned ) ) );
+  }
+}
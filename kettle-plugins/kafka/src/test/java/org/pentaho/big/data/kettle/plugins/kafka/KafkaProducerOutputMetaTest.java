@@ -42,6 +42,7 @@ import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
@@ -50,14 +51,18 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.ACKS;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.ADVANCED_CONFIG;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.CLIENT_ID;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.CLUSTER_NAME;
+import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.COMPRESSION_TYPE;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.CONNECTION_TYPE;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.ConnectionType.CLUSTER;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.ConnectionType.DIRECT;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.DIRECT_BOOTSTRAP_SERVERS;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.KEY_FIELD;
+import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.MAX_PENDING_SENDS;
+import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.MAX_PENDING_SENDS_DEFAULT;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.MESSAGE_FIELD;
 import static org.pentaho.big.data.kettle.plugins.kafka.KafkaProducerOutputMeta.TOPIC;
 
@@ -119,6 +124,8 @@ public class KafkaProducerOutputMetaTest {
     assertEquals( "one", meta.getTopic() );
     assertEquals( "three", meta.getKeyField() );
     assertEquals( "four", meta.getMessageField() );
+    assertNull( meta.getLingerMs() );
+    assertEquals( MAX_PENDING_SENDS_DEFAULT, meta.getMaxPendingSends() );
 
     assertEquals( 2, meta.getConfig().size() );
     assertTrue( meta.getConfig().containsKey( "advanced.property1" ) );
@@ -137,6 +144,11 @@ public class KafkaProducerOutputMetaTest {
     meta.setTopic( "myTopic" );
     meta.setKeyField( "fieldOne" );
     meta.setMessageField( "message" );
+    meta.setLingerMs( "5" );
+    meta.setBatchSize( "65536" );
+    meta.setCompressionType( "lz4" );
+    meta.setAcks( "all" );
+    meta.setMaxInFlight( "${inFlight}" );
 
     Map<String, String> advancedConfig = new LinkedHashMap<>();
     advancedConfig.put( "advanced.property1", "advancedPropertyValue1" );
@@ -158,6 +170,12 @@ public class KafkaProducerOutputMetaTest {
         + "    <clientId>id1</clientId>" + Const.CR
         + "    <keyField>fieldOne</keyField>" + Const.CR
         + "    <messageField>message</messageField>" + Const.CR
+        + "    <lingerMs>5</lingerMs>" + Const.CR
+        + "    <batchSize>65536</batchSize>" + Const.CR
+        + "    <compressionType>lz4</compressionType>" + Const.CR
+        + "    <acks>all</acks>" + Const.CR
+        + "    <maxInFlight>${inFlight}</maxInFlight>" + Const.CR
+        + "    <maxPendingSends>10000</maxPendingSends>" + Const.CR
         + "    <advancedConfig>" + Const.CR
         + "        <option property=\"advanced.property1\"  value=\"advancedPropertyValue1\" />" + Const.CR
         + "        <option property=\"advanced.property2\"  value=\"advancedPropertyValue2\" />" + Const.CR
@@ -177,6 +195,8 @@ public class KafkaProducerOutputMetaTest {
     when( rep.getStepAttributeString( stepId, TOPIC ) ).thenReturn( "readings" );
     when( rep.getStepAttributeString( stepId, KEY_FIELD ) ).thenReturn( "machineId" );
     when( rep.getStepAttributeString( stepId, MESSAGE_FIELD ) ).thenReturn( "reading" );
+    when( rep.getStepAttributeString( stepId, COMPRESSION_TYPE ) ).thenReturn( "snappy" );
+    when( rep.getStepAttributeString( stepId, MAX_PENDING_SENDS ) ).thenReturn( "500" );
 
     when( rep.getStepAttributeInteger( stepId, ADVANCED_CONFIG + "_COUNT" ) ).thenReturn( 2L );
     when( rep.getStepAttributeString( stepId, 0, ADVANCED_CONFIG + "_NAME" ) ).thenReturn( "advanced.config1" );
@@ -193,6 +213,8 @@ public class KafkaProducerOutputMetaTest {
     assertEquals( "readings", meta.getTopic() );
     assertEquals( "machineId", meta.getKeyField() );
     assertEquals( "reading", meta.getMessageField() );
+    assertEquals( "snappy", meta.getCompressionType() );
+    assertEquals( "500", meta.getMaxPendingSends() );
 
     assertThat( meta.getConfig().size(), is( 2 ) );
     assertThat( meta.getConfig(), Matchers.hasEntry( "advanced.config1", "advancedPropertyValue1" ) );
@@ -211,6 +233,7 @@ public class KafkaProducerOutputMetaTest {
     meta.setTopic( "temperature" );
     meta.setKeyField( "kafkaKey" );
     meta.setMessageField( "kafkaMessage" );
+    meta.setAcks( "1" );
 
     Map<String, String> advancedConfig = new LinkedHashMap<>();
     advancedConfig.put( "advanced.property1", "advancedPropertyValue1" );
@@ -225,6 +248,8 @@ public class KafkaProducerOutputMetaTest {
     verify( rep ).saveStepAttribute( transId, stepId, TOPIC, "temperature" );
     verify( rep ).saveStepAttribute( transId, stepId, KEY_FIELD, "kafkaKey" );
     verify( rep ).saveStepAttribute( transId, stepId, MESSAGE_FIELD, "kafkaMessage" );
+    verify( rep ).saveStepAttribute( transId, stepId, ACKS, "1" );
+    verify( rep ).saveStepAttribute( transId, stepId, MAX_PENDING_SENDS, MAX_PENDING_SENDS_DEFAULT );
 
     verify( rep, times( 1 ) ).saveStepAttribute( transId, stepId, ADVANCED_CONFIG + "_COUNT", 2 );
     verify( rep ).saveStepAttribute( transId, stepId, 0, ADVANCED_CONFIG + "_NAME", "advanced.property1" );
@@ -13,6 +13,7 @@
 
 package org.pentaho.big.data.kettle.plugins.kafka;
 
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.BeforeClass;
@@ -25,14 +26,21 @@ import org.pentaho.di.core.KettleClientEnvironment;
 import org.pentaho.di.core.Props;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.RowAdapter;
 import org.pentaho.di.trans.step.StepMetaDataCombi;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -74,7 +82,7 @@ public class KafkaProducerOutputTest {
 
     trans.startThreads();
     trans.waitUntilFinished();
-    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( new ProducerRecord<>( "kurt", "one", "winning" ), step );
+    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( eq( new ProducerRecord<>( "kurt", "one", "winning" ) ), any( Callback.class ) );
     Mockito.verify( kafkaProducer, Mockito.times( 1 ) ).close();
     assertEquals( 4, trans.getSteps().get( 1 ).step.getLinesOutput() );
   }
@@ -95,7 +103,7 @@ public class KafkaProducerOutputTest {
 
     trans.startThreads();
     trans.waitUntilFinished();
-    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( new ProducerRecord<>( "kurt", "winning" ), step );
+    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( eq( new ProducerRecord<>( "kurt", "winning" ) ), any( Callback.class ) );
     Mockito.verify( kafkaProducer, Mockito.times( 1 ) ).close();
     assertEquals( 4, trans.getSteps().get( 1 ).step.getLinesOutput() );
   }
@@ -116,7 +124,7 @@ public class KafkaProducerOutputTest {
 
     trans.startThreads();
     trans.waitUntilFinished();
-    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( new ProducerRecord<>( "akastenka", "msg" ), step );
+    Mockito.verify( kafkaProducer, Mockito.times( 4 ) ).send( eq( new ProducerRecord<>( "akastenka", "msg" ) ), any( Callback.class ) );
     Mockito.verify( kafkaProducer, Mockito.times( 1 ) ).close();
     assertEquals( 4, trans.getSteps().get( 1 ).step.getLinesOutput() );
   }
@@ -142,4 +150,67 @@ public class KafkaProducerOutputTest {
     verify( kafkaProducer ).close();
   }
 
+  @Test
+  public void testRowsArePassedOnOnceTheirSendIsAcknowledged() throws Exception {
+    TransMeta transMeta = new TransMeta( getClass().getResource( "/produceFourRows.ktr" ).getPath() );
+    Trans trans = new Trans( transMeta );
+    trans.setVariable( "keyField", "key" );
+    trans.setVariable( "messageField", "message" );
+    trans.setVariable( "topic", "kurt" );
+    trans.prepareExecution( new String[]{} );
+
+    StepMetaDataCombi combi = trans.getSteps().get( 1 );
+    KafkaProducerOutput step = (KafkaProducerOutput) combi.step;
+
+    List<Callback> pending = new ArrayList<>();
+    when( kafkaFactory.producer( any(), any(), any(), any() ) ).thenReturn( kafkaProducer );
+    when( kafkaProducer.send( any(), any() ) ).then( invocation -> {
+      pending.add( invocation.getArgument( 1 ) );
+      return null; } );
+    doAnswer( invocation -> {
+      pending.forEach( callback -> callback.onCompletion( null, null ) );
+      pending.clear();
+      return null; } ).when( kafkaProducer ).flush();
+
+    List<Object[]> written = new ArrayList<>();
+    step.addRowListener( new RowAdapter() {
+      @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        // no row is passed on before its send completes
+        assertTrue( pending.isEmpty() );
+        written.add( row );
+      }
+    } );
+
+    step.setKafkaFactory( kafkaFactory );
+    trans.startThreads();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+    assertEquals( 4, step.getLinesOutput() );
+    assertEquals( 4, written.size() );
+  }
+
+  @Test
+  public void testFailedSendStopsTransWithoutErrorHandling() throws Exception {
+    TransMeta transMeta = new TransMeta( getClass().getResource( "/produceFourRows.ktr" ).getPath() );
+    Trans trans = new Trans( transMeta );
+    trans.setVariable( "keyField", "key" );
+    trans.setVariable( "messageField", "message" );
+    trans.setVariable( "topic", "kurt" );
+    trans.prepareExecution( new String[]{} );
+
+    StepMetaDataCombi combi = trans.getSteps().get( 1 );
+    KafkaProducerOutput step = (KafkaProducerOutput) combi.step;
+
+    when( kafkaFactory.producer( any(), any(), any(), any() ) ).thenReturn( kafkaProducer );
+    when( kafkaProducer.send( any(), any() ) ).then( invocation -> {
+      ( (Callback) invocation.getArgument( 1 ) ).onCompletion( null, new RuntimeException( "broker down" ) );
+      return null; } );
+
+    step.setKafkaFactory( kafkaFactory );
+    trans.startThreads();
+    trans.waitUntilFinished();
+    assertTrue( trans.getErrors() > 0 );
+    verify( kafkaProducer ).close();
+  }
+
 }
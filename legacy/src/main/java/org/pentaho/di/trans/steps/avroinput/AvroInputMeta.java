@@ -197,7 +197,72 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
                                  // row structure
     private ValueMeta m_tempValueMeta;
     private List<String> m_pathParts;
-    private List<String> m_tempParts;
+
+    /** true if the path parts reference variables, so have to be resolved for every value */
+    private boolean m_pathHasVariables;
+
+    /** the path parts the compiled path was made from, after variable substitution */
+    private List<String> m_resolvedParts;
+
+    /** the compiled path, null until the field is reset */
+    private PathStep[] m_path;
+
+    /** the next step of the compiled path to follow */
+    private int m_nextStep;
+
+    /**
+     * One step of a compiled path: a named field of a record, or a key/index of a map/array. The field of a record is
+     * kept for the last schema it was looked up in, so it is only looked up again when the schema changes.
+     */
+    private static final class PathStep {
+
+      /** the rest of the path part at this step */
+      final String m_part;
+
+      /** true for a map key/array index */
+      final boolean m_bracketed;
+
+      /** the name of the record field or the map key/array index, null if the brackets are not closed */
+      final String m_name;
+
+      final Utf8 m_key;
+      final boolean m_isIndex;
+      final int m_index;
+
+      Schema m_schema;
+      Schema.Field m_field;
+
+      PathStep( String part, boolean bracketed, String name ) {
+        m_part = part;
+        m_bracketed = bracketed;
+        m_name = name;
+        m_key = bracketed && name != null ? new Utf8( name ) : null;
+
+        int index = 0;
+        boolean isIndex = false;
+        if ( m_key != null ) {
+          try {
+            index = Integer.parseInt( name.trim() );
+            isIndex = true;
+          } catch ( NumberFormatException e ) {
+            // only a map key
+          }
+        }
+        m_isIndex = isIndex;
+        m_index = index;
+      }
+
+      /**
+       * @return the field of the record schema with the name of this step
+       */
+      Schema.Field getField( Schema s ) {
+        if ( m_schema != s ) {
+          m_field = s.getField( m_name );
+          m_schema = s;
+        }
+        return m_field;
+      }
+    }
 
     /**
      * Initialize this field by parsing the path etc.
@@ -232,7 +297,11 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         m_pathParts.set( 0, r );
       }
 
-      m_tempParts = new ArrayList<String>();
+      for ( String part : m_pathParts ) {
+        if ( part.contains( "${" ) || part.contains( "%%" ) || part.contains( "$[" ) ) {
+          m_pathHasVariables = true;
+        }
+      }
 
       m_tempValueMeta = new ValueMeta();
       m_tempValueMeta.setType( ValueMeta.getType( m_kettleType ) );
@@ -246,14 +315,69 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
      *          environment variables (values that environment variables resolve to cannot contain "."s)
      */
     public void reset( VariableSpace space ) {
-      // first clear because there may be stuff left over from processing
-      // the previous avro object (especially if a path exited early due to
+      // the path is only compiled again if the variables it references now
+      // resolve to something else (e.g. lookup fields set from the incoming row)
+      if ( m_path == null || m_pathHasVariables ) {
+        List<String> resolved = new ArrayList<String>( m_pathParts.size() );
+        for ( String part : m_pathParts ) {
+          resolved.add( space.environmentSubstitute( part ) );
+        }
+        if ( m_path == null || !resolved.equals( m_resolvedParts ) ) {
+          m_resolvedParts = resolved;
+          m_path = compilePath( resolved );
+        }
+      }
+
+      // start again from the top, whatever was left over from processing the
+      // previous avro object (especially if a path exited early due to
       // non-existent map key or array index out of bounds)
-      m_tempParts.clear();
+      m_nextStep = 0;
+    }
 
-      for ( String part : m_pathParts ) {
-        m_tempParts.add( space.environmentSubstitute( part ) );
+    /**
+     * Splits the path parts into the record field names and the map keys/array indexes that are followed one after the
+     * other, e.g. "person[0][key]" into "person", "[0]" and "[key]".
+     *
+     * @param parts
+     *          the path parts
+     * @return the steps of the path
+     */
+    private static PathStep[] compilePath( List<String> parts ) {
+      List<PathStep> steps = new ArrayList<PathStep>();
+      for ( String part : parts ) {
+        while ( part != null ) {
+          if ( part.length() > 0 && part.charAt( 0 ) == '[' ) {
+            int close = part.indexOf( ']' );
+            steps.add( new PathStep( part, true, close < 0 ? null : part.substring( 1, close ) ) );
+
+            // more dimensions to the array/map
+            part = close >= 0 && close < part.length() - 1 ? part.substring( close + 1 ) : null;
+          } else {
+            int open = part.indexOf( '[' );
+            steps.add( new PathStep( part, false, open > 0 ? part.substring( 0, open ) : part ) );
+            part = open > 0 ? part.substring( open ) : null;
+          }
+        }
+      }
+      return steps.toArray( new PathStep[steps.size()] );
+    }
+
+    /**
+     * @return the next step of the path, or null if the path has been followed to its end
+     */
+    private PathStep nextStep() {
+      return m_path == null || m_nextStep >= m_path.length ? null : m_path[m_nextStep++];
+    }
+
+    /**
+     * @return the path parts that have not been followed yet
+     */
+    private List<String> remainingParts() {
+      List<String> remaining = new ArrayList<String>();
+      for ( int i = m_nextStep; m_path != null && i < m_path.length; i++ ) {
+        remaining.add( m_path[i].m_part );
       }
+      return remaining;
     }
 
     /**
@@ -371,24 +495,16 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      PathStep step = nextStep();
+      if ( step == null ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap2", part ) );
-      }
-
-      String key = part.substring( 1, part.indexOf( ']' ) );
-
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array/map
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
+      if ( !step.m_bracketed || step.m_key == null ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap2", step.m_part ) );
       }
 
-      Object value = map.get( new Utf8( key ) );
+      Object value = map.get( step.m_key );
       if ( value == null ) {
         return null;
       }
@@ -464,28 +580,20 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      PathStep step = nextStep();
+      if ( step == null ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray2", part ) );
-      }
-
-      String index = part.substring( 1, part.indexOf( ']' ) );
-      int arrayI = 0;
-      try {
-        arrayI = Integer.parseInt( index.trim() );
-      } catch ( NumberFormatException e ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.UnableToParseArrayIndex", index ) );
+      if ( !step.m_bracketed || step.m_key == null ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray2", step.m_part ) );
       }
 
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
+      if ( !step.m_isIndex ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.UnableToParseArrayIndex",
+            step.m_name ) );
       }
+      int arrayI = step.m_index;
 
       if ( arrayI >= array.size() || arrayI < 0 ) {
         return null;
@@ -567,29 +675,24 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      PathStep step = nextStep();
+      if ( step == null ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathRecord" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( part.charAt( 0 ) == '[' ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.InvalidPath" ) + m_tempParts );
-      }
-
-      if ( part.indexOf( '[' ) > 0 ) {
-        String arrayPart = part.substring( part.indexOf( '[' ) );
-        part = part.substring( 0, part.indexOf( '[' ) );
-
-        // put the array section back into location zero
-        m_tempParts.add( 0, arrayPart );
+      if ( step.m_bracketed ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.InvalidPath" ) + remainingParts() );
       }
 
       // part is a named field of the record
-      Schema.Field fieldS = s.getField( part );
+      String part = step.m_name;
+      Schema.Field fieldS = step.getField( s );
       if ( fieldS == null && !ignoreMissing ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.NonExistentField", part ) );
       }
-      Object field = record.get( part );
+
+      // read by position when the record is of the schema the field was found in
+      Object field = fieldS != null && record.getSchema() == s ? record.get( fieldS.pos() ) : record.get( part );
 
       if ( field == null ) {
         fieldS = defaultSchema.getField( part );
@@ -235,6 +235,27 @@ public class AvroInputMetaAvroFieldTest {
     assertEquals( testString, avroField.convertToKettleValue( map, schema, mock( Schema.class ), false ) );
   }
 
+  @Test
+  public void testConvertToKettleValueMapOfArraysFollowsResolvedPath() throws KettleException {
+    avroField.m_kettleType = "String";
+    avroField.m_fieldPath = "[${key}][1]";
+    avroField.init( 0 );
+    Schema schema = Schema.createMap( Schema.createArray( Schema.create( Schema.Type.STRING ) ) );
+    Map<Utf8, Object> map = new HashMap<Utf8, Object>();
+    map.put( new Utf8( "a" ), new GenericData.Array<Object>( schema.getValueType(), Arrays.<Object>asList( "a0", "a1" ) ) );
+    map.put( new Utf8( "b" ), new GenericData.Array<Object>( schema.getValueType(), Arrays.<Object>asList( "b0", "b1" ) ) );
+
+    variableSpaceMap.put( "[${key}][1]", "[a][1]" );
+    avroField.reset( variableSpace );
+    assertEquals( "a1", avroField.convertToKettleValue( map, schema, schema, false ) );
+    avroField.reset( variableSpace );
+    assertEquals( "a1", avroField.convertToKettleValue( map, schema, schema, false ) );
+
+    variableSpaceMap.put( "[${key}][1]", "[b][1]" );
+    avroField.reset( variableSpace );
+    assertEquals( "b1", avroField.convertToKettleValue( map, schema, schema, false ) );
+  }
+
   @Test
   public void testConvertToKettleValueArrayNull() throws KettleException {
     assertNull( avroField.convertToKettleValue( (GenericData.Array) null, null, mock( Schema.class ), false ) );
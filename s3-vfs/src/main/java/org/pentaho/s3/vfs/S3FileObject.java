@@ -26,6 +26,7 @@ import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.pentaho.s3common.S3CommonFileObject;
 import org.pentaho.s3common.S3CommonPipedOutputStream;
+import org.pentaho.s3common.S3CommonSeekableInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +80,12 @@ public class S3FileObject extends S3CommonFileObject {
     }
   }
 
+  @Override
+  protected S3CommonSeekableInputStream createSeekableInputStream( String key, String bucket ) {
+    SimpleEntry<String, String> newPath = fixFilePath( key, bucket );
+    return super.createSeekableInputStream( newPath.getKey(), newPath.getValue() );
+  }
+
   private boolean bucketExists( String bucket ) {
     boolean bucketExists = false;
     try {
@@ -107,7 +114,7 @@ public class S3FileObject extends S3CommonFileObject {
   protected OutputStream doGetOutputStream( boolean bAppend ) throws Exception {
     SimpleEntry<String, String> newPath = fixFilePath( key, bucketName );
     return new S3CommonPipedOutputStream( this.fileSystem, newPath.getValue(), newPath.getKey(),
-            ( (S3FileSystem) this.fileSystem ).getPartSize() );
+            this.fileSystem.getPartSize(), this.fileSystem.getUploadConcurrency(), this.fileSystem.getPartBufferType() );
   }
 
   @Override
@@ -155,6 +162,7 @@ public class S3FileObject extends S3CommonFileObject {
   }
 
   // See if the first name on the path is actually a bucket.  If not, it's probably an old-style path.
+  @Override
   protected SimpleEntry<String, String> fixFilePath( String key, String bucket ) {
     String newBucket = bucket;
     String newKey = key;
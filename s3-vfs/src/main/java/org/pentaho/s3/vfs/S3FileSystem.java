@@ -22,6 +22,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.util.StorageUnitConverter;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.s3common.S3CommonFileSystem;
+import org.pentaho.s3common.S3CommonFileSystemConfigBuilder;
 import org.pentaho.s3common.S3KettleProperty;
 
 public class S3FileSystem extends S3CommonFileSystem {
@@ -58,7 +59,11 @@ public class S3FileSystem extends S3CommonFileSystem {
     return new S3FileObject( name, this );
   }
 
+  @Override
   public int getPartSize() {
+    if ( new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getPartSize() != null ) {
+      return super.getPartSize();
+    }
     long parsedPartSize = parsePartSize( s3KettleProperty.getPartSize() );
     return convertToInt( parsedPartSize );
   }
@@ -0,0 +1,231 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.auth.profile.ProfileCredentialsProvider;
+import com.amazonaws.auth.profile.ProfilesConfigFile;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import org.pentaho.amazon.s3.S3Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Process wide registry of S3 clients, so that every S3 file system resolving to the same credentials, endpoint,
+ * region and connection settings shares one client and its HTTP connection pool. Clients are keyed by a digest of
+ * their settings, so the registry does not hold on to the credentials.
+ * <p>
+ * File systems hold a {@link ClientReference} to the client they use and release it when they switch to other settings
+ * or are closed. A client is shut down, which closes its connection pool and idle connection reaper, once it has been
+ * dropped from the registry and no reference to it is held any more.
+ */
+public class S3ClientRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger( S3ClientRegistry.class );
+  private static final long MAXIMUM_CLIENTS = 64;
+  private static final S3ClientRegistry instance = new S3ClientRegistry();
+
+  private final Cache<String, ClientReference.Entry> clients =
+    CacheBuilder.newBuilder().maximumSize( MAXIMUM_CLIENTS )
+      .<String, ClientReference.Entry>removalListener( this::clientDropped ).build();
+
+  S3ClientRegistry() {
+  }
+
+  public static S3ClientRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Hands out the client for the given settings, building it on first use. The client stays usable until the
+   * reference is released.
+   *
+   * @param settings  the resolved client settings
+   * @param regionSet tells whether the environment already provides a region; only asked when a client is built
+   */
+  public ClientReference acquireClient( S3ClientSettings settings, BooleanSupplier regionSet ) {
+    String key = settings.getRegistryKey();
+    while ( true ) {
+      ClientReference.Entry entry;
+      try {
+        entry = clients.get( key, () -> new ClientReference.Entry( buildClient( settings, regionSet.getAsBoolean() ) ) );
+      } catch ( ExecutionException e ) {
+        throw new IllegalStateException( e.getCause() );
+      }
+      if ( entry.acquire() ) {
+        return new ClientReference( entry );
+      }
+      // dropped between the lookup and the acquire, the next lookup builds a new client
+    }
+  }
+
+  public void clear() {
+    clients.invalidateAll();
+  }
+
+  private void clientDropped( RemovalNotification<String, ClientReference.Entry> notification ) {
+    ClientReference.Entry entry = notification.getValue();
+    if ( entry != null ) {
+      logger.debug( "S3 client dropped from the registry ({})", notification.getCause() );
+      entry.drop();
+    }
+  }
+
+  protected AmazonS3 buildClient( S3ClientSettings settings, boolean regionSet ) {
+    ClientConfiguration clientConfiguration = createClientConfiguration( settings );
+
+    if ( settings.isDefaultCredentialsChain() ) {
+      AmazonS3ClientBuilder clientBuilder = AmazonS3ClientBuilder.standard()
+        .enableForceGlobalBucketAccess()
+        .withClientConfiguration( clientConfiguration );
+      if ( !regionSet ) {
+        clientBuilder.withRegion( Regions.DEFAULT_REGION );
+      }
+      return clientBuilder.build();
+    }
+
+    AWSCredentialsProvider awsCredentialsProvider = null;
+    Regions regions = Regions.DEFAULT_REGION;
+
+    if ( !S3Util.isEmpty( settings.getAccessKey() ) && !S3Util.isEmpty( settings.getSecretKey() ) ) {
+      AWSCredentials awsCredentials;
+      if ( S3Util.isEmpty( settings.getSessionToken() ) ) {
+        awsCredentials = new BasicAWSCredentials( settings.getAccessKey(), settings.getSecretKey() );
+      } else {
+        awsCredentials =
+          new BasicSessionCredentials( settings.getAccessKey(), settings.getSecretKey(), settings.getSessionToken() );
+      }
+      awsCredentialsProvider = new AWSStaticCredentialsProvider( awsCredentials );
+      regions = S3Util.isEmpty( settings.getRegion() )
+        ? Regions.DEFAULT_REGION : Regions.fromName( settings.getRegion() );
+    } else if ( !S3Util.isEmpty( settings.getCredentialsFilePath() ) ) {
+      ProfilesConfigFile profilesConfigFile = new ProfilesConfigFile( settings.getCredentialsFilePath() );
+      awsCredentialsProvider = new ProfileCredentialsProvider( profilesConfigFile, settings.getProfileName() );
+    }
+
+    if ( !S3Util.isEmpty( settings.getEndpoint() ) ) {
+      clientConfiguration.setSignerOverride( S3Util.isEmpty( settings.getSignatureVersion() )
+        ? S3Util.SIGNATURE_VERSION_SYSTEM_PROPERTY : settings.getSignatureVersion() );
+      return AmazonS3ClientBuilder.standard()
+        .withEndpointConfiguration(
+          new AwsClientBuilder.EndpointConfiguration( settings.getEndpoint(), regions.getName() ) )
+        .withPathStyleAccessEnabled( settings.isPathStyleAccess() )
+        .withClientConfiguration( clientConfiguration )
+        .withCredentials( awsCredentialsProvider )
+        .build();
+    }
+
+    AmazonS3ClientBuilder clientBuilder = AmazonS3ClientBuilder.standard()
+      .enableForceGlobalBucketAccess()
+      .withClientConfiguration( clientConfiguration )
+      .withCredentials( awsCredentialsProvider );
+    if ( !regionSet ) {
+      clientBuilder.withRegion( regions );
+    }
+    return clientBuilder.build();
+  }
+
+  /**
+   * A file system's hold on a shared client.
+   */
+  public static final class ClientReference {
+
+    private final Entry entry;
+    private boolean released = false;
+
+    private ClientReference( Entry entry ) {
+      this.entry = entry;
+    }
+
+    public AmazonS3 getClient() {
+      return entry.client;
+    }
+
+    /**
+     * Gives the client up; it is shut down if it was dropped from the registry and this was the last reference.
+     */
+    public synchronized void release() {
+      if ( !released ) {
+        released = true;
+        entry.release();
+      }
+    }
+
+    private static final class Entry {
+      private final AmazonS3 client;
+      private int references = 0;
+      private boolean dropped = false;
+
+      Entry( AmazonS3 client ) {
+        this.client = client;
+      }
+
+      synchronized boolean acquire() {
+        if ( dropped ) {
+          return false;
+        }
+        references++;
+        return true;
+      }
+
+      synchronized void release() {
+        references--;
+        shutdownIfUnused();
+      }
+
+      synchronized void drop() {
+        dropped = true;
+        shutdownIfUnused();
+      }
+
+      private void shutdownIfUnused() {
+        if ( dropped && references == 0 ) {
+          logger.debug( "Shutting down S3 client no longer in use" );
+          client.shutdown();
+        }
+      }
+    }
+  }
+
+  private ClientConfiguration createClientConfiguration( S3ClientSettings settings ) {
+    ClientConfiguration clientConfiguration = new ClientConfiguration();
+    if ( settings.getMaxConnections() != null ) {
+      clientConfiguration.setMaxConnections( settings.getMaxConnections() );
+    }
+    if ( settings.getConnectionTimeout() != null ) {
+      clientConfiguration.setConnectionTimeout( settings.getConnectionTimeout() );
+    }
+    if ( settings.getSocketTimeout() != null ) {
+      clientConfiguration.setSocketTimeout( settings.getSocketTimeout() );
+    }
+    if ( settings.getMaxErrorRetry() != null ) {
+      clientConfiguration.setMaxErrorRetry( settings.getMaxErrorRetry() );
+    }
+    return clientConfiguration;
+  }
+}
@@ -0,0 +1,274 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Fully resolved settings an S3 client is built from. Two file systems resolving to equal settings share the same
+ * client through the {@link S3ClientRegistry}.
+ */
+public final class S3ClientSettings {
+
+  private final boolean defaultCredentialsChain;
+  private final String accessKey;
+  private final String secretKey;
+  private final String sessionToken;
+  private final String region;
+  private final String credentialsFilePath;
+  private final String profileName;
+  private final String endpoint;
+  private final String signatureVersion;
+  private final boolean pathStyleAccess;
+  private final Integer maxConnections;
+  private final Integer connectionTimeout;
+  private final Integer socketTimeout;
+  private final Integer maxErrorRetry;
+
+  private S3ClientSettings( Builder builder ) {
+    this.defaultCredentialsChain = builder.defaultCredentialsChain;
+    this.accessKey = builder.accessKey;
+    this.secretKey = builder.secretKey;
+    this.sessionToken = builder.sessionToken;
+    this.region = builder.region;
+    this.credentialsFilePath = builder.credentialsFilePath;
+    this.profileName = builder.profileName;
+    this.endpoint = builder.endpoint;
+    this.signatureVersion = builder.signatureVersion;
+    this.pathStyleAccess = builder.pathStyleAccess;
+    this.maxConnections = builder.maxConnections;
+    this.connectionTimeout = builder.connectionTimeout;
+    this.socketTimeout = builder.socketTimeout;
+    this.maxErrorRetry = builder.maxErrorRetry;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return true when credentials come from the default AWS provider chain rather than from these settings
+   */
+  public boolean isDefaultCredentialsChain() {
+    return defaultCredentialsChain;
+  }
+
+  public String getAccessKey() {
+    return accessKey;
+  }
+
+  public String getSecretKey() {
+    return secretKey;
+  }
+
+  public String getSessionToken() {
+    return sessionToken;
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  public String getCredentialsFilePath() {
+    return credentialsFilePath;
+  }
+
+  public String getProfileName() {
+    return profileName;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public String getSignatureVersion() {
+    return signatureVersion;
+  }
+
+  public boolean isPathStyleAccess() {
+    return pathStyleAccess;
+  }
+
+  public Integer getMaxConnections() {
+    return maxConnections;
+  }
+
+  public Integer getConnectionTimeout() {
+    return connectionTimeout;
+  }
+
+  public Integer getSocketTimeout() {
+    return socketTimeout;
+  }
+
+  public Integer getMaxErrorRetry() {
+    return maxErrorRetry;
+  }
+
+  /**
+   * @return a digest of all of the settings, the key of the client in the {@link S3ClientRegistry}; the credentials
+   * are only kept by the client itself, not in the key
+   */
+  public String getRegistryKey() {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance( "SHA-256" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IllegalStateException( e );
+    }
+    for ( Object value : new Object[] { defaultCredentialsChain, accessKey, secretKey, sessionToken, region,
+      credentialsFilePath, profileName, endpoint, signatureVersion, pathStyleAccess, maxConnections, connectionTimeout,
+      socketTimeout, maxErrorRetry } ) {
+      // a marker byte tells a null value from an empty one, and a separator keeps values from running into each other
+      digest.update( (byte) ( value == null ? 0 : 1 ) );
+      digest.update( String.valueOf( value ).getBytes( StandardCharsets.UTF_8 ) );
+      digest.update( (byte) 0 );
+    }
+    StringBuilder key = new StringBuilder();
+    for ( byte b : digest.digest() ) {
+      key.append( String.format( "%02x", b ) );
+    }
+    return key.toString();
+  }
+
+  @Override
+  public boolean equals( Object o ) {
+    if ( this == o ) {
+      return true;
+    }
+    if ( o == null || getClass() != o.getClass() ) {
+      return false;
+    }
+    S3ClientSettings that = (S3ClientSettings) o;
+    return defaultCredentialsChain == that.defaultCredentialsChain
+      && pathStyleAccess == that.pathStyleAccess
+      && Objects.equals( accessKey, that.accessKey )
+      && Objects.equals( secretKey, that.secretKey )
+      && Objects.equals( sessionToken, that.sessionToken )
+      && Objects.equals( region, that.region )
+      && Objects.equals( credentialsFilePath, that.credentialsFilePath )
+      && Objects.equals( profileName, that.profileName )
+      && Objects.equals( endpoint, that.endpoint )
+      && Objects.equals( signatureVersion, that.signatureVersion )
+      && Objects.equals( maxConnections, that.maxConnections )
+      && Objects.equals( connectionTimeout, that.connectionTimeout )
+      && Objects.equals( socketTimeout, that.socketTimeout )
+      && Objects.equals( maxErrorRetry, that.maxErrorRetry );
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash( defaultCredentialsChain, accessKey, secretKey, sessionToken, region, credentialsFilePath,
+      profileName, endpoint, signatureVersion, pathStyleAccess, maxConnections, connectionTimeout, socketTimeout,
+      maxErrorRetry );
+  }
+
+  public static class Builder {
+
+    private boolean defaultCredentialsChain;
+    private String accessKey;
+    private String secretKey;
+    private String sessionToken;
+    private String region;
+    private String credentialsFilePath;
+    private String profileName;
+    private String endpoint;
+    private String signatureVersion;
+    private boolean pathStyleAccess = true;
+    private Integer maxConnections;
+    private Integer connectionTimeout;
+    private Integer socketTimeout;
+    private Integer maxErrorRetry;
+
+    private Builder() {
+    }
+
+    public Builder withDefaultCredentialsChain( boolean defaultCredentialsChain ) {
+      this.defaultCredentialsChain = defaultCredentialsChain;
+      return this;
+    }
+
+    public Builder withAccessKey( String accessKey ) {
+      this.accessKey = accessKey;
+      return this;
+    }
+
+    public Builder withSecretKey( String secretKey ) {
+      this.secretKey = secretKey;
+      return this;
+    }
+
+    public Builder withSessionToken( String sessionToken ) {
+      this.sessionToken = sessionToken;
+      return this;
+    }
+
+    public Builder withRegion( String region ) {
+      this.region = region;
+      return this;
+    }
+
+    public Builder withCredentialsFilePath( String credentialsFilePath ) {
+      this.credentialsFilePath = credentialsFilePath;
+      return this;
+    }
+
+    public Builder withProfileName( String profileName ) {
+      this.profileName = profileName;
+      return this;
+    }
+
+    public Builder withEndpoint( String endpoint ) {
+      this.endpoint = endpoint;
+      return this;
+    }
+
+    public Builder withSignatureVersion( String signatureVersion ) {
+      this.signatureVersion = signatureVersion;
+      return this;
+    }
+
+    public Builder withPathStyleAccess( boolean pathStyleAccess ) {
+      this.pathStyleAccess = pathStyleAccess;
+      return this;
+    }
+
+    public Builder withMaxConnections( Integer maxConnections ) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    public Builder withConnectionTimeout( Integer connectionTimeout ) {
+      this.connectionTimeout = connectionTimeout;
+      return this;
+    }
+
+    public Builder withSocketTimeout( Integer socketTimeout ) {
+      this.socketTimeout = socketTimeout;
+      return this;
+    }
+
+    public Builder withMaxErrorRetry( Integer maxErrorRetry ) {
+      this.maxErrorRetry = maxErrorRetry;
+      return this;
+    }
+
+    public S3ClientSettings build() {
+      return new S3ClientSettings( this );
+    }
+  }
+}
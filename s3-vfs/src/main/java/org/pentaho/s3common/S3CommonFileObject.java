@@ -16,7 +16,11 @@ package org.pentaho.s3common;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -26,8 +30,10 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.RandomAccessContent;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
+import org.apache.commons.vfs2.util.RandomAccessMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,13 +41,19 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFileSystem> {
 
   private static final Logger logger = LoggerFactory.getLogger( S3CommonFileObject.class );
   public static final String DELIMITER = "/";
+  /**
+   * Maximum number of keys S3 accepts in a single multi-object delete request.
+   */
+  protected static final int MAX_DELETE_BATCH_SIZE = 1000;
 
   protected S3CommonFileSystem fileSystem;
   protected String bucketName;
@@ -65,8 +77,23 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
   protected InputStream doGetInputStream() throws Exception {
     logger.debug( "Accessing content {}", getQualifiedName() );
     closeS3Object();
-    S3Object streamS3Object = getS3Object();
-    return new S3CommonFileInputStream( streamS3Object.getObjectContent(), streamS3Object );
+    return createSeekableInputStream();
+  }
+
+  @Override
+  protected RandomAccessContent doGetRandomAccessContent( RandomAccessMode mode ) throws Exception {
+    logger.debug( "Accessing random content {}", getQualifiedName() );
+    return new S3CommonRandomAccessContent( createSeekableInputStream(), mode );
+  }
+
+  protected S3CommonSeekableInputStream createSeekableInputStream() {
+    return createSeekableInputStream( this.key, this.bucketName );
+  }
+
+  protected S3CommonSeekableInputStream createSeekableInputStream( String key, String bucket ) {
+    long contentLength = s3ObjectMetadata != null ? s3ObjectMetadata.getContentLength() : -1;
+    return new S3CommonSeekableInputStream( fileSystem, bucket, key, contentLength, fileSystem.getReadChunkSize(),
+      fileSystem.getReadAheadChunks() );
   }
 
 
@@ -149,32 +176,30 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
   private void getObjectsFromNonRootFolder( String key, String bucketName, List<String> childrenList, String realKey ) {
     //Getting files/folders in a folder/bucket
     String prefix = key.isEmpty() || key.endsWith( DELIMITER ) ? key : key + DELIMITER;
-    ListObjectsRequest listObjectsRequest = new ListObjectsRequest()
+    ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
       .withBucketName( bucketName )
       .withPrefix( prefix )
       .withDelimiter( DELIMITER );
 
-    ObjectListing ol = fileSystem.getS3Client().listObjects( listObjectsRequest );
-
-    ArrayList<S3ObjectSummary> allSummaries = new ArrayList<>( ol.getObjectSummaries() );
-    ArrayList<String> allCommonPrefixes = new ArrayList<>( ol.getCommonPrefixes() );
-
-    // get full list
-    while ( ol.isTruncated() ) {
-      ol = fileSystem.getS3Client().listNextBatchOfObjects( ol );
-      allSummaries.addAll( ol.getObjectSummaries() );
-      allCommonPrefixes.addAll( ol.getCommonPrefixes() );
-    }
-
-    for ( S3ObjectSummary s3os : allSummaries ) {
-      if ( !s3os.getKey().equals( realKey ) ) {
-        childrenList.add( s3os.getKey().substring( prefix.length() ) );
-      }
-    }
+    // add the children page by page instead of collecting the whole listing first
+    S3CommonObjectStatusCache statusCache = fileSystem.getObjectStatusCache();
+    try ( S3CommonObjectListing listing = fileSystem.listObjects( listObjectsRequest ) ) {
+      while ( listing.hasNext() ) {
+        ListObjectsV2Result page = listing.next();
+        for ( S3ObjectSummary s3os : page.getObjectSummaries() ) {
+          if ( !s3os.getKey().equals( realKey ) ) {
+            childrenList.add( s3os.getKey().substring( prefix.length() ) );
+            // remember the child so that attaching it does not need another request
+            statusCache.put( bucketName, s3os );
+          }
+        }
 
-    for ( String commonPrefix : allCommonPrefixes ) {
-      if ( !commonPrefix.equals( realKey ) ) {
-        childrenList.add( commonPrefix.substring( prefix.length() ) );
+        for ( String commonPrefix : page.getCommonPrefixes() ) {
+          if ( !commonPrefix.equals( realKey ) ) {
+            childrenList.add( commonPrefix.substring( prefix.length() ) );
+            statusCache.putFolder( bucketName, commonPrefix );
+          }
+        }
       }
     }
   }
@@ -235,10 +260,23 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
       return;
     }
 
+    // 0. Has it been seen recently, e.g. while listing its parent folder?
+    S3CommonObjectStatusCache.S3ObjectStatus cachedStatus = fileSystem.getObjectStatusCache().get( bucketName, key );
+    if ( cachedStatus != null ) {
+      s3ObjectMetadata = cachedStatus.getMetadata();
+      injectType( cachedStatus.getType() );
+      if ( cachedStatus.getType() == FileType.FOLDER && !key.endsWith( DELIMITER ) ) {
+        // same key as when the folder is found by a request
+        this.key = key + DELIMITER;
+      }
+      return;
+    }
+
     try {
       // 1. Is it an existing file?
       s3ObjectMetadata = fileSystem.getS3Client().getObjectMetadata( bucketName, key );
       injectType( getName().getType() ); // if this worked then the automatically detected type is right
+      fileSystem.getObjectStatusCache().put( bucketName, key, getName().getType(), s3ObjectMetadata );
     } catch ( AmazonS3Exception e ) { // S3 object doesn't exist
       // 2. Is it in reality a folder?
       handleAttachException( key, bucketName );
@@ -253,6 +291,7 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
       s3ObjectMetadata = fileSystem.getS3Client().getObjectMetadata( bucketName, key );
       injectType( FileType.FOLDER );
       this.key = keyWithDelimiter;
+      fileSystem.getObjectStatusCache().put( bucketName, key, FileType.FOLDER, s3ObjectMetadata );
     } catch ( AmazonS3Exception e1 ) {
       String errorCode = e1.getErrorCode();
       try {
@@ -285,6 +324,7 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
 
     if ( !( ol.getCommonPrefixes().isEmpty() && ol.getObjectSummaries().isEmpty() ) ) {
       injectType( FileType.FOLDER );
+      fileSystem.getObjectStatusCache().putFolder( bucket, keyWithDelimiter );
     } else {
       //Folders don't really exist - they will generate a "NoSuchKey" exception
       // confirms key doesn't exist but connection okay
@@ -311,36 +351,63 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
     closeS3Object();
   }
 
+  @Override
+  protected void onChange() throws Exception {
+    // the object was created, written or deleted, whatever was cached about it is stale
+    fileSystem.getObjectStatusCache().invalidate( bucketName, key );
+  }
+
   @Override
   protected void doDelete() throws FileSystemException {
     doDelete( this.key, this.bucketName );
   }
 
   protected void doDelete( String key, String bucketName ) throws FileSystemException {
-    // can only delete folder if empty
+    // a folder only goes away once everything inside it is deleted
     if ( getType() == FileType.FOLDER ) {
 
-      // list all children inside the folder
-      ObjectListing ol = fileSystem.getS3Client().listObjects( bucketName, key );
-      ArrayList<S3ObjectSummary> allSummaries = new ArrayList<>( ol.getObjectSummaries() );
+      // only what is inside the folder, not the siblings whose name starts with the folder name
+      String prefix = key.isEmpty() || key.endsWith( DELIMITER ) ? key : key + DELIMITER;
 
-      // get full list
-      while ( ol.isTruncated() ) {
-        ol = fileSystem.getS3Client().listNextBatchOfObjects( ol );
-        allSummaries.addAll( ol.getObjectSummaries() );
-      }
-
-      for ( S3ObjectSummary s3os : allSummaries ) {
-        fileSystem.getS3Client().deleteObject( bucketName, s3os.getKey() );
+      // delete the children one listing page at a time, as the pages arrive
+      try ( S3CommonObjectListing listing =
+              fileSystem.listObjects( new ListObjectsV2Request().withBucketName( bucketName ).withPrefix( prefix ) ) ) {
+        while ( listing.hasNext() ) {
+          deleteObjects( bucketName, listing.next().getObjectSummaries() );
+        }
       }
+      fileSystem.getObjectStatusCache().invalidatePrefix( bucketName, prefix );
     }
 
     fileSystem.getS3Client().deleteObject( bucketName, key );
+    fileSystem.getObjectStatusCache().invalidate( bucketName, key );
+  }
+
+  /**
+   * Deletes the given objects with multi-object delete requests of up to {@value #MAX_DELETE_BATCH_SIZE} keys.
+   */
+  protected void deleteObjects( String bucketName, List<S3ObjectSummary> summaries ) throws FileSystemException {
+    for ( int from = 0; from < summaries.size(); from += MAX_DELETE_BATCH_SIZE ) {
+      int to = Math.min( from + MAX_DELETE_BATCH_SIZE, summaries.size() );
+      List<DeleteObjectsRequest.KeyVersion> keys = new ArrayList<>( to - from );
+      for ( S3ObjectSummary s3os : summaries.subList( from, to ) ) {
+        keys.add( new DeleteObjectsRequest.KeyVersion( s3os.getKey() ) );
+      }
+      try {
+        fileSystem.getS3Client()
+          .deleteObjects( new DeleteObjectsRequest( bucketName ).withKeys( keys ).withQuiet( true ) );
+      } catch ( MultiObjectDeleteException e ) {
+        logger.error( "Could not delete {} objects from {}", e.getErrors().size(), getQualifiedName(), e );
+        throw new FileSystemException( "vfs.provider/delete.error", getQualifiedName(), e );
+      }
+    }
   }
 
   @Override
   protected OutputStream doGetOutputStream( boolean bAppend ) throws Exception {
-    return new S3CommonPipedOutputStream( this.fileSystem, bucketName, key );
+    fileSystem.getObjectStatusCache().invalidate( bucketName, key );
+    return new S3CommonPipedOutputStream( this.fileSystem, bucketName, key, fileSystem.getPartSize(),
+      fileSystem.getUploadConcurrency(), fileSystem.getPartBufferType() );
   }
 
   @Override
@@ -371,6 +438,7 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
       // send request to S3 to create folder
       try {
         fileSystem.getS3Client().putObject( putObjectRequest );
+        fileSystem.getObjectStatusCache().invalidate( bucketName, key );
       } catch ( AmazonS3Exception e ) {
         throw new FileSystemException( "vfs.provider.local/create-folder.error", this, e );
       }
@@ -385,9 +453,15 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
 
   @Override
   protected void doRename( FileObject newFile ) throws Exception {
-    // no folder renames on S3
+    S3CommonFileObject dest = (S3CommonFileObject) newFile;
+
     if ( getType().equals( FileType.FOLDER ) ) {
-      throw new FileSystemException( "vfs.provider/rename-not-supported.error" );
+      // buckets cannot be renamed
+      if ( isRootBucket() || dest.isRootBucket() ) {
+        throw new FileSystemException( "vfs.provider/rename-not-supported.error" );
+      }
+      renameFolder( dest );
+      return;
     }
 
     s3ObjectMetadata = fileSystem.getS3Client().getObjectMetadata( bucketName, key );
@@ -397,16 +471,61 @@ public abstract class S3CommonFileObject extends AbstractFileObject<S3CommonFile
       throw new FileSystemException( "vfs.provider/rename.error", this, newFile );
     }
 
-    S3CommonFileObject dest = (S3CommonFileObject) newFile;
-
     // 1. copy the file
     CopyObjectRequest copyObjRequest = createCopyObjectRequest( bucketName, key, dest.bucketName, dest.key );
-    fileSystem.getS3Client().copyObject( copyObjRequest );
+    try ( S3CommonObjectCopier copier = createObjectCopier() ) {
+      copier.copy( copyObjRequest, s3ObjectMetadata.getContentLength() );
+    }
+    fileSystem.getObjectStatusCache().invalidate( dest.bucketName, dest.key );
 
     // 2. delete self
     delete();
   }
 
+  /**
+   * Renames a folder by copying every object below it in parallel and then deleting the originals.
+   */
+  protected void renameFolder( S3CommonFileObject dest ) throws FileSystemException {
+    SimpleEntry<String, String> sourcePath = fixFilePath( key, bucketName );
+    SimpleEntry<String, String> destPath = dest.fixFilePath( dest.key, dest.bucketName );
+    renameFolder( sourcePath.getKey(), sourcePath.getValue(), destPath.getKey(), destPath.getValue() );
+  }
+
+  protected void renameFolder( String key, String bucketName, String destKey, String destBucketName )
+    throws FileSystemException {
+    String sourcePrefix = key.endsWith( DELIMITER ) ? key : key + DELIMITER;
+    String destPrefix = destKey.endsWith( DELIMITER ) ? destKey : destKey + DELIMITER;
+
+    // 1. copy the folder contents, one listing page at a time so that only a page of copies is ever pending
+    try ( S3CommonObjectCopier copier = createObjectCopier();
+          S3CommonObjectListing listing = fileSystem.listObjects(
+            new ListObjectsV2Request().withBucketName( bucketName ).withPrefix( sourcePrefix ) ) ) {
+      while ( listing.hasNext() ) {
+        List<Future<Void>> copies = new ArrayList<>();
+        for ( S3ObjectSummary s3os : listing.next().getObjectSummaries() ) {
+          copies.add( copier.copyAsync( new CopyObjectRequest( bucketName, s3os.getKey(), destBucketName,
+            destPrefix + s3os.getKey().substring( sourcePrefix.length() ) ), s3os.getSize() ) );
+        }
+        copier.await( copies );
+      }
+    }
+    fileSystem.getObjectStatusCache().invalidatePrefix( destBucketName, destPrefix );
+
+    // 2. delete the folder and its contents
+    doDelete();
+  }
+
+  /**
+   * @return the key and bucket the requests for the given path are sent to
+   */
+  protected SimpleEntry<String, String> fixFilePath( String key, String bucket ) {
+    return new SimpleEntry<>( key, bucket );
+  }
+
+  protected S3CommonObjectCopier createObjectCopier() {
+    return new S3CommonObjectCopier( fileSystem, fileSystem.getCopyPartSize(), fileSystem.getCopyConcurrency() );
+  }
+
   protected CopyObjectRequest createCopyObjectRequest( String sourceBucket, String sourceKey, String destBucket, String destKey ) {
     return new CopyObjectRequest( sourceBucket, sourceKey, destBucket, destKey );
   }
@@ -14,17 +14,9 @@
 package org.pentaho.s3common;
 
 import com.amazonaws.ClientConfiguration;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.auth.BasicSessionCredentials;
-import com.amazonaws.auth.profile.ProfileCredentialsProvider;
-import com.amazonaws.auth.profile.ProfilesConfigFile;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemOptions;
@@ -39,7 +31,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -48,16 +39,31 @@ public abstract class S3CommonFileSystem extends AbstractFileSystem {
 
   private static final Logger logger = LoggerFactory.getLogger( S3CommonFileSystem.class );
   private static final String DEFAULT_S3_CONFIG_PROPERTY = "defaultS3Config";
-  private String awsAccessKeyCache;
-  private String awsSecretKeyCache;
-  private AmazonS3 client;
+  /**
+   * How long a resolved client is handed out before its settings are checked again.
+   */
+  private static final long DEFAULT_CLIENT_REFRESH_INTERVAL = 5000L;
+  /**
+   * How many streams or copies are expected to run at the same time against one client when sizing its connection
+   * pool, e.g. the copies of a step reading or writing in parallel.
+   */
+  private static final int EXPECTED_CONCURRENT_STREAMS = 4;
+  private volatile AmazonS3 client;
+  private S3ClientRegistry.ClientReference clientReference;
+  private volatile long clientRefreshDeadline;
   private final Supplier<ConnectionManager> connectionManager = ConnectionManager::getInstance;
-  private Map<String, String> currentConnectionProperties;
-  private FileSystemOptions currentFileSystemOptions;
+  private S3ClientSettings currentClientSettings;
+  private final S3CommonObjectStatusCache objectStatusCache;
 
   protected S3CommonFileSystem( final FileName rootName, final FileSystemOptions fileSystemOptions ) {
     super( rootName, null, fileSystemOptions );
-    currentConnectionProperties = new HashMap<>();
+
+    S3CommonFileSystemConfigBuilder configBuilder = new S3CommonFileSystemConfigBuilder( fileSystemOptions );
+    Long statusCacheTtl = configBuilder.getStatusCacheTtl();
+    Long statusCacheSize = configBuilder.getStatusCacheSize();
+    objectStatusCache = new S3CommonObjectStatusCache(
+      statusCacheTtl == null ? S3CommonObjectStatusCache.DEFAULT_TTL_MILLIS : statusCacheTtl,
+      statusCacheSize == null ? S3CommonObjectStatusCache.DEFAULT_MAXIMUM_SIZE : statusCacheSize );
   }
 
   @SuppressWarnings( "unchecked" )
@@ -67,13 +73,83 @@ public abstract class S3CommonFileSystem extends AbstractFileSystem {
 
   protected abstract FileObject createFile( AbstractFileName name ) throws Exception;
 
+  public S3CommonObjectStatusCache getObjectStatusCache() {
+    return objectStatusCache;
+  }
+
   public AmazonS3 getS3Client() {
+    AmazonS3 currentClient = client;
+    if ( currentClient != null && System.currentTimeMillis() < clientRefreshDeadline ) {
+      return currentClient;
+    }
+    return refreshS3Client();
+  }
+
+  /**
+   * Resolves the client settings from the file system options, the default S3 connection and the system properties
+   * and swaps in the shared client for them if they changed since the last check.
+   */
+  private synchronized AmazonS3 refreshS3Client() {
+    try {
+      S3ClientSettings settings = resolveClientSettings();
+      if ( client == null || !settings.equals( currentClientSettings ) ) {
+        if ( currentClientSettings != null ) {
+          // Clear the file system cache as the credentials have changed and the cache is now invalid.
+          this.getFileSystemManager().getFilesCache().clear( this );
+          objectStatusCache.clear();
+        }
+        S3ClientRegistry.ClientReference previous = clientReference;
+        clientReference = S3ClientRegistry.getInstance().acquireClient( settings, this::isRegionSet );
+        client = clientReference.getClient();
+        currentClientSettings = settings;
+        if ( previous != null ) {
+          previous.release();
+        }
+      }
+      Long refreshInterval = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getClientRefreshInterval();
+      clientRefreshDeadline = System.currentTimeMillis()
+        + ( refreshInterval == null ? DEFAULT_CLIENT_REFRESH_INTERVAL : refreshInterval );
+    } catch ( Exception ex ) {
+      logger.error( "Could not get an S3Client", ex );
+    }
+    return client;
+  }
+
+  /**
+   * Releases the client when the file system is closed, the next use resolves it again.
+   */
+  @Override
+  protected synchronized void doCloseCommunicationLink() {
+    if ( clientReference != null ) {
+      clientReference.release();
+      clientReference = null;
+      client = null;
+      currentClientSettings = null;
+    }
+  }
+
+  private S3ClientSettings resolveClientSettings() {
     S3CommonFileSystemConfigBuilder s3CommonFileSystemConfigBuilder =
       new S3CommonFileSystemConfigBuilder( getFileSystemOptions() );
+    S3ClientSettings.Builder settings = S3ClientSettings.builder()
+      .withMaxConnections( getMaxConnections() )
+      .withConnectionTimeout( s3CommonFileSystemConfigBuilder.getConnectionTimeout() )
+      .withSocketTimeout( s3CommonFileSystemConfigBuilder.getSocketTimeout() )
+      .withMaxErrorRetry( s3CommonFileSystemConfigBuilder.getMaxErrorRetry() );
+
+    // Keys given as system properties take precedence and are picked up by the default credentials chain
+    String systemAccessKey = System.getProperty( S3Util.ACCESS_KEY_SYSTEM_PROPERTY );
+    String systemSecretKey = System.getProperty( S3Util.SECRET_KEY_SYSTEM_PROPERTY );
+    if ( getFileSystemOptions() == null || !S3Util.isEmpty( systemAccessKey ) || !S3Util.isEmpty( systemSecretKey ) ) {
+      return settings.withDefaultCredentialsChain( true )
+        .withAccessKey( systemAccessKey )
+        .withSecretKey( systemSecretKey )
+        .build();
+    }
 
     Optional<? extends ConnectionDetails> defaultS3Connection = Optional.empty();
     try {
-      if ( s3CommonFileSystemConfigBuilder.useDefaults() ) {
+      if ( s3CommonFileSystemConfigBuilder.useDefaults() && s3CommonFileSystemConfigBuilder.getName() == null ) {
         defaultS3Connection =
         connectionManager.get().getConnectionDetailsByScheme( "s3" ).stream().filter(
           connectionDetails -> connectionDetails.getProperties().get( DEFAULT_S3_CONFIG_PROPERTY ) != null
@@ -84,134 +160,131 @@ public abstract class S3CommonFileSystem extends AbstractFileSystem {
       // Ignore the exception, it's OK if we can't find a default S3 connection.
     }
 
+    String accessKey;
+    String secretKey;
+    String pathStyleAccess;
+
     // If the fileSystemOptions don't contain a name, the originating url is s3:// NOT pvfs://
     // Use a specified default PVFS connection if it's available.
-    if ( s3CommonFileSystemConfigBuilder.getName() == null ) {
-      // Copy the connection properties
-      Map<String, String> newConnectionProperties = new HashMap<>();
-      defaultS3Connection
-              .ifPresent( connectionDetails -> newConnectionProperties.putAll( connectionDetails.getProperties() ) );
-
-      // Have the default connection properties changed?
-      if ( !newConnectionProperties.equals( currentConnectionProperties ) ) {
-        // Force a new connection if the default PVFS was changed
-        client = null;
-        // Track the new connection
-        currentConnectionProperties = newConnectionProperties;
-        // Clear the file system cache as the credentials have changed and the cache is now invalid.
-        this.getFileSystemManager().getFilesCache().clear( this );
-      }
+    if ( defaultS3Connection.isPresent() ) {
+      Map<String, String> connectionProperties = defaultS3Connection.get().getProperties();
+      accessKey = Encr.decryptPassword( connectionProperties.get( "accessKey" ) );
+      secretKey = Encr.decryptPassword( connectionProperties.get( "secretKey" ) );
+      pathStyleAccess = connectionProperties.get( "pathStyleAccess" );
+      settings.withSessionToken( Encr.decryptPassword( connectionProperties.get( "sessionToken" ) ) )
+        .withRegion( connectionProperties.get( "region" ) )
+        .withCredentialsFilePath( connectionProperties.get( "credentialsFilePath" ) )
+        .withProfileName( connectionProperties.get( "profileName" ) )
+        .withEndpoint( connectionProperties.get( "endpoint" ) )
+        .withSignatureVersion( connectionProperties.get( "signatureVersion" ) );
+    } else {
+      accessKey = s3CommonFileSystemConfigBuilder.getAccessKey();
+      secretKey = s3CommonFileSystemConfigBuilder.getSecretKey();
+      pathStyleAccess = s3CommonFileSystemConfigBuilder.getPathStyleAccess();
+      settings.withSessionToken( s3CommonFileSystemConfigBuilder.getSessionToken() )
+        .withRegion( s3CommonFileSystemConfigBuilder.getRegion() )
+        .withCredentialsFilePath( s3CommonFileSystemConfigBuilder.getCredentialsFile() )
+        .withProfileName( s3CommonFileSystemConfigBuilder.getProfileName() )
+        .withEndpoint( s3CommonFileSystemConfigBuilder.getEndpoint() )
+        .withSignatureVersion( s3CommonFileSystemConfigBuilder.getSignatureVersion() );
     }
 
-    if ( currentFileSystemOptions != null && !currentFileSystemOptions.equals( getFileSystemOptions() ) ) {
-      client = null;
-      this.getFileSystemManager().getFilesCache().clear( this );
+    S3Util.S3Keys keys = S3Util.getKeysFromURI( getRootURI() );
+    if ( keys != null ) {
+      accessKey = keys.getAccessKey();
+      secretKey = keys.getSecretKey();
     }
 
-    if ( client == null && getFileSystemOptions() != null ) {
-      currentFileSystemOptions = getFileSystemOptions();
-      String accessKey = null;
-      String secretKey = null;
-      String sessionToken = null;
-      String region = null;
-      String credentialsFilePath = null;
-      String profileName = null;
-      String endpoint = null;
-      String signatureVersion = null;
-      String pathStyleAccess = null;
-
-      if ( s3CommonFileSystemConfigBuilder.getName() == null && defaultS3Connection.isPresent() ) {
-        accessKey = Encr.decryptPassword( currentConnectionProperties.get( "accessKey" ) );
-        secretKey = Encr.decryptPassword( currentConnectionProperties.get( "secretKey" ) );
-        sessionToken = Encr.decryptPassword( currentConnectionProperties.get( "sessionToken" ) );
-        region = currentConnectionProperties.get( "region" );
-        credentialsFilePath = currentConnectionProperties.get( "credentialsFilePath" );
-        profileName = currentConnectionProperties.get( "profileName" );
-        endpoint = currentConnectionProperties.get( "endpoint" );
-        signatureVersion = currentConnectionProperties.get( "signatureVersion" );
-        pathStyleAccess = currentConnectionProperties.get( "pathStyleAccess" );
-      } else {
-        accessKey = s3CommonFileSystemConfigBuilder.getAccessKey();
-        secretKey = s3CommonFileSystemConfigBuilder.getSecretKey();
-        sessionToken = s3CommonFileSystemConfigBuilder.getSessionToken();
-        region = s3CommonFileSystemConfigBuilder.getRegion();
-        credentialsFilePath = s3CommonFileSystemConfigBuilder.getCredentialsFile();
-        profileName = s3CommonFileSystemConfigBuilder.getProfileName();
-        endpoint = s3CommonFileSystemConfigBuilder.getEndpoint();
-        signatureVersion = s3CommonFileSystemConfigBuilder.getSignatureVersion();
-        pathStyleAccess = s3CommonFileSystemConfigBuilder.getPathStyleAccess();
-      }
-      boolean access = ( pathStyleAccess == null ) || Boolean.parseBoolean( pathStyleAccess );
+    return settings.withAccessKey( accessKey )
+      .withSecretKey( secretKey )
+      .withPathStyleAccess( ( pathStyleAccess == null ) || Boolean.parseBoolean( pathStyleAccess ) )
+      .build();
+  }
 
-      AWSCredentialsProvider awsCredentialsProvider = null;
-      Regions regions = Regions.DEFAULT_REGION;
+  /**
+   * @return the multipart upload part size, as configured in the file system options
+   */
+  public int getPartSize() {
+    Integer partSize = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getPartSize();
+    return partSize == null ? S3CommonPipedOutputStream.DEFAULT_PART_SIZE
+      : Math.max( partSize, S3CommonPipedOutputStream.DEFAULT_PART_SIZE );
+  }
 
-      S3Util.S3Keys keys = S3Util.getKeysFromURI( getRootURI() );
-      if ( keys != null ) {
-        accessKey = keys.getAccessKey();
-        secretKey = keys.getSecretKey();
-      }
+  /**
+   * @return the number of parts an output stream uploads in parallel, as configured in the file system options, or
+   * else the default for the part size
+   */
+  public int getUploadConcurrency() {
+    Integer uploadConcurrency = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getUploadConcurrency();
+    return uploadConcurrency == null ? S3CommonPipedOutputStream.defaultUploadConcurrency( getPartSize() )
+      : Math.max( 1, uploadConcurrency );
+  }
 
-      if ( !S3Util.isEmpty( accessKey ) && !S3Util.isEmpty( secretKey ) ) {
-        AWSCredentials awsCredentials;
-        if ( S3Util.isEmpty( sessionToken ) ) {
-          awsCredentials = new BasicAWSCredentials( accessKey, secretKey );
-        } else {
-          awsCredentials = new BasicSessionCredentials( accessKey, secretKey, sessionToken );
-        }
-        awsCredentialsProvider = new AWSStaticCredentialsProvider( awsCredentials );
-        regions = S3Util.isEmpty( region ) ? Regions.DEFAULT_REGION : Regions.fromName( region );
-      } else if ( !S3Util.isEmpty( credentialsFilePath ) ) {
-        ProfilesConfigFile profilesConfigFile = new ProfilesConfigFile( credentialsFilePath );
-        awsCredentialsProvider = new ProfileCredentialsProvider( profilesConfigFile, profileName );
-      }
+  /**
+   * @return where output streams buffer their parts, as configured in the file system options
+   */
+  public S3CommonPartBufferType getPartBufferType() {
+    return S3CommonPartBufferType.fromName(
+      new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getPartBufferType() );
+  }
 
-      if ( !S3Util.isEmpty( endpoint ) ) {
-        ClientConfiguration clientConfiguration = new ClientConfiguration();
-        clientConfiguration.setSignerOverride(
-          S3Util.isEmpty( signatureVersion ) ? S3Util.SIGNATURE_VERSION_SYSTEM_PROPERTY : signatureVersion );
-        client = AmazonS3ClientBuilder.standard()
-          .withEndpointConfiguration( new AwsClientBuilder.EndpointConfiguration( endpoint, regions.getName() ) )
-          .withPathStyleAccessEnabled( access )
-          .withClientConfiguration( clientConfiguration )
-          .withCredentials( awsCredentialsProvider )
-          .build();
-      } else {
-        AmazonS3ClientBuilder clientBuilder = AmazonS3ClientBuilder.standard()
-          .enableForceGlobalBucketAccess()
-          .withCredentials( awsCredentialsProvider );
-        if ( !isRegionSet() ) {
-          clientBuilder.withRegion( regions );
-        }
-        client = clientBuilder.build();
-      }
-    }
+  /**
+   * @return the size of the ranged GET requests issued by input streams
+   */
+  public int getReadChunkSize() {
+    Integer readChunkSize = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getReadChunkSize();
+    return readChunkSize == null ? S3CommonSeekableInputStream.DEFAULT_CHUNK_SIZE : Math.max( 1, readChunkSize );
+  }
 
-    if ( client == null || hasClientChangedCredentials() ) {
-      try {
-        if ( isRegionSet() ) {
-          client = AmazonS3ClientBuilder.standard()
-            .enableForceGlobalBucketAccess()
-            .build();
-        } else {
-          client = AmazonS3ClientBuilder.standard()
-            .enableForceGlobalBucketAccess()
-            .withRegion( Regions.DEFAULT_REGION )
-            .build();
-        }
-        awsAccessKeyCache = System.getProperty( S3Util.ACCESS_KEY_SYSTEM_PROPERTY );
-        awsSecretKeyCache = System.getProperty( S3Util.SECRET_KEY_SYSTEM_PROPERTY );
-      } catch ( Exception ex ) {
-        logger.error( "Could not get an S3Client", ex );
-      }
+  /**
+   * @return how many chunks input streams fetch in parallel ahead of the read position
+   */
+  public int getReadAheadChunks() {
+    Integer readAheadChunks = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getReadAheadChunks();
+    return readAheadChunks == null ? S3CommonSeekableInputStream.DEFAULT_READ_AHEAD_CHUNKS
+      : Math.max( 0, readAheadChunks );
+  }
+
+  /**
+   * @return the size above which objects are copied in parts, and the size of each part
+   */
+  public long getCopyPartSize() {
+    Long copyPartSize = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getCopyPartSize();
+    return copyPartSize == null ? S3CommonObjectCopier.DEFAULT_COPY_PART_SIZE
+      : Math.max( copyPartSize, S3CommonPipedOutputStream.DEFAULT_PART_SIZE );
+  }
+
+  /**
+   * @return how many objects, or parts of an object, are copied in parallel
+   */
+  public int getCopyConcurrency() {
+    Integer copyConcurrency = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getCopyConcurrency();
+    return copyConcurrency == null ? S3CommonObjectCopier.DEFAULT_COPY_CONCURRENCY : Math.max( 1, copyConcurrency );
+  }
+
+  /**
+   * @return the size of the client connection pool: as configured in the file system options, otherwise enough for a
+   * few streams uploading, reading ahead and copying in parallel at the configured concurrency
+   */
+  public int getMaxConnections() {
+    Integer maxConnections = new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).getMaxConnections();
+    if ( maxConnections != null ) {
+      return maxConnections;
     }
-    return client;
+    // a read takes one connection for the current chunk and one per chunk read ahead, a copy one per object and one
+    // per part of a large object
+    int streamConnections = getUploadConcurrency() + getReadAheadChunks() + 1 + 2 * getCopyConcurrency();
+    return Math.max( ClientConfiguration.DEFAULT_MAX_CONNECTIONS, EXPECTED_CONCURRENT_STREAMS * streamConnections );
   }
 
-  private boolean hasClientChangedCredentials() {
-    return client != null
-      && ( S3Util.hasChanged( awsAccessKeyCache, System.getProperty( S3Util.ACCESS_KEY_SYSTEM_PROPERTY ) )
-      || S3Util.hasChanged( awsSecretKeyCache, System.getProperty( S3Util.SECRET_KEY_SYSTEM_PROPERTY ) ) );
+  /**
+   * Lists the objects below a prefix one page at a time, prefetching the next page when enabled.
+   *
+   * @param request the listing request; the continuation token is managed by the returned listing
+   */
+  public S3CommonObjectListing listObjects( ListObjectsV2Request request ) {
+    return new S3CommonObjectListing( getS3Client(), request,
+      new S3CommonFileSystemConfigBuilder( getFileSystemOptions() ).isListPrefetch() );
   }
 
   protected boolean isRegionSet() {
@@ -36,6 +36,21 @@ public class S3CommonFileSystemConfigBuilder extends FileSystemConfigBuilder {
   private static final String DEFAULT_S3_CONFIG = "defaultS3Config";
   private static final String CONNECTION_TYPE = "connectionType";
   private static final String USE_DEFAULTS = "useDefaults";
+  private static final String PART_SIZE = "partSize";
+  private static final String UPLOAD_CONCURRENCY = "uploadConcurrency";
+  private static final String PART_BUFFER_TYPE = "partBufferType";
+  private static final String READ_CHUNK_SIZE = "readChunkSize";
+  private static final String READ_AHEAD_CHUNKS = "readAheadChunks";
+  private static final String STATUS_CACHE_TTL = "statusCacheTtl";
+  private static final String STATUS_CACHE_SIZE = "statusCacheSize";
+  private static final String MAX_CONNECTIONS = "maxConnections";
+  private static final String CONNECTION_TIMEOUT = "connectionTimeout";
+  private static final String SOCKET_TIMEOUT = "socketTimeout";
+  private static final String MAX_ERROR_RETRY = "maxErrorRetry";
+  private static final String CLIENT_REFRESH_INTERVAL = "clientRefreshInterval";
+  private static final String COPY_PART_SIZE = "copyPartSize";
+  private static final String COPY_CONCURRENCY = "copyConcurrency";
+  private static final String LIST_PREFETCH = "listPrefetch";
 
   private FileSystemOptions fileSystemOptions;
 
@@ -156,6 +171,174 @@ public class S3CommonFileSystemConfigBuilder extends FileSystemConfigBuilder {
     this.setParam( getFileSystemOptions(), USE_DEFAULTS, useDefaults );
   }
 
+  /**
+   * @return the multipart upload part size in bytes, or null when it was not configured
+   */
+  public Integer getPartSize() {
+    return (Integer) this.getParam( getFileSystemOptions(), PART_SIZE );
+  }
+
+  public void setPartSize( Integer partSize ) {
+    this.setParam( getFileSystemOptions(), PART_SIZE, partSize );
+  }
+
+  /**
+   * @return the number of parts uploaded at the same time by one output stream, or null when it was not configured
+   */
+  public Integer getUploadConcurrency() {
+    return (Integer) this.getParam( getFileSystemOptions(), UPLOAD_CONCURRENCY );
+  }
+
+  public void setUploadConcurrency( Integer uploadConcurrency ) {
+    this.setParam( getFileSystemOptions(), UPLOAD_CONCURRENCY, uploadConcurrency );
+  }
+
+  /**
+   * @return the name of the {@link S3CommonPartBufferType} upload parts are buffered in, or null when it was not
+   * configured
+   */
+  public String getPartBufferType() {
+    return (String) this.getParam( getFileSystemOptions(), PART_BUFFER_TYPE );
+  }
+
+  public void setPartBufferType( String partBufferType ) {
+    this.setParam( getFileSystemOptions(), PART_BUFFER_TYPE, partBufferType );
+  }
+
+  /**
+   * @return the size in bytes of each ranged GET issued by input streams, or null when it was not configured
+   */
+  public Integer getReadChunkSize() {
+    return (Integer) this.getParam( getFileSystemOptions(), READ_CHUNK_SIZE );
+  }
+
+  public void setReadChunkSize( Integer readChunkSize ) {
+    this.setParam( getFileSystemOptions(), READ_CHUNK_SIZE, readChunkSize );
+  }
+
+  /**
+   * @return the number of chunks input streams fetch ahead of the read position, or null when it was not configured
+   */
+  public Integer getReadAheadChunks() {
+    return (Integer) this.getParam( getFileSystemOptions(), READ_AHEAD_CHUNKS );
+  }
+
+  public void setReadAheadChunks( Integer readAheadChunks ) {
+    this.setParam( getFileSystemOptions(), READ_AHEAD_CHUNKS, readAheadChunks );
+  }
+
+  /**
+   * @return how long in milliseconds object metadata is cached, or null when it was not configured
+   */
+  public Long getStatusCacheTtl() {
+    return (Long) this.getParam( getFileSystemOptions(), STATUS_CACHE_TTL );
+  }
+
+  public void setStatusCacheTtl( Long statusCacheTtl ) {
+    this.setParam( getFileSystemOptions(), STATUS_CACHE_TTL, statusCacheTtl );
+  }
+
+  /**
+   * @return the maximum number of objects whose metadata is cached, or null when it was not configured
+   */
+  public Long getStatusCacheSize() {
+    return (Long) this.getParam( getFileSystemOptions(), STATUS_CACHE_SIZE );
+  }
+
+  public void setStatusCacheSize( Long statusCacheSize ) {
+    this.setParam( getFileSystemOptions(), STATUS_CACHE_SIZE, statusCacheSize );
+  }
+
+  /**
+   * @return the size of the HTTP connection pool of the S3 client, or null to use the SDK default
+   */
+  public Integer getMaxConnections() {
+    return (Integer) this.getParam( getFileSystemOptions(), MAX_CONNECTIONS );
+  }
+
+  public void setMaxConnections( Integer maxConnections ) {
+    this.setParam( getFileSystemOptions(), MAX_CONNECTIONS, maxConnections );
+  }
+
+  /**
+   * @return the connection timeout in milliseconds of the S3 client, or null to use the SDK default
+   */
+  public Integer getConnectionTimeout() {
+    return (Integer) this.getParam( getFileSystemOptions(), CONNECTION_TIMEOUT );
+  }
+
+  public void setConnectionTimeout( Integer connectionTimeout ) {
+    this.setParam( getFileSystemOptions(), CONNECTION_TIMEOUT, connectionTimeout );
+  }
+
+  /**
+   * @return the socket timeout in milliseconds of the S3 client, or null to use the SDK default
+   */
+  public Integer getSocketTimeout() {
+    return (Integer) this.getParam( getFileSystemOptions(), SOCKET_TIMEOUT );
+  }
+
+  public void setSocketTimeout( Integer socketTimeout ) {
+    this.setParam( getFileSystemOptions(), SOCKET_TIMEOUT, socketTimeout );
+  }
+
+  /**
+   * @return how many times the S3 client retries a failed request, or null to use the SDK default
+   */
+  public Integer getMaxErrorRetry() {
+    return (Integer) this.getParam( getFileSystemOptions(), MAX_ERROR_RETRY );
+  }
+
+  public void setMaxErrorRetry( Integer maxErrorRetry ) {
+    this.setParam( getFileSystemOptions(), MAX_ERROR_RETRY, maxErrorRetry );
+  }
+
+  /**
+   * @return how long in milliseconds a resolved S3 client is reused before its settings are checked again, or null
+   * when it was not configured
+   */
+  public Long getClientRefreshInterval() {
+    return (Long) this.getParam( getFileSystemOptions(), CLIENT_REFRESH_INTERVAL );
+  }
+
+  public void setClientRefreshInterval( Long clientRefreshInterval ) {
+    this.setParam( getFileSystemOptions(), CLIENT_REFRESH_INTERVAL, clientRefreshInterval );
+  }
+
+  /**
+   * @return the size in bytes above which objects are copied with a multipart copy, and the size of each copied part,
+   * or null when it was not configured
+   */
+  public Long getCopyPartSize() {
+    return (Long) this.getParam( getFileSystemOptions(), COPY_PART_SIZE );
+  }
+
+  public void setCopyPartSize( Long copyPartSize ) {
+    this.setParam( getFileSystemOptions(), COPY_PART_SIZE, copyPartSize );
+  }
+
+  /**
+   * @return the number of objects, or parts of an object, copied at the same time, or null when it was not configured
+   */
+  public Integer getCopyConcurrency() {
+    return (Integer) this.getParam( getFileSystemOptions(), COPY_CONCURRENCY );
+  }
+
+  public void setCopyConcurrency( Integer copyConcurrency ) {
+    this.setParam( getFileSystemOptions(), COPY_CONCURRENCY, copyConcurrency );
+  }
+
+  /**
+   * @return whether the next page of a listing is requested while the current one is processed, true by default
+   */
+  public boolean isListPrefetch() {
+    return this.getBoolean( getFileSystemOptions(), LIST_PREFETCH, Boolean.TRUE );
+  }
+
+  public void setListPrefetch( boolean listPrefetch ) {
+    this.setParam( getFileSystemOptions(), LIST_PREFETCH, listPrefetch );
+  }
+
   @Override protected Class<? extends FileSystem> getConfigClass() {
     return S3NFileSystem.class;
   }
@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import org.apache.commons.vfs2.FileSystemException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Server side copy of S3 objects. Objects larger than one copy part are copied with a parallel multipart copy
+ * ({@code UploadPartCopy}), and many objects can be copied at the same time with {@link #copyAsync}.
+ */
+public class S3CommonObjectCopier implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger( S3CommonObjectCopier.class );
+
+  public static final long DEFAULT_COPY_PART_SIZE = 128L * 1024 * 1024;
+  public static final int DEFAULT_COPY_CONCURRENCY = 8;
+  /**
+   * A multipart upload has at most 10000 parts.
+   */
+  private static final int MAX_PARTS = 10000;
+
+  private final S3CommonFileSystem fileSystem;
+  private final long partSize;
+  private final int concurrency;
+  private ExecutorService objectExecutor;
+  private ExecutorService partExecutor;
+
+  public S3CommonObjectCopier( S3CommonFileSystem fileSystem, long partSize, int concurrency ) {
+    this.fileSystem = fileSystem;
+    this.partSize = partSize;
+    this.concurrency = Math.max( 1, concurrency );
+  }
+
+  /**
+   * Copies one object, waiting for the copy to finish.
+   */
+  public void copy( CopyObjectRequest request, long contentLength ) throws FileSystemException {
+    AmazonS3 s3Client = fileSystem.getS3Client();
+    if ( contentLength <= partSize ) {
+      s3Client.copyObject( request );
+    } else {
+      multipartCopy( s3Client, request, contentLength );
+    }
+  }
+
+  /**
+   * Schedules the copy of one object; use {@link #await(List)} to wait for the scheduled copies.
+   */
+  public synchronized Future<Void> copyAsync( CopyObjectRequest request, long contentLength ) {
+    if ( objectExecutor == null ) {
+      objectExecutor = Executors.newFixedThreadPool( concurrency );
+    }
+    return objectExecutor.submit( () -> {
+      copy( request, contentLength );
+      return null;
+    } );
+  }
+
+  public void await( List<Future<Void>> copies ) throws FileSystemException {
+    try {
+      for ( Future<Void> copy : copies ) {
+        copy.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      copies.forEach( copy -> copy.cancel( true ) );
+      throw new FileSystemException( e );
+    } catch ( ExecutionException e ) {
+      copies.forEach( copy -> copy.cancel( true ) );
+      if ( e.getCause() instanceof FileSystemException ) {
+        throw (FileSystemException) e.getCause();
+      }
+      throw new FileSystemException( e.getCause() );
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if ( objectExecutor != null ) {
+      objectExecutor.shutdown();
+    }
+    if ( partExecutor != null ) {
+      partExecutor.shutdown();
+    }
+  }
+
+  private synchronized ExecutorService getPartExecutor() {
+    if ( partExecutor == null ) {
+      partExecutor = Executors.newFixedThreadPool( concurrency );
+    }
+    return partExecutor;
+  }
+
+  private void multipartCopy( AmazonS3 s3Client, CopyObjectRequest request, long contentLength )
+    throws FileSystemException {
+    // keep content type and user metadata of the source, a multipart copy does not carry them over
+    ObjectMetadata metadata =
+      s3Client.getObjectMetadata( request.getSourceBucketName(), request.getSourceKey() ).clone();
+    String uploadId = s3Client.initiateMultipartUpload( new InitiateMultipartUploadRequest(
+      request.getDestinationBucketName(), request.getDestinationKey(), metadata ) ).getUploadId();
+
+    long copyPartSize = Math.max( partSize, ( contentLength + MAX_PARTS - 1 ) / MAX_PARTS );
+    List<Future<PartETag>> parts = new ArrayList<>();
+    int partNumber = 1;
+    for ( long firstByte = 0; firstByte < contentLength; firstByte += copyPartSize ) {
+      CopyPartRequest copyPartRequest = new CopyPartRequest()
+        .withSourceBucketName( request.getSourceBucketName() )
+        .withSourceKey( request.getSourceKey() )
+        .withDestinationBucketName( request.getDestinationBucketName() )
+        .withDestinationKey( request.getDestinationKey() )
+        .withUploadId( uploadId )
+        .withFirstByte( firstByte )
+        .withLastByte( Math.min( firstByte + copyPartSize, contentLength ) - 1 )
+        .withPartNumber( partNumber++ );
+      parts.add( getPartExecutor().submit( () -> s3Client.copyPart( copyPartRequest ).getPartETag() ) );
+    }
+
+    try {
+      List<PartETag> partETags = new ArrayList<>( parts.size() );
+      for ( Future<PartETag> part : parts ) {
+        partETags.add( part.get() );
+      }
+      s3Client.completeMultipartUpload( new CompleteMultipartUploadRequest(
+        request.getDestinationBucketName(), request.getDestinationKey(), uploadId, partETags ) );
+    } catch ( InterruptedException | ExecutionException | RuntimeException e ) {
+      if ( e instanceof InterruptedException ) {
+        Thread.currentThread().interrupt();
+      }
+      parts.forEach( part -> part.cancel( true ) );
+      logger.error( "Multipart copy of {}/{} failed", request.getSourceBucketName(), request.getSourceKey(), e );
+      s3Client.abortMultipartUpload( new AbortMultipartUploadRequest(
+        request.getDestinationBucketName(), request.getDestinationKey(), uploadId ) );
+      throw new FileSystemException( e );
+    }
+  }
+}
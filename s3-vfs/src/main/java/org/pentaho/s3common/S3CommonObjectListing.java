@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy, paginated listing of the objects below a prefix. Pages are requested with {@code ListObjectsV2} as they are
+ * consumed, so only the current page (and the prefetched next one) is held in memory, however many keys match.
+ */
+public class S3CommonObjectListing implements Iterator<ListObjectsV2Result>, AutoCloseable {
+
+  private final AmazonS3 s3Client;
+  private final ListObjectsV2Request request;
+  private final boolean prefetch;
+  private ExecutorService executor;
+  private Future<ListObjectsV2Result> nextPage;
+  private ListObjectsV2Result lastPage;
+
+  public S3CommonObjectListing( AmazonS3 s3Client, ListObjectsV2Request request, boolean prefetch ) {
+    this.s3Client = s3Client;
+    this.request = request;
+    this.prefetch = prefetch;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return lastPage == null || lastPage.isTruncated();
+  }
+
+  @Override
+  public ListObjectsV2Result next() {
+    if ( !hasNext() ) {
+      throw new NoSuchElementException();
+    }
+    lastPage = nextPage != null ? awaitNextPage() : s3Client.listObjectsV2( request );
+    nextPage = null;
+    if ( lastPage.isTruncated() ) {
+      // the continuation token of this page is what the following request needs
+      request.setContinuationToken( lastPage.getNextContinuationToken() );
+      if ( prefetch ) {
+        ListObjectsV2Request nextRequest = (ListObjectsV2Request) request.clone();
+        nextPage = getExecutor().submit( () -> s3Client.listObjectsV2( nextRequest ) );
+      }
+    }
+    return lastPage;
+  }
+
+  @Override
+  public void close() {
+    if ( nextPage != null ) {
+      nextPage.cancel( true );
+      nextPage = null;
+    }
+    if ( executor != null ) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private ExecutorService getExecutor() {
+    if ( executor == null ) {
+      executor = Executors.newSingleThreadExecutor();
+    }
+    return executor;
+  }
+
+  private ListObjectsV2Result awaitNextPage() {
+    try {
+      return nextPage.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof RuntimeException ) {
+        // surface the AmazonClientException as if the page had been requested on this thread
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException( e.getCause() );
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.vfs2.FileType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache of the type and metadata of S3 objects, keyed by bucket and key.
+ * <p>
+ * Entries come from metadata requests made while attaching file objects and from the summaries returned when a
+ * folder is listed, so that the children of a listed folder can be attached without one request per child.
+ */
+public class S3CommonObjectStatusCache {
+
+  public static final long DEFAULT_TTL_MILLIS = 60_000L;
+  public static final long DEFAULT_MAXIMUM_SIZE = 50_000L;
+
+  private static final String DELIMITER = S3CommonFileObject.DELIMITER;
+
+  private final Cache<String, S3ObjectStatus> cache;
+
+  public S3CommonObjectStatusCache( long ttlMillis, long maximumSize ) {
+    this.cache = CacheBuilder.newBuilder()
+      .expireAfterWrite( ttlMillis, TimeUnit.MILLISECONDS )
+      .maximumSize( maximumSize )
+      .build();
+  }
+
+  /**
+   * @return the cached status of the object, or null when nothing is known about it
+   */
+  public S3ObjectStatus get( String bucket, String key ) {
+    return cache.getIfPresent( cacheKey( bucket, key ) );
+  }
+
+  public void put( String bucket, String key, FileType type, ObjectMetadata metadata ) {
+    cache.put( cacheKey( bucket, key ), new S3ObjectStatus( type, metadata ) );
+  }
+
+  public void put( String bucket, S3ObjectSummary summary ) {
+    if ( summary.getKey().endsWith( DELIMITER ) ) {
+      putFolder( bucket, summary.getKey() );
+      return;
+    }
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength( summary.getSize() );
+    metadata.setLastModified( summary.getLastModified() );
+    if ( summary.getETag() != null ) {
+      metadata.setHeader( Headers.ETAG, summary.getETag() );
+    }
+    put( bucket, summary.getKey(), FileType.FILE, metadata );
+  }
+
+  public void putFolder( String bucket, String key ) {
+    put( bucket, key, FileType.FOLDER, null );
+  }
+
+  public void invalidate( String bucket, String key ) {
+    cache.invalidate( cacheKey( bucket, key ) );
+  }
+
+  /**
+   * Drops the object and everything below it.
+   */
+  public void invalidatePrefix( String bucket, String prefix ) {
+    String objectKey = cacheKey( bucket, prefix );
+    String childPrefix = objectKey.endsWith( DELIMITER ) ? objectKey : objectKey + DELIMITER;
+    cache.asMap().keySet().removeIf( k -> k.equals( objectKey ) || k.startsWith( childPrefix ) );
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  private static String cacheKey( String bucket, String key ) {
+    String objectKey = key.endsWith( DELIMITER ) ? key.substring( 0, key.length() - 1 ) : key;
+    return bucket + DELIMITER + objectKey;
+  }
+
+  public static class S3ObjectStatus {
+
+    private final FileType type;
+    private final ObjectMetadata metadata;
+
+    S3ObjectStatus( FileType type, ObjectMetadata metadata ) {
+      this.type = type;
+      this.metadata = metadata;
+    }
+
+    public FileType getType() {
+      return type;
+    }
+
+    /**
+     * @return the object metadata, or null for folders that only exist as a common prefix
+     */
+    public ObjectMetadata getMetadata() {
+      return metadata;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed size buffer holding one part of a multipart upload. The bytes live in a {@link ByteBuffer} whose storage
+ * depends on the {@link S3CommonPartBufferType} it was allocated with, and are uploaded straight from it through
+ * {@link #getInputStream()}.
+ */
+public class S3CommonPartBuffer implements Closeable {
+
+  private final ByteBuffer buffer;
+  private final Runnable release;
+  private boolean closed = false;
+
+  /**
+   * @param buffer  empty buffer with the capacity of one part
+   * @param release frees the storage of the buffer once it is closed
+   */
+  S3CommonPartBuffer( ByteBuffer buffer, Runnable release ) {
+    this.buffer = buffer;
+    this.release = release;
+  }
+
+  public void write( int b ) {
+    buffer.put( (byte) b );
+  }
+
+  /**
+   * Copies as many of the given bytes as fit in the buffer.
+   *
+   * @return the number of bytes copied
+   */
+  public int write( byte[] b, int off, int len ) {
+    int count = Math.min( len, buffer.remaining() );
+    buffer.put( b, off, count );
+    return count;
+  }
+
+  public int length() {
+    return buffer.position();
+  }
+
+  public boolean isFull() {
+    return !buffer.hasRemaining();
+  }
+
+  /**
+   * @return a stream over the bytes written so far, reading the buffer in place; mark and reset are supported so that
+   * a retried request can send the part again
+   */
+  public InputStream getInputStream() {
+    ByteBuffer content = buffer.duplicate();
+    content.flip();
+    return new ByteBufferInputStream( content );
+  }
+
+  /**
+   * Empties the buffer so that it can hold another part.
+   */
+  public void clear() {
+    buffer.clear();
+  }
+
+  @Override
+  public synchronized void close() {
+    if ( !closed ) {
+      closed = true;
+      release.run();
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer content;
+    private int markPosition = 0;
+
+    ByteBufferInputStream( ByteBuffer content ) {
+      this.content = content;
+    }
+
+    @Override
+    public int read() {
+      return content.hasRemaining() ? content.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) {
+      if ( len == 0 ) {
+        return 0;
+      }
+      if ( !content.hasRemaining() ) {
+        return -1;
+      }
+      int count = Math.min( len, content.remaining() );
+      content.get( b, off, count );
+      return count;
+    }
+
+    @Override
+    public long skip( long n ) {
+      int count = (int) Math.max( 0, Math.min( n, content.remaining() ) );
+      content.position( content.position() + count );
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return content.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark( int readLimit ) {
+      markPosition = content.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+      content.position( markPosition );
+    }
+  }
+}
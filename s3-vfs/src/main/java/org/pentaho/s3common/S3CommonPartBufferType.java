@@ -0,0 +1,209 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where the parts of a multipart upload are buffered before they are sent to S3.
+ */
+public enum S3CommonPartBufferType {
+
+  /**
+   * Parts are kept in byte arrays on the Java heap.
+   */
+  HEAP {
+    @Override
+    public S3CommonPartBuffer allocate( int capacity ) {
+      return new S3CommonPartBuffer( ByteBuffer.allocate( capacity ), () -> { } );
+    }
+  },
+
+  /**
+   * Parts are kept in direct buffers outside of the Java heap. Released buffers are pooled process wide, so that
+   * streams opened one after the other reuse them instead of allocating new native memory. The pool is emptied once
+   * it has not been used for a while.
+   */
+  DIRECT {
+    @Override
+    public S3CommonPartBuffer allocate( int capacity ) {
+      ByteBuffer buffer = DirectBufferPool.take( capacity );
+      return new S3CommonPartBuffer( buffer, () -> DirectBufferPool.release( buffer ) );
+    }
+  },
+
+  /**
+   * Parts are kept in temporary files on local disk, mapped into memory, so that they only take page cache.
+   */
+  FILE {
+    @Override
+    public S3CommonPartBuffer allocate( int capacity ) throws IOException {
+      File file = File.createTempFile( "s3-part-", ".tmp" );
+      TempFiles.register( file );
+      MappedByteBuffer buffer;
+      try ( RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" ) ) {
+        randomAccessFile.setLength( capacity );
+        // the mapping stays valid after the channel is closed
+        buffer = randomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, capacity );
+      } catch ( IOException e ) {
+        deleteTempFile( file );
+        throw e;
+      }
+      return new S3CommonPartBuffer( buffer, () -> deleteTempFile( file ) );
+    }
+  };
+
+  private static final Logger logger = LoggerFactory.getLogger( S3CommonPartBufferType.class );
+
+  /**
+   * Heap buffers, as before the other types existed; native memory or disk is only used when it is asked for.
+   */
+  public static final S3CommonPartBufferType DEFAULT = HEAP;
+
+  /**
+   * Allocates an empty buffer for one part.
+   *
+   * @param capacity the part size in bytes
+   */
+  public abstract S3CommonPartBuffer allocate( int capacity ) throws IOException;
+
+  /**
+   * @return the buffer type with the given name, ignoring case, or {@link #DEFAULT} when the name is empty or unknown
+   */
+  public static S3CommonPartBufferType fromName( String name ) {
+    if ( name != null && !name.trim().isEmpty() ) {
+      for ( S3CommonPartBufferType type : values() ) {
+        if ( type.name().equalsIgnoreCase( name.trim() ) ) {
+          return type;
+        }
+      }
+      logger.warn( "Unknown part buffer type {}, using {}", name, DEFAULT );
+    }
+    return DEFAULT;
+  }
+
+  private static void deleteTempFile( File file ) {
+    // some platforms refuse to delete a file that is still mapped, the exit hook gets another go at it
+    if ( file.delete() ) {
+      TempFiles.unregister( file );
+    }
+  }
+
+  /**
+   * Temporary files of the buffers that are still open, deleted when the JVM exits so that a buffer that is never
+   * released does not leave its file behind. Unlike {@link File#deleteOnExit()}, released files are forgotten.
+   */
+  private static class TempFiles {
+
+    private static final Set<File> files = ConcurrentHashMap.newKeySet();
+
+    static {
+      Runtime.getRuntime().addShutdownHook( new Thread( () -> files.forEach( File::delete ), "s3-part-cleanup" ) );
+    }
+
+    static void register( File file ) {
+      files.add( file );
+    }
+
+    static void unregister( File file ) {
+      files.remove( file );
+    }
+  }
+
+  private static class DirectBufferPool {
+
+    /**
+     * Upper bound of the native memory kept around by buffers nobody is using.
+     */
+    private static final long MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * How long the pool is kept once nobody takes or releases buffers.
+     */
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+    private static final Map<Integer, Queue<ByteBuffer>> pool = new ConcurrentHashMap<>();
+    private static final AtomicLong pooledBytes = new AtomicLong();
+    private static final AtomicLong lastUsed = new AtomicLong();
+    private static final AtomicBoolean trimScheduled = new AtomicBoolean();
+    private static final ScheduledExecutorService trimmer = Executors.newSingleThreadScheduledExecutor( runnable -> {
+      Thread thread = new Thread( runnable, "s3-direct-buffer-trim" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+
+    static ByteBuffer take( int capacity ) {
+      lastUsed.set( System.currentTimeMillis() );
+      Queue<ByteBuffer> buffers = pool.get( capacity );
+      ByteBuffer buffer = buffers == null ? null : buffers.poll();
+      if ( buffer == null ) {
+        return ByteBuffer.allocateDirect( capacity );
+      }
+      pooledBytes.addAndGet( -capacity );
+      buffer.clear();
+      return buffer;
+    }
+
+    static void release( ByteBuffer buffer ) {
+      int capacity = buffer.capacity();
+      if ( pooledBytes.addAndGet( capacity ) > MAX_POOLED_BYTES ) {
+        // pool is full, leave the buffer to the garbage collector
+        pooledBytes.addAndGet( -capacity );
+        return;
+      }
+      pool.computeIfAbsent( capacity, size -> new ConcurrentLinkedQueue<>() ).offer( buffer );
+      lastUsed.set( System.currentTimeMillis() );
+      if ( trimScheduled.compareAndSet( false, true ) ) {
+        trimmer.schedule( DirectBufferPool::trim, IDLE_MILLIS, TimeUnit.MILLISECONDS );
+      }
+    }
+
+    /**
+     * Leaves the pooled buffers to the garbage collector once the pool has been idle for {@link #IDLE_MILLIS}, and
+     * checks again later otherwise.
+     */
+    private static void trim() {
+      long idle = System.currentTimeMillis() - lastUsed.get();
+      if ( idle < IDLE_MILLIS ) {
+        trimmer.schedule( DirectBufferPool::trim, IDLE_MILLIS - idle, TimeUnit.MILLISECONDS );
+        return;
+      }
+      trimScheduled.set( false );
+      for ( Queue<ByteBuffer> buffers : pool.values() ) {
+        ByteBuffer buffer;
+        while ( ( buffer = buffers.poll() ) != null ) {
+          pooledBytes.addAndGet( -buffer.capacity() );
+        }
+      }
+    }
+  }
+}
@@ -16,7 +16,6 @@ package org.pentaho.s3common;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
-import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.UploadPartRequest;
 import org.pentaho.di.core.logging.LogChannel;
@@ -26,22 +25,32 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
 
 /**
- * Custom OutputStream that enables chunked uploads into S3
+ * Custom OutputStream that enables chunked uploads into S3.
+ * <p>
+ * Bytes are written straight into a part buffer taken from a small bounded pool. Every full part is handed to a pool
+ * of upload threads, so up to {@code uploadConcurrency} parts are sent to S3 at the same time while the writer keeps
+ * filling the next buffer. When every buffer is in flight the writer blocks until one of the uploads finishes.
+ * <p>
+ * Parts are uploaded straight from their buffer, which depending on the {@link S3CommonPartBufferType} lives on the
+ * heap, in direct memory or in a memory mapped temporary file.
  */
-public class S3CommonPipedOutputStream extends PipedOutputStream {
+public class S3CommonPipedOutputStream extends OutputStream {
 
   private static final Class<?> PKG = S3CommonPipedOutputStream.class;
   private static final Logger logger = LoggerFactory.getLogger( S3CommonPipedOutputStream.class );
@@ -50,12 +59,20 @@ public class S3CommonPipedOutputStream extends PipedOutputStream {
   /**
    * set to aws multipart minimum 5MB.
    */
-  private static final int DEFAULT_PART_SIZE = 5 * 1024 * 1024;
-  private ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 1 );
+  public static final int DEFAULT_PART_SIZE = 5 * 1024 * 1024;
+  /**
+   * Number of parts of a single stream that are uploaded at the same time.
+   */
+  public static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+  /**
+   * Memory the part buffers of one stream may take when the upload concurrency is not configured, 64 MB.
+   */
+  public static final long DEFAULT_UPLOAD_BUFFER_BYTES = 64L * 1024 * 1024;
+
+  private ExecutorService executor;
   private boolean initialized = false;
+  private boolean closed = false;
   private boolean blockedUntilDone = true;
-  private PipedInputStream pipedInputStream;
-  private S3AsyncTransferRunner s3AsyncTransferRunner;
   private S3CommonFileSystem fileSystem;
   private Future<Boolean> result = null;
   private String bucketId;
@@ -64,33 +81,69 @@ public class S3CommonPipedOutputStream extends PipedOutputStream {
    * AWS Multipart part size.
    */
   private int partSize;
+  private int uploadConcurrency;
+  private S3CommonPartBufferType bufferType;
+
+  /**
+   * Part buffers that are free to be filled; at most {@code uploadConcurrency + 1} buffers are ever allocated.
+   */
+  private BlockingQueue<S3CommonPartBuffer> bufferPool;
+  private int allocatedBuffers = 0;
+  private boolean buffersReleased = false;
+  private S3CommonPartBuffer currentPart;
+  private int partNum = 1;
+  private long offset = 0;
+  private String uploadId;
+  private final List<Future<PartETag>> partUploads = new ArrayList<>();
+  /**
+   * Parts that are queued but not being uploaded yet; their buffers are freed here if the upload is aborted.
+   */
+  private final Set<S3PartUploader> pendingParts = new HashSet<>();
+  private volatile Exception uploadFailure;
 
   public S3CommonPipedOutputStream( S3CommonFileSystem fileSystem, String bucketId, String key ) throws IOException {
     this( fileSystem, bucketId, key, DEFAULT_PART_SIZE );
   }
 
   public S3CommonPipedOutputStream( S3CommonFileSystem fileSystem, String bucketId, String key, int partSize ) throws IOException {
-    this.pipedInputStream = new PipedInputStream();
+    this( fileSystem, bucketId, key, partSize, defaultUploadConcurrency( partSize ) );
+  }
 
-    try {
-      this.pipedInputStream.connect( this );
-    } catch ( IOException e ) {
-      // FATAL, unexpected
-      throw new IOException( "could not connect to pipedInputStream", e );
-    }
+  /**
+   * @return {@link #DEFAULT_UPLOAD_CONCURRENCY}, lowered for large parts so that the buffers of a stream, one per part
+   * being uploaded plus the one being filled, stay within {@link #DEFAULT_UPLOAD_BUFFER_BYTES}; at least 1
+   */
+  public static int defaultUploadConcurrency( int partSize ) {
+    long buffers = DEFAULT_UPLOAD_BUFFER_BYTES / Math.max( 1, partSize );
+    return (int) Math.max( 1, Math.min( DEFAULT_UPLOAD_CONCURRENCY, buffers - 1 ) );
+  }
 
-    this.s3AsyncTransferRunner = new S3AsyncTransferRunner();
+  public S3CommonPipedOutputStream( S3CommonFileSystem fileSystem, String bucketId, String key, int partSize,
+                                    int uploadConcurrency ) throws IOException {
+    this( fileSystem, bucketId, key, partSize, uploadConcurrency, S3CommonPartBufferType.DEFAULT );
+  }
+
+  public S3CommonPipedOutputStream( S3CommonFileSystem fileSystem, String bucketId, String key, int partSize,
+                                    int uploadConcurrency, S3CommonPartBufferType bufferType ) throws IOException {
     this.bucketId = bucketId;
     this.key = key;
     this.fileSystem = fileSystem;
     this.partSize = partSize;
+    this.uploadConcurrency = Math.max( 1, uploadConcurrency );
+    this.bufferType = bufferType;
   }
 
-  private void initializeWrite() {
+  private void initializeWrite() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" );
+    }
     if ( !initialized ) {
       initialized = true;
-      result = this.executor.submit( s3AsyncTransferRunner );
+      this.executor = Executors.newFixedThreadPool( uploadConcurrency );
+      this.bufferPool = new ArrayBlockingQueue<>( uploadConcurrency + 1 );
+      logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Start" ) );
     }
+    checkUploadFailure();
   }
 
   public boolean isBlockedUntilDone() {
@@ -104,123 +157,249 @@ public class S3CommonPipedOutputStream extends PipedOutputStream {
   @Override
   public void write( int b ) throws IOException {
     initializeWrite();
-    super.write( b );
+    if ( currentPart == null ) {
+      currentPart = acquireBuffer();
+    }
+    currentPart.write( b );
+    if ( currentPart.isFull() ) {
+      uploadCurrentPart( false );
+    }
   }
 
   @Override
   public void write( byte[] b, int off, int len ) throws IOException {
     initializeWrite();
-    super.write( b, off, len );
+    while ( len > 0 ) {
+      if ( currentPart == null ) {
+        currentPart = acquireBuffer();
+      }
+      int count = currentPart.write( b, off, len );
+      off += count;
+      len -= count;
+      if ( currentPart.isFull() ) {
+        uploadCurrentPart( false );
+      }
+    }
   }
 
   @Override
   public void close() throws IOException {
-    super.close();
-
-    if ( initialized && isBlockedUntilDone() ) {
-      while ( !result.isDone() ) {
-        try {
-          Thread.sleep( 100 );
-        } catch ( InterruptedException e ) {
-          logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.ExceptionCaught" ), e );
-          Thread.currentThread().interrupt();
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    if ( !initialized ) {
+      return;
+    }
+
+    try {
+      // the last part is always sent so that an empty stream still creates the object
+      if ( ( currentPart != null && currentPart.length() > 0 ) || partUploads.isEmpty() ) {
+        if ( currentPart == null ) {
+          currentPart = acquireBuffer();
         }
+        uploadCurrentPart( true );
+      }
+    } catch ( IOException e ) {
+      abortUpload();
+      executor.shutdown();
+      releaseBuffers();
+      throw e;
+    }
+
+    if ( isBlockedUntilDone() ) {
+      if ( !completeUpload() ) {
+        throw new IOException( BaseMessages.getString( PKG, "ERROR.S3MultiPart.Aborted" ), uploadFailure );
       }
+    } else {
+      ExecutorService completionExecutor = Executors.newSingleThreadExecutor();
+      result = completionExecutor.submit( this::completeUpload );
+      completionExecutor.shutdown();
     }
-    this.executor.shutdown();
   }
 
-  class S3AsyncTransferRunner implements Callable<Boolean> {
+  private S3CommonPartBuffer acquireBuffer() throws IOException {
+    S3CommonPartBuffer buffer = bufferPool.poll();
+    if ( buffer != null ) {
+      return buffer;
+    }
+    if ( allocatedBuffers < uploadConcurrency + 1 ) {
+      try {
+        buffer = bufferType.allocate( partSize );
+      } catch ( OutOfMemoryError oome ) {
+        consoleLog.logError( BaseMessages.getString( PKG,
+          "ERROR.S3MultiPart.UploadOutOfMemory", new StorageUnitConverter().byteCountToDisplaySize( partSize ) ),
+          oome );
+        throw new IOException( oome );
+      }
+      allocatedBuffers++;
+      return buffer;
+    }
+    try {
+      // every buffer is in flight, wait for an upload to give one back
+      return bufferPool.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    }
+  }
 
-    public Boolean call() throws Exception {
-      boolean returnVal = true;
-      List<PartETag> partETags = new ArrayList<>();
+  private void uploadCurrentPart( boolean lastPart ) throws IOException {
+    checkUploadFailure();
+    if ( uploadId == null ) {
+      try {
+        uploadId = fileSystem.getS3Client()
+          .initiateMultipartUpload( new InitiateMultipartUploadRequest( bucketId, key ) ).getUploadId();
+      } catch ( Exception e ) {
+        logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.ExceptionCaught" ), e );
+        throw new IOException( e );
+      }
+    }
 
-      // Step 1: Initialize
-      InitiateMultipartUploadRequest initRequest;
-      initRequest = new InitiateMultipartUploadRequest( bucketId, key );
+    S3PartUploader partUploader = new S3PartUploader( currentPart, partNum++, offset, lastPart );
+    synchronized ( this ) {
+      pendingParts.add( partUploader );
+    }
+    partUploads.add( executor.submit( partUploader ) );
+    offset += currentPart.length();
+    currentPart = null;
+  }
 
-      InitiateMultipartUploadResult initResponse = null;
+  /**
+   * Hands a buffer back to the pool, or frees it when the stream is already done with its buffers.
+   */
+  private synchronized void returnBuffer( S3CommonPartBuffer buffer ) {
+    if ( buffersReleased ) {
+      buffer.close();
+    } else {
+      buffer.clear();
+      bufferPool.offer( buffer );
+    }
+  }
 
-      // NOTE: byte[] max size is ~2GB < 5GB = aws api max part size
-      try ( ByteArrayOutputStream baos = new ByteArrayOutputStream( partSize );
-            BufferedInputStream bis = new BufferedInputStream( pipedInputStream, partSize ) ) {
-        initResponse = fileSystem.getS3Client().initiateMultipartUpload( initRequest );
-        // Step 2: Upload parts.
-        byte[] tmpBuffer = new byte[ partSize ];
-        int read = 0;
-        long offset = 0;
-        long totalRead = 0;
-        int partNum = 1;
+  /**
+   * Frees the buffers that are not in flight; the ones still being uploaded are freed when their upload ends.
+   */
+  private synchronized void releaseBuffers() {
+    buffersReleased = true;
+    if ( currentPart != null ) {
+      currentPart.close();
+      currentPart = null;
+    }
+    S3CommonPartBuffer buffer;
+    while ( ( buffer = bufferPool.poll() ) != null ) {
+      buffer.close();
+    }
+  }
 
-        S3CommonWindowedSubstream s3is;
-        logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Start" ) );
-        while ( ( read = bis.read( tmpBuffer ) ) >= 0 ) {
+  /**
+   * @return true if the part can be uploaded, false if the upload was aborted and its buffer already freed
+   */
+  private synchronized boolean startPart( S3PartUploader partUploader ) {
+    return pendingParts.remove( partUploader );
+  }
 
-          // if something was actually read
-          if ( read > 0 ) {
-            baos.write( tmpBuffer, 0, read );
-            totalRead += read;
-          }
+  /**
+   * Frees the buffers of the parts that never started; cancelling their task does not run the task, so they would
+   * never be handed back.
+   */
+  private synchronized void releasePendingBuffers() {
+    buffersReleased = true;
+    for ( S3PartUploader partUploader : pendingParts ) {
+      partUploader.buffer.close();
+    }
+    pendingParts.clear();
+  }
 
-          if ( totalRead > partSize ) {
-            s3is = new S3CommonWindowedSubstream( baos.toByteArray() );
+  private void checkUploadFailure() throws IOException {
+    if ( uploadFailure != null ) {
+      throw new IOException( BaseMessages.getString( PKG, "ERROR.S3MultiPart.ExceptionCaught" ), uploadFailure );
+    }
+  }
 
-            UploadPartRequest uploadRequest = new UploadPartRequest()
-              .withBucketName( bucketId ).withKey( key )
-              .withUploadId( initResponse.getUploadId() ).withPartNumber( partNum++ )
-              .withFileOffset( offset )
-              .withPartSize( totalRead )
-              .withInputStream( s3is );
+  private boolean completeUpload() {
+    boolean returnVal = true;
+    try {
+      List<PartETag> partETags = new ArrayList<>( partUploads.size() );
+      for ( Future<PartETag> partUpload : partUploads ) {
+        partETags.add( partUpload.get() );
+      }
 
-            // Upload part and add response to our list.
-            logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Upload", partNum - 1, offset, Long.toString( totalRead ) ) );
-            partETags.add( fileSystem.getS3Client().uploadPart( uploadRequest ).getPartETag() );
+      logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Complete" ) );
+      CompleteMultipartUploadRequest compRequest =
+        new CompleteMultipartUploadRequest( bucketId, key, uploadId, partETags );
+      fileSystem.getS3Client().completeMultipartUpload( compRequest );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      abortUpload();
+      returnVal = false;
+    } catch ( ExecutionException | RuntimeException e ) {
+      if ( uploadFailure == null ) {
+        uploadFailure = e;
+      }
+      logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.ExceptionCaught" ), e );
+      abortUpload();
+      returnVal = false;
+    } finally {
+      executor.shutdown();
+      releaseBuffers();
+    }
+    return returnVal;
+  }
 
-            offset += totalRead;
-            totalRead = 0; // reset part size counter
-            baos.reset(); // reset output stream to 0
-          }
-        }
+  private void abortUpload() {
+    partUploads.forEach( partUpload -> partUpload.cancel( true ) );
+    executor.shutdown();
+    releasePendingBuffers();
+    if ( uploadId != null ) {
+      fileSystem.getS3Client().abortMultipartUpload( new AbortMultipartUploadRequest( bucketId, key, uploadId ) );
+      logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.Aborted" ) );
+    }
+  }
 
-        // Step 2.1 upload last part
-        s3is = new S3CommonWindowedSubstream( baos.toByteArray() );
+  /**
+   * Uploads one part and hands its buffer back to the pool once S3 has consumed it.
+   */
+  class S3PartUploader implements Callable<PartETag> {
+
+    private final S3CommonPartBuffer buffer;
+    private final int length;
+    private final int partNumber;
+    private final long partOffset;
+    private final boolean lastPart;
+
+    S3PartUploader( S3CommonPartBuffer buffer, int partNumber, long partOffset, boolean lastPart ) {
+      this.buffer = buffer;
+      this.length = buffer.length();
+      this.partNumber = partNumber;
+      this.partOffset = partOffset;
+      this.lastPart = lastPart;
+    }
 
+    @Override
+    public PartETag call() throws Exception {
+      if ( !startPart( this ) ) {
+        throw new CancellationException();
+      }
+      try {
         UploadPartRequest uploadRequest = new UploadPartRequest()
           .withBucketName( bucketId ).withKey( key )
-          .withUploadId( initResponse.getUploadId() ).withPartNumber( partNum++ )
-          .withFileOffset( offset )
-          .withPartSize( totalRead )
-          .withInputStream( s3is )
-          .withLastPart( true );
-
-        logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Upload", partNum - 1, offset, totalRead ) );
-        partETags.add( fileSystem.getS3Client().uploadPart( uploadRequest ).getPartETag() );
-
-        // Step 3: Complete.
-        logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Complete" ) );
-        CompleteMultipartUploadRequest compRequest =
-          new CompleteMultipartUploadRequest( bucketId, key, initResponse.getUploadId(), partETags );
-
-        fileSystem.getS3Client().completeMultipartUpload( compRequest );
-      } catch ( OutOfMemoryError oome ) {
-        consoleLog.logError( BaseMessages.getString( PKG,
-          "ERROR.S3MultiPart.UploadOutOfMemory", new StorageUnitConverter().byteCountToDisplaySize( partSize ) ),
-          oome );
-        returnVal = false;
+          .withUploadId( uploadId ).withPartNumber( partNumber )
+          .withPartSize( length )
+          .withInputStream( buffer.getInputStream() )
+          .withLastPart( lastPart );
+
+        logger.info( BaseMessages.getString( PKG, "INFO.S3MultiPart.Upload", partNumber, partOffset,
+          Long.toString( length ) ) );
+        return fileSystem.getS3Client().uploadPart( uploadRequest ).getPartETag();
       } catch ( Exception e ) {
-        logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.ExceptionCaught" ), e );
-        if ( initResponse == null ) {
-          close();
-        } else {
-          fileSystem.getS3Client()
-            .abortMultipartUpload( new AbortMultipartUploadRequest( bucketId, key, initResponse.getUploadId() ) );
-          logger.error( BaseMessages.getString( PKG, "ERROR.S3MultiPart.Aborted" ) );
+        if ( uploadFailure == null ) {
+          uploadFailure = e;
         }
-        returnVal = false;
+        throw e;
+      } finally {
+        returnBuffer( buffer );
       }
-
-      return returnVal;
     }
   }
 }
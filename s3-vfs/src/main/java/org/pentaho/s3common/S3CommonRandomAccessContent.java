@@ -0,0 +1,60 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import org.apache.commons.vfs2.provider.AbstractRandomAccessStreamContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Read only random access content for S3 objects, seeking through ranged GET requests.
+ */
+public class S3CommonRandomAccessContent extends AbstractRandomAccessStreamContent {
+
+  private final S3CommonSeekableInputStream inputStream;
+  private final DataInputStream dataInputStream;
+
+  public S3CommonRandomAccessContent( S3CommonSeekableInputStream inputStream, RandomAccessMode mode ) {
+    super( mode );
+    this.inputStream = inputStream;
+    this.dataInputStream = new DataInputStream( inputStream );
+  }
+
+  @Override
+  protected DataInputStream getDataInputStream() {
+    return dataInputStream;
+  }
+
+  @Override
+  public long getFilePointer() {
+    return inputStream.getPos();
+  }
+
+  @Override
+  public void seek( long pos ) throws IOException {
+    inputStream.seek( pos );
+  }
+
+  @Override
+  public long length() throws IOException {
+    return inputStream.length();
+  }
+
+  @Override
+  public void close() throws IOException {
+    inputStream.close();
+  }
+}
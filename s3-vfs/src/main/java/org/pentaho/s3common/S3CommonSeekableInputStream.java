@@ -0,0 +1,303 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.s3common;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import org.apache.commons.vfs2.FileSystemException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seekable InputStream over an S3 object backed by ranged GETs.
+ * <p>
+ * The object is read in chunks of {@code chunkSize} bytes. While a chunk is being consumed the next
+ * {@code readAheadChunks} chunks are fetched in parallel, and a dropped connection resumes the range request from the
+ * last byte received instead of starting over.
+ * <p>
+ * Every range request is pinned to the ETag of the first response, so an object that is overwritten while it is read
+ * fails the read instead of mixing bytes of both versions. The read ahead threads are daemon threads that go away when
+ * idle, so a stream that is never closed neither keeps them around nor keeps the JVM from exiting.
+ */
+public class S3CommonSeekableInputStream extends InputStream {
+
+  private static final Logger logger = LoggerFactory.getLogger( S3CommonSeekableInputStream.class );
+
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  public static final int DEFAULT_READ_AHEAD_CHUNKS = 2;
+  private static final int MAX_READ_ATTEMPTS = 3;
+  private static final long READ_AHEAD_KEEP_ALIVE_SECONDS = 30;
+  private static final AtomicInteger readAheadThreads = new AtomicInteger();
+
+  private final S3CommonFileSystem fileSystem;
+  private final String bucketName;
+  private final String key;
+  private final int chunkSize;
+  private final int readAheadChunks;
+  private long contentLength;
+  private long position = 0;
+  /**
+   * ETag of the version being read, set by the first response.
+   */
+  private volatile String eTag;
+
+  private ExecutorService executor;
+  private final Map<Long, Future<byte[]>> readAhead = new HashMap<>();
+  private byte[] currentChunk;
+  private long currentChunkIndex = -1;
+  private boolean closed = false;
+
+  /**
+   * @param contentLength the object size, or a negative value to look it up on first use
+   */
+  public S3CommonSeekableInputStream( S3CommonFileSystem fileSystem, String bucketName, String key,
+                                      long contentLength, int chunkSize, int readAheadChunks ) {
+    this.fileSystem = fileSystem;
+    this.bucketName = bucketName;
+    this.key = key;
+    this.contentLength = contentLength;
+    this.chunkSize = Math.max( 1, chunkSize );
+    this.readAheadChunks = Math.max( 0, readAheadChunks );
+  }
+
+  public long getPos() {
+    return position;
+  }
+
+  public void seek( long pos ) throws IOException {
+    ensureOpen();
+    if ( pos < 0 ) {
+      throw new FileSystemException( "vfs.provider/random-access-invalid-position.error", pos );
+    }
+    position = pos;
+  }
+
+  public long length() throws IOException {
+    if ( contentLength < 0 ) {
+      try {
+        ObjectMetadata metadata = fileSystem.getS3Client().getObjectMetadata( bucketName, key );
+        pinETag( metadata.getETag() );
+        contentLength = metadata.getContentLength();
+      } catch ( SdkClientException e ) {
+        throw new IOException( e );
+      }
+    }
+    return contentLength;
+  }
+
+  @Override
+  public int read() throws IOException {
+    ensureOpen();
+    if ( position >= length() ) {
+      return -1;
+    }
+    byte[] chunk = chunkAt( position );
+    int b = chunk[ (int) ( position - currentChunkIndex * chunkSize ) ] & 0xFF;
+    position++;
+    return b;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    ensureOpen();
+    if ( len == 0 ) {
+      return 0;
+    }
+    if ( position >= length() ) {
+      return -1;
+    }
+    int total = 0;
+    while ( total < len && position < contentLength ) {
+      byte[] chunk = chunkAt( position );
+      int chunkOffset = (int) ( position - currentChunkIndex * chunkSize );
+      int count = Math.min( len - total, chunk.length - chunkOffset );
+      System.arraycopy( chunk, chunkOffset, b, off + total, count );
+      total += count;
+      position += count;
+    }
+    return total;
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    ensureOpen();
+    if ( n <= 0 ) {
+      return 0;
+    }
+    long skipped = Math.min( n, Math.max( 0, length() - position ) );
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    ensureOpen();
+    if ( currentChunk == null || position / chunkSize != currentChunkIndex ) {
+      return 0;
+    }
+    return (int) ( currentChunkIndex * chunkSize + currentChunk.length - position );
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    readAhead.values().forEach( chunk -> chunk.cancel( true ) );
+    readAhead.clear();
+    currentChunk = null;
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" );
+    }
+  }
+
+  private byte[] chunkAt( long pos ) throws IOException {
+    long index = pos / chunkSize;
+    if ( index != currentChunkIndex ) {
+      Future<byte[]> pending = readAhead.remove( index );
+      currentChunk = pending != null ? awaitChunk( pending ) : fetchChunk( index );
+      currentChunkIndex = index;
+      scheduleReadAhead( index );
+    }
+    return currentChunk;
+  }
+
+  private void scheduleReadAhead( long index ) throws IOException {
+    // forget chunks that fell out of the window after a seek
+    Iterator<Map.Entry<Long, Future<byte[]>>> iterator = readAhead.entrySet().iterator();
+    while ( iterator.hasNext() ) {
+      Map.Entry<Long, Future<byte[]>> entry = iterator.next();
+      if ( entry.getKey() < index || entry.getKey() > index + readAheadChunks ) {
+        entry.getValue().cancel( true );
+        iterator.remove();
+      }
+    }
+
+    long lastChunk = ( length() - 1 ) / chunkSize;
+    for ( long next = index + 1; next <= Math.min( index + readAheadChunks, lastChunk ); next++ ) {
+      if ( !readAhead.containsKey( next ) ) {
+        if ( executor == null ) {
+          executor = newReadAheadExecutor( readAheadChunks );
+        }
+        final long chunkIndex = next;
+        readAhead.put( chunkIndex, executor.submit( () -> fetchChunk( chunkIndex ) ) );
+      }
+    }
+  }
+
+  private static ExecutorService newReadAheadExecutor( int threads ) {
+    ThreadPoolExecutor readAheadExecutor = new ThreadPoolExecutor( threads, threads,
+      READ_AHEAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread( runnable, "s3-read-ahead-" + readAheadThreads.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    readAheadExecutor.allowCoreThreadTimeOut( true );
+    return readAheadExecutor;
+  }
+
+  private synchronized void pinETag( String responseETag ) {
+    if ( eTag == null ) {
+      eTag = responseETag;
+    }
+  }
+
+  private byte[] awaitChunk( Future<byte[]> pending ) throws IOException {
+    try {
+      return pending.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    }
+  }
+
+  private byte[] fetchChunk( long index ) throws IOException {
+    long start = index * chunkSize;
+    long end = Math.min( start + chunkSize, length() ) - 1;
+    byte[] data = new byte[ (int) ( end - start + 1 ) ];
+    int filled = 0;
+    int attempts = 0;
+
+    while ( filled < data.length ) {
+      GetObjectRequest request = new GetObjectRequest( bucketName, key ).withRange( start + filled, end );
+      String expectedETag = eTag;
+      if ( expectedETag != null ) {
+        request.withMatchingETagConstraint( expectedETag );
+      }
+      S3Object s3Object;
+      try {
+        s3Object = fileSystem.getS3Client().getObject( request );
+      } catch ( AmazonServiceException e ) {
+        throw new IOException( e );
+      } catch ( SdkClientException e ) {
+        if ( ++attempts >= MAX_READ_ATTEMPTS ) {
+          throw new IOException( e );
+        }
+        logger.debug( "Resuming read of {}/{} at offset {}", bucketName, key, start + filled, e );
+        continue;
+      }
+      if ( s3Object == null ) {
+        // the client returns no object when the ETag constraint is not met
+        throw new IOException( "Object " + bucketName + "/" + key + " changed while it was being read" );
+      }
+      pinETag( s3Object.getObjectMetadata().getETag() );
+
+      try ( S3Object range = s3Object;
+            InputStream in = range.getObjectContent() ) {
+        int read;
+        while ( filled < data.length && ( read = in.read( data, filled, data.length - filled ) ) >= 0 ) {
+          filled += read;
+        }
+        if ( filled < data.length ) {
+          throw new EOFException( "Premature end of range " + ( start + filled ) + "-" + end );
+        }
+      } catch ( IOException | SdkClientException e ) {
+        if ( ++attempts >= MAX_READ_ATTEMPTS ) {
+          throw e instanceof IOException ? (IOException) e : new IOException( e );
+        }
+        logger.debug( "Resuming read of {}/{} at offset {}", bucketName, key, start + filled, e );
+      }
+    }
+    return data;
+  }
+}
@@ -16,8 +16,11 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
@@ -138,14 +141,19 @@ public class S3FileObjectTest {
 
     when( s3ServiceMock.doesBucketExistV2( BUCKET_NAME ) ).thenReturn( true );
 
-    childObjectListing = mock( ObjectListing.class );
-    when( childObjectListing.getObjectSummaries() ).thenReturn( createObjectSummaries( 0 ) ).thenReturn( new ArrayList<>() );
-    when( childObjectListing.getCommonPrefixes() ).thenReturn( new ArrayList<>() ).thenReturn( createCommonPrefixes( 3 ) );
-    when( childObjectListing.isTruncated() ).thenReturn( true ).thenReturn( false );
-
+    // two listing pages: the objects first, then the folders
+    ListObjectsV2Result firstPage = new ListObjectsV2Result();
+    firstPage.getObjectSummaries().addAll( createObjectSummaries( 0 ) );
+    firstPage.setTruncated( true );
+    firstPage.setNextContinuationToken( "nextPage" );
+    ListObjectsV2Result lastPage = new ListObjectsV2Result();
+    lastPage.setCommonPrefixes( createCommonPrefixes( 3 ) );
+    when( s3ServiceMock.listObjectsV2( any( ListObjectsV2Request.class ) ) ).thenAnswer( invocation ->
+      ( (ListObjectsV2Request) invocation.getArgument( 0 ) ).getContinuationToken() == null ? firstPage : lastPage );
+    // single page checks whether a folder has content
+    childObjectListing = new ObjectListing();
+    childObjectListing.getObjectSummaries().addAll( firstPage.getObjectSummaries() );
     when( s3ServiceMock.listObjects( any( ListObjectsRequest.class ) ) ).thenReturn( childObjectListing );
-    when( s3ServiceMock.listObjects( anyString(), anyString() ) ).thenReturn( childObjectListing );
-    when( s3ServiceMock.listNextBatchOfObjects( any( ObjectListing.class ) ) ).thenReturn( childObjectListing );
 
     s3ObjectMock = mock( S3Object.class );
     s3ObjectInputStream = mock( S3ObjectInputStream.class );
@@ -243,12 +251,48 @@ public class S3FileObjectTest {
   public void testDoDelete() throws Exception {
     fileSystemSpy.init();
     s3FileObjectBucketSpy.doDelete();
-    verify( s3ServiceMock ).deleteObject( "bucket3", "key0" );
-    verify( s3ServiceMock ).deleteObject( "bucket3", "key1" );
-    verify( s3ServiceMock ).deleteObject( "bucket3", "key2" );
+    ArgumentCaptor<DeleteObjectsRequest> deleteObjectsRequestArgumentCaptor =
+      ArgumentCaptor.forClass( DeleteObjectsRequest.class );
+    verify( s3ServiceMock ).deleteObjects( deleteObjectsRequestArgumentCaptor.capture() );
+    assertEquals( "bucket3", deleteObjectsRequestArgumentCaptor.getValue().getBucketName() );
+    assertEquals( Arrays.asList( "key0", "key1", "key2" ), deleteObjectsRequestArgumentCaptor.getValue().getKeys()
+      .stream().map( DeleteObjectsRequest.KeyVersion::getKey ).collect( Collectors.toList() ) );
     verify( s3ServiceMock ).deleteObject( "bucket3", "" );
   }
 
+  @Test
+  public void testDoDeleteFolderKeepsSiblingsSharingItsPrefix() throws Exception {
+    fileSystemSpy.init();
+    List<S3ObjectSummary> objects = new ArrayList<>();
+    for ( String key : Arrays.asList( "p/a/b/", "p/a/b/x", "p/a/bc/y", "p/a/b.csv" ) ) {
+      S3ObjectSummary summary = new S3ObjectSummary();
+      summary.setBucketName( BUCKET_NAME );
+      summary.setKey( key );
+      objects.add( summary );
+    }
+    when( s3ServiceMock.listObjectsV2( any( ListObjectsV2Request.class ) ) ).thenAnswer( invocation -> {
+      String prefix = ( (ListObjectsV2Request) invocation.getArgument( 0 ) ).getPrefix();
+      ListObjectsV2Result page = new ListObjectsV2Result();
+      page.getObjectSummaries().addAll( objects.stream()
+        .filter( summary -> summary.getKey().startsWith( prefix ) ).collect( Collectors.toList() ) );
+      return page;
+    } );
+
+    // the folder was seen as a common prefix while listing its parent
+    fileSystemSpy.getObjectStatusCache().putFolder( BUCKET_NAME, "p/a/b/" );
+    S3FileObject folder = new S3FileObject(
+      new S3FileName( SCHEME, BUCKET_NAME, "/" + BUCKET_NAME + "/p/a/b", FileType.FOLDER ), fileSystemSpy );
+    folder.doAttach();
+    folder.doDelete();
+
+    ArgumentCaptor<DeleteObjectsRequest> deleteObjectsRequestArgumentCaptor =
+      ArgumentCaptor.forClass( DeleteObjectsRequest.class );
+    verify( s3ServiceMock ).deleteObjects( deleteObjectsRequestArgumentCaptor.capture() );
+    assertEquals( Arrays.asList( "p/a/b/", "p/a/b/x" ), deleteObjectsRequestArgumentCaptor.getValue().getKeys()
+      .stream().map( DeleteObjectsRequest.KeyVersion::getKey ).collect( Collectors.toList() ) );
+    verify( s3ServiceMock ).deleteObject( BUCKET_NAME, "p/a/b/" );
+  }
+
   @Test
   public void testDoRename() throws Exception {
     String someNewBucketName = "someNewBucketName";
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class S3ClientRegistryTest {
+
+  @Test
+  public void testClientIsSharedForEqualSettings() {
+    S3ClientRegistry registry = new S3ClientRegistry();
+    AmazonS3 client = registry.acquireClient( settings( "accessKey" ), () -> false ).getClient();
+
+    assertSame( client, registry.acquireClient( settings( "accessKey" ), () -> false ).getClient() );
+    assertNotSame( client, registry.acquireClient( settings( "otherAccessKey" ), () -> false ).getClient() );
+  }
+
+  @Test
+  public void testClearDropsClients() {
+    S3ClientRegistry registry = new S3ClientRegistry();
+    AmazonS3 client = registry.acquireClient( settings( "accessKey" ), () -> false ).getClient();
+    registry.clear();
+
+    assertNotSame( client, registry.acquireClient( settings( "accessKey" ), () -> false ).getClient() );
+  }
+
+  @Test
+  public void testDroppedClientsAreShutDownOnceReleased() {
+    S3ClientRegistry registry = mockingRegistry();
+    S3ClientRegistry.ClientReference first = registry.acquireClient( settings( "accessKey" ), () -> false );
+    S3ClientRegistry.ClientReference second = registry.acquireClient( settings( "accessKey" ), () -> false );
+    AmazonS3 client = first.getClient();
+
+    registry.clear();
+    first.release();
+    first.release();
+    // still in use through the second reference
+    verify( client, never() ).shutdown();
+
+    second.release();
+    verify( client ).shutdown();
+  }
+
+  @Test
+  public void testReleasedClientsStayUntilDropped() {
+    S3ClientRegistry registry = mockingRegistry();
+    S3ClientRegistry.ClientReference reference = registry.acquireClient( settings( "accessKey" ), () -> false );
+    AmazonS3 client = reference.getClient();
+    reference.release();
+    verify( client, never() ).shutdown();
+
+    assertSame( client, registry.acquireClient( settings( "accessKey" ), () -> false ).getClient() );
+  }
+
+  @Test
+  public void testRegistryKeyDoesNotHoldTheCredentials() {
+    String key = settings( "accessKey" ).getRegistryKey();
+
+    assertEquals( key, settings( "accessKey" ).getRegistryKey() );
+    assertNotEquals( key, settings( "otherAccessKey" ).getRegistryKey() );
+    assertFalse( key.contains( "accessKey" ) || key.contains( "secretKey" ) );
+  }
+
+  private S3ClientRegistry mockingRegistry() {
+    return new S3ClientRegistry() {
+      @Override
+      protected AmazonS3 buildClient( S3ClientSettings settings, boolean regionSet ) {
+        return mock( AmazonS3.class );
+      }
+    };
+  }
+
+  private S3ClientSettings settings( String accessKey ) {
+    return S3ClientSettings.builder()
+      .withAccessKey( accessKey )
+      .withSecretKey( "secretKey" )
+      .withRegion( "us-east-1" )
+      .withMaxConnections( 100 )
+      .build();
+  }
+}
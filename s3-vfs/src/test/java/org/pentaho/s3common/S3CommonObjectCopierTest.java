@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import org.apache.commons.vfs2.FileSystemException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3CommonObjectCopierTest {
+
+  private static final long PART_SIZE = 10L;
+
+  private AmazonS3 s3Client;
+  private S3CommonFileSystem fileSystem;
+
+  @Before
+  public void setUp() throws Exception {
+    s3Client = mock( AmazonS3.class );
+    fileSystem = mock( S3CommonFileSystem.class );
+    when( fileSystem.getS3Client() ).thenReturn( s3Client );
+    when( s3Client.getObjectMetadata( "bucket", "source" ) ).thenReturn( new ObjectMetadata() );
+    InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+    initResult.setUploadId( "uploadId" );
+    when( s3Client.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) ).thenReturn( initResult );
+    when( s3Client.copyPart( any( CopyPartRequest.class ) ) ).thenAnswer( invocation -> {
+      CopyPartRequest request = invocation.getArgument( 0 );
+      CopyPartResult result = new CopyPartResult();
+      result.setPartNumber( request.getPartNumber() );
+      result.setETag( "etag" + request.getPartNumber() );
+      return result;
+    } );
+  }
+
+  @Test
+  public void testSmallObjectIsCopiedInOneRequest() throws Exception {
+    CopyObjectRequest request = new CopyObjectRequest( "bucket", "source", "bucket", "target" );
+    try ( S3CommonObjectCopier copier = new S3CommonObjectCopier( fileSystem, PART_SIZE, 2 ) ) {
+      copier.copy( request, PART_SIZE );
+    }
+
+    verify( s3Client ).copyObject( request );
+    verify( s3Client, never() ).copyPart( any( CopyPartRequest.class ) );
+  }
+
+  @Test
+  public void testLargeObjectIsCopiedInParts() throws Exception {
+    try ( S3CommonObjectCopier copier = new S3CommonObjectCopier( fileSystem, PART_SIZE, 2 ) ) {
+      copier.copy( new CopyObjectRequest( "bucket", "source", "bucket", "target" ), 25L );
+    }
+
+    ArgumentCaptor<CopyPartRequest> partCaptor = ArgumentCaptor.forClass( CopyPartRequest.class );
+    verify( s3Client, times( 3 ) ).copyPart( partCaptor.capture() );
+    CopyPartRequest lastPart = partCaptor.getAllValues().stream()
+      .filter( part -> part.getPartNumber() == 3 ).findFirst().orElseThrow( IllegalStateException::new );
+    assertEquals( Long.valueOf( 20L ), lastPart.getFirstByte() );
+    assertEquals( Long.valueOf( 24L ), lastPart.getLastByte() );
+
+    ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+      ArgumentCaptor.forClass( CompleteMultipartUploadRequest.class );
+    verify( s3Client ).completeMultipartUpload( completeCaptor.capture() );
+    assertEquals( "[1, 2, 3]", completeCaptor.getValue().getPartETags().stream()
+      .map( tag -> tag.getPartNumber() ).collect( Collectors.toList() ).toString() );
+  }
+
+  @Test( expected = FileSystemException.class )
+  public void testFailedPartAbortsUpload() throws Exception {
+    when( s3Client.copyPart( any( CopyPartRequest.class ) ) ).thenThrow( new RuntimeException( "copy failed" ) );
+    try ( S3CommonObjectCopier copier = new S3CommonObjectCopier( fileSystem, PART_SIZE, 2 ) ) {
+      copier.copy( new CopyObjectRequest( "bucket", "source", "bucket", "target" ), 25L );
+    } finally {
+      verify( s3Client ).abortMultipartUpload( any( AbortMultipartUploadRequest.class ) );
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3CommonObjectListingTest {
+
+  private AmazonS3 s3Client;
+
+  @Before
+  public void setUp() {
+    s3Client = mock( AmazonS3.class );
+    // three pages of two keys, chained by their continuation tokens
+    when( s3Client.listObjectsV2( any( ListObjectsV2Request.class ) ) ).thenAnswer( invocation -> {
+      String token = ( (ListObjectsV2Request) invocation.getArgument( 0 ) ).getContinuationToken();
+      int page = token == null ? 0 : Integer.parseInt( token );
+      ListObjectsV2Result result = new ListObjectsV2Result();
+      result.getObjectSummaries().add( summary( "key" + ( page * 2 ) ) );
+      result.getObjectSummaries().add( summary( "key" + ( page * 2 + 1 ) ) );
+      if ( page < 2 ) {
+        result.setTruncated( true );
+        result.setNextContinuationToken( String.valueOf( page + 1 ) );
+      }
+      return result;
+    } );
+  }
+
+  @Test
+  public void testPagesFollowContinuationTokens() {
+    for ( boolean prefetch : new boolean[] { false, true } ) {
+      try ( S3CommonObjectListing listing =
+              new S3CommonObjectListing( s3Client, new ListObjectsV2Request().withBucketName( "bucket" ), prefetch ) ) {
+        List<String> keys = new ArrayList<>();
+        while ( listing.hasNext() ) {
+          listing.next().getObjectSummaries().forEach( summary -> keys.add( summary.getKey() ) );
+        }
+        assertEquals( Arrays.asList( "key0", "key1", "key2", "key3", "key4", "key5" ), keys );
+        assertFalse( listing.hasNext() );
+      }
+    }
+    verify( s3Client, times( 6 ) ).listObjectsV2( any( ListObjectsV2Request.class ) );
+  }
+
+  @Test
+  public void testPagesAreRequestedLazily() {
+    try ( S3CommonObjectListing listing =
+            new S3CommonObjectListing( s3Client, new ListObjectsV2Request().withBucketName( "bucket" ), false ) ) {
+      verify( s3Client, never() ).listObjectsV2( any( ListObjectsV2Request.class ) );
+      assertEquals( "key0", listing.next().getObjectSummaries().get( 0 ).getKey() );
+      verify( s3Client, times( 1 ) ).listObjectsV2( any( ListObjectsV2Request.class ) );
+    }
+  }
+
+  @Test( expected = NoSuchElementException.class )
+  public void testNextFailsAfterTheLastPage() {
+    try ( S3CommonObjectListing listing =
+            new S3CommonObjectListing( s3Client, new ListObjectsV2Request().withBucketName( "bucket" ), true ) ) {
+      for ( int i = 0; i < 3; i++ ) {
+        listing.next();
+      }
+      assertFalse( listing.hasNext() );
+      listing.next();
+    }
+  }
+
+  private S3ObjectSummary summary( String key ) {
+    S3ObjectSummary summary = new S3ObjectSummary();
+    summary.setKey( key );
+    return summary;
+  }
+}
@@ -0,0 +1,67 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.apache.commons.vfs2.FileType;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class S3CommonObjectStatusCacheTest {
+
+  @Test
+  public void testPutFromSummary() {
+    S3CommonObjectStatusCache cache = new S3CommonObjectStatusCache( 60_000L, 100L );
+    Date lastModified = new Date();
+    S3ObjectSummary summary = new S3ObjectSummary();
+    summary.setKey( "folder/file.txt" );
+    summary.setSize( 42L );
+    summary.setLastModified( lastModified );
+    cache.put( "bucket", summary );
+    cache.putFolder( "bucket", "folder/child/" );
+
+    S3CommonObjectStatusCache.S3ObjectStatus status = cache.get( "bucket", "folder/file.txt" );
+    assertNotNull( status );
+    assertEquals( FileType.FILE, status.getType() );
+    assertEquals( 42L, status.getMetadata().getContentLength() );
+    assertEquals( lastModified, status.getMetadata().getLastModified() );
+    assertEquals( FileType.FOLDER, cache.get( "bucket", "folder/child" ).getType() );
+    assertEquals( FileType.FOLDER, cache.get( "bucket", "folder/child/" ).getType() );
+  }
+
+  @Test
+  public void testInvalidatePrefix() {
+    S3CommonObjectStatusCache cache = new S3CommonObjectStatusCache( 60_000L, 100L );
+    cache.putFolder( "bucket", "folder" );
+    cache.putFolder( "bucket", "folder/child" );
+    cache.putFolder( "bucket", "folder2" );
+
+    cache.invalidatePrefix( "bucket", "folder/" );
+
+    assertNull( cache.get( "bucket", "folder" ) );
+    assertNull( cache.get( "bucket", "folder/child" ) );
+    assertNotNull( cache.get( "bucket", "folder2" ) );
+  }
+
+  @Test
+  public void testDisabledCache() {
+    S3CommonObjectStatusCache cache = new S3CommonObjectStatusCache( 60_000L, 0L );
+    cache.putFolder( "bucket", "folder" );
+    assertNull( cache.get( "bucket", "folder" ) );
+  }
+}
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class S3CommonPartBufferTest {
+
+  @Test
+  public void testWriteAndReadBack() throws Exception {
+    for ( S3CommonPartBufferType type : S3CommonPartBufferType.values() ) {
+      try ( S3CommonPartBuffer buffer = type.allocate( 8 ) ) {
+        buffer.write( 1 );
+        assertEquals( 6, buffer.write( new byte[] { 2, 3, 4, 5, 6, 7 }, 0, 6 ) );
+        assertFalse( buffer.isFull() );
+        assertEquals( 1, buffer.write( new byte[] { 8, 9 }, 0, 2 ) );
+        assertTrue( buffer.isFull() );
+        assertEquals( 8, buffer.length() );
+
+        assertArrayEquals( type.name(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 },
+          IOUtils.toByteArray( buffer.getInputStream() ) );
+
+        buffer.clear();
+        assertEquals( 0, buffer.length() );
+        buffer.write( 42 );
+        assertArrayEquals( type.name(), new byte[] { 42 }, IOUtils.toByteArray( buffer.getInputStream() ) );
+      }
+    }
+  }
+
+  @Test
+  public void testInputStreamCanBeReset() throws Exception {
+    try ( S3CommonPartBuffer buffer = S3CommonPartBufferType.DIRECT.allocate( 4 ) ) {
+      buffer.write( new byte[] { 1, 2, 3, 4 }, 0, 4 );
+      InputStream in = buffer.getInputStream();
+      assertTrue( in.markSupported() );
+      assertEquals( 1, in.read() );
+      in.mark( 4 );
+      assertEquals( 2, in.read() );
+      assertEquals( 3, in.read() );
+      in.reset();
+      assertEquals( 3, in.available() );
+      assertArrayEquals( new byte[] { 2, 3, 4 }, IOUtils.toByteArray( in ) );
+    }
+  }
+
+  @Test
+  public void testFromName() {
+    assertEquals( S3CommonPartBufferType.FILE, S3CommonPartBufferType.fromName( "file" ) );
+    assertEquals( S3CommonPartBufferType.HEAP, S3CommonPartBufferType.fromName( " HEAP " ) );
+    assertEquals( S3CommonPartBufferType.DEFAULT, S3CommonPartBufferType.fromName( null ) );
+    assertEquals( S3CommonPartBufferType.DEFAULT, S3CommonPartBufferType.fromName( "unknown" ) );
+  }
+}
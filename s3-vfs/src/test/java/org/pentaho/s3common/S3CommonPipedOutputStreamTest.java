@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.KettleEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3CommonPipedOutputStreamTest {
+
+  private static final int PART_SIZE = S3CommonPipedOutputStream.DEFAULT_PART_SIZE;
+
+  private S3CommonFileSystem fileSystem;
+  private AmazonS3 s3Client;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    s3Client = mock( AmazonS3.class );
+    fileSystem = mock( S3CommonFileSystem.class );
+    when( fileSystem.getS3Client() ).thenReturn( s3Client );
+
+    InitiateMultipartUploadResult initResponse = mock( InitiateMultipartUploadResult.class );
+    when( initResponse.getUploadId() ).thenReturn( "uploadId" );
+    when( s3Client.initiateMultipartUpload( any() ) ).thenReturn( initResponse );
+    when( s3Client.uploadPart( any() ) ).thenAnswer( invocation -> {
+      UploadPartRequest request = invocation.getArgument( 0 );
+      UploadPartResult uploadPartResult = new UploadPartResult();
+      uploadPartResult.setPartNumber( request.getPartNumber() );
+      uploadPartResult.setETag( "etag" + request.getPartNumber() );
+      return uploadPartResult;
+    } );
+  }
+
+  @Test
+  public void testPartsAreCompletedInOrder() throws Exception {
+    OutputStream out = new S3CommonPipedOutputStream( fileSystem, "bucket", "key", PART_SIZE, 3 );
+    byte[] chunk = new byte[ 1024 * 1024 ];
+    for ( int i = 0; i < 22; i++ ) {
+      out.write( chunk );
+    }
+    out.close();
+
+    // 22MB in 5MB parts
+    verify( s3Client, times( 5 ) ).uploadPart( any() );
+    ArgumentCaptor<CompleteMultipartUploadRequest> captor =
+      ArgumentCaptor.forClass( CompleteMultipartUploadRequest.class );
+    verify( s3Client ).completeMultipartUpload( captor.capture() );
+    List<Integer> partNumbers = captor.getValue().getPartETags().stream()
+      .map( PartETag::getPartNumber ).collect( Collectors.toList() );
+    assertEquals( Arrays.asList( 1, 2, 3, 4, 5 ), partNumbers );
+  }
+
+  @Test
+  public void testPartsAreUploadedFromEveryBufferType() throws Exception {
+    byte[] data = new byte[ PART_SIZE + 10 ];
+    new Random( 42 ).nextBytes( data );
+    for ( S3CommonPartBufferType bufferType : S3CommonPartBufferType.values() ) {
+      ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+      when( s3Client.uploadPart( any() ) ).thenAnswer( invocation -> {
+        UploadPartRequest request = invocation.getArgument( 0 );
+        byte[] part = IOUtils.toByteArray( request.getInputStream() );
+        assertEquals( request.getPartSize(), part.length );
+        synchronized ( uploaded ) {
+          uploaded.write( part );
+        }
+        UploadPartResult uploadPartResult = new UploadPartResult();
+        uploadPartResult.setPartNumber( request.getPartNumber() );
+        uploadPartResult.setETag( "etag" + request.getPartNumber() );
+        return uploadPartResult;
+      } );
+
+      // a single upload thread keeps the parts in order
+      OutputStream out = new S3CommonPipedOutputStream( fileSystem, "bucket", "key", PART_SIZE, 1, bufferType );
+      out.write( data );
+      out.close();
+
+      assertArrayEquals( bufferType.name(), data, uploaded.toByteArray() );
+    }
+  }
+
+  @Test
+  public void testEmptyStreamUploadsSinglePart() throws Exception {
+    OutputStream out = new S3CommonPipedOutputStream( fileSystem, "bucket", "key" );
+    out.write( new byte[] {} );
+    out.close();
+
+    verify( s3Client, times( 1 ) ).uploadPart( any() );
+    verify( s3Client ).completeMultipartUpload( any() );
+  }
+
+  @Test
+  public void testFailedPartAbortsUpload() throws Exception {
+    when( s3Client.uploadPart( any() ) ).thenThrow( new AmazonS3Exception( "failed" ) );
+    OutputStream out = new S3CommonPipedOutputStream( fileSystem, "bucket", "key", PART_SIZE, 2 );
+    try {
+      out.write( new byte[ PART_SIZE + 1 ] );
+      out.close();
+      fail( "Expected the failed part upload to be reported" );
+    } catch ( IOException expected ) {
+      // the failure surfaces either on a later write or on close
+    }
+
+    verify( s3Client, never() ).completeMultipartUpload( any() );
+    verify( s3Client ).abortMultipartUpload( any() );
+  }
+
+  @Test
+  public void testAbortedUploadFreesTheBuffersOfQueuedParts() throws Exception {
+    CountDownLatch failPart = new CountDownLatch( 1 );
+    when( s3Client.uploadPart( any() ) ).thenAnswer( invocation -> {
+      failPart.await();
+      throw new AmazonS3Exception( "failed" );
+    } );
+    int tempFiles = countPartFiles();
+
+    // one upload thread: the first part is being sent while the second one waits in the queue
+    OutputStream out =
+      new S3CommonPipedOutputStream( fileSystem, "bucket", "key", PART_SIZE, 1, S3CommonPartBufferType.FILE );
+    out.write( new byte[ 2 * PART_SIZE ] );
+    failPart.countDown();
+    try {
+      out.close();
+      fail( "Expected the failed part upload to be reported" );
+    } catch ( IOException expected ) {
+      // the upload is aborted
+    }
+
+    // a part that had already started frees its buffer when its request returns
+    long deadline = System.currentTimeMillis() + 5000;
+    while ( countPartFiles() > tempFiles && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 50 );
+    }
+    assertEquals( tempFiles, countPartFiles() );
+  }
+
+  @Test
+  public void testDefaultUploadConcurrencyIsLoweredForLargeParts() {
+    assertEquals( S3CommonPipedOutputStream.DEFAULT_UPLOAD_CONCURRENCY,
+      S3CommonPipedOutputStream.defaultUploadConcurrency( S3CommonPipedOutputStream.DEFAULT_PART_SIZE ) );
+    // 16 MB parts: three uploading and one being filled fit in 64 MB
+    assertEquals( 3, S3CommonPipedOutputStream.defaultUploadConcurrency( 16 * 1024 * 1024 ) );
+    assertEquals( 1, S3CommonPipedOutputStream.defaultUploadConcurrency( 512 * 1024 * 1024 ) );
+  }
+
+  private static int countPartFiles() {
+    File[] files = new File( System.getProperty( "java.io.tmpdir" ) )
+      .listFiles( ( dir, name ) -> name.startsWith( "s3-part-" ) && name.endsWith( ".tmp" ) );
+    return files == null ? 0 : files.length;
+  }
+}
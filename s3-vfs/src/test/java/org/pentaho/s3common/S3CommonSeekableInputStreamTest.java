@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.s3common;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class S3CommonSeekableInputStreamTest {
+
+  private static final int CHUNK_SIZE = 16;
+
+  private S3CommonFileSystem fileSystem;
+  private AmazonS3 s3Client;
+  private byte[] content;
+
+  @Before
+  public void setUp() {
+    content = new byte[ 100 ];
+    for ( int i = 0; i < content.length; i++ ) {
+      content[ i ] = (byte) i;
+    }
+    s3Client = mock( AmazonS3.class );
+    fileSystem = mock( S3CommonFileSystem.class );
+    when( fileSystem.getS3Client() ).thenReturn( s3Client );
+    when( s3Client.getObject( any( GetObjectRequest.class ) ) ).thenAnswer( invocation -> {
+      long[] range = ( (GetObjectRequest) invocation.getArgument( 0 ) ).getRange();
+      return s3Object( new ByteArrayInputStream( content, (int) range[ 0 ], (int) ( range[ 1 ] - range[ 0 ] + 1 ) ) );
+    } );
+  }
+
+  @Test
+  public void testSequentialRead() throws Exception {
+    try ( S3CommonSeekableInputStream in =
+            new S3CommonSeekableInputStream( fileSystem, "bucket", "key", content.length, CHUNK_SIZE, 2 ) ) {
+      byte[] read = new byte[ content.length ];
+      int total = 0;
+      int count;
+      while ( ( count = in.read( read, total, read.length - total ) ) > 0 ) {
+        total += count;
+      }
+      assertEquals( content.length, total );
+      assertArrayEquals( content, read );
+      assertEquals( -1, in.read() );
+    }
+  }
+
+  @Test
+  public void testSeek() throws Exception {
+    try ( S3CommonSeekableInputStream in =
+            new S3CommonSeekableInputStream( fileSystem, "bucket", "key", -1, CHUNK_SIZE, 0 ) ) {
+      when( s3Client.getObjectMetadata( "bucket", "key" ) ).thenReturn( metadata( content.length ) );
+      in.seek( 92 );
+      assertEquals( 92, in.read() );
+      in.seek( 3 );
+      assertEquals( 3, in.read() );
+      assertEquals( 4, in.getPos() );
+      assertEquals( content.length, in.length() );
+    }
+  }
+
+  @Test
+  public void testResumeAfterDroppedConnection() throws Exception {
+    AtomicBoolean failed = new AtomicBoolean();
+    when( s3Client.getObject( any( GetObjectRequest.class ) ) ).thenAnswer( invocation -> {
+      long[] range = ( (GetObjectRequest) invocation.getArgument( 0 ) ).getRange();
+      InputStream rangeContent =
+        new ByteArrayInputStream( content, (int) range[ 0 ], (int) ( range[ 1 ] - range[ 0 ] + 1 ) );
+      if ( failed.compareAndSet( false, true ) ) {
+        // drop the connection after a few bytes
+        return s3Object( new InputStream() {
+          private int served = 0;
+
+          @Override public int read() throws IOException {
+            if ( served++ >= 5 ) {
+              throw new IOException( "Connection reset" );
+            }
+            return rangeContent.read();
+          }
+        } );
+      }
+      return s3Object( rangeContent );
+    } );
+
+    try ( S3CommonSeekableInputStream in =
+            new S3CommonSeekableInputStream( fileSystem, "bucket", "key", content.length, CHUNK_SIZE, 0 ) ) {
+      byte[] read = new byte[ CHUNK_SIZE ];
+      assertEquals( CHUNK_SIZE, in.read( read, 0, CHUNK_SIZE ) );
+      assertArrayEquals( Arrays.copyOf( content, CHUNK_SIZE ), read );
+    }
+  }
+
+  @Test
+  public void testRangesArePinnedToTheFirstVersionRead() throws Exception {
+    when( s3Client.getObject( any( GetObjectRequest.class ) ) ).thenAnswer( invocation -> {
+      GetObjectRequest request = invocation.getArgument( 0 );
+      long[] range = request.getRange();
+      if ( range[ 0 ] > 0 ) {
+        assertEquals( Collections.singletonList( "v1" ), request.getMatchingETagConstraints() );
+        // the object was overwritten after the first chunk was read
+        return null;
+      }
+      S3Object s3Object =
+        s3Object( new ByteArrayInputStream( content, (int) range[ 0 ], (int) ( range[ 1 ] - range[ 0 ] + 1 ) ) );
+      s3Object.getObjectMetadata().setHeader( "ETag", "v1" );
+      return s3Object;
+    } );
+
+    try ( S3CommonSeekableInputStream in =
+            new S3CommonSeekableInputStream( fileSystem, "bucket", "key", content.length, CHUNK_SIZE, 0 ) ) {
+      byte[] read = new byte[ content.length ];
+      assertEquals( CHUNK_SIZE, in.read( read, 0, CHUNK_SIZE ) );
+      in.read( read, CHUNK_SIZE, CHUNK_SIZE );
+      fail( "Expected the changed object to fail the read" );
+    } catch ( IOException expected ) {
+      // the second range does not match the ETag of the first one
+    }
+  }
+
+  private S3Object s3Object( InputStream inputStream ) {
+    S3Object s3Object = new S3Object();
+    s3Object.setObjectContent( inputStream );
+    return s3Object;
+  }
+
+  private ObjectMetadata metadata( long contentLength ) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength( contentLength );
+    return metadata;
+  }
+}
@@ -17,6 +17,8 @@ import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -123,14 +125,19 @@ public class S3NFileObjectTest {
 
     when( s3ServiceMock.doesBucketExistV2( BUCKET_NAME ) ).thenReturn( true );
 
-    childObjectListing = mock( ObjectListing.class );
-    when( childObjectListing.getObjectSummaries() ).thenReturn( createObjectSummaries( 0 ) ).thenReturn( new ArrayList<>() );
-    when( childObjectListing.getCommonPrefixes() ).thenReturn( new ArrayList<>() ).thenReturn( createCommonPrefixes( 3 ) );
-    when( childObjectListing.isTruncated() ).thenReturn( true ).thenReturn( false );
-
+    // two listing pages: the objects first, then the folders
+    ListObjectsV2Result firstPage = new ListObjectsV2Result();
+    firstPage.getObjectSummaries().addAll( createObjectSummaries( 0 ) );
+    firstPage.setTruncated( true );
+    firstPage.setNextContinuationToken( "nextPage" );
+    ListObjectsV2Result lastPage = new ListObjectsV2Result();
+    lastPage.setCommonPrefixes( createCommonPrefixes( 3 ) );
+    when( s3ServiceMock.listObjectsV2( any( ListObjectsV2Request.class ) ) ).thenAnswer( invocation ->
+      ( (ListObjectsV2Request) invocation.getArgument( 0 ) ).getContinuationToken() == null ? firstPage : lastPage );
+    // single page checks whether a folder has content
+    childObjectListing = new ObjectListing();
+    childObjectListing.getObjectSummaries().addAll( firstPage.getObjectSummaries() );
     when( s3ServiceMock.listObjects( any( ListObjectsRequest.class ) ) ).thenReturn( childObjectListing );
-    when( s3ServiceMock.listObjects( anyString(), anyString() ) ).thenReturn( childObjectListing );
-    when( s3ServiceMock.listNextBatchOfObjects( any( ObjectListing.class ) ) ).thenReturn( childObjectListing );
 
     s3ObjectMock = mock( S3Object.class );
     s3ObjectInputStream = mock( S3ObjectInputStream.class );